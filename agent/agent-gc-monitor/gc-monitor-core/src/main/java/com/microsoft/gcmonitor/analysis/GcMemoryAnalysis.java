@@ -0,0 +1,48 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.gcmonitor.analysis;
+
+import java.util.OptionalDouble;
+
+/** Memory trends derived from a single gc event, see {@link GcMemoryAnalyzer}. */
+public class GcMemoryAnalysis {
+
+  static final GcMemoryAnalysis EMPTY =
+      new GcMemoryAnalysis(OptionalDouble.empty(), OptionalDouble.empty(), OptionalDouble.empty());
+
+  private final OptionalDouble allocationRate;
+  private final OptionalDouble promotionRate;
+  private final OptionalDouble oldGenSecondsToExhaustion;
+
+  GcMemoryAnalysis(
+      OptionalDouble allocationRate,
+      OptionalDouble promotionRate,
+      OptionalDouble oldGenSecondsToExhaustion) {
+    this.allocationRate = allocationRate;
+    this.promotionRate = promotionRate;
+    this.oldGenSecondsToExhaustion = oldGenSecondsToExhaustion;
+  }
+
+  /** Bytes per second allocated in the young generation since the previous collection. */
+  public OptionalDouble getAllocationRate() {
+    return allocationRate;
+  }
+
+  /**
+   * Bytes per second promoted to the tenured generation since the previous young collection, only
+   * present for young collections.
+   */
+  public OptionalDouble getPromotionRate() {
+    return promotionRate;
+  }
+
+  /**
+   * Projected seconds until the tenured generation is full, based on a linear fit of its occupancy
+   * after the last few tenured collections. Only present for tenured collections once there are
+   * enough of them, and {@link Double#POSITIVE_INFINITY} if the occupancy is not growing.
+   */
+  public OptionalDouble getOldGenSecondsToExhaustion() {
+    return oldGenSecondsToExhaustion;
+  }
+}
@@ -0,0 +1,148 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.gcmonitor.analysis;
+
+import com.microsoft.gcmonitor.GcCollectionEvent;
+import com.microsoft.gcmonitor.memorypools.MemoryPool;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+/**
+ * Derives the allocation rate, the promotion rate and the growth of the tenured generation from
+ * the stream of gc events of a single JVM.
+ *
+ * <p>The tenured generation trend is a least squares fit over its occupancy after each of the last
+ * few tenured collections, i.e. over the live data, which keeps growing in case of a leak.
+ */
+public class GcMemoryAnalyzer {
+
+  private final int minTrendSamples;
+  private final int maxTrendSamples;
+
+  // end time (in ms since the JVM started) and young generation occupancy after the last collection
+  private long lastEndTime = -1;
+  private long lastYoungUsedAfter;
+
+  // end time of the last young collection
+  private long lastYoungEndTime = -1;
+
+  // end time and tenured generation occupancy after each of the last tenured collections
+  private final Deque<long[]> tenuredSamples = new ArrayDeque<>();
+
+  public GcMemoryAnalyzer(int minTrendSamples, int maxTrendSamples) {
+    if (minTrendSamples < 2 || maxTrendSamples < minTrendSamples) {
+      throw new IllegalArgumentException(
+          "Invalid trend sample counts: " + minTrendSamples + ", " + maxTrendSamples);
+    }
+    this.minTrendSamples = minTrendSamples;
+    this.maxTrendSamples = maxTrendSamples;
+  }
+
+  /** Events are expected in the order in which the collections ended. */
+  public synchronized GcMemoryAnalysis analyze(GcCollectionEvent event) {
+    if (event.getEndTime() < lastEndTime) {
+      // collections of different collectors can be reported slightly out of order
+      return GcMemoryAnalysis.EMPTY;
+    }
+    return new GcMemoryAnalysis(
+        getAllocationRate(event), getPromotionRate(event), getOldGenSecondsToExhaustion(event));
+  }
+
+  private OptionalDouble getAllocationRate(GcCollectionEvent event) {
+    List<MemoryPool> youngPools = event.getYoungPools();
+    if (youngPools.isEmpty()) {
+      // e.g. non-generational ZGC and Shenandoah
+      return OptionalDouble.empty();
+    }
+    long previousEndTime = lastEndTime;
+    long previousYoungUsedAfter = lastYoungUsedAfter;
+    lastEndTime = event.getEndTime();
+    lastYoungUsedAfter = event.getMemoryUsageAfterGc(youngPools).getUsed();
+
+    long elapsedMillis = event.getEndTime() - previousEndTime;
+    long allocated = event.getMemoryUsageBeforeGc(youngPools).getUsed() - previousYoungUsedAfter;
+    // the young generation can shrink without a collection being reported in between (e.g. while
+    // the heap is resized), in which case the allocation is unknown
+    if (previousEndTime < 0 || elapsedMillis <= 0 || allocated < 0) {
+      return OptionalDouble.empty();
+    }
+    return OptionalDouble.of(allocated * 1000.0 / elapsedMillis);
+  }
+
+  private OptionalDouble getPromotionRate(GcCollectionEvent event) {
+    Optional<MemoryPool> tenuredPool = event.getTenuredPool();
+    if (!event.getCollector().isYoungCollector() || !tenuredPool.isPresent()) {
+      return OptionalDouble.empty();
+    }
+    long previousYoungEndTime = lastYoungEndTime;
+    lastYoungEndTime = event.getEndTime();
+
+    long elapsedMillis = event.getEndTime() - previousYoungEndTime;
+    long promoted =
+        event.getMemoryUsageAfterGc(tenuredPool.get()).getUsed()
+            - event.getMemoryUsageBeforeGc(tenuredPool.get()).getUsed();
+    // G1 mixed collections also reclaim tenured regions, in which case the net change does not
+    // tell how much was promoted
+    if (previousYoungEndTime < 0 || elapsedMillis <= 0 || promoted < 0) {
+      return OptionalDouble.empty();
+    }
+    return OptionalDouble.of(promoted * 1000.0 / elapsedMillis);
+  }
+
+  private OptionalDouble getOldGenSecondsToExhaustion(GcCollectionEvent event) {
+    Optional<MemoryPool> tenuredPool = event.getTenuredPool();
+    if (!event.getCollector().isTenuredCollector() || !tenuredPool.isPresent()) {
+      return OptionalDouble.empty();
+    }
+    MemoryUsage usage = event.getMemoryUsageAfterGc(tenuredPool.get());
+    if (usage.getMax() <= 0) {
+      // no maximum (-1), so it can't be exhausted
+      return OptionalDouble.empty();
+    }
+    tenuredSamples.addLast(new long[] {event.getEndTime(), usage.getUsed()});
+    if (tenuredSamples.size() > maxTrendSamples) {
+      tenuredSamples.removeFirst();
+    }
+    if (tenuredSamples.size() < minTrendSamples) {
+      return OptionalDouble.empty();
+    }
+
+    double bytesPerMilli = getSlope(tenuredSamples);
+    if (Double.isNaN(bytesPerMilli)) {
+      return OptionalDouble.empty();
+    }
+    if (bytesPerMilli <= 0) {
+      return OptionalDouble.of(Double.POSITIVE_INFINITY);
+    }
+    long headroom = Math.max(0, usage.getMax() - usage.getUsed());
+    return OptionalDouble.of(headroom / bytesPerMilli / 1000.0);
+  }
+
+  // least squares slope of occupancy over time, NaN if all samples have the same time
+  private static double getSlope(Deque<long[]> samples) {
+    // relative to the first sample, to keep the sums small
+    long[] first = samples.getFirst();
+    double meanTime = 0;
+    double meanUsed = 0;
+    for (long[] sample : samples) {
+      meanTime += sample[0] - first[0];
+      meanUsed += sample[1] - first[1];
+    }
+    meanTime /= samples.size();
+    meanUsed /= samples.size();
+
+    double covariance = 0;
+    double variance = 0;
+    for (long[] sample : samples) {
+      double time = sample[0] - first[0] - meanTime;
+      covariance += time * (sample[1] - first[1] - meanUsed);
+      variance += time * time;
+    }
+    return variance == 0 ? Double.NaN : covariance / variance;
+  }
+}
@@ -84,6 +84,19 @@ public class GcEventGenerator {
     // Run full GC
     System.gc();
 
+    // Leak 2mb between full GCs, so that the tenured occupancy keeps growing
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 2 * 1024; j++) {
+        memory.add(new MemoryConsumer(CHUNK_SIZE));
+      }
+      System.gc();
+    } // Heap at 8mb
+
+    // free up everything
+    memory.clear();
+    // Run full GC
+    System.gc();
+
     // Seems if the JVM exits too quickly MX beans do not report, give it some time
 
     System.out.println("Hit return to exit");
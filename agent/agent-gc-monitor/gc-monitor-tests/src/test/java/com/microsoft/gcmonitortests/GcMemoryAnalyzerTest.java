@@ -0,0 +1,206 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.gcmonitortests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.microsoft.gcmonitor.GcCollectionEvent;
+import com.microsoft.gcmonitor.analysis.GcMemoryAnalysis;
+import com.microsoft.gcmonitor.analysis.GcMemoryAnalyzer;
+import com.microsoft.gcmonitor.garbagecollectors.GarbageCollector;
+import com.microsoft.gcmonitor.garbagecollectors.GarbageCollectorStats;
+import com.microsoft.gcmonitor.memorypools.MemoryPool;
+import com.microsoft.gcmonitor.memorypools.MemoryPools;
+import java.lang.management.MemoryUsage;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class GcMemoryAnalyzerTest {
+
+  private static final long MB = 1024 * 1024;
+
+  private static final GarbageCollectorStats STATS =
+      new GarbageCollectorStats() {
+        @Override
+        public long getCollectionCount() {
+          return 0;
+        }
+
+        @Override
+        public long getCollectionTime() {
+          return 0;
+        }
+      };
+
+  private static final GarbageCollector YOUNG =
+      new GarbageCollector(STATS, "PS Scavenge", true, false, true);
+  private static final GarbageCollector TENURED =
+      new GarbageCollector(STATS, "PS MarkSweep", true, true, false);
+
+  private static final MemoryPool EDEN =
+      new MemoryPools.PsEdenSpace(Collections.singleton(YOUNG));
+  private static final MemoryPool OLD_GEN =
+      new MemoryPools.PsOldGen(Collections.singleton(TENURED));
+
+  private final GcMemoryAnalyzer analyzer = new GcMemoryAnalyzer(3, 4);
+
+  @Test
+  void allocationRateIsYoungGrowthBetweenCollections() {
+    GcMemoryAnalysis first = analyzer.analyze(young(1000, 100 * MB, 10 * MB, 0, MB));
+    assertThat(first.getAllocationRate()).isEmpty();
+
+    // 90mb allocated (from 10mb after the previous collection to 100mb) in 2 seconds
+    GcMemoryAnalysis second = analyzer.analyze(young(3000, 100 * MB, 10 * MB, MB, MB));
+    assertThat(second.getAllocationRate().getAsDouble()).isEqualTo(45.0 * MB);
+  }
+
+  @Test
+  void promotionRateIsTenuredGrowthDuringYoungCollections() {
+    analyzer.analyze(young(1000, 100 * MB, 0, 0, MB));
+
+    // 4mb promoted over 2 seconds
+    GcMemoryAnalysis analysis = analyzer.analyze(young(3000, 100 * MB, 0, 10 * MB, 14 * MB));
+    assertThat(analysis.getPromotionRate().getAsDouble()).isEqualTo(2.0 * MB);
+
+    // a tenured collection does not promote
+    assertThat(analyzer.analyze(tenured(4000, 5 * MB)).getPromotionRate()).isEmpty();
+  }
+
+  @Test
+  void oldGenExhaustionIsProjectedFromTenuredGrowth() {
+    assertThat(analyzer.analyze(tenured(0, 100 * MB)).getOldGenSecondsToExhaustion()).isEmpty();
+    assertThat(analyzer.analyze(tenured(10_000, 110 * MB)).getOldGenSecondsToExhaustion())
+        .isEmpty();
+
+    // growing 1mb per second, with 1024 - 120 mb left
+    GcMemoryAnalysis analysis = analyzer.analyze(tenured(20_000, 120 * MB));
+    assertThat(analysis.getOldGenSecondsToExhaustion().getAsDouble()).isCloseTo(904, within(1e-6));
+  }
+
+  @Test
+  void oldGenExhaustionOnlyConsidersRecentTenuredCollections() {
+    analyzer.analyze(tenured(0, 100 * MB));
+    analyzer.analyze(tenured(10_000, 200 * MB));
+    analyzer.analyze(tenured(20_000, 300 * MB));
+    analyzer.analyze(tenured(30_000, 300 * MB));
+    analyzer.analyze(tenured(40_000, 300 * MB));
+    analyzer.analyze(tenured(50_000, 300 * MB));
+
+    // the growth has dropped out of the last 4 samples
+    GcMemoryAnalysis analysis = analyzer.analyze(tenured(60_000, 300 * MB));
+    assertThat(analysis.getOldGenSecondsToExhaustion().getAsDouble())
+        .isEqualTo(Double.POSITIVE_INFINITY);
+  }
+
+  @Test
+  void outOfOrderEventsAreIgnored() {
+    analyzer.analyze(young(3000, 100 * MB, 10 * MB, 0, 0));
+
+    GcMemoryAnalysis analysis = analyzer.analyze(young(2000, 100 * MB, 10 * MB, 0, 0));
+    assertThat(analysis.getAllocationRate()).isEmpty();
+    assertThat(analysis.getPromotionRate()).isEmpty();
+  }
+
+  private static GcCollectionEvent young(
+      long endTime, long edenBefore, long edenAfter, long oldGenBefore, long oldGenAfter) {
+    return new TestGcEvent(YOUNG, endTime, edenBefore, edenAfter, oldGenBefore, oldGenAfter);
+  }
+
+  private static GcCollectionEvent tenured(long endTime, long oldGenAfter) {
+    return new TestGcEvent(TENURED, endTime, 0, 0, oldGenAfter, oldGenAfter);
+  }
+
+  private static class TestGcEvent implements GcCollectionEvent {
+
+    private final GarbageCollector collector;
+    private final long endTime;
+    private final MemoryUsage edenBefore;
+    private final MemoryUsage edenAfter;
+    private final MemoryUsage oldGenBefore;
+    private final MemoryUsage oldGenAfter;
+
+    private TestGcEvent(
+        GarbageCollector collector,
+        long endTime,
+        long edenBefore,
+        long edenAfter,
+        long oldGenBefore,
+        long oldGenAfter) {
+      this.collector = collector;
+      this.endTime = endTime;
+      this.edenBefore = new MemoryUsage(0, edenBefore, 256 * MB, 256 * MB);
+      this.edenAfter = new MemoryUsage(0, edenAfter, 256 * MB, 256 * MB);
+      this.oldGenBefore = new MemoryUsage(0, oldGenBefore, 1024 * MB, 1024 * MB);
+      this.oldGenAfter = new MemoryUsage(0, oldGenAfter, 1024 * MB, 1024 * MB);
+    }
+
+    @Override
+    public MemoryUsage getMemoryUsageBeforeGc(MemoryPool pool) {
+      return pool == EDEN ? edenBefore : oldGenBefore;
+    }
+
+    @Override
+    public MemoryUsage getMemoryUsageBeforeGc(List<MemoryPool> pools) {
+      return getMemoryUsageBeforeGc(pools.get(0));
+    }
+
+    @Override
+    public MemoryUsage getMemoryUsageAfterGc(MemoryPool pool) {
+      return pool == EDEN ? edenAfter : oldGenAfter;
+    }
+
+    @Override
+    public MemoryUsage getMemoryUsageAfterGc(List<MemoryPool> pools) {
+      return getMemoryUsageAfterGc(pools.get(0));
+    }
+
+    @Override
+    public long getId() {
+      return 0;
+    }
+
+    @Override
+    public long getEndTime() {
+      return endTime;
+    }
+
+    @Override
+    public long getDuration() {
+      return 0;
+    }
+
+    @Override
+    public int getGcThreadCount() {
+      return 1;
+    }
+
+    @Override
+    public GarbageCollector getCollector() {
+      return collector;
+    }
+
+    @Override
+    public String getGcCause() {
+      return "Allocation Failure";
+    }
+
+    @Override
+    public String getGcAction() {
+      return collector.isTenuredCollector() ? "end of major GC" : "end of minor GC";
+    }
+
+    @Override
+    public Optional<MemoryPool> getTenuredPool() {
+      return Optional.of(OLD_GEN);
+    }
+
+    @Override
+    public List<MemoryPool> getYoungPools() {
+      return Collections.singletonList(EDEN);
+    }
+  }
+}
@@ -10,6 +10,7 @@ import static org.junit.jupiter.api.condition.JRE.JAVA_17;
 import static org.junit.jupiter.api.condition.OS.LINUX;
 
 import com.microsoft.gcmonitor.GcCollectionEvent;
+import com.microsoft.gcmonitor.analysis.GcMemoryAnalyzer;
 import com.microsoft.gcmonitor.memorypools.MemoryPool;
 import java.util.List;
 import java.util.Optional;
@@ -72,6 +73,8 @@ class VariousCollectorsTest {
     assertThat(youngGcIsPresent(events)).isTrue();
     assertThat(tenuredGcIsPresent(events)).isTrue();
     assertThat(systemGcIsPresent(events)).isTrue();
+    assertThat(allocationRateIsPresent(events)).isTrue();
+    assertThat(oldGenGrowthIsPresent(events)).isTrue();
   }
 
   private static boolean tenuredGcIsPresent(List<GcCollectionEvent> events) {
@@ -95,6 +98,21 @@ class VariousCollectorsTest {
         events, event -> event.getGcCause().contains("System.gc()") && memoryValuesAreSane(event));
   }
 
+  private static boolean allocationRateIsPresent(List<GcCollectionEvent> events) {
+    GcMemoryAnalyzer analyzer = new GcMemoryAnalyzer(3, 10);
+    return isPresent(events, event -> analyzer.analyze(event).getAllocationRate().orElse(0) > 0);
+  }
+
+  // the event generator leaks memory in between several full GCs
+  private static boolean oldGenGrowthIsPresent(List<GcCollectionEvent> events) {
+    GcMemoryAnalyzer analyzer = new GcMemoryAnalyzer(3, 10);
+    return isPresent(
+        events,
+        event ->
+            analyzer.analyze(event).getOldGenSecondsToExhaustion().orElse(Double.POSITIVE_INFINITY)
+                < Double.POSITIVE_INFINITY);
+  }
+
   private static boolean isPresent(
       List<GcCollectionEvent> events, Predicate<GcCollectionEvent> predicate) {
     return events.stream().anyMatch(predicate);
@@ -8,5 +8,11 @@ public enum AlertMetricType {
   MEMORY,
   PERIODIC,
   MANUAL,
-  REQUEST;
+  REQUEST,
+  TCP_RETRANSMISSION,
+  DISK_LATENCY,
+  NETWORK_THROUGHPUT,
+  ALLOCATION_RATE,
+  PROMOTION_RATE,
+  OLD_GEN_EXHAUSTION;
 }
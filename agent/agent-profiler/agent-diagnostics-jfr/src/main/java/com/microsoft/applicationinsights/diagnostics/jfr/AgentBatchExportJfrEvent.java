@@ -0,0 +1,44 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Covers handing a batch off to the exporter, the export itself is asynchronous. */
+@SuppressWarnings({
+  "Java8ApiChecker"
+}) // JFR APIs require Java 11+, but agent targets Java 8 bytecode
+@Name("com.microsoft.applicationinsights.diagnostics.jfr.AgentBatchExport")
+@Label("Agent Batch Export")
+@Category({"Diagnostic", "Agent"})
+@Description("Hand-off of a batch of telemetry items from an export queue to the exporter")
+@StackTrace(false)
+@Enabled(false)
+public class AgentBatchExportJfrEvent extends Event {
+
+  public static final String NAME =
+      "com.microsoft.applicationinsights.diagnostics.jfr.AgentBatchExport";
+
+  @Label("Queue Name")
+  private String queueName;
+
+  @Label("Item Count")
+  private int itemCount;
+
+  /** Ends the event, and commits it if it is over the configured threshold. */
+  public void complete(String queueName, int itemCount) {
+    end();
+    if (shouldCommit()) {
+      this.queueName = queueName;
+      this.itemCount = itemCount;
+      commit();
+    }
+  }
+}
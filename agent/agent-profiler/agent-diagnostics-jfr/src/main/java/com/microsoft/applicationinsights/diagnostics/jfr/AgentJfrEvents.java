@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.jfr;
+
+import javax.annotation.Nullable;
+
+/**
+ * Entry points for the JFR events emitted by the agent's own telemetry pipeline.
+ *
+ * <p>These events are disabled by default, and are enabled by the diagnostic profiler settings (or
+ * by any recording that enables them). While disabled, the begin methods return null and the cost
+ * is the enabled check. The event classes are only loaded when JFR is available, since it is not
+ * on all Java 8 runtimes.
+ */
+@SuppressWarnings("Java8ApiChecker") // JFR APIs require Java 11+, but agent targets Java 8 bytecode
+public final class AgentJfrEvents {
+
+  private static final boolean AVAILABLE = isAvailable();
+
+  @Nullable
+  public static AgentBatchExportJfrEvent beginBatchExport() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    AgentBatchExportJfrEvent event = new AgentBatchExportJfrEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  @Nullable
+  public static AgentSamplingDecisionJfrEvent beginSamplingDecision() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    AgentSamplingDecisionJfrEvent event = new AgentSamplingDecisionJfrEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  @Nullable
+  public static AgentProcessorJfrEvent beginProcessor() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    AgentProcessorJfrEvent event = new AgentProcessorJfrEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  @Nullable
+  public static AgentPerfCounterCollectionJfrEvent beginPerfCounterCollection() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    AgentPerfCounterCollectionJfrEvent event = new AgentPerfCounterCollectionJfrEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  public static void queueDrop(String queueName, int queueCapacity) {
+    if (!AVAILABLE) {
+      return;
+    }
+    AgentQueueDropJfrEvent event = new AgentQueueDropJfrEvent();
+    if (event.isEnabled()) {
+      event.commit(queueName, queueCapacity);
+    }
+  }
+
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  private AgentJfrEvents() {}
+}
@@ -0,0 +1,43 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@SuppressWarnings({
+  "Java8ApiChecker"
+}) // JFR APIs require Java 11+, but agent targets Java 8 bytecode
+@Name("com.microsoft.applicationinsights.diagnostics.jfr.AgentPerfCounterCollection")
+@Label("Agent Perf Counter Collection")
+@Category({"Diagnostic", "Agent"})
+@Description("Collection of the agent performance counters")
+@StackTrace(false)
+@Enabled(false)
+public class AgentPerfCounterCollectionJfrEvent extends Event {
+
+  public static final String NAME =
+      "com.microsoft.applicationinsights.diagnostics.jfr.AgentPerfCounterCollection";
+
+  @Label("Counter Count")
+  private int counterCount;
+
+  @Label("Failed Count")
+  private int failedCount;
+
+  /** Ends the event, and commits it if it is over the configured threshold. */
+  public void complete(int counterCount, int failedCount) {
+    end();
+    if (shouldCommit()) {
+      this.counterCount = counterCount;
+      this.failedCount = failedCount;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@SuppressWarnings({
+  "Java8ApiChecker"
+}) // JFR APIs require Java 11+, but agent targets Java 8 bytecode
+@Name("com.microsoft.applicationinsights.diagnostics.jfr.AgentProcessor")
+@Label("Agent Processor")
+@Category({"Diagnostic", "Agent"})
+@Description("Execution of a configured telemetry processor on a batch of spans or logs")
+@StackTrace(false)
+@Enabled(false)
+public class AgentProcessorJfrEvent extends Event {
+
+  public static final String NAME =
+      "com.microsoft.applicationinsights.diagnostics.jfr.AgentProcessor";
+
+  @Label("Signal")
+  private String signal;
+
+  @Label("Processor Type")
+  private String processorType;
+
+  @Label("Item Count")
+  private int itemCount;
+
+  /** Ends the event, and commits it if it is over the configured threshold. */
+  public void complete(String signal, String processorType, int itemCount) {
+    end();
+    if (shouldCommit()) {
+      this.signal = signal;
+      this.processorType = processorType;
+      this.itemCount = itemCount;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,39 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@SuppressWarnings({
+  "Java8ApiChecker"
+}) // JFR APIs require Java 11+, but agent targets Java 8 bytecode
+@Name("com.microsoft.applicationinsights.diagnostics.jfr.AgentQueueDrop")
+@Label("Agent Queue Drop")
+@Category({"Diagnostic", "Agent"})
+@Description("Telemetry item dropped because the export queue was full")
+@StackTrace(false)
+@Enabled(false)
+public class AgentQueueDropJfrEvent extends Event {
+
+  public static final String NAME =
+      "com.microsoft.applicationinsights.diagnostics.jfr.AgentQueueDrop";
+
+  @Label("Queue Name")
+  private String queueName;
+
+  @Label("Queue Capacity")
+  private int queueCapacity;
+
+  public void commit(String queueName, int queueCapacity) {
+    this.queueName = queueName;
+    this.queueCapacity = queueCapacity;
+    commit();
+  }
+}
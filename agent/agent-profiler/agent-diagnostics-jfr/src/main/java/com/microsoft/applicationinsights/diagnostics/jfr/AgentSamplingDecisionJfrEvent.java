@@ -0,0 +1,43 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@SuppressWarnings({
+  "Java8ApiChecker"
+}) // JFR APIs require Java 11+, but agent targets Java 8 bytecode
+@Name("com.microsoft.applicationinsights.diagnostics.jfr.AgentSamplingDecision")
+@Label("Agent Sampling Decision")
+@Category({"Diagnostic", "Agent"})
+@Description("Sampling decision made by the agent for a new span")
+@StackTrace(false)
+@Enabled(false)
+public class AgentSamplingDecisionJfrEvent extends Event {
+
+  public static final String NAME =
+      "com.microsoft.applicationinsights.diagnostics.jfr.AgentSamplingDecision";
+
+  @Label("Sampling Percentage")
+  private double samplingPercentage;
+
+  @Label("Sampled")
+  private boolean sampled;
+
+  /** Ends the event, and commits it if it is over the configured threshold. */
+  public void complete(double samplingPercentage, boolean sampled) {
+    end();
+    if (shouldCommit()) {
+      this.samplingPercentage = samplingPercentage;
+      this.sampled = sampled;
+      commit();
+    }
+  }
+}
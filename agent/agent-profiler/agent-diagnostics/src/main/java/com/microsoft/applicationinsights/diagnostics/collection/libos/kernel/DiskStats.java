@@ -6,16 +6,28 @@ package com.microsoft.applicationinsights.diagnostics.collection.libos.kernel;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.IncrementalCounter;
 
 public class DiskStats {
+
+  // /proc/diskstats always counts in 512 byte sectors, regardless of the device's sector size
+  private static final long SECTOR_SIZE_BYTES = 512;
+
   private final String name;
   private final IncrementalCounter writeTime;
   private final IncrementalCounter readTime;
   private final IncrementalCounter ioTime;
+  private final IncrementalCounter readsCompleted;
+  private final IncrementalCounter writesCompleted;
+  private final IncrementalCounter sectorsRead;
+  private final IncrementalCounter sectorsWritten;
 
   public DiskStats(String name) {
     this.name = name;
     this.writeTime = new IncrementalCounter();
     this.readTime = new IncrementalCounter();
     this.ioTime = new IncrementalCounter();
+    this.readsCompleted = new IncrementalCounter();
+    this.writesCompleted = new IncrementalCounter();
+    this.sectorsRead = new IncrementalCounter();
+    this.sectorsWritten = new IncrementalCounter();
   }
 
   public String getName() {
@@ -34,6 +46,24 @@ public class DiskStats {
     return ioTime.getIncrement();
   }
 
+  public long getReadsCompleted() {
+    return readsCompleted.getIncrement();
+  }
+
+  public long getWritesCompleted() {
+    return writesCompleted.getIncrement();
+  }
+
+  public long getBytesRead() {
+    long increment = sectorsRead.getIncrement();
+    return increment < 0 ? increment : increment * SECTOR_SIZE_BYTES;
+  }
+
+  public long getBytesWritten() {
+    long increment = sectorsWritten.getIncrement();
+    return increment < 0 ? increment : increment * SECTOR_SIZE_BYTES;
+  }
+
   public void newReadTime(long time) {
     readTime.newValue(time);
   }
@@ -45,4 +75,20 @@ public class DiskStats {
   public void newIoTime(long time) {
     ioTime.newValue(time);
   }
+
+  public void newReadsCompleted(long count) {
+    readsCompleted.newValue(count);
+  }
+
+  public void newWritesCompleted(long count) {
+    writesCompleted.newValue(count);
+  }
+
+  public void newSectorsRead(long count) {
+    sectorsRead.newValue(count);
+  }
+
+  public void newSectorsWritten(long count) {
+    sectorsWritten.newValue(count);
+  }
 }
@@ -10,11 +10,15 @@ public class NetworkInterfaceStats {
   private final String name;
   private final BigIncrementalCounter bytesSent;
   private final BigIncrementalCounter bytesReceived;
+  private final BigIncrementalCounter packetsSent;
+  private final BigIncrementalCounter packetsReceived;
 
   public NetworkInterfaceStats(String name) {
     this.name = name;
     this.bytesSent = new BigIncrementalCounter();
     this.bytesReceived = new BigIncrementalCounter();
+    this.packetsSent = new BigIncrementalCounter();
+    this.packetsReceived = new BigIncrementalCounter();
   }
 
   public String getName() {
@@ -29,6 +33,14 @@ public class NetworkInterfaceStats {
     bytesReceived.newValue(BigInteger.valueOf(value));
   }
 
+  public void newPacketsSentValue(long value) {
+    packetsSent.newValue(BigInteger.valueOf(value));
+  }
+
+  public void newPacketsReceivedValue(long value) {
+    packetsReceived.newValue(BigInteger.valueOf(value));
+  }
+
   public BigInteger getSent() {
     return bytesSent.getIncrement();
   }
@@ -36,4 +48,12 @@ public class NetworkInterfaceStats {
   public BigInteger getReceived() {
     return bytesReceived.getIncrement();
   }
+
+  public BigInteger getPacketsSent() {
+    return packetsSent.getIncrement();
+  }
+
+  public BigInteger getPacketsReceived() {
+    return packetsReceived.getIncrement();
+  }
 }
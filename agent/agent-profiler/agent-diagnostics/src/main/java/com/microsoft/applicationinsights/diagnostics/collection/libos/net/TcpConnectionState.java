@@ -0,0 +1,44 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.collection.libos.net;
+
+import javax.annotation.Nullable;
+
+/** TCP connection states, with the codes used by the Linux kernel (include/net/tcp_states.h). */
+public enum TcpConnectionState {
+  ESTABLISHED(0x01),
+  SYN_SENT(0x02),
+  SYN_RECV(0x03),
+  FIN_WAIT1(0x04),
+  FIN_WAIT2(0x05),
+  TIME_WAIT(0x06),
+  CLOSE(0x07),
+  CLOSE_WAIT(0x08),
+  LAST_ACK(0x09),
+  LISTEN(0x0A),
+  CLOSING(0x0B),
+  NEW_SYN_RECV(0x0C);
+
+  private static final TcpConnectionState[] BY_CODE = new TcpConnectionState[0x0D];
+
+  static {
+    for (TcpConnectionState state : values()) {
+      BY_CODE[state.code] = state;
+    }
+  }
+
+  private final int code;
+
+  TcpConnectionState(int code) {
+    this.code = code;
+  }
+
+  @Nullable
+  public static TcpConnectionState fromCode(int code) {
+    if (code < 0 || code >= BY_CODE.length) {
+      return null;
+    }
+    return BY_CODE[code];
+  }
+}
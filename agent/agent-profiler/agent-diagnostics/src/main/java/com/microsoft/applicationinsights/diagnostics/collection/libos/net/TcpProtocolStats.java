@@ -0,0 +1,19 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.collection.libos.net;
+
+/**
+ * Host wide TCP protocol counters. Each value is the increment since the previous update, or -1
+ * if there has not been a previous update yet.
+ */
+public interface TcpProtocolStats {
+
+  long getSentSegments();
+
+  long getRetransmittedSegments();
+
+  long getFailedConnectionAttempts();
+
+  long getResetConnections();
+}
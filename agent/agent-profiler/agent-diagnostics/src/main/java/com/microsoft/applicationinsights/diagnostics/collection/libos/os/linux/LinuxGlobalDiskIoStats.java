@@ -7,6 +7,8 @@ import static com.microsoft.applicationinsights.diagnostics.collection.libos.os.
 
 import com.microsoft.applicationinsights.diagnostics.collection.libos.kernel.DiskStats;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.kernel.GlobalDiskStats;
+import java.io.File;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -17,7 +19,11 @@ public class LinuxGlobalDiskIoStats extends TwoStepProcReader implements GlobalD
 
   private static final String DISKSTAT_FILE_LOCATION = "/proc/diskstats";
 
+  private static final int READS_COMPLETED = 1;
+  private static final int SECTORS_READ = 3;
   private static final int READ_TIME = 4;
+  private static final int WRITES_COMPLETED = 5;
+  private static final int SECTORS_WRITTEN = 7;
   private static final int WRITE_TIME = 8;
   private static final int IO_TIME = 10;
   public static final Pattern LETTERS = Pattern.compile("[A-Za-z]");
@@ -33,6 +39,10 @@ public class LinuxGlobalDiskIoStats extends TwoStepProcReader implements GlobalD
     super(DISKSTAT_FILE_LOCATION);
   }
 
+  public LinuxGlobalDiskIoStats(File file) {
+    super(file);
+  }
+
   @Override
   protected void parseLine(String line) {
     int indexOffset = getOffset(line);
@@ -54,7 +64,11 @@ public class LinuxGlobalDiskIoStats extends TwoStepProcReader implements GlobalD
         long writeTime = Long.parseLong(data[WRITE_TIME]);
         long ioTime = Long.parseLong(data[IO_TIME]);
 
-        updateDisk(interfaceName, readTime, writeTime, ioTime);
+        DiskStats disk = updateDisk(interfaceName, readTime, writeTime, ioTime);
+        disk.newReadsCompleted(Long.parseLong(data[READS_COMPLETED]));
+        disk.newWritesCompleted(Long.parseLong(data[WRITES_COMPLETED]));
+        disk.newSectorsRead(Long.parseLong(data[SECTORS_READ]));
+        disk.newSectorsWritten(Long.parseLong(data[SECTORS_WRITTEN]));
       }
     }
   }
@@ -69,7 +83,7 @@ public class LinuxGlobalDiskIoStats extends TwoStepProcReader implements GlobalD
     return indexOffset;
   }
 
-  private void updateDisk(String diskName, long readTime, long writeTime, long ioTime) {
+  private DiskStats updateDisk(String diskName, long readTime, long writeTime, long ioTime) {
     DiskStats disk = stats.get(diskName);
 
     if (disk == null) {
@@ -79,6 +93,11 @@ public class LinuxGlobalDiskIoStats extends TwoStepProcReader implements GlobalD
     disk.newReadTime(readTime);
     disk.newWriteTime(writeTime);
     disk.newIoTime(ioTime);
+    return disk;
+  }
+
+  public Collection<DiskStats> getDiskStats() {
+    return stats.values();
   }
 
   @Override
@@ -112,4 +131,10 @@ public class LinuxGlobalDiskIoStats extends TwoStepProcReader implements GlobalD
   protected boolean trim() {
     return false;
   }
+
+  @Override
+  protected boolean readFully() {
+    // there can be many loop and ram devices before the disks
+    return true;
+  }
 }
@@ -5,44 +5,64 @@ package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
 
 import com.microsoft.applicationinsights.diagnostics.collection.libos.net.GlobalNetworkStats;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.net.NetworkInterfaceStats;
+import java.io.File;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 /** Extracts global network statistics from /proc */
-class LinuxGlobalNetworkStats extends TwoStepProcReader implements GlobalNetworkStats {
+public class LinuxGlobalNetworkStats extends TwoStepProcReader implements GlobalNetworkStats {
 
   private static final String NETSTAT_FILE_LOCATION = "/proc/net/dev";
-  private static final Pattern DATA_LINE = Pattern.compile("^[A-Za-z0-9]+: .*");
 
-  private static final int NAME_INDEX = 0;
-  private static final int RECIEVED_INDEX = 1;
-  private static final int TRANSMIT_INDEX = 9;
+  // the counters are right-aligned against the colon, so there is no space after it once the
+  // received bytes counter is wide enough, e.g. "  eth0:1234567890  ..."
+  private static final Pattern DATA_LINE = Pattern.compile("^[A-Za-z0-9._@-]+:.*");
+
+  private static final int RECIEVED_INDEX = 0;
+  private static final int RECIEVED_PACKETS_INDEX = 1;
+  private static final int TRANSMIT_INDEX = 8;
+  private static final int TRANSMIT_PACKETS_INDEX = 9;
 
   private final Map<String, NetworkInterfaceStats> stats = new HashMap<>();
+  private final Set<String> seenInterfaces = new HashSet<>();
 
   public LinuxGlobalNetworkStats() {
     super(NETSTAT_FILE_LOCATION);
   }
 
+  public LinuxGlobalNetworkStats(File file) {
+    super(file);
+  }
+
   @Override
   protected void parseLine(String line) {
 
     String trimmed = line.trim();
     if (DATA_LINE.matcher(trimmed).matches()) {
-      String[] data = line.split(" +");
-
-      String interfaceName = data[NAME_INDEX].replace(":", "");
+      int colon = trimmed.indexOf(':');
+      String interfaceName = trimmed.substring(0, colon);
+      String[] data = trimmed.substring(colon + 1).trim().split(" +");
 
       long receivedBytes = Long.parseLong(data[RECIEVED_INDEX]);
+      long receivedPackets = Long.parseLong(data[RECIEVED_PACKETS_INDEX]);
       long sentBytes = Long.parseLong(data[TRANSMIT_INDEX]);
+      long sentPackets = Long.parseLong(data[TRANSMIT_PACKETS_INDEX]);
 
-      updateInterface(interfaceName, receivedBytes, sentBytes);
+      updateInterface(interfaceName, receivedBytes, sentBytes, receivedPackets, sentPackets);
     }
   }
 
-  private void updateInterface(String interfaceName, long recievedBytes, long sentBytes) {
+  private void updateInterface(
+      String interfaceName,
+      long recievedBytes,
+      long sentBytes,
+      long receivedPackets,
+      long sentPackets) {
     NetworkInterfaceStats interf = stats.get(interfaceName);
 
     if (interf == null) {
@@ -51,6 +71,23 @@ class LinuxGlobalNetworkStats extends TwoStepProcReader implements GlobalNetwork
     }
     interf.newReceivedValue(recievedBytes);
     interf.newSentValue(sentBytes);
+    interf.newPacketsReceivedValue(receivedPackets);
+    interf.newPacketsSentValue(sentPackets);
+    seenInterfaces.add(interfaceName);
+  }
+
+  @Override
+  public void update() {
+    seenInterfaces.clear();
+    super.update();
+    if (contents != null) {
+      // e.g. container veth interfaces come and go
+      stats.keySet().retainAll(seenInterfaces);
+    }
+  }
+
+  public Collection<NetworkInterfaceStats> getInterfaceStats() {
+    return stats.values();
   }
 
   @Override
@@ -78,4 +115,9 @@ class LinuxGlobalNetworkStats extends TwoStepProcReader implements GlobalNetwork
 
     return accumulator;
   }
+
+  @Override
+  protected boolean readFully() {
+    return true;
+  }
 }
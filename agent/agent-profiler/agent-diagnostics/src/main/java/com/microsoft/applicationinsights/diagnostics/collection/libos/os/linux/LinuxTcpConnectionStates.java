@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
+
+import com.microsoft.applicationinsights.diagnostics.collection.libos.net.TcpConnectionState;
+import java.io.File;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Counts the host's TCP connections by state from /proc/net/tcp (or /proc/net/tcp6, which has the
+ * same columns but wider addresses).
+ */
+@NotThreadSafe
+public class LinuxTcpConnectionStates extends TwoStepProcReader {
+
+  public static final String TCP_FILE_LOCATION = "/proc/net/tcp";
+  public static final String TCP6_FILE_LOCATION = "/proc/net/tcp6";
+
+  private static final int STATE_INDEX = 3;
+  private static final int AS_HEX = 16;
+
+  private final Map<TcpConnectionState, Integer> counts = new EnumMap<>(TcpConnectionState.class);
+
+  public LinuxTcpConnectionStates(File file) {
+    // tcp6 is not there when ipv6 is disabled
+    super(file, true);
+  }
+
+  @Override
+  protected void parseLine(String line) {
+    // "sl  local_address rem_address   st tx_queue rx_queue ..."
+    if (line.isEmpty() || line.startsWith("sl")) {
+      return;
+    }
+    String[] fields = line.split(" +");
+    if (fields.length <= STATE_INDEX) {
+      return;
+    }
+    try {
+      TcpConnectionState state =
+          TcpConnectionState.fromCode(Integer.parseInt(fields[STATE_INDEX], AS_HEX));
+      if (state != null) {
+        counts.merge(state, 1, Integer::sum);
+      }
+    } catch (NumberFormatException e) {
+      // ignore
+    }
+  }
+
+  @Override
+  public void update() {
+    counts.clear();
+    super.update();
+  }
+
+  public int getCount(TcpConnectionState state) {
+    return counts.getOrDefault(state, 0);
+  }
+
+  public boolean isAvailable() {
+    return file != null;
+  }
+
+  @Override
+  protected boolean readFully() {
+    // one line per connection
+    return true;
+  }
+}
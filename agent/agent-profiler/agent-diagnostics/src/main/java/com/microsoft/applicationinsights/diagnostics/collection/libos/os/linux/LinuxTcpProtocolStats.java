@@ -0,0 +1,111 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
+
+import com.microsoft.applicationinsights.diagnostics.collection.libos.IncrementalCounter;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.net.TcpProtocolStats;
+import java.io.File;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Extracts the host wide TCP counters (which cover both IPv4 and IPv6) from /proc/net/snmp.
+ *
+ * <p>The file has a header line followed by a value line for each protocol, e.g.
+ *
+ * <pre>
+ * Tcp: RtoAlgorithm RtoMin RtoMax MaxConn ActiveOpens PassiveOpens AttemptFails EstabResets ...
+ * Tcp: 1 200 120000 -1 4620 102 35 57 ...
+ * </pre>
+ */
+@NotThreadSafe
+public class LinuxTcpProtocolStats extends TwoStepProcReader implements TcpProtocolStats {
+
+  private static final String SNMP_FILE_LOCATION = "/proc/net/snmp";
+  private static final String TCP_PREFIX = "Tcp:";
+
+  private final IncrementalCounter sentSegments = new IncrementalCounter();
+  private final IncrementalCounter retransmittedSegments = new IncrementalCounter();
+  private final IncrementalCounter failedConnectionAttempts = new IncrementalCounter();
+  private final IncrementalCounter resetConnections = new IncrementalCounter();
+
+  @Nullable private String[] header;
+
+  public LinuxTcpProtocolStats() {
+    super(SNMP_FILE_LOCATION);
+  }
+
+  public LinuxTcpProtocolStats(File file) {
+    super(file);
+  }
+
+  @Override
+  protected void parseLine(String line) {
+    if (!line.startsWith(TCP_PREFIX)) {
+      return;
+    }
+    String[] fields = line.substring(TCP_PREFIX.length()).trim().split(" +");
+    if (header == null) {
+      header = fields;
+      return;
+    }
+    for (int i = 0; i < fields.length && i < header.length; i++) {
+      IncrementalCounter counter = getCounter(header[i]);
+      if (counter != null) {
+        try {
+          counter.newValue(Long.parseLong(fields[i]));
+        } catch (NumberFormatException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  @Nullable
+  private IncrementalCounter getCounter(String name) {
+    switch (name) {
+      case "OutSegs":
+        return sentSegments;
+      case "RetransSegs":
+        return retransmittedSegments;
+      case "AttemptFails":
+        return failedConnectionAttempts;
+      case "EstabResets":
+        return resetConnections;
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  public void update() {
+    header = null;
+    super.update();
+  }
+
+  @Override
+  public long getSentSegments() {
+    return sentSegments.getIncrement();
+  }
+
+  @Override
+  public long getRetransmittedSegments() {
+    return retransmittedSegments.getIncrement();
+  }
+
+  @Override
+  public long getFailedConnectionAttempts() {
+    return failedConnectionAttempts.getIncrement();
+  }
+
+  @Override
+  public long getResetConnections() {
+    return resetConnections.getIncrement();
+  }
+
+  @Override
+  protected boolean readFully() {
+    return true;
+  }
+}
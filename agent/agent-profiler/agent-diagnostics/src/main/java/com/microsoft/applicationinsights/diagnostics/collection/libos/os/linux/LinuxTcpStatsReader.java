@@ -66,4 +66,10 @@ public class LinuxTcpStatsReader extends TwoStepProcReader implements TcpStatsRe
   protected boolean trim() {
     return false;
   }
+
+  @Override
+  protected boolean readFully() {
+    // one line per connection
+    return true;
+  }
 }
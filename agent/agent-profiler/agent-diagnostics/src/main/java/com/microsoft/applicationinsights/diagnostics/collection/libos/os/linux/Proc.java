@@ -3,6 +3,7 @@
 
 package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -32,4 +33,20 @@ final class Proc {
     }
     return new String(buffer, 0, totalRead, StandardCharsets.UTF_8);
   }
+
+  /**
+   * Reads the whole file, for files which can be larger than the shared buffer (e.g.
+   * /proc/net/tcp on a host with many connections). Does not use the shared buffer, so it is also
+   * safe to call from more than one thread.
+   */
+  static String readFully(RandomAccessFile resource) throws IOException {
+    resource.seek(0);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+    byte[] chunk = new byte[BUFFER_SIZE];
+    int read;
+    while ((read = resource.read(chunk, 0, chunk.length)) != -1) {
+      out.write(chunk, 0, read);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
 }
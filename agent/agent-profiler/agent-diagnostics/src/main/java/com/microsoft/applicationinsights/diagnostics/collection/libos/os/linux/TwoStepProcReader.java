@@ -51,7 +51,7 @@ public abstract class TwoStepProcReader implements TwoStepUpdatable, Closeable {
   public void poll() {
     try {
       if (file != null) {
-        contents = Proc.read(file);
+        contents = readFully() ? Proc.readFully(file) : Proc.read(file);
       }
     } catch (IOException e) {
       logger.error("Failed to read stats for file", e);
@@ -74,4 +74,9 @@ public abstract class TwoStepProcReader implements TwoStepUpdatable, Closeable {
   protected boolean trim() {
     return true;
   }
+
+  // whether the whole file needs to be read, rather than just the start of it
+  protected boolean readFully() {
+    return false;
+  }
 }
@@ -1,6 +1,7 @@
 plugins {
   id("ai.java-conventions")
   id("ai.sdk-version-file")
+  id("me.champeau.jmh")
 }
 
 dependencies {
@@ -19,6 +20,8 @@ dependencies {
   implementation(project(":agent:agent-gc-monitor:gc-monitor-core"))
   implementation(project(":agent:agent-profiler:agent-diagnostics-api"))
   implementation(project(":agent:agent-profiler:agent-diagnostics"))
+  implementation(project(":agent:agent-profiler:agent-diagnostics-jfr"))
+  compileOnly("org.gradle.jfr.polyfill:jfr-polyfill:1.0.2")
   implementation(project(":etw:java"))
 
   implementation("com.azure:azure-monitor-opentelemetry-autoconfigure:1.4.0")
@@ -62,6 +65,8 @@ dependencies {
   testImplementation("io.opentelemetry:opentelemetry-sdk-logs")
   testImplementation("io.opentelemetry:opentelemetry-sdk-testing")
 
+  jmh("io.opentelemetry:opentelemetry-sdk")
+
   compileOnly(project(":agent:agent-bootstrap"))
   compileOnly("io.opentelemetry.instrumentation:opentelemetry-instrumentation-api")
   compileOnly("io.opentelemetry.instrumentation:opentelemetry-instrumentation-api-incubator")
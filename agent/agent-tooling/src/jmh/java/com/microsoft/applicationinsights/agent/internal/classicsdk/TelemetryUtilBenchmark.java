@@ -0,0 +1,147 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.classicsdk;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.ExceptionDetailBuilder;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.StackFrameBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ./gradlew :agent:agent-tooling:jmh -PjmhIncludes=TelemetryUtilBenchmark
+// (run with -prof gc to see the allocation difference)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TelemetryUtilBenchmark {
+
+  private Throwable exception;
+
+  @Setup
+  public void setup() {
+    // typical spring mvc on tomcat failure: a wrapper exception plus its cause, each with the
+    // same deep servlet container and framework frames
+    Exception cause = new IllegalStateException("Connection refused");
+    cause.setStackTrace(stack("com.example.repository.OwnerRepository", "findByLastName"));
+    exception = new RuntimeException("Request processing failed", cause);
+    exception.setStackTrace(stack("com.example.web.OwnerController", "processFindForm"));
+  }
+
+  @Benchmark
+  public List<ExceptionDetailBuilder> getExceptions() {
+    return TelemetryUtil.getExceptions(exception);
+  }
+
+  // the conversion prior to caching frame info, for comparison
+  @Benchmark
+  public List<List<StackFrameBuilder>> uncachedFrameConversion() {
+    List<List<StackFrameBuilder>> stacks = new ArrayList<>();
+    for (Throwable t = exception; t != null; t = t.getCause()) {
+      StackTraceElement[] trace = t.getStackTrace();
+      List<StackFrameBuilder> stack = new ArrayList<>();
+      int stackLength = 0;
+      for (int idx = 0; idx < trace.length; idx++) {
+        StackTraceElement elem = trace[idx];
+        StackFrameBuilder frame = new StackFrameBuilder();
+        frame.setLevel(idx);
+        frame.setFileName(elem.getFileName());
+        frame.setLine(elem.getLineNumber());
+        String method = elem.getClassName() + "." + elem.getMethodName();
+        frame.setMethod(method);
+        stackLength += method.length() + elem.getFileName().length();
+        if (stackLength > 32768) {
+          break;
+        }
+        stack.add(frame);
+      }
+      stacks.add(stack);
+    }
+    return stacks;
+  }
+
+  private static StackTraceElement[] stack(String applicationClass, String applicationMethod) {
+    String[][] frames = {
+      {applicationClass, applicationMethod},
+      {"jdk.internal.reflect.DirectMethodHandleAccessor", "invoke"},
+      {"java.lang.reflect.Method", "invoke"},
+      {"org.springframework.web.method.support.InvocableHandlerMethod", "doInvoke"},
+      {"org.springframework.web.method.support.InvocableHandlerMethod", "invokeForRequest"},
+      {
+        "org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod",
+        "invokeAndHandle"
+      },
+      {
+        "org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter",
+        "invokeHandlerMethod"
+      },
+      {
+        "org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter",
+        "handleInternal"
+      },
+      {"org.springframework.web.servlet.mvc.method.AbstractHandlerMethodAdapter", "handle"},
+      {"org.springframework.web.servlet.DispatcherServlet", "doDispatch"},
+      {"org.springframework.web.servlet.DispatcherServlet", "doService"},
+      {"org.springframework.web.servlet.FrameworkServlet", "processRequest"},
+      {"org.springframework.web.servlet.FrameworkServlet", "doGet"},
+      {"jakarta.servlet.http.HttpServlet", "service"},
+      {"org.springframework.web.servlet.FrameworkServlet", "service"},
+      {"jakarta.servlet.http.HttpServlet", "service"},
+      {"org.apache.catalina.core.ApplicationFilterChain", "internalDoFilter"},
+      {"org.apache.catalina.core.ApplicationFilterChain", "doFilter"},
+      {"org.apache.tomcat.websocket.server.WsFilter", "doFilter"},
+      {"org.apache.catalina.core.ApplicationFilterChain", "internalDoFilter"},
+      {"org.apache.catalina.core.ApplicationFilterChain", "doFilter"},
+      {"org.springframework.web.filter.RequestContextFilter", "doFilterInternal"},
+      {"org.springframework.web.filter.OncePerRequestFilter", "doFilter"},
+      {"org.apache.catalina.core.ApplicationFilterChain", "internalDoFilter"},
+      {"org.apache.catalina.core.ApplicationFilterChain", "doFilter"},
+      {"org.springframework.web.filter.FormContentFilter", "doFilterInternal"},
+      {"org.springframework.web.filter.OncePerRequestFilter", "doFilter"},
+      {"org.apache.catalina.core.ApplicationFilterChain", "internalDoFilter"},
+      {"org.apache.catalina.core.ApplicationFilterChain", "doFilter"},
+      {"org.springframework.web.filter.CharacterEncodingFilter", "doFilterInternal"},
+      {"org.springframework.web.filter.OncePerRequestFilter", "doFilter"},
+      {"org.apache.catalina.core.ApplicationFilterChain", "internalDoFilter"},
+      {"org.apache.catalina.core.ApplicationFilterChain", "doFilter"},
+      {"org.apache.catalina.core.StandardWrapperValve", "invoke"},
+      {"org.apache.catalina.core.StandardContextValve", "invoke"},
+      {"org.apache.catalina.authenticator.AuthenticatorBase", "invoke"},
+      {"org.apache.catalina.core.StandardHostValve", "invoke"},
+      {"org.apache.catalina.valves.ErrorReportValve", "invoke"},
+      {"org.apache.catalina.core.StandardEngineValve", "invoke"},
+      {"org.apache.catalina.connector.CoyoteAdapter", "service"},
+      {"org.apache.coyote.http11.Http11Processor", "service"},
+      {"org.apache.coyote.AbstractProcessorLight", "process"},
+      {"org.apache.coyote.AbstractProtocol$ConnectionHandler", "process"},
+      {"org.apache.tomcat.util.net.NioEndpoint$SocketProcessor", "doRun"},
+      {"org.apache.tomcat.util.net.SocketProcessorBase", "run"},
+      {"org.apache.tomcat.util.threads.ThreadPoolExecutor", "runWorker"},
+      {"org.apache.tomcat.util.threads.ThreadPoolExecutor$Worker", "run"},
+      {"org.apache.tomcat.util.threads.TaskThread$WrappingRunnable", "run"},
+      {"java.lang.Thread", "run"}
+    };
+    StackTraceElement[] trace = new StackTraceElement[frames.length];
+    for (int i = 0; i < frames.length; i++) {
+      String className = frames[i][0];
+      String simpleName = className.substring(className.lastIndexOf('.') + 1);
+      int nested = simpleName.indexOf('$');
+      String fileName = (nested == -1 ? simpleName : simpleName.substring(0, nested)) + ".java";
+      trace[i] = new StackTraceElement(className, frames[i][1], fileName, 100 + i);
+    }
+    return trace;
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.OperationNames;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// ./gradlew :agent:agent-tooling:jmh -PjmhIncludes=OperationNameBenchmark
+// (run with -prof gc to see the allocation difference)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OperationNameBenchmark {
+
+  // a 50 span trace, where the operation name of the 49 children is resolved from the request
+  private static final int CHILD_SPANS = 49;
+
+  // the name of the request span, either the route only or the http method and the route
+  @Param({"/orders/{id}", "GET /orders/{id}"})
+  public String spanName;
+
+  private SdkTracerProvider tracerProvider;
+  private ReadableSpan request;
+
+  @Setup
+  public void setup() {
+    tracerProvider = SdkTracerProvider.builder().build();
+    request =
+        (ReadableSpan)
+            tracerProvider
+                .get("test")
+                .spanBuilder(spanName)
+                .setSpanKind(SpanKind.SERVER)
+                .setAttribute("http.request.method", "GET")
+                .startSpan();
+  }
+
+  @TearDown
+  public void tearDown() {
+    tracerProvider.close();
+  }
+
+  @Benchmark
+  public void operationNames(Blackhole blackhole) {
+    for (int i = 0; i < CHILD_SPANS; i++) {
+      blackhole.consume(OperationNames.getOperationName(request));
+    }
+  }
+
+  @Benchmark
+  public void operationNameCache(Blackhole blackhole) {
+    for (int i = 0; i < CHILD_SPANS; i++) {
+      blackhole.consume(OperationNameCache.getOperationName(request));
+    }
+  }
+}
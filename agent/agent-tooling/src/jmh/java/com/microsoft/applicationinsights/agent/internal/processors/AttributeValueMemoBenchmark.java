@@ -0,0 +1,84 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ./gradlew :agent:agent-tooling:jmh -PjmhIncludes=AttributeValueMemoBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AttributeValueMemoBenchmark {
+
+  private static final Pattern EMAIL =
+      Pattern.compile("(?<name>[a-zA-Z0-9.]+)@(?<domain>[a-zA-Z0-9.]+)");
+
+  // number of distinct values, which are drawn with a zipf-like (skewed) distribution, so that a
+  // few users/tenants account for most of the telemetry
+  @Param({"1000", "100000"})
+  public int distinctValues;
+
+  private final Object maskAction = new Object();
+  private String[] values;
+  private int index;
+  private AttributeValueMemo memo;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0);
+    values = new String[1 << 16];
+    for (int i = 0; i < values.length; i++) {
+      // inverse transform sampling of a zipf(s=1) distribution over [1, distinctValues]
+      int rank = (int) Math.pow(distinctValues, random.nextDouble());
+      values[i] = "user" + rank + "@tenant" + (rank % 97) + ".example.com";
+    }
+    memo = new AttributeValueMemo(1024 * 1024);
+  }
+
+  private String nextValue() {
+    index = (index + 1) & (values.length - 1);
+    return values[index];
+  }
+
+  @Benchmark
+  public String hash() {
+    return DigestUtils.sha256Hex(nextValue());
+  }
+
+  @Benchmark
+  public String hashMemo() {
+    return memo.hash(nextValue(), DigestUtils::sha256Hex);
+  }
+
+  @Benchmark
+  public String mask() {
+    return mask(nextValue());
+  }
+
+  @Benchmark
+  public String maskMemo() {
+    return memo.get(maskAction, nextValue(), AttributeValueMemoBenchmark::mask);
+  }
+
+  private static String mask(String value) {
+    return EMAIL.matcher(value).replaceAll("${name}@*****");
+  }
+}
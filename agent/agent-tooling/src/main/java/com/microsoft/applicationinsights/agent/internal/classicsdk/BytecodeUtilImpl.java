@@ -31,6 +31,7 @@ import com.microsoft.applicationinsights.agent.bootstrap.BytecodeUtil.BytecodeUt
 import com.microsoft.applicationinsights.agent.internal.init.RuntimeConfiguration;
 import com.microsoft.applicationinsights.agent.internal.init.RuntimeConfigurator;
 import com.microsoft.applicationinsights.agent.internal.legacyheaders.AiLegacyPropagator;
+import com.microsoft.applicationinsights.agent.internal.telemetry.ExceptionStormSuppressor;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanContext;
@@ -59,6 +60,11 @@ public class BytecodeUtilImpl implements BytecodeUtilDelegate {
 
   public static volatile RuntimeConfigurator runtimeConfigurator;
   public static volatile boolean connectionStringConfiguredAtRuntime;
+
+  @Nullable public static volatile ExceptionStormSuppressor exceptionStormSuppressor;
+
+  @Nullable public static volatile CoalescingFlusher flusher;
+
   private static final AtomicBoolean showConnectionStringInfoMessage = new AtomicBoolean(true);
 
   @Override
@@ -366,6 +372,16 @@ public class BytecodeUtilImpl implements BytecodeUtilDelegate {
     if (throwable == null) {
       return;
     }
+    String fingerprint = null;
+    ExceptionStormSuppressor suppressor = exceptionStormSuppressor;
+    if (suppressor != null) {
+      fingerprint = suppressor.track(throwable);
+      if (fingerprint == null) {
+        // counted towards the aggregated record for this fingerprint, and same as for exceptions
+        // captured from logging, not passed to live metrics either
+        return;
+      }
+    }
     ExceptionTelemetryBuilder telemetryBuilder =
         TelemetryClient.getActive().newExceptionTelemetryBuilder();
 
@@ -381,6 +397,9 @@ public class BytecodeUtilImpl implements BytecodeUtilDelegate {
     for (Map.Entry<String, String> entry : properties.entrySet()) {
       telemetryBuilder.addProperty(entry.getKey(), entry.getValue());
     }
+    if (fingerprint != null) {
+      telemetryBuilder.addProperty(ExceptionStormSuppressor.FINGERPRINT_PROPERTY, fingerprint);
+    }
 
     if (timestamp != null) {
       telemetryBuilder.setTime(FormattedTime.offSetDateTimeFromEpochMillis(timestamp.getTime()));
@@ -465,6 +484,11 @@ public class BytecodeUtilImpl implements BytecodeUtilDelegate {
 
   @Override
   public void flush() {
+    CoalescingFlusher flusher = BytecodeUtilImpl.flusher;
+    if (flusher != null) {
+      flusher.flush();
+      return;
+    }
     // this is not null because sdk instrumentation is not added until TelemetryClient.setActive()
     // is called
     TelemetryClient.getActive().forceFlush().join(10, SECONDS);
@@ -0,0 +1,129 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.classicsdk;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ClassicSdkFlushMode;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.PerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Coalesces 2.x {@code TelemetryClient.flush()} calls.
+ *
+ * <p>Legacy apps often call {@code flush()} at the end of every request or batch job. Instead of
+ * each call forcing out its own partial batch, at most one flush is in flight at a time. Callers
+ * that arrive while a flush is in flight all share the single flush that starts right after it
+ * (it has to be a new flush, since the in-flight one may have started before their telemetry was
+ * queued).
+ *
+ * <p>How often flush is called and how long callers wait for it is reported as metrics, but only
+ * for intervals in which flush was called.
+ */
+public final class CoalescingFlusher implements PerformanceCounter {
+
+  static final String FLUSH_CALLS_METRIC_NAME = "Classic SDK Flush Calls";
+  static final String FLUSHES_METRIC_NAME = "Classic SDK Flushes";
+  static final String FLUSH_WAIT_TIME_METRIC_NAME = "Classic SDK Flush Wait Time";
+
+  private static final long BLOCK_MAX_WAIT_MILLIS = SECONDS.toMillis(10);
+
+  private final Supplier<CompletableResultCode> flushAction;
+  private final ClassicSdkFlushMode mode;
+  private final long maxWaitMillis;
+
+  private final Object lock = new Object();
+  // guarded by lock
+  @Nullable private CompletableResultCode inFlight;
+  // guarded by lock, shared by all callers that arrived while a flush was in flight
+  @Nullable private CompletableResultCode next;
+
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder flushes = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+
+  public CoalescingFlusher(
+      Supplier<CompletableResultCode> flushAction, ClassicSdkFlushMode mode, int maxWaitMillis) {
+    this.flushAction = flushAction;
+    this.mode = mode;
+    this.maxWaitMillis = mode == ClassicSdkFlushMode.BLOCK ? BLOCK_MAX_WAIT_MILLIS : maxWaitMillis;
+  }
+
+  /** Called on the application thread. */
+  void flush() {
+    calls.increment();
+    CompletableResultCode result = requestFlush();
+    if (mode == ClassicSdkFlushMode.FIRE_AND_FORGET) {
+      return;
+    }
+    long start = System.nanoTime();
+    result.join(maxWaitMillis, MILLISECONDS);
+    waitNanos.add(System.nanoTime() - start);
+  }
+
+  CompletableResultCode requestFlush() {
+    CompletableResultCode toStart;
+    synchronized (lock) {
+      if (inFlight != null) {
+        if (next == null) {
+          next = new CompletableResultCode();
+        }
+        return next;
+      }
+      toStart = new CompletableResultCode();
+      inFlight = toStart;
+    }
+    start(toStart);
+    return toStart;
+  }
+
+  private void start(CompletableResultCode result) {
+    flushes.increment();
+    CompletableResultCode flushResult;
+    try {
+      flushResult = flushAction.get();
+    } catch (RuntimeException e) {
+      flushResult = CompletableResultCode.ofFailure();
+    }
+    CompletableResultCode completed = flushResult;
+    completed.whenComplete(
+        () -> {
+          CompletableResultCode pending;
+          synchronized (lock) {
+            pending = next;
+            next = null;
+            inFlight = pending;
+          }
+          if (completed.isSuccess()) {
+            result.succeed();
+          } else {
+            result.fail();
+          }
+          if (pending != null) {
+            start(pending);
+          }
+        });
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    long callCount = calls.sumThenReset();
+    long flushCount = flushes.sumThenReset();
+    long totalWaitNanos = waitNanos.sumThenReset();
+    if (callCount == 0) {
+      return;
+    }
+    telemetryClient.trackAsync(
+        telemetryClient.newMetricTelemetry(FLUSH_CALLS_METRIC_NAME, callCount));
+    telemetryClient.trackAsync(
+        telemetryClient.newMetricTelemetry(
+            FLUSH_WAIT_TIME_METRIC_NAME, totalWaitNanos / (double) callCount / 1_000_000));
+    telemetryClient.trackAsync(telemetryClient.newMetricTelemetry(FLUSHES_METRIC_NAME, flushCount));
+  }
+}
@@ -6,6 +6,7 @@ package com.microsoft.applicationinsights.agent.internal.classicsdk;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.ExceptionDetailBuilder;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.StackFrameBuilder;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.Strings;
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
 import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
@@ -19,6 +20,12 @@ class TelemetryUtil {
   // Breeze will reject parsedStack exceeding 65536 bytes. Each char is 2 bytes long.
   private static final int MAX_PARSED_STACK_LENGTH = 32768;
 
+  // exceptions mostly share the same (framework) frames, so the method string and length of each
+  // distinct frame is only computed once.
+  // note: Throwable.getStackTrace() returns new StackTraceElement instances every time, so this is
+  // keyed by equality (class, method, file and line), and weak keys would not help
+  private static final Cache<StackTraceElement, FrameInfo> frameInfoCache = Cache.bounded(10000);
+
   static List<ExceptionDetailBuilder> getExceptions(Throwable throwable) {
     List<ExceptionDetailBuilder> exceptions = new ArrayList<>();
     convertExceptionTree(throwable, null, exceptions, Integer.MAX_VALUE);
@@ -82,22 +89,15 @@ class TelemetryUtil {
           continue;
         }
 
-        String className = elem.getClassName();
+        FrameInfo frameInfo = frameInfoCache.computeIfAbsent(elem, FrameInfo::new);
 
         StackFrameBuilder frame = new StackFrameBuilder();
         frame.setLevel(idx);
         frame.setFileName(elem.getFileName());
         frame.setLine(elem.getLineNumber());
+        frame.setMethod(frameInfo.method);
 
-        String method;
-        if (!Strings.isNullOrEmpty(className)) {
-          method = elem.getClassName() + "." + elem.getMethodName();
-        } else {
-          method = elem.getMethodName();
-        }
-        frame.setMethod(method);
-
-        stackLength += getStackFrameLength(method, elem.getFileName(), null);
+        stackLength += frameInfo.length;
         if (stackLength > MAX_PARSED_STACK_LENGTH) {
           exceptionDetails.setHasFullStack(false);
           logger.debug(
@@ -129,5 +129,21 @@ class TelemetryUtil {
     return text == null ? 0 : text.length();
   }
 
+  private static class FrameInfo {
+
+    private final String method;
+    private final int length;
+
+    private FrameInfo(StackTraceElement elem) {
+      String className = elem.getClassName();
+      if (!Strings.isNullOrEmpty(className)) {
+        method = className + "." + elem.getMethodName();
+      } else {
+        method = elem.getMethodName();
+      }
+      length = getStackFrameLength(method, elem.getFileName(), null);
+    }
+  }
+
   private TelemetryUtil() {}
 }
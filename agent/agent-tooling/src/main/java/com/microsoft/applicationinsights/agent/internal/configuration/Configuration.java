@@ -20,6 +20,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -376,6 +377,8 @@ public class Configuration {
     // disk persistence has a default capacity of 50MB
     public int diskPersistenceMaxSizeMb = 50;
 
+    public TelemetrySpoolConfiguration telemetrySpool = new TelemetrySpoolConfiguration();
+
     // unfortunately the Java SDK behavior has always been to report the "% Processor Time" number
     // as "normalized" (divided by # of CPU cores), even though it should be non-normalized
     // we cannot change this existing behavior as it would break existing customers' alerts, but at
@@ -387,9 +390,52 @@ public class Configuration {
 
     public List<CustomInstrumentation> customInstrumentation = new ArrayList<>();
 
+    public ThreadContention threadContention = new ThreadContention();
+
+    public HotThreads hotThreads = new HotThreads();
+
+    // rules are evaluated in order before the built-in ones (which suppress the noisy lettuce
+    // "redis.encode.*" and grpc "message" events), the first matching rule wins
+    public List<SpanEventRule> spanEventRules = new ArrayList<>();
+
+    public PayloadBudget payloadBudget = new PayloadBudget();
+
+    public DependencyAggregation dependencyAggregation = new DependencyAggregation();
+
+    public ScopeVolume scopeVolume = new ScopeVolume();
+
+    public ExceptionStormSuppression exceptionStormSuppression = new ExceptionStormSuppression();
+
+    public ClassicSdkFlush classicSdkFlush = new ClassicSdkFlush();
+
+    public MetricCardinalityLimit metricCardinalityLimit = new MetricCardinalityLimit();
+
+    public AttributeProcessorMemo attributeProcessorMemo = new AttributeProcessorMemo();
+
+    public OverheadGovernor overheadGovernor = new OverheadGovernor();
+
+    // sends the duration of each agent startup phase as a custom event, so that startup
+    // regressions can be tracked across deployments
+    public boolean reportStartupPhases;
+
+    public ConfigurationReload configurationReload = new ConfigurationReload();
+
+    // exports spans and logs from the thread that ends them straight into the agent's export queue,
+    // instead of queueing them in the OpenTelemetry batch span/log record processors first
+    // (applies only to the Azure Monitor exporter, other exporters configured via
+    // otel.traces.exporter or otel.logs.exporter keep their batch processors)
+    public boolean directExport;
+
+    // host network interface, tcp and disk i/o counters read from /proc (linux only)
+    // these are also enabled when there are profiler host triggers, which are based on them
+    public boolean hostIoPerformanceCounters;
+
     private static final Set<String> VALID_ADDITIONAL_PROPAGATORS =
         new HashSet<>(asList("b3", "b3multi"));
 
+    // leaves room for the truncation marker
+    private static final int MIN_ATTRIBUTE_LENGTH_LIMIT = 32;
+
     public void validate() {
       for (SamplingOverride samplingOverride : sampling.overrides) {
         samplingOverride.validate();
@@ -416,6 +462,115 @@ public class Configuration {
               "Please provide only valid values for \"additionalPropagators\" configuration.");
         }
       }
+      for (HostTrigger hostTrigger : profiler.hostTriggers) {
+        if (hostTrigger.type == null) {
+          throw new FriendlyException(
+              "A host trigger configuration is missing a \"type\".",
+              "Please provide a \"type\" for each host trigger configuration.");
+        }
+      }
+      for (GcTrigger gcTrigger : profiler.gcTriggers) {
+        if (gcTrigger.type == null) {
+          throw new FriendlyException(
+              "A gc trigger configuration is missing a \"type\".",
+              "Please provide a \"type\" for each gc trigger configuration.");
+        }
+        if (gcTrigger.threshold <= 0) {
+          throw new FriendlyException(
+              "A gc trigger configuration has a \"threshold\" that is not greater than 0.",
+              "Please provide a positive \"threshold\" for each gc trigger configuration.");
+        }
+      }
+      if (profiler.offline.enabled
+          && (profiler.offline.maxSizeMb <= 0 || profiler.offline.maxAgeHours <= 0)) {
+        throw new FriendlyException(
+            "The offline profiler \"maxSizeMb\" and \"maxAgeHours\" must be greater than 0.",
+            "Please provide positive values for the offline profiler retention limits.");
+      }
+      if (hotThreads.enabled && hotThreads.intervalSeconds <= 0) {
+        throw new FriendlyException(
+            "The hot threads \"intervalSeconds\" must be greater than 0.",
+            "Please provide a positive \"intervalSeconds\" for the hot threads configuration.");
+      }
+      for (Map.Entry<String, String> threadPool : hotThreads.threadPools.entrySet()) {
+        try {
+          Pattern.compile(threadPool.getValue());
+        } catch (PatternSyntaxException e) {
+          throw new FriendlyException(
+              "The hot threads configuration has an invalid regex for thread pool \""
+                  + threadPool.getKey()
+                  + "\": "
+                  + threadPool.getValue(),
+              "Please provide a valid regex for each thread pool in the hot threads configuration.",
+              e);
+        }
+      }
+      for (SpanEventRule spanEventRule : spanEventRules) {
+        if (isEmpty(spanEventRule.eventName) || spanEventRule.action == null) {
+          throw new FriendlyException(
+              "A span event rule configuration is missing an \"eventName\" or an \"action\".",
+              "Please provide an \"eventName\" and an \"action\" for each span event rule.");
+        }
+        validatePayloadRegex(spanEventRule.eventName, "span event rule");
+      }
+      for (AttributeLengthLimit lengthLimit : payloadBudget.attributeLengthLimits) {
+        if (isEmpty(lengthLimit.keyPattern)) {
+          throw new FriendlyException(
+              "An attribute length limit configuration is missing a \"keyPattern\".",
+              "Please provide a \"keyPattern\" for each attribute length limit.");
+        }
+        validatePayloadRegex(lengthLimit.keyPattern, "attribute length limit");
+        if (lengthLimit.maxLength < MIN_ATTRIBUTE_LENGTH_LIMIT) {
+          throw new FriendlyException(
+              "An attribute length limit configuration has a \"maxLength\" less than "
+                  + MIN_ATTRIBUTE_LENGTH_LIMIT
+                  + ".",
+              "Please provide a \"maxLength\" of at least "
+                  + MIN_ATTRIBUTE_LENGTH_LIMIT
+                  + " for each attribute length limit.");
+        }
+      }
+      if (payloadBudget.enabled
+          && (payloadBudget.maxEventsPerSpan < 0
+              || payloadBudget.maxTotalAttributeLength < MIN_ATTRIBUTE_LENGTH_LIMIT)) {
+        throw new FriendlyException(
+            "The payload budget \"maxEventsPerSpan\" is negative or the \"maxTotalAttributeLength\" is less than "
+                + MIN_ATTRIBUTE_LENGTH_LIMIT
+                + ".",
+            "Please provide valid limits in the payload budget configuration.");
+      }
+      if (dependencyAggregation.enabled
+          && (dependencyAggregation.maxIndividualDependencies < 0
+              || dependencyAggregation.maxPendingSeconds <= 0
+              || dependencyAggregation.maxPendingParents <= 0)) {
+        throw new FriendlyException(
+            "The dependency aggregation configuration has a negative \"maxIndividualDependencies\" or a \"maxPendingSeconds\" or \"maxPendingParents\" that is not greater than 0.",
+            "Please provide valid limits in the dependency aggregation configuration.");
+      }
+      if (scopeVolume.enabled
+          && (scopeVolume.summaryIntervalSeconds <= 0 || scopeVolume.summaryTopCount < 0)) {
+        throw new FriendlyException(
+            "The scope volume configuration has a \"summaryIntervalSeconds\" that is not greater than 0 or a negative \"summaryTopCount\".",
+            "Please provide valid values in the scope volume configuration.");
+      }
+      for (ScopeQuota quota : scopeVolume.quotas) {
+        if (isEmpty(quota.instrumentationScope) || quota.maxItemsPerSecond <= 0) {
+          throw new FriendlyException(
+              "A scope quota configuration is missing an \"instrumentationScope\" or has a \"maxItemsPerSecond\" that is not greater than 0.",
+              "Please provide an \"instrumentationScope\" and a \"maxItemsPerSecond\" greater than 0 for each scope quota.");
+        }
+      }
+    }
+
+    private static void validatePayloadRegex(String value, String section) {
+      try {
+        Pattern.compile(value);
+      } catch (PatternSyntaxException e) {
+        throw new FriendlyException(
+            "A " + section + " configuration has an invalid regex: " + value,
+            "Please provide a valid regex in the " + section + " configuration.",
+            e);
+      }
     }
   }
 
@@ -1216,12 +1371,12 @@ public class Configuration {
 
   public static class ExtractAttribute {
 
-    public final Pattern pattern;
+    public final PrefilteredPattern pattern;
     public final List<String> groupNames;
 
     // visible for testing
     public ExtractAttribute(Pattern pattern, List<String> groupNames) {
-      this.pattern = pattern;
+      this.pattern = PrefilteredPattern.of(pattern);
       this.groupNames = groupNames;
     }
 
@@ -1240,13 +1395,13 @@ public class Configuration {
   public static class MaskAttribute {
     private static final Pattern replacePatternWithGroupName =
         Pattern.compile("\\$\\{[A-Za-z1-9]*\\}*");
-    public final Pattern pattern;
+    public final PrefilteredPattern pattern;
     public final List<String> groupNames;
     public final String replace;
 
     // visible for testing
     public MaskAttribute(Pattern pattern, List<String> groupNames, String replace) {
-      this.pattern = pattern;
+      this.pattern = PrefilteredPattern.of(pattern);
       this.groupNames = groupNames;
       this.replace = replace;
     }
@@ -1530,7 +1685,266 @@ public class Configuration {
     public boolean enableDiagnostics = false;
     public boolean enableRequestTriggering = false;
     public List<RequestTrigger> requestTriggerEndpoints = new ArrayList<>();
+    // triggers based on the host i/o performance counters (linux only)
+    public List<HostTrigger> hostTriggers = new ArrayList<>();
+    // triggers based on the allocation rate, promotion rate and tenured generation growth, which
+    // are derived from the gc events
+    public List<GcTrigger> gcTriggers = new ArrayList<>();
     @Nullable public String cgroupPath = null;
+    // summarizes each recording on the host (hot methods, allocation sites, lock contention sites
+    // and gc pauses) and sends the summary as a custom event
+    public boolean enableRecordingSummary = false;
+    public int recordingSummaryTopN = 10;
+    public OfflineProfilerConfiguration offline = new OfflineProfilerConfiguration();
+  }
+
+  public static class OfflineProfilerConfiguration {
+    // when enabled, the profiler does not connect to the profiler service: the cpu and memory
+    // triggers are configured below (or in settingsFile), and recordings are kept in directory
+    // instead of being uploaded
+    public boolean enabled;
+    public boolean cpuTriggerEnabled = true;
+    public float cpuThreshold = 80; // in %
+    public boolean memoryTriggerEnabled = true;
+    public float memoryThreshold = 80; // in %
+    public int profileDurationSeconds = 120;
+    public int cooldownSeconds = 14400;
+    // settings in the same json format that the profiler service returns, this file is re-read
+    // whenever it changes, and while it exists it takes precedence over the trigger settings above
+    @Nullable public String settingsFile;
+    // defaults to a "profiles" directory under the agent's temp directory
+    @Nullable public String directory;
+    // the oldest recordings are deleted when either of these limits is exceeded
+    public int maxSizeMb = 1024;
+    public int maxAgeHours = 7 * 24;
+  }
+
+  public enum HostTriggerType {
+    // percentage of sent tcp segments which were retransmitted
+    @JsonProperty("tcp-retransmission")
+    TCP_RETRANSMISSION,
+    // average milliseconds per disk read or write
+    @JsonProperty("disk-latency")
+    DISK_LATENCY,
+    // bytes per second sent and received over all network interfaces
+    @JsonProperty("network-throughput")
+    NETWORK_THROUGHPUT
+  }
+
+  public static class HostTrigger {
+    public HostTriggerType type;
+    // compared against the average over the last two minutes
+    public float threshold;
+    public int profileDuration = 30; // in s
+    public int cooldown = 14400; // in s
+  }
+
+  public enum GcTriggerType {
+    // megabytes per second allocated in the young generation
+    @JsonProperty("allocation-rate")
+    ALLOCATION_RATE,
+    // megabytes per second promoted to the tenured generation
+    @JsonProperty("promotion-rate")
+    PROMOTION_RATE,
+    // hours until the tenured generation is projected to be full (leak suspicion), triggers when
+    // the projection drops below the threshold
+    @JsonProperty("old-gen-exhaustion")
+    OLD_GEN_EXHAUSTION
+  }
+
+  public static class GcTrigger {
+    public GcTriggerType type;
+    // compared against the average over the last two minutes
+    public float threshold;
+    public int profileDuration = 30; // in s
+    public int cooldown = 14400; // in s
+  }
+
+  public static class TelemetrySpoolConfiguration {
+    // when enabled, items accepted into the export queues are also appended to memory-mapped files
+    // under the temp dir until they have been handed off to ingestion (or to disk persistence), so
+    // that they can be sent on the next start if the JVM crashes in the meantime
+    public boolean enabled;
+    // per export queue
+    public int maxSizeMb = 20;
+    public int segmentSizeKb = 1024;
+    public SpoolFsyncPolicy fsync = SpoolFsyncPolicy.NONE;
+    // only used with "periodic"
+    public int fsyncIntervalMillis = 1000;
+  }
+
+  public enum SpoolFsyncPolicy {
+    // rely on the OS page cache, which survives a JVM crash (but not a host crash)
+    @JsonProperty("none")
+    NONE,
+    @JsonProperty("periodic")
+    PERIODIC,
+    @JsonProperty("always")
+    ALWAYS
+  }
+
+  public static class ThreadContention {
+    // enabling this turns on JVM thread contention monitoring, which has a (small) cost on every
+    // monitor enter, so it is off by default
+    public boolean enabled;
+    // number of threads blocked on the same monitor at the same time to be reported as a convoy
+    public int convoyThreadCount = 5;
+    // a contended monitor held by the same owner for at least this long is reported
+    public int longHeldMonitorThresholdSeconds = 10;
+    public int maxReportedLocks = 5;
+    public int maxStackDepth = 20;
+    // when there are more live threads than this, sampling intervals are skipped proportionally
+    public int maxSampledThreads = 1000;
+  }
+
+  public static class HotThreads {
+    // samples the cpu time of every thread on this interval (independent of the performance
+    // counter interval), and sends the top threads with a short stack trace as trace telemetry
+    // when the hottest one used at least cpuThresholdPercent of a core
+    public boolean enabled;
+    public int intervalSeconds = 10;
+    public double cpuThresholdPercent = 50;
+    public int topThreadCount = 5;
+    public int maxStackDepth = 10;
+    // thread pool name to thread name regex, the first match wins, threads which don't match any
+    // are grouped by their name with digits replaced by '#' (e.g. "pool-#-thread-#")
+    public Map<String, String> threadPools = new LinkedHashMap<>();
+    // the cpu of the busiest thread pools is sent as a metric per pool on every report
+    public int maxReportedThreadPools = 10;
+    // when there are more live threads than this, sampling intervals are skipped proportionally
+    public int maxSampledThreads = 5000;
+    // when a sample takes more than this share of the interval, the following ones are skipped
+    // proportionally
+    public double maxSelfCostPercent = 1;
+  }
+
+  public static class SpanEventRule {
+    // instrumentation scope name (e.g. "io.opentelemetry.grpc-1.6"), or null for any
+    @Nullable public String instrumentationScope;
+    // regex which has to match the whole event name
+    public String eventName;
+    public SpanEventRuleAction action = SpanEventRuleAction.DENY;
+  }
+
+  public enum SpanEventRuleAction {
+    @JsonProperty("allow")
+    ALLOW,
+    @JsonProperty("deny")
+    DENY
+  }
+
+  public static class PayloadBudget {
+    // limits how much a single span (including its events) or log record adds to the exported
+    // telemetry, enforced before the telemetry is mapped
+    public boolean enabled;
+    // span events beyond this are dropped (keeping the earliest), exception events are always kept
+    public int maxEventsPerSpan = 100;
+    // the first limit whose key pattern matches an attribute key applies to its (string) value
+    public List<AttributeLengthLimit> attributeLengthLimits = new ArrayList<>();
+    // total length of the attribute keys and values of each span, span event and log record, when
+    // it is over this the longest values are truncated first
+    public int maxTotalAttributeLength = 32 * 1024;
+  }
+
+  public static class AttributeLengthLimit {
+    // regex which has to match the whole attribute key
+    public String keyPattern;
+    public int maxLength;
+  }
+
+  public static class DependencyAggregation {
+    // database dependencies under the same parent with the same type, target and (normalized)
+    // statement beyond the first maxIndividualDependencies are collapsed into a single aggregated
+    // dependency, which is sent along with the parent
+    // (live metrics only sees the dependencies which are sent individually, so its dependency
+    // rate and duration undercount while dependencies are being collapsed)
+    public boolean enabled;
+    public int maxIndividualDependencies = 5;
+    // aggregated dependencies whose parent has not been sent by then (e.g. because it is remote)
+    // are sent on their own
+    public int maxPendingSeconds = 60;
+    // bounds memory, beyond this the oldest pending aggregated dependencies are sent early
+    public int maxPendingParents = 10000;
+  }
+
+  public static class ScopeVolume {
+    // counts the spans and log records sent to Azure Monitor, and their estimated serialized
+    // size, per instrumentation scope and telemetry type, the totals are exposed over JMX as
+    // "com.microsoft:type=AI-scope-volume" and the busiest scopes are logged on this interval
+    public boolean enabled;
+    public int summaryIntervalSeconds = 300;
+    public int summaryTopCount = 10;
+    // items from a scope beyond its quota are dropped before they are processed and mapped, the
+    // first quota for a scope wins
+    public List<ScopeQuota> quotas = new ArrayList<>();
+  }
+
+  public static class ScopeQuota {
+    // instrumentation scope name (e.g. "io.opentelemetry.lettuce-5.1")
+    public String instrumentationScope;
+    // bursts of up to one second worth of items are allowed
+    public double maxItemsPerSecond;
+  }
+
+  public static class ExceptionStormSuppression {
+    // exceptions are grouped by type plus top stack frames, and once a group has been sent
+    // maxFullOccurrences times within the window, further occurrences in that window are only
+    // counted and reported in a single aggregated exception record at the end of the window
+    public boolean enabled;
+    public int maxFullOccurrences = 10;
+    public int windowSeconds = 60;
+    public int stackFrames = 5;
+  }
+
+  public static class ClassicSdkFlush {
+    // concurrent 2.x TelemetryClient.flush() calls are always coalesced into a single in-flight
+    // flush, this controls how long the calling thread waits for it
+    public ClassicSdkFlushMode mode = ClassicSdkFlushMode.BLOCK;
+    // only used with "bounded-wait"
+    public int maxWaitMillis = 1000;
+  }
+
+  public static class MetricCardinalityLimit {
+    // caps the number of series (distinct attribute sets) exported per metric and export interval,
+    // the series with the most points across recent intervals are kept and the rest are merged
+    // into a single overflow series (per connection string and role name)
+    public boolean enabled;
+    public int maxSeriesPerMetric = 1000;
+  }
+
+  public static class AttributeProcessorMemo {
+    // results of the attribute processor "hash" and "mask" actions are remembered for repeated
+    // values, up to this much (estimated) memory, 0 disables it
+    public int maxSizeKb = 1024;
+  }
+
+  public static class OverheadGovernor {
+    // measures the cpu time and allocations of the agent's own threads, and when they exceed the
+    // budget, progressively lowers the sampling percentage and widens the performance counter
+    // interval, restoring them once the agent is back well under the budget
+    public boolean enabled;
+    // percentage of the total cpu capacity available to the jvm
+    public double maxCpuPercent = 5;
+    public int maxAllocatedMbPerSecond = 50;
+    public int checkIntervalSeconds = 10;
+  }
+
+  public static class ConfigurationReload {
+    // re-reads the json configuration file when it changes, and applies the changes to sampling,
+    // telemetry processors, jmx metrics, inherited attributes, connection string, role and logging
+    // levels without restarting the jvm (changes to other settings are logged and ignored)
+    public boolean enabled;
+    public int pollingIntervalSeconds = 30;
+  }
+
+  public enum ClassicSdkFlushMode {
+    // wait for the flush to complete (up to 10 seconds)
+    @JsonProperty("block")
+    BLOCK,
+    @JsonProperty("bounded-wait")
+    BOUNDED_WAIT,
+    @JsonProperty("fire-and-forget")
+    FIRE_AND_FORGET
   }
 
   public static class GcEventConfiguration {
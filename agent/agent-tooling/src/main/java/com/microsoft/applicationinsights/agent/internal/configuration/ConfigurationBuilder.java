@@ -671,6 +671,31 @@ public class ConfigurationBuilder {
     return new Configuration();
   }
 
+  // returns the json file that create() loads the configuration from, or null when the
+  // configuration doesn't come from a file (e.g. APPLICATIONINSIGHTS_CONFIGURATION_CONTENT)
+  @Nullable
+  public static Path getConfigurationFilePath(
+      Path agentJarPath,
+      Function<String, String> envVarsFunction,
+      Function<String, String> systemPropsFunction) {
+    if (getEnvVar(APPLICATIONINSIGHTS_CONFIGURATION_CONTENT, envVarsFunction) != null) {
+      return null;
+    }
+    String configPathStr = getConfigPath(envVarsFunction, systemPropsFunction);
+    if (configPathStr != null) {
+      return agentJarPath.resolveSibling(configPathStr);
+    }
+    String runtimeAttachedConfigurationContent =
+        getSystemProperty(
+            APPLICATIONINSIGHTS_RUNTIME_ATTACHED_CONFIGURATION_CONTENT, systemPropsFunction);
+    if (runtimeAttachedConfigurationContent != null
+        || RpAttachType.getRpAttachType() == RpAttachType.INTEGRATED_AUTO) {
+      return null;
+    }
+    Path configPath = agentJarPath.resolveSibling("applicationinsights.json");
+    return Files.exists(configPath) ? configPath : null;
+  }
+
   @Nullable
   private static Configuration extractConfigFromProperty(
       Path agentJarPath,
@@ -25,9 +25,12 @@ class ConfigurationLogger {
     messages.add(new Message(ConfigurationLogLevel.DEBUG, message, args));
   }
 
+  // messages are only logged once, the configuration can be loaded again later on (see
+  // ConfigurationReloader)
   void log(Logger logger) {
     for (Message message : messages) {
       message.log(logger);
+      messages.remove(message);
     }
   }
 
@@ -0,0 +1,320 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Pattern} plus a cheap check for whether it can match at all.
+ *
+ * <p>Most user-provided processor and filter regexes contain a literal that every match has to
+ * contain (e.g. {@code /api/} in {@code ^GET /api/.*}), and most telemetry doesn't contain it, so
+ * checking for that literal with {@link String#indexOf} first avoids running the regex engine on
+ * most items. Regexes that are nothing but a literal don't use the regex engine at all for
+ * {@link #find} and {@link #matches}.
+ *
+ * <p>Literal extraction is conservative: anything it doesn't fully understand (inline flags,
+ * quoting, escapes with arguments, ...) results in no prefilter, and the regex always being run.
+ */
+public final class PrefilteredPattern {
+
+  private static final String META_CHARACTERS = "\\[](){}.*+?^$|";
+
+  // escapes that don't take arguments and don't stand for a literal character
+  private static final String ESCAPES_WITHOUT_ARGUMENTS = "dDsSwWbBAGZzRhHvVXtnrfea";
+
+  private static final Pattern INLINE_FLAGS = Pattern.compile("\\(\\?[a-zA-Z-]");
+
+  // group numbers and names would clash when combining into a single pattern
+  private static final Pattern GROUP_REFERENCES =
+      Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?<[a-zA-Z]");
+
+  private final Pattern pattern;
+  // at least one of these is contained in every match, null if unknown
+  @Nullable private final String[] literals;
+  // the regex is just this literal
+  @Nullable private final String literal;
+
+  private PrefilteredPattern(
+      Pattern pattern, @Nullable List<String> literals, @Nullable String literal) {
+    this.pattern = pattern;
+    this.literals = literals == null ? null : literals.toArray(new String[0]);
+    this.literal = literal;
+  }
+
+  public static PrefilteredPattern compile(String regex) {
+    return of(Pattern.compile(regex));
+  }
+
+  public static PrefilteredPattern of(Pattern pattern) {
+    String regex = pattern.pattern();
+    String literal = pattern.flags() == 0 && isLiteral(regex) ? regex : null;
+    return new PrefilteredPattern(
+        pattern, pattern.flags() == 0 ? requiredLiterals(regex) : null, literal);
+  }
+
+  /**
+   * Returns patterns equivalent to finding any of the given regexes, combined into a single
+   * alternation (and so a single scan of the input) when that doesn't change their semantics.
+   */
+  public static List<PrefilteredPattern> anyOf(List<String> regexes) {
+    if (regexes.size() > 1 && canCombine(regexes)) {
+      StringBuilder combined = new StringBuilder();
+      List<String> literals = new ArrayList<>();
+      boolean prefilter = true;
+      for (String regex : regexes) {
+        if (combined.length() > 0) {
+          combined.append('|');
+        }
+        combined.append("(?:").append(regex).append(')');
+        List<String> regexLiterals = requiredLiterals(regex);
+        if (regexLiterals == null) {
+          prefilter = false;
+        } else {
+          literals.addAll(regexLiterals);
+        }
+      }
+      try {
+        return Collections.singletonList(
+            new PrefilteredPattern(
+                Pattern.compile(combined.toString()), prefilter ? literals : null, null));
+      } catch (PatternSyntaxException e) {
+        // not expected since canCombine() excludes the known problems, but the patterns work
+        // individually in any case
+      }
+    }
+    List<PrefilteredPattern> patterns = new ArrayList<>(regexes.size());
+    for (String regex : regexes) {
+      patterns.add(compile(regex));
+    }
+    return patterns;
+  }
+
+  public Pattern pattern() {
+    return pattern;
+  }
+
+  /** Returns false if the pattern definitely doesn't match (or find a match in) the input. */
+  public boolean mayMatch(String input) {
+    if (literals == null) {
+      return true;
+    }
+    for (String literal : literals) {
+      if (input.contains(literal)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean find(String input) {
+    if (literal != null) {
+      return input.contains(literal);
+    }
+    return mayMatch(input) && pattern.matcher(input).find();
+  }
+
+  public boolean matches(String input) {
+    if (literal != null) {
+      return input.equals(literal);
+    }
+    return mayMatch(input) && pattern.matcher(input).matches();
+  }
+
+  public Matcher matcher(String input) {
+    return pattern.matcher(input);
+  }
+
+  @Override
+  public String toString() {
+    return pattern.toString();
+  }
+
+  private static boolean canCombine(List<String> regexes) {
+    for (String regex : regexes) {
+      if (regex.contains("\\Q") || GROUP_REFERENCES.matcher(regex).find()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isLiteral(String regex) {
+    for (int i = 0; i < regex.length(); i++) {
+      if (META_CHARACTERS.indexOf(regex.charAt(i)) != -1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // returns the literals of which at least one is contained in every match (one per top-level
+  // alternative), or null if that can't be determined
+  @Nullable
+  static List<String> requiredLiterals(String regex) {
+    if (regex.contains("\\Q") || INLINE_FLAGS.matcher(regex).find()) {
+      return null;
+    }
+    for (int i = 0; i < regex.length(); i++) {
+      if (Character.isSurrogate(regex.charAt(i))) {
+        // quantifiers apply to the whole code point, keeping it simple
+        return null;
+      }
+    }
+    List<String> literals = new ArrayList<>();
+    // longest literal run of the current alternative
+    String longest = "";
+    StringBuilder run = new StringBuilder();
+    // whether the last atom is the last character of run (which a quantifier would apply to)
+    boolean lastAtomInRun = false;
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        char next = regex.charAt(i + 1);
+        i += 2;
+        if (!Character.isLetterOrDigit(next)) {
+          run.append(next);
+          lastAtomInRun = true;
+          continue;
+        }
+        if (ESCAPES_WITHOUT_ARGUMENTS.indexOf(next) == -1) {
+          return null;
+        }
+      } else if (c == '[') {
+        i = skipCharacterClass(regex, i);
+        if (i == -1) {
+          return null;
+        }
+      } else if (c == '(') {
+        i = skipGroup(regex, i);
+        if (i == -1) {
+          return null;
+        }
+      } else if (c == '|') {
+        longest = longer(longest, run);
+        if (longest.isEmpty()) {
+          return null;
+        }
+        literals.add(longest);
+        longest = "";
+        run.setLength(0);
+        i++;
+      } else if (c == '*' || c == '?' || c == '+' || c == '{') {
+        int minOccurrences;
+        if (c == '{') {
+          int end = regex.indexOf('}', i);
+          if (end == -1) {
+            return null;
+          }
+          String bounds = regex.substring(i + 1, end);
+          int comma = bounds.indexOf(',');
+          try {
+            minOccurrences = Integer.parseInt(comma == -1 ? bounds : bounds.substring(0, comma));
+          } catch (NumberFormatException e) {
+            return null;
+          }
+          i = end + 1;
+        } else {
+          minOccurrences = c == '+' ? 1 : 0;
+          i++;
+        }
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+          // reluctant or possessive
+          i++;
+        }
+        if (minOccurrences == 0 && lastAtomInRun) {
+          run.setLength(run.length() - 1);
+        }
+        // e.g. "ab+c" doesn't require "abc", only "ab"
+      } else if (c == '.' || c == '^' || c == '$') {
+        i++;
+      } else {
+        run.append(c);
+        lastAtomInRun = true;
+        i++;
+        continue;
+      }
+      longest = longer(longest, run);
+      run.setLength(0);
+      lastAtomInRun = false;
+    }
+    longest = longer(longest, run);
+    if (longest.isEmpty()) {
+      return null;
+    }
+    literals.add(longest);
+    return literals;
+  }
+
+  private static String longer(String longest, StringBuilder run) {
+    return run.length() > longest.length() ? run.toString() : longest;
+  }
+
+  // returns the index after the character class starting at start, or -1
+  private static int skipCharacterClass(String regex, int start) {
+    int i = start + 1;
+    if (i < regex.length() && regex.charAt(i) == '^') {
+      i++;
+    }
+    if (i < regex.length() && regex.charAt(i) == ']') {
+      // a leading ] is a literal
+      i++;
+    }
+    int depth = 1;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        depth++;
+      } else if (c == ']') {
+        depth--;
+        if (depth == 0) {
+          return i + 1;
+        }
+      }
+      i++;
+    }
+    return -1;
+  }
+
+  // returns the index after the group starting at start, or -1
+  private static int skipGroup(String regex, int start) {
+    int depth = 0;
+    int i = start;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        i = skipCharacterClass(regex, i);
+        if (i == -1) {
+          return -1;
+        }
+        continue;
+      }
+      if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        if (depth == 0) {
+          return i + 1;
+        }
+      }
+      i++;
+    }
+    return -1;
+  }
+}
@@ -7,6 +7,7 @@ import static com.microsoft.applicationinsights.agent.internal.diagnostics.Diagn
 import static com.microsoft.applicationinsights.agent.internal.diagnostics.MsgId.STATUS_FILE_ERROR;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.microsoft.applicationinsights.agent.internal.diagnostics.ApplicationMetadataFactory;
 import com.microsoft.applicationinsights.agent.internal.diagnostics.DiagnosticsHelper;
 import com.microsoft.applicationinsights.agent.internal.diagnostics.DiagnosticsValueFinder;
@@ -18,18 +19,24 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,11 +90,29 @@ public class StatusFile {
   // guarded by lock
   private static OutputStream buffer;
 
-  private static final ThreadPoolExecutor WRITER_THREAD =
-      new ThreadPoolExecutor(
-          1, 1, 750L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), StatusFile::newThread);
+  // guarded by lock
+  @Nullable private static byte[] lastWrittenContent;
+
+  // visible for testing
+  static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  // status changes typically come in bursts (e.g. during startup or runtime reconfiguration), so
+  // they are coalesced into a single write
+  private static final long DEBOUNCE_MILLIS = 500;
+
+  private static final ObjectWriter JSON_WRITER =
+      new ObjectMapper().writerWithDefaultPrettyPrinter();
+
+  private static final AtomicBoolean writePending = new AtomicBoolean();
+
+  private static volatile boolean useLogger;
+
+  // visible for testing
+  static final ScheduledThreadPoolExecutor WRITER_THREAD =
+      new ScheduledThreadPoolExecutor(1, StatusFile::newThread);
 
   static {
+    WRITER_THREAD.setKeepAliveTime(750L, TimeUnit.MILLISECONDS);
     WRITER_THREAD.allowCoreThreadTimeOut(true);
     CONSTANT_VALUES.put("AppType", "java");
     ApplicationMetadataFactory mf = DiagnosticsHelper.getMetadataFactory();
@@ -159,70 +184,92 @@ public class StatusFile {
     write(false);
   }
 
-  @SuppressWarnings("SystemOut") // legitimate use of System.out for logging/output
   private static void write(boolean loggingInitialized) {
     if (!writable()) {
       return;
     }
-    WRITER_THREAD.submit(
-        new Runnable() {
-          @Override
-          @SuppressFBWarnings(
-              value = "SECPTI", // Potential Path Traversal
-              justification =
-                  "The constructed file path cannot be controlled by an end user of the instrumented application")
-          public void run() {
-            Map<String, Object> map = getJsonMap();
-
-            String fileName = constructFileName(map);
-
-            // the executor should prevent more than one thread from executing this block.
-            // this is just a safeguard
-            synchronized (lock) {
-              File file = new File(directory, fileName);
-              boolean dirsWereCreated = file.getParentFile().mkdirs();
-
-              Logger logger = loggingInitialized ? LoggerFactory.getLogger(StatusFile.class) : null;
-
-              if (dirsWereCreated || file.getParentFile().exists()) {
-                OutputStream b = null;
-                try {
-                  b = getBuffer(file);
-                  new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(b, map);
-                  b.flush();
-                } catch (Exception e) {
-                  if (logger != null) {
-                    try (MDC.MDCCloseable ignored = STATUS_FILE_ERROR.makeActive()) {
-                      logger.error("Error writing {}", file.getAbsolutePath(), e);
-                    }
-                  } else {
-                    e.printStackTrace();
-                  }
-                  if (b != null) {
-                    try {
-                      b.close();
-                    } catch (IOException ex) {
-                      // ignore this
-                    }
-                  }
-                }
-              } else {
-                if (logger != null) {
-                  try (MDC.MDCCloseable ignored = STATUS_FILE_ERROR.makeActive()) {
-                    logger.error(
-                        "Parent directories for status file could not be created: {}",
-                        file.getAbsolutePath());
-                  }
-                } else {
-                  System.err.println(
-                      "Parent directories for status file could not be created: "
-                          + file.getAbsolutePath());
-                }
-              }
+    if (loggingInitialized) {
+      useLogger = true;
+    }
+    scheduleWrite();
+  }
+
+  // visible for testing
+  static void scheduleWrite() {
+    // all updates made while a write is pending are picked up by that write, since the json map is
+    // only built once the debounce window has elapsed
+    if (!writePending.compareAndSet(false, true)) {
+      return;
+    }
+    WRITER_THREAD.schedule(StatusFile::writeNow, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  @SuppressWarnings("SystemOut") // legitimate use of System.out for logging/output
+  @SuppressFBWarnings(
+      value = "SECPTI", // Potential Path Traversal
+      justification =
+          "The constructed file path cannot be controlled by an end user of the instrumented application")
+  private static void writeNow() {
+    // reset before building the map, so that an update racing with this write schedules another one
+    writePending.set(false);
+
+    Map<String, Object> map = getJsonMap();
+
+    String fileName = constructFileName(map);
+
+    // the executor should prevent more than one thread from executing this block.
+    // this is just a safeguard
+    synchronized (lock) {
+      File file = new File(directory, fileName);
+      boolean dirsWereCreated = file.getParentFile().mkdirs();
+
+      Logger logger = useLogger ? LoggerFactory.getLogger(StatusFile.class) : null;
+
+      if (dirsWereCreated || file.getParentFile().exists()) {
+        try {
+          writeIfChanged(file, JSON_WRITER.writeValueAsBytes(map));
+        } catch (Exception e) {
+          if (logger != null) {
+            try (MDC.MDCCloseable ignored = STATUS_FILE_ERROR.makeActive()) {
+              logger.error("Error writing {}", file.getAbsolutePath(), e);
             }
+          } else {
+            e.printStackTrace();
           }
-        },
-        "StatusFileJsonWrite");
+        }
+      } else {
+        if (logger != null) {
+          try (MDC.MDCCloseable ignored = STATUS_FILE_ERROR.makeActive()) {
+            logger.error(
+                "Parent directories for status file could not be created: {}",
+                file.getAbsolutePath());
+          }
+        } else {
+          System.err.println(
+              "Parent directories for status file could not be created: "
+                  + file.getAbsolutePath());
+        }
+      }
+    }
+  }
+
+  // visible for testing
+  static void writeIfChanged(File file, byte[] content) throws IOException {
+    synchronized (lock) {
+      // the file can have been deleted (e.g. by log cleanup) since it was last written
+      if (Arrays.equals(content, lastWrittenContent) && file.exists()) {
+        return;
+      }
+      // cleared until the write succeeds, so that a failed write is retried by the next one, even
+      // if the content is the same
+      lastWrittenContent = null;
+      if (DiagnosticsHelper.isOsWindows()) {
+        writeToBuffer(file, content);
+      } else {
+        writeAtomically(file, content);
+      }
+      lastWrittenContent = content;
+    }
   }
 
   @SuppressFBWarnings(
@@ -236,31 +283,62 @@ public class StatusFile {
     return new File(logDir).canWrite();
   }
 
-  private static OutputStream getBuffer(File file) throws IOException {
+  // on windows, the file is opened with DELETE_ON_CLOSE and the handle is kept open, so that the
+  // file goes away with the process. this prevents replacing it by rename, so it is rewritten in
+  // place instead
+  private static void writeToBuffer(File file, byte[] content) throws IOException {
     synchronized (lock) {
       if (buffer != null) {
         buffer.close();
+        buffer = null;
       }
-      if (DiagnosticsHelper.isOsWindows()) {
-        buffer =
-            Files.newOutputStream(
-                file.toPath(),
-                StandardOpenOption.CREATE,
-                StandardOpenOption.DELETE_ON_CLOSE,
-                StandardOpenOption.WRITE,
-                StandardOpenOption.TRUNCATE_EXISTING);
-      } else { // on linux, the file is deleted/unlinked immediately using DELETE_ON_CLOSE making it
-        // unavailable to other processes. Using shutdown hook instead.
-        buffer =
-            Files.newOutputStream(
-                file.toPath(),
-                StandardOpenOption.CREATE,
-                StandardOpenOption.WRITE,
-                StandardOpenOption.TRUNCATE_EXISTING);
-        file.deleteOnExit();
+      buffer =
+          Files.newOutputStream(
+              file.toPath(),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.DELETE_ON_CLOSE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+      try {
+        buffer.write(content);
+        buffer.flush();
+      } catch (IOException e) {
+        buffer.close();
+        buffer = null;
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Writes the content to a temporary file in the same directory, syncs it to disk and then renames
+   * it over the target file, so that readers (and a crash at any point) only ever observe either
+   * the previous or the new complete content.
+   */
+  // visible for testing
+  static void writeAtomically(File file, byte[] content) throws IOException {
+    Path target = file.toPath();
+    Path temp = target.resolveSibling(file.getName() + TEMP_FILE_SUFFIX);
+    try (FileChannel channel =
+        FileChannel.open(
+            temp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer byteBuffer = ByteBuffer.wrap(content);
+      while (byteBuffer.hasRemaining()) {
+        channel.write(byteBuffer);
       }
-      return buffer;
+      channel.force(true);
+    }
+    try {
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
     }
+    // on linux, DELETE_ON_CLOSE unlinks the file immediately making it unavailable to other
+    // processes. Using shutdown hook instead.
+    file.deleteOnExit();
   }
 
   // visible for testing
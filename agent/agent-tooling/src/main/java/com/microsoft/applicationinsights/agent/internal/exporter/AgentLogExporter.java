@@ -8,9 +8,12 @@ import static com.azure.monitor.opentelemetry.autoconfigure.implementation.utils
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.AiSemanticAttributes;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.LogDataMapper;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.logging.OperationLogger;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.models.MonitorDomain;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.models.TelemetryExceptionData;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.models.TelemetryItem;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.quickpulse.QuickPulse;
 import com.microsoft.applicationinsights.agent.internal.telemetry.BatchItemProcessor;
+import com.microsoft.applicationinsights.agent.internal.telemetry.ExceptionStormSuppressor;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryObservers;
 import io.opentelemetry.api.logs.LoggerProvider;
@@ -20,6 +23,8 @@ import io.opentelemetry.sdk.logs.data.LogRecordData;
 import io.opentelemetry.sdk.logs.export.LogRecordExporter;
 import io.opentelemetry.semconv.ExceptionAttributes;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -34,13 +39,15 @@ public class AgentLogExporter implements LogRecordExporter {
 
   private final LogDataMapper mapper;
   private final Consumer<TelemetryItem> telemetryItemConsumer;
+  @Nullable private final ExceptionStormSuppressor exceptionStormSuppressor;
 
   public AgentLogExporter(
       LogDataMapper mapper,
       @Nullable QuickPulse quickPulse,
-      BatchItemProcessor batchItemProcessor) {
-    this.mapper = mapper;
-    telemetryItemConsumer =
+      BatchItemProcessor batchItemProcessor,
+      @Nullable ExceptionStormSuppressor exceptionStormSuppressor) {
+    this(
+        mapper,
         telemetryItem -> {
           if (quickPulse != null) {
             quickPulse.add(telemetryItem);
@@ -49,7 +56,18 @@ public class AgentLogExporter implements LogRecordExporter {
               .getObservers()
               .forEach(consumer -> consumer.accept(telemetryItem));
           batchItemProcessor.trackAsync(telemetryItem);
-        };
+        },
+        exceptionStormSuppressor);
+  }
+
+  // visible for testing
+  AgentLogExporter(
+      LogDataMapper mapper,
+      Consumer<TelemetryItem> telemetryItemConsumer,
+      @Nullable ExceptionStormSuppressor exceptionStormSuppressor) {
+    this.mapper = mapper;
+    this.telemetryItemConsumer = telemetryItemConsumer;
+    this.exceptionStormSuppressor = exceptionStormSuppressor;
   }
 
   @Override
@@ -83,15 +101,30 @@ public class AgentLogExporter implements LogRecordExporter {
     return CompletableResultCode.ofSuccess();
   }
 
-  private void internalExport(LogRecordData log) {
+  // visible for testing
+  void internalExport(LogRecordData log) {
     try {
       logger.debug("exporting log: {}", log);
 
       String stack = log.getAttributes().get(ExceptionAttributes.EXCEPTION_STACKTRACE);
       Double sampleRate = log.getAttributes().get(AiSemanticAttributes.SAMPLE_RATE);
 
+      String fingerprint = null;
+      if (stack != null && exceptionStormSuppressor != null) {
+        fingerprint = exceptionStormSuppressor.track(stack);
+        if (fingerprint == null) {
+          // counted towards the aggregated record for this fingerprint, without mapping it (which
+          // parses the stack), so it is not passed to live metrics either
+          exportingLogLogger.recordSuccess();
+          return;
+        }
+      }
+
       // TODO (trask) get stack and sampleRate inside map() method instead of passing into
       TelemetryItem telemetryItem = mapper.map(log, stack, sampleRate);
+      if (fingerprint != null) {
+        addFingerprint(telemetryItem, fingerprint);
+      }
       telemetryItemConsumer.accept(telemetryItem);
 
       exportingLogLogger.recordSuccess();
@@ -100,6 +133,20 @@ public class AgentLogExporter implements LogRecordExporter {
     }
   }
 
+  private static void addFingerprint(TelemetryItem telemetryItem, String fingerprint) {
+    MonitorDomain data = telemetryItem.getData().getBaseData();
+    if (!(data instanceof TelemetryExceptionData)) {
+      return;
+    }
+    TelemetryExceptionData exceptionData = (TelemetryExceptionData) data;
+    Map<String, String> properties = exceptionData.getProperties();
+    if (properties == null) {
+      properties = new HashMap<>();
+      exceptionData.setProperties(properties);
+    }
+    properties.put(ExceptionStormSuppressor.FINGERPRINT_PROPERTY, fingerprint);
+  }
+
   @Override
   public CompletableResultCode flush() {
     return CompletableResultCode.ofSuccess();
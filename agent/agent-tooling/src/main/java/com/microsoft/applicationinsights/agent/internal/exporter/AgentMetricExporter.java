@@ -22,6 +22,7 @@ import io.opentelemetry.sdk.metrics.export.MetricExporter;
 import java.util.Collection;
 import java.util.List;
 import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,16 +33,19 @@ public class AgentMetricExporter implements MetricExporter {
   private static final OperationLogger exportingMetricLogger =
       new OperationLogger(AgentMetricExporter.class, "Exporting metric");
 
-  private final List<MetricFilter> metricFilters;
+  private volatile List<MetricFilter> metricFilters;
   private final MetricDataMapper mapper;
   private final Consumer<TelemetryItem> telemetryItemConsumer;
+  @Nullable private final MetricCardinalityLimiter cardinalityLimiter;
 
   public AgentMetricExporter(
       List<MetricFilter> metricFilters,
       MetricDataMapper mapper,
-      BatchItemProcessor batchItemProcessor) {
+      BatchItemProcessor batchItemProcessor,
+      @Nullable MetricCardinalityLimiter cardinalityLimiter) {
     this.metricFilters = metricFilters;
     this.mapper = mapper;
+    this.cardinalityLimiter = cardinalityLimiter;
     this.telemetryItemConsumer =
         telemetryItem -> {
           TelemetryObservers.INSTANCE
@@ -51,6 +55,10 @@ public class AgentMetricExporter implements MetricExporter {
         };
   }
 
+  public void setMetricFilters(List<MetricFilter> metricFilters) {
+    this.metricFilters = metricFilters;
+  }
+
   @Override
   public CompletableResultCode export(Collection<MetricData> metrics) {
     if (Strings.isNullOrEmpty(TelemetryClient.getActive().getInstrumentationKey())) {
@@ -64,12 +72,24 @@ public class AgentMetricExporter implements MetricExporter {
       }
       logger.debug("exporting metric: {}", metricData);
       try {
+        if (cardinalityLimiter != null) {
+          metricData = cardinalityLimiter.limit(metricData);
+        }
         mapper.map(metricData, telemetryItemConsumer);
         exportingMetricLogger.recordSuccess();
       } catch (Throwable t) {
         exportingMetricLogger.recordFailure(t.getMessage(), t, EXPORTER_MAPPING_ERROR);
       }
     }
+    if (cardinalityLimiter != null) {
+      long overflowedPoints = cardinalityLimiter.drainOverflowedPoints();
+      if (overflowedPoints > 0) {
+        TelemetryClient telemetryClient = TelemetryClient.getActive();
+        telemetryClient.trackAsync(
+            telemetryClient.newMetricTelemetry(
+                MetricCardinalityLimiter.OVERFLOW_METRIC_NAME, overflowedPoints));
+      }
+    }
     // always returning success, because all error handling is performed internally
     return CompletableResultCode.ofSuccess();
   }
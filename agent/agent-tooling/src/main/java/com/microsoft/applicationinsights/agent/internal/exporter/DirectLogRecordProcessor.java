@@ -0,0 +1,57 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.exporter;
+
+import static com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.AzureMonitorMsgId.EXPORTER_MAPPING_ERROR;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.logging.OperationLogger;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.LogRecordProcessor;
+import io.opentelemetry.sdk.logs.ReadWriteLogRecord;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports each log record from the thread that emits it, instead of queueing it in a {@code
+ * BatchLogRecordProcessor} first.
+ *
+ * <p>See {@link DirectSpanProcessor}.
+ */
+public final class DirectLogRecordProcessor implements LogRecordProcessor {
+
+  private static final OperationLogger exportingLogLogger =
+      new OperationLogger(DirectLogRecordProcessor.class, "Exporting log");
+
+  private final LogRecordExporter logRecordExporter;
+  private final AtomicBoolean isShutdown = new AtomicBoolean();
+
+  public DirectLogRecordProcessor(LogRecordExporter logRecordExporter) {
+    this.logRecordExporter = logRecordExporter;
+  }
+
+  @Override
+  public void onEmit(Context context, ReadWriteLogRecord logRecord) {
+    try {
+      logRecordExporter.export(Collections.singletonList(logRecord.toLogRecordData()));
+    } catch (RuntimeException e) {
+      // don't let it propagate to the application thread which emitted the log record
+      exportingLogLogger.recordFailure(e.getMessage(), e, EXPORTER_MAPPING_ERROR);
+    }
+  }
+
+  @Override
+  public CompletableResultCode forceFlush() {
+    return logRecordExporter.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    if (isShutdown.getAndSet(true)) {
+      return CompletableResultCode.ofSuccess();
+    }
+    return logRecordExporter.shutdown();
+  }
+}
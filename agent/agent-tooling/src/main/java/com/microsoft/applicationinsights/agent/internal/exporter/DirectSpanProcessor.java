@@ -0,0 +1,77 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.exporter;
+
+import static com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.AzureMonitorMsgId.EXPORTER_MAPPING_ERROR;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.logging.OperationLogger;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports each sampled span from the thread that ends it, instead of queueing it in a {@code
+ * BatchSpanProcessor} first.
+ *
+ * <p>This is only used with the agent's own exporter, which maps the span and hands it to the
+ * {@link com.microsoft.applicationinsights.agent.internal.telemetry.BatchItemProcessor} without
+ * blocking, so that the batch item processor queue is the only queue (and the only place where
+ * telemetry is dropped when it's full).
+ */
+public final class DirectSpanProcessor implements SpanProcessor {
+
+  private static final OperationLogger exportingSpanLogger =
+      new OperationLogger(DirectSpanProcessor.class, "Exporting span");
+
+  private final SpanExporter spanExporter;
+  private final AtomicBoolean isShutdown = new AtomicBoolean();
+
+  public DirectSpanProcessor(SpanExporter spanExporter) {
+    this.spanExporter = spanExporter;
+  }
+
+  @Override
+  public void onStart(Context parentContext, ReadWriteSpan span) {}
+
+  @Override
+  public boolean isStartRequired() {
+    return false;
+  }
+
+  @Override
+  public void onEnd(ReadableSpan span) {
+    if (!span.getSpanContext().isSampled()) {
+      return;
+    }
+    try {
+      spanExporter.export(Collections.singletonList(span.toSpanData()));
+    } catch (RuntimeException e) {
+      // don't let it propagate to the application thread which ended the span
+      exportingSpanLogger.recordFailure(e.getMessage(), e, EXPORTER_MAPPING_ERROR);
+    }
+  }
+
+  @Override
+  public boolean isEndRequired() {
+    return true;
+  }
+
+  @Override
+  public CompletableResultCode forceFlush() {
+    return spanExporter.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    if (isShutdown.getAndSet(true)) {
+      return CompletableResultCode.ofSuccess();
+    }
+    return spanExporter.shutdown();
+  }
+}
@@ -0,0 +1,452 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.exporter;
+
+import static java.util.Arrays.asList;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.AiSemanticAttributes;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
+import io.opentelemetry.sdk.metrics.data.HistogramData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.MetricDataType;
+import io.opentelemetry.sdk.metrics.data.PointData;
+import io.opentelemetry.sdk.metrics.data.SumData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableDoublePointData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableGaugeData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableHistogramData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableHistogramPointData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableLongPointData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableMetricData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableSumData;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caps the number of series (distinct attribute sets) exported per instrument and export interval.
+ *
+ * <p>Series are ranked by their point weight (histogram count, otherwise 1), decayed across
+ * intervals, and a series that was exported in the previous interval only gives up its slot to a
+ * series with a clearly higher weight. This keeps the exported top-K stable, instead of it
+ * changing with whichever series happened to show up first in an interval. The remaining points
+ * are merged into an overflow series with {@code otel.metric.overflow=true} (same as the
+ * OpenTelemetry SDK uses for its own cardinality limit).
+ */
+public final class MetricCardinalityLimiter {
+
+  private static final Logger logger = LoggerFactory.getLogger(MetricCardinalityLimiter.class);
+
+  public static final String OVERFLOW_METRIC_NAME = "Metric Cardinality Overflow Points";
+
+  static final AttributeKey<Boolean> OVERFLOW = AttributeKey.booleanKey("otel.metric.overflow");
+
+  // these route the telemetry (connection string and role name overrides) or are dimensions of
+  // the pre-aggregated metrics, so they are carried over to the overflow series
+  private static final List<AttributeKey<?>> PRESERVED_KEYS =
+      asList(
+          AiSemanticAttributes.INTERNAL_CONNECTION_STRING,
+          AiSemanticAttributes.INTERNAL_ROLE_NAME,
+          AiSemanticAttributes.IS_SYNTHETIC);
+
+  // exponential histograms and summaries are left alone, since Application Insights doesn't map
+  // their buckets/quantiles in a way that points could be merged
+  private static final Set<MetricDataType> SUPPORTED_TYPES =
+      EnumSet.of(
+          MetricDataType.LONG_SUM,
+          MetricDataType.DOUBLE_SUM,
+          MetricDataType.LONG_GAUGE,
+          MetricDataType.DOUBLE_GAUGE,
+          MetricDataType.HISTOGRAM);
+
+  private final int maxSeries;
+  private final ConcurrentMap<String, SeriesSelector<Attributes>> selectors =
+      new ConcurrentHashMap<>();
+  private final AtomicLong overflowedPoints = new AtomicLong();
+
+  public MetricCardinalityLimiter(int maxSeries) {
+    this.maxSeries = maxSeries;
+  }
+
+  /** Returns the given metric data if it is within the limit, otherwise a limited copy. */
+  MetricData limit(MetricData metricData) {
+    if (!SUPPORTED_TYPES.contains(metricData.getType())) {
+      return metricData;
+    }
+    Collection<? extends PointData> points = metricData.getData().getPoints();
+    String instrumentKey =
+        metricData.getInstrumentationScopeInfo().getName() + ':' + metricData.getName();
+    SeriesSelector<Attributes> selector =
+        selectors.computeIfAbsent(instrumentKey, k -> new SeriesSelector<>(maxSeries));
+
+    Map<Attributes, Double> weights = new LinkedHashMap<>();
+    for (PointData point : points) {
+      weights.merge(point.getAttributes(), weight(point), Double::sum);
+    }
+    Set<Attributes> admitted;
+    synchronized (selector) {
+      admitted = selector.select(weights);
+      if (admitted.size() < weights.size() && !selector.overflowLogged) {
+        selector.overflowLogged = true;
+        logger.warn(
+            "metric {} has more than {} series per export interval, the remaining series are"
+                + " exported as a single overflow series (this message will only be logged once"
+                + " per metric)",
+            metricData.getName(),
+            maxSeries);
+      }
+    }
+    if (admitted.size() == weights.size()) {
+      return metricData;
+    }
+
+    List<PointData> kept = new ArrayList<>();
+    List<PointData> excess = new ArrayList<>();
+    for (PointData point : points) {
+      if (admitted.contains(point.getAttributes())) {
+        kept.add(point);
+      } else {
+        excess.add(point);
+      }
+    }
+    overflowedPoints.addAndGet(excess.size());
+    return rebuild(metricData, kept, excess);
+  }
+
+  /** Returns the number of points merged into overflow series since the previous call. */
+  long drainOverflowedPoints() {
+    return overflowedPoints.getAndSet(0);
+  }
+
+  private static double weight(PointData point) {
+    if (point instanceof HistogramPointData) {
+      return Math.max(1, ((HistogramPointData) point).getCount());
+    }
+    return 1;
+  }
+
+  @SuppressWarnings("unchecked") // point types are determined by the metric data type
+  private static MetricData rebuild(
+      MetricData metricData, List<PointData> kept, List<PointData> excess) {
+    switch (metricData.getType()) {
+      case LONG_SUM:
+        {
+          SumData<LongPointData> sum = metricData.getLongSumData();
+          return ImmutableMetricData.createLongSum(
+              metricData.getResource(),
+              metricData.getInstrumentationScopeInfo(),
+              metricData.getName(),
+              metricData.getDescription(),
+              metricData.getUnit(),
+              ImmutableSumData.create(
+                  sum.isMonotonic(),
+                  sum.getAggregationTemporality(),
+                  withOverflow(
+                      (List<LongPointData>) (List<?>) kept,
+                      (List<LongPointData>) (List<?>) excess,
+                      MetricCardinalityLimiter::sumLongs)));
+        }
+      case DOUBLE_SUM:
+        {
+          SumData<DoublePointData> sum = metricData.getDoubleSumData();
+          return ImmutableMetricData.createDoubleSum(
+              metricData.getResource(),
+              metricData.getInstrumentationScopeInfo(),
+              metricData.getName(),
+              metricData.getDescription(),
+              metricData.getUnit(),
+              ImmutableSumData.create(
+                  sum.isMonotonic(),
+                  sum.getAggregationTemporality(),
+                  withOverflow(
+                      (List<DoublePointData>) (List<?>) kept,
+                      (List<DoublePointData>) (List<?>) excess,
+                      MetricCardinalityLimiter::sumDoubles)));
+        }
+      case LONG_GAUGE:
+        return ImmutableMetricData.createLongGauge(
+            metricData.getResource(),
+            metricData.getInstrumentationScopeInfo(),
+            metricData.getName(),
+            metricData.getDescription(),
+            metricData.getUnit(),
+            ImmutableGaugeData.create(
+                withOverflow(
+                    (List<LongPointData>) (List<?>) kept,
+                    (List<LongPointData>) (List<?>) excess,
+                    MetricCardinalityLimiter::lastLong)));
+      case DOUBLE_GAUGE:
+        return ImmutableMetricData.createDoubleGauge(
+            metricData.getResource(),
+            metricData.getInstrumentationScopeInfo(),
+            metricData.getName(),
+            metricData.getDescription(),
+            metricData.getUnit(),
+            ImmutableGaugeData.create(
+                withOverflow(
+                    (List<DoublePointData>) (List<?>) kept,
+                    (List<DoublePointData>) (List<?>) excess,
+                    MetricCardinalityLimiter::lastDouble)));
+      case HISTOGRAM:
+        {
+          HistogramData histogram = metricData.getHistogramData();
+          return ImmutableMetricData.createDoubleHistogram(
+              metricData.getResource(),
+              metricData.getInstrumentationScopeInfo(),
+              metricData.getName(),
+              metricData.getDescription(),
+              metricData.getUnit(),
+              ImmutableHistogramData.create(
+                  histogram.getAggregationTemporality(),
+                  withOverflow(
+                      (List<HistogramPointData>) (List<?>) kept,
+                      (List<HistogramPointData>) (List<?>) excess,
+                      MetricCardinalityLimiter::mergeHistograms)));
+        }
+      default:
+        throw new AssertionError("Unexpected metric data type: " + metricData.getType());
+    }
+  }
+
+  private static <T extends PointData> List<T> withOverflow(
+      List<T> kept, List<T> excess, BinaryOperator<T> merge) {
+    // one overflow point per combination of preserved attributes
+    Map<Attributes, T> overflow = new LinkedHashMap<>();
+    for (T point : excess) {
+      Attributes attributes = overflowAttributes(point.getAttributes());
+      T existing = overflow.get(attributes);
+      overflow.put(
+          attributes,
+          existing == null ? withAttributes(point, attributes) : merge.apply(existing, point));
+    }
+    List<T> points = new ArrayList<>(kept.size() + overflow.size());
+    points.addAll(kept);
+    points.addAll(overflow.values());
+    return points;
+  }
+
+  @SuppressWarnings("unchecked") // the casts match the instanceof checks
+  private static <T extends PointData> T withAttributes(T point, Attributes attributes) {
+    if (point instanceof LongPointData) {
+      return (T)
+          ImmutableLongPointData.create(
+              point.getStartEpochNanos(),
+              point.getEpochNanos(),
+              attributes,
+              ((LongPointData) point).getValue());
+    }
+    if (point instanceof DoublePointData) {
+      return (T)
+          ImmutableDoublePointData.create(
+              point.getStartEpochNanos(),
+              point.getEpochNanos(),
+              attributes,
+              ((DoublePointData) point).getValue());
+    }
+    HistogramPointData histogram = (HistogramPointData) point;
+    return (T)
+        ImmutableHistogramPointData.create(
+            histogram.getStartEpochNanos(),
+            histogram.getEpochNanos(),
+            attributes,
+            histogram.getSum(),
+            histogram.hasMin(),
+            histogram.getMin(),
+            histogram.hasMax(),
+            histogram.getMax(),
+            histogram.getBoundaries(),
+            histogram.getCounts());
+  }
+
+  static Attributes overflowAttributes(Attributes attributes) {
+    AttributesBuilder builder = Attributes.builder();
+    for (AttributeKey<?> key : PRESERVED_KEYS) {
+      putIfPresent(builder, attributes, key);
+    }
+    return builder.put(OVERFLOW, true).build();
+  }
+
+  private static <T> void putIfPresent(
+      AttributesBuilder builder, Attributes attributes, AttributeKey<T> key) {
+    T value = attributes.get(key);
+    if (value != null) {
+      builder.put(key, value);
+    }
+  }
+
+  // the merge functions below keep the attributes of the first argument, which is always the
+  // overflow point accumulated so far
+
+  private static LongPointData sumLongs(LongPointData a, LongPointData b) {
+    return ImmutableLongPointData.create(
+        Math.min(a.getStartEpochNanos(), b.getStartEpochNanos()),
+        Math.max(a.getEpochNanos(), b.getEpochNanos()),
+        a.getAttributes(),
+        a.getValue() + b.getValue());
+  }
+
+  private static DoublePointData sumDoubles(DoublePointData a, DoublePointData b) {
+    return ImmutableDoublePointData.create(
+        Math.min(a.getStartEpochNanos(), b.getStartEpochNanos()),
+        Math.max(a.getEpochNanos(), b.getEpochNanos()),
+        a.getAttributes(),
+        a.getValue() + b.getValue());
+  }
+
+  private static LongPointData lastLong(LongPointData a, LongPointData b) {
+    LongPointData last = b.getEpochNanos() >= a.getEpochNanos() ? b : a;
+    return ImmutableLongPointData.create(
+        Math.min(a.getStartEpochNanos(), b.getStartEpochNanos()),
+        last.getEpochNanos(),
+        a.getAttributes(),
+        last.getValue());
+  }
+
+  private static DoublePointData lastDouble(DoublePointData a, DoublePointData b) {
+    DoublePointData last = b.getEpochNanos() >= a.getEpochNanos() ? b : a;
+    return ImmutableDoublePointData.create(
+        Math.min(a.getStartEpochNanos(), b.getStartEpochNanos()),
+        last.getEpochNanos(),
+        a.getAttributes(),
+        last.getValue());
+  }
+
+  private static HistogramPointData mergeHistograms(HistogramPointData a, HistogramPointData b) {
+    List<Long> counts;
+    List<Double> boundaries;
+    if (a.getBoundaries().equals(b.getBoundaries())) {
+      boundaries = a.getBoundaries();
+      counts = new ArrayList<>(a.getCounts().size());
+      for (int i = 0; i < a.getCounts().size(); i++) {
+        counts.add(a.getCounts().get(i) + b.getCounts().get(i));
+      }
+    } else {
+      // not expected within a single instrument, but keeping count/sum/min/max correct (which is
+      // all that Application Insights metrics use) by collapsing to a single bucket
+      boundaries = Collections.emptyList();
+      counts = Collections.singletonList(a.getCount() + b.getCount());
+    }
+    boolean hasMin = a.hasMin() || b.hasMin();
+    boolean hasMax = a.hasMax() || b.hasMax();
+    return ImmutableHistogramPointData.create(
+        Math.min(a.getStartEpochNanos(), b.getStartEpochNanos()),
+        Math.max(a.getEpochNanos(), b.getEpochNanos()),
+        a.getAttributes(),
+        a.getSum() + b.getSum(),
+        hasMin,
+        hasMin ? min(a, b) : 0,
+        hasMax,
+        hasMax ? max(a, b) : 0,
+        boundaries,
+        counts);
+  }
+
+  private static double min(HistogramPointData a, HistogramPointData b) {
+    if (!a.hasMin()) {
+      return b.getMin();
+    }
+    return b.hasMin() ? Math.min(a.getMin(), b.getMin()) : a.getMin();
+  }
+
+  private static double max(HistogramPointData a, HistogramPointData b) {
+    if (!a.hasMax()) {
+      return b.getMax();
+    }
+    return b.hasMax() ? Math.max(a.getMax(), b.getMax()) : a.getMax();
+  }
+
+  /**
+   * Selects up to {@code maxSeries} series per interval, keeping the selection stable across
+   * intervals. Only accessed while holding its monitor.
+   */
+  static final class SeriesSelector<K> {
+
+    // weights are halved every interval, so a series that stops reporting gives up its slot
+    // after a few intervals
+    private static final double DECAY = 0.5;
+    // a series selected in the previous interval keeps its slot unless a challenger's decayed
+    // weight is more than this many times higher
+    private static final double HYSTERESIS = 2;
+    private static final double MIN_SCORE = 0.01;
+
+    private final int maxSeries;
+    private final Map<K, Double> scores = new HashMap<>();
+    private Set<K> selected = Collections.emptySet();
+
+    boolean overflowLogged;
+
+    SeriesSelector(int maxSeries) {
+      this.maxSeries = maxSeries;
+    }
+
+    Set<K> select(Map<K, Double> weights) {
+      for (Iterator<Map.Entry<K, Double>> i = scores.entrySet().iterator(); i.hasNext(); ) {
+        Map.Entry<K, Double> entry = i.next();
+        double decayed = entry.getValue() * DECAY;
+        if (decayed < MIN_SCORE && !weights.containsKey(entry.getKey())) {
+          i.remove();
+        } else {
+          entry.setValue(decayed);
+        }
+      }
+      for (Map.Entry<K, Double> entry : weights.entrySet()) {
+        scores.merge(entry.getKey(), entry.getValue(), Double::sum);
+      }
+
+      Set<K> result;
+      if (weights.size() <= maxSeries) {
+        result = weights.keySet();
+      } else {
+        List<K> candidates = new ArrayList<>(weights.keySet());
+        // stable sort, so ties are broken by arrival order
+        candidates.sort((a, b) -> Double.compare(rank(b), rank(a)));
+        result = new HashSet<>(candidates.subList(0, maxSeries));
+      }
+      selected = new HashSet<>(result);
+      prune();
+      return result;
+    }
+
+    private double rank(K key) {
+      double score = scores.get(key);
+      return selected.contains(key) ? score * HYSTERESIS : score;
+    }
+
+    // keeps memory bounded when there are many more series than the limit
+    private void prune() {
+      int maxScores = 2 * maxSeries;
+      if (scores.size() <= maxScores) {
+        return;
+      }
+      List<Map.Entry<K, Double>> entries = new ArrayList<>(scores.entrySet());
+      entries.sort(Map.Entry.comparingByValue());
+      for (Map.Entry<K, Double> entry : entries) {
+        if (scores.size() <= maxScores) {
+          break;
+        }
+        if (!selected.contains(entry.getKey())) {
+          scores.remove(entry.getKey());
+        }
+      }
+    }
+  }
+}
@@ -10,14 +10,10 @@ import com.microsoft.applicationinsights.agent.internal.profiler.ProfilingInitia
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import io.opentelemetry.javaagent.extension.AgentListener;
 import io.opentelemetry.sdk.autoconfigure.AutoConfiguredOpenTelemetrySdk;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 @AutoService(AgentListener.class)
 public class AfterAgentListener implements AgentListener {
 
-  private static final Logger logger = LoggerFactory.getLogger(AfterAgentListener.class);
-
   @Override
   public void afterAgent(AutoConfiguredOpenTelemetrySdk autoConfiguredOpenTelemetrySdk) {
     // only safe now to make HTTPS calls because Java SSL classes
@@ -26,23 +22,24 @@ public class AfterAgentListener implements AgentListener {
     LazyHttpClient.safeToInitLatch.countDown();
 
     Configuration configuration = FirstEntryPoint.getConfiguration();
-    PerformanceCounterInitializer.initialize(configuration);
+    // these two don't depend on each other, and nothing else waits on them
+    StartupPhases.runInBackground(
+        "performance counters", () -> PerformanceCounterInitializer.initialize(configuration));
 
     TelemetryClient telemetryClient = TelemetryClient.getActive();
     if (configuration.preview.profiler.enabled
         && telemetryClient != null
-        && telemetryClient.getConnectionString() != null) {
-      try {
-        ProfilingInitializer.initialize(
-            SecondEntryPoint.getTempDir(),
-            configuration.preview.profiler,
-            configuration.preview.gcEvents.reportingLevel,
-            configuration.role.name,
-            configuration.role.instance,
-            TelemetryClient.getActive());
-      } catch (RuntimeException e) {
-        logger.warn("Failed to initialize profiler", e);
-      }
+        && ProfilingInitializer.canStart(configuration.preview.profiler, telemetryClient)) {
+      StartupPhases.runInBackground(
+          "profiler",
+          () ->
+              ProfilingInitializer.initialize(
+                  SecondEntryPoint.getTempDir(),
+                  configuration.preview.profiler,
+                  configuration.preview.gcEvents.reportingLevel,
+                  configuration.role.name,
+                  configuration.role.instance,
+                  telemetryClient));
     }
   }
 }
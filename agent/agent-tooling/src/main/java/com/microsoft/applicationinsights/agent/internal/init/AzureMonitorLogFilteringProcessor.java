@@ -22,8 +22,8 @@ import java.util.List;
 
 public class AzureMonitorLogFilteringProcessor implements LogRecordProcessor {
 
-  private final SamplingOverrides logSamplingOverrides;
-  private final SamplingOverrides exceptionSamplingOverrides;
+  private volatile SamplingOverrides logSamplingOverrides;
+  private volatile SamplingOverrides exceptionSamplingOverrides;
   private final LogRecordProcessor batchLogRecordProcessor;
 
   private volatile int severityThreshold;
@@ -45,6 +45,13 @@ public class AzureMonitorLogFilteringProcessor implements LogRecordProcessor {
     this.severityThreshold = severityThreshold;
   }
 
+  public void setSamplingOverrides(
+      List<Configuration.SamplingOverride> logSamplingOverrides,
+      List<Configuration.SamplingOverride> exceptionSamplingOverrides) {
+    this.logSamplingOverrides = new SamplingOverrides(logSamplingOverrides);
+    this.exceptionSamplingOverrides = new SamplingOverrides(exceptionSamplingOverrides);
+  }
+
   @Override
   public void onEmit(Context context, ReadWriteLogRecord logRecord) {
 
@@ -4,7 +4,6 @@
 package com.microsoft.applicationinsights.agent.internal.init;
 
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.AiSemanticAttributes;
-import com.azure.monitor.opentelemetry.autoconfigure.implementation.OperationNames;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.sdk.logs.LogRecordProcessor;
@@ -20,7 +19,7 @@ public class AzureMonitorLogProcessor implements LogRecordProcessor {
     if (currentSpan instanceof ReadableSpan) {
       ReadableSpan readableSpan = (ReadableSpan) currentSpan;
       logRecord.setAttribute(
-          AiSemanticAttributes.OPERATION_NAME, OperationNames.getOperationName(readableSpan));
+          AiSemanticAttributes.OPERATION_NAME, OperationNameCache.getOperationName(readableSpan));
     }
   }
 }
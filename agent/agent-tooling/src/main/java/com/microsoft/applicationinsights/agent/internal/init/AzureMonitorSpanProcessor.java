@@ -4,7 +4,6 @@
 package com.microsoft.applicationinsights.agent.internal.init;
 
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.AiSemanticAttributes;
-import com.azure.monitor.opentelemetry.autoconfigure.implementation.OperationNames;
 import com.microsoft.applicationinsights.agent.bootstrap.AzureFunctionsCustomDimensions;
 import com.microsoft.applicationinsights.agent.internal.configuration.ConfigurationBuilder;
 import io.opentelemetry.api.trace.Span;
@@ -40,7 +39,7 @@ public class AzureMonitorSpanProcessor implements SpanProcessor {
     }
     span.setAttribute(
         AiSemanticAttributes.OPERATION_NAME,
-        OperationNames.getOperationName((ReadableSpan) parentSpan));
+        OperationNameCache.getOperationName((ReadableSpan) parentSpan));
   }
 
   @Override
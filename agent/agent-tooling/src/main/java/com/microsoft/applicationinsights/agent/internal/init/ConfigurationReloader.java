@@ -0,0 +1,415 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.ThreadPoolUtils;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.agent.internal.configuration.ConfigurationBuilder;
+import com.microsoft.applicationinsights.agent.internal.configuration.PrefilteredPattern;
+import com.microsoft.applicationinsights.agent.internal.configuration.RpConfiguration;
+import com.microsoft.applicationinsights.agent.internal.exporter.AgentMetricExporter;
+import com.microsoft.applicationinsights.agent.internal.processors.ReloadableLogRecordExporter;
+import com.microsoft.applicationinsights.agent.internal.processors.ReloadableSpanExporter;
+import com.microsoft.applicationinsights.agent.internal.telemetry.MetricFilter;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Re-reads the json configuration file when it changes, and applies what changed without
+ * restarting the JVM.
+ *
+ * <p>The new configuration goes through {@link ConfigurationBuilder} and validation, and all the
+ * affected components are built before any of them is swapped in, so that an invalid configuration
+ * is rejected as a whole and the previous one stays in effect. Changes to settings that can't be
+ * applied at runtime are logged and ignored.
+ */
+class ConfigurationReloader implements Runnable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ConfigurationReloader.class);
+
+  // only compares the configuration fields, not derived values (e.g. getAttributeKey())
+  private static final ObjectMapper mapper =
+      new ObjectMapper()
+          .setVisibility(PropertyAccessor.ALL, Visibility.NONE)
+          .setVisibility(PropertyAccessor.FIELD, Visibility.PUBLIC_ONLY)
+          .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+          .registerModule(
+              new SimpleModule()
+                  .addSerializer(AttributeKey.class, ToStringSerializer.instance)
+                  .addSerializer(PrefilteredPattern.class, ToStringSerializer.instance));
+
+  // the diff goes into these objects, so that e.g. a change to "preview.processors" is reported
+  // as such, and not as a change to "preview"
+  private static final Set<String> DIFF_INTO =
+      new HashSet<>(
+          Arrays.asList(
+              "",
+              "role",
+              "sampling",
+              "selfDiagnostics",
+              "instrumentation",
+              "instrumentation.logging",
+              "preview"));
+
+  static final String CONNECTION_STRING = "connectionString";
+  static final String ROLE_NAME = "role.name";
+  static final String ROLE_INSTANCE = "role.instance";
+  static final String SAMPLING_PERCENTAGE = "sampling.percentage";
+  static final String SAMPLING_REQUESTS_PER_SECOND = "sampling.requestsPerSecond";
+  static final String SAMPLING_OVERRIDES = "sampling.overrides";
+  static final String SAMPLING_PREVIEW = "preview.sampling";
+  static final String PROCESSORS = "preview.processors";
+  static final String INHERITED_ATTRIBUTES = "preview.inheritedAttributes";
+  static final String JMX_METRICS = "jmxMetrics";
+  // only the level, the logging instrumentation can't be enabled or disabled at runtime
+  static final String INSTRUMENTATION_LOGGING_LEVEL = "instrumentation.logging.level";
+  static final String SELF_DIAGNOSTICS_LEVEL = "selfDiagnostics.level";
+
+  private static final Set<String> APPLIED_AT_RUNTIME =
+      new HashSet<>(
+          Arrays.asList(
+              CONNECTION_STRING,
+              ROLE_NAME,
+              ROLE_INSTANCE,
+              SAMPLING_PERCENTAGE,
+              SAMPLING_REQUESTS_PER_SECOND,
+              SAMPLING_OVERRIDES,
+              SAMPLING_PREVIEW,
+              PROCESSORS,
+              INHERITED_ATTRIBUTES,
+              JMX_METRICS,
+              INSTRUMENTATION_LOGGING_LEVEL,
+              SELF_DIAGNOSTICS_LEVEL));
+
+  private final Path configPath;
+  private final Path agentJarPath;
+  @Nullable private final RpConfiguration rpConfiguration;
+  private final RuntimeConfigurator runtimeConfigurator;
+  private final TelemetryClient telemetryClient;
+  private final Function<String, String> envVarsFunction;
+  private final Function<String, String> systemPropertiesFunction;
+
+  // registered while the OpenTelemetry SDK is built, which is after the reloader is created
+  private final List<ReloadableSpanExporter> spanExporters = new CopyOnWriteArrayList<>();
+  private final List<ReloadableLogRecordExporter> logExporters = new CopyOnWriteArrayList<>();
+  private final List<AgentMetricExporter> metricExporters = new CopyOnWriteArrayList<>();
+  private final List<InheritedAttributesSpanProcessor> inheritedAttributesSpanProcessors =
+      new CopyOnWriteArrayList<>();
+  private final List<InheritedAttributesLogProcessor> inheritedAttributesLogProcessors =
+      new CopyOnWriteArrayList<>();
+
+  // only accessed by the polling thread (after construction)
+  private Configuration configuration;
+  private long lastModifiedTime;
+
+  static ConfigurationReloader start(
+      Path configPath,
+      Path agentJarPath,
+      @Nullable RpConfiguration rpConfiguration,
+      Configuration configuration,
+      RuntimeConfigurator runtimeConfigurator,
+      TelemetryClient telemetryClient) {
+
+    ConfigurationReloader reloader =
+        new ConfigurationReloader(
+            configPath,
+            agentJarPath,
+            rpConfiguration,
+            configuration,
+            runtimeConfigurator,
+            telemetryClient,
+            System::getenv,
+            System::getProperty);
+    int intervalSeconds =
+        Math.max(1, configuration.preview.configurationReload.pollingIntervalSeconds);
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(
+            ThreadPoolUtils.createDaemonThreadFactory(ConfigurationReloader.class));
+    executor.scheduleWithFixedDelay(reloader, intervalSeconds, intervalSeconds, SECONDS);
+    // see the same check in RpConfigurationPolling
+    if (executor.isTerminated()) {
+      throw new AssertionError();
+    }
+    return reloader;
+  }
+
+  // visible for testing
+  ConfigurationReloader(
+      Path configPath,
+      Path agentJarPath,
+      @Nullable RpConfiguration rpConfiguration,
+      Configuration configuration,
+      RuntimeConfigurator runtimeConfigurator,
+      TelemetryClient telemetryClient,
+      Function<String, String> envVarsFunction,
+      Function<String, String> systemPropertiesFunction) {
+    this.configPath = configPath;
+    this.agentJarPath = agentJarPath;
+    this.rpConfiguration = rpConfiguration;
+    this.configuration = configuration;
+    this.runtimeConfigurator = runtimeConfigurator;
+    this.telemetryClient = telemetryClient;
+    this.envVarsFunction = envVarsFunction;
+    this.systemPropertiesFunction = systemPropertiesFunction;
+    lastModifiedTime = getLastModifiedTime();
+  }
+
+  void track(ReloadableSpanExporter spanExporter) {
+    spanExporters.add(spanExporter);
+  }
+
+  void track(ReloadableLogRecordExporter logExporter) {
+    logExporters.add(logExporter);
+  }
+
+  void track(AgentMetricExporter metricExporter) {
+    metricExporters.add(metricExporter);
+  }
+
+  void track(InheritedAttributesSpanProcessor processor) {
+    inheritedAttributesSpanProcessors.add(processor);
+  }
+
+  void track(InheritedAttributesLogProcessor processor) {
+    inheritedAttributesLogProcessors.add(processor);
+  }
+
+  // visible for testing
+  Configuration getConfiguration() {
+    return configuration;
+  }
+
+  @Override
+  public void run() {
+    try {
+      long modifiedTime = getLastModifiedTime();
+      if (modifiedTime != lastModifiedTime) {
+        lastModifiedTime = modifiedTime;
+        reload();
+      }
+    } catch (RuntimeException e) {
+      logger.error("Error occurred when reloading configuration file: {}", configPath, e);
+    }
+  }
+
+  private long getLastModifiedTime() {
+    try {
+      return Files.getLastModifiedTime(configPath).toMillis();
+    } catch (IOException e) {
+      // e.g. the file is being replaced, it will be picked up at a later check
+      return lastModifiedTime;
+    }
+  }
+
+  // visible for testing
+  void reload() {
+    Configuration newConfiguration;
+    try {
+      newConfiguration =
+          ConfigurationBuilder.create(
+              agentJarPath, rpConfiguration, envVarsFunction, systemPropertiesFunction);
+      newConfiguration.validate();
+    } catch (IOException | RuntimeException e) {
+      logger.warn(
+          "Rejected the changes to {}, the previous configuration stays in effect: {}",
+          configPath,
+          e.getMessage(),
+          e);
+      return;
+    } finally {
+      ConfigurationBuilder.logConfigurationWarnMessages();
+    }
+
+    Set<String> changes = diff(configuration, newConfiguration);
+    if (changes.isEmpty()) {
+      logger.debug("No configuration changes in {}", configPath);
+      return;
+    }
+
+    Set<String> applied = new TreeSet<>();
+    Set<String> ignored = new TreeSet<>();
+    for (String change : changes) {
+      (APPLIED_AT_RUNTIME.contains(change) ? applied : ignored).add(change);
+    }
+
+    Components components;
+    try {
+      components = build(newConfiguration, applied);
+    } catch (RuntimeException e) {
+      logger.warn(
+          "Rejected the changes to {}, the previous configuration stays in effect: {}",
+          configPath,
+          e.getMessage(),
+          e);
+      return;
+    }
+    apply(newConfiguration, applied, components);
+    configuration = newConfiguration;
+
+    if (!applied.isEmpty()) {
+      logger.info("Applied configuration changes from {}: {}", configPath, applied);
+    }
+    if (!ignored.isEmpty()) {
+      logger.warn(
+          "Configuration changes from {} which require restarting the application: {}",
+          configPath,
+          ignored);
+    }
+  }
+
+  // builds everything which can fail before anything is swapped in
+  private Components build(Configuration newConfiguration, Set<String> applied) {
+    Components components = new Components();
+    if (applied.contains(PROCESSORS)) {
+      for (ReloadableSpanExporter spanExporter : spanExporters) {
+        components.spanProcessorChains.add(
+            SecondEntryPoint.applySpanProcessors(spanExporter.getExporter(), newConfiguration));
+      }
+      for (ReloadableLogRecordExporter logExporter : logExporters) {
+        components.logProcessorChains.add(
+            SecondEntryPoint.applyLogProcessors(logExporter.getExporter(), newConfiguration));
+      }
+      components.metricFilters = SecondEntryPoint.getMetricFilters(newConfiguration);
+    }
+    if (applied.contains(INHERITED_ATTRIBUTES)) {
+      for (Configuration.InheritedAttribute inheritedAttribute :
+          newConfiguration.preview.inheritedAttributes) {
+        // throws on an invalid type
+        inheritedAttribute.getAttributeKey();
+      }
+    }
+    return components;
+  }
+
+  private void apply(Configuration newConfiguration, Set<String> applied, Components components) {
+    RuntimeConfiguration runtimeConfig = runtimeConfigurator.getCurrentConfigCopy();
+    boolean runtimeConfigChanged = false;
+    if (applied.contains(CONNECTION_STRING)) {
+      runtimeConfig.connectionString = newConfiguration.connectionString;
+      runtimeConfigChanged = true;
+    }
+    if (applied.contains(ROLE_NAME) || applied.contains(ROLE_INSTANCE)) {
+      runtimeConfig.role.name = newConfiguration.role.name;
+      runtimeConfig.role.instance = newConfiguration.role.instance;
+      runtimeConfigChanged = true;
+    }
+    if (applied.contains(SAMPLING_PERCENTAGE)
+        || applied.contains(SAMPLING_REQUESTS_PER_SECOND)
+        || applied.contains(SAMPLING_OVERRIDES)
+        || applied.contains(SAMPLING_PREVIEW)) {
+      runtimeConfig.sampling.percentage = newConfiguration.sampling.percentage;
+      runtimeConfig.sampling.requestsPerSecond = newConfiguration.sampling.requestsPerSecond;
+      runtimeConfig.sampling.overrides = new ArrayList<>(newConfiguration.sampling.overrides);
+      runtimeConfig.samplingPreview.parentBased = newConfiguration.preview.sampling.parentBased;
+      runtimeConfig.samplingPreview.ingestionSamplingEnabled =
+          newConfiguration.preview.sampling.ingestionSamplingEnabled;
+      runtimeConfigChanged = true;
+    }
+    if (applied.contains(INSTRUMENTATION_LOGGING_LEVEL)) {
+      runtimeConfig.instrumentationLoggingLevel = newConfiguration.instrumentation.logging.level;
+      runtimeConfigChanged = true;
+    }
+    if (applied.contains(SELF_DIAGNOSTICS_LEVEL)) {
+      runtimeConfig.selfDiagnosticsLevel = newConfiguration.selfDiagnostics.level;
+      runtimeConfigChanged = true;
+    }
+    if (runtimeConfigChanged) {
+      runtimeConfigurator.apply(runtimeConfig);
+    }
+
+    if (applied.contains(SAMPLING_OVERRIDES)) {
+      SecondEntryPoint.updateSamplingOverrides(newConfiguration);
+    }
+
+    if (applied.contains(PROCESSORS)) {
+      // registration only happens while the SDK is built, so the lists can't have changed
+      Iterator<SpanExporter> spanProcessorChains = components.spanProcessorChains.iterator();
+      for (ReloadableSpanExporter spanExporter : spanExporters) {
+        spanExporter.setProcessorChain(spanProcessorChains.next());
+      }
+      Iterator<LogRecordExporter> logProcessorChains = components.logProcessorChains.iterator();
+      for (ReloadableLogRecordExporter logExporter : logExporters) {
+        logExporter.setProcessorChain(logProcessorChains.next());
+      }
+      telemetryClient.setMetricFilters(components.metricFilters);
+      for (AgentMetricExporter metricExporter : metricExporters) {
+        metricExporter.setMetricFilters(components.metricFilters);
+      }
+    }
+
+    if (applied.contains(INHERITED_ATTRIBUTES)) {
+      for (InheritedAttributesSpanProcessor processor : inheritedAttributesSpanProcessors) {
+        processor.setInheritedAttributes(newConfiguration.preview.inheritedAttributes);
+      }
+      for (InheritedAttributesLogProcessor processor : inheritedAttributesLogProcessors) {
+        processor.setInheritedAttributes(newConfiguration.preview.inheritedAttributes);
+      }
+    }
+
+    if (applied.contains(JMX_METRICS)) {
+      PerformanceCounterInitializer.reloadJmxMetrics(newConfiguration.jmxMetrics);
+    }
+  }
+
+  // returns the paths of the settings that are different, e.g. "preview.processors"
+  static Set<String> diff(Configuration previous, Configuration current) {
+    Set<String> changes = new TreeSet<>();
+    diff("", mapper.valueToTree(previous), mapper.valueToTree(current), changes);
+    return changes;
+  }
+
+  private static void diff(String path, JsonNode previous, JsonNode current, Set<String> changes) {
+    if (previous.equals(current)) {
+      return;
+    }
+    if (!DIFF_INTO.contains(path) || !previous.isObject() || !current.isObject()) {
+      changes.add(path);
+      return;
+    }
+    Set<String> fieldNames = new TreeSet<>();
+    previous.fieldNames().forEachRemaining(fieldNames::add);
+    current.fieldNames().forEachRemaining(fieldNames::add);
+    for (String fieldName : fieldNames) {
+      diff(
+          path.isEmpty() ? fieldName : path + "." + fieldName,
+          previous.path(fieldName),
+          current.path(fieldName),
+          changes);
+    }
+  }
+
+  private static class Components {
+    private final List<SpanExporter> spanProcessorChains = new ArrayList<>();
+    private final List<LogRecordExporter> logProcessorChains = new ArrayList<>();
+    private List<MetricFilter> metricFilters = new ArrayList<>();
+  }
+}
@@ -30,7 +30,6 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.lang.instrument.Instrumentation;
 import java.lang.management.ManagementFactory;
-import java.lang.management.RuntimeMXBean;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.AbstractMap.SimpleEntry;
@@ -87,25 +86,35 @@ public class FirstEntryPoint implements LoggingCustomizer {
         instrumentation.removeTransformer(transformer);
       }
       Path agentPath = javaagentFile.toPath();
-      // need to initialize version before initializing DiagnosticsHelper
-      agentVersion = SdkVersionFinder.initVersion(agentPath);
-      DiagnosticsHelper.initRpIntegration(agentPath);
-      // configuration is only read this early in order to extract logging configuration
-      rpConfiguration = RpConfigurationBuilder.create(agentPath);
-      configuration =
-          ConfigurationBuilder.create(
-              agentPath, rpConfiguration, System::getenv, System::getProperty);
+      try (StartupPhases.Phase ignored = StartupPhases.start("rp integration")) {
+        // need to initialize version before initializing DiagnosticsHelper
+        agentVersion = SdkVersionFinder.initVersion(agentPath);
+        DiagnosticsHelper.initRpIntegration(agentPath);
+      }
+      try (StartupPhases.Phase ignored = StartupPhases.start("configuration")) {
+        // configuration is only read this early in order to extract logging configuration
+        rpConfiguration = RpConfigurationBuilder.create(agentPath);
+        configuration =
+            ConfigurationBuilder.create(
+                agentPath, rpConfiguration, System::getenv, System::getProperty);
+      }
 
       String codelessSdkNamePrefix = getCodelessSdkNamePrefix();
       if (codelessSdkNamePrefix != null) {
         PropertyHelper.setSdkNamePrefix(codelessSdkNamePrefix);
       }
-      startupLogger = configureLogging(configuration.selfDiagnostics, agentPath);
-      ConfigurationBuilder.logConfigurationWarnMessages();
+      try (StartupPhases.Phase ignored = StartupPhases.start("logging")) {
+        startupLogger = configureLogging(configuration.selfDiagnostics, agentPath);
+        ConfigurationBuilder.logConfigurationWarnMessages();
+      }
 
-      ClassicSdkInstrumentation.registerTransformers();
+      try (StartupPhases.Phase ignored = StartupPhases.start("classic sdk instrumentation")) {
+        ClassicSdkInstrumentation.registerTransformers();
+      }
 
-      StartupDiagnostics.execute();
+      try (StartupPhases.Phase ignored = StartupPhases.start("startup diagnostics")) {
+        StartupDiagnostics.execute();
+      }
 
       InternalLogger.initialize(Slf4jInternalLogger::create);
 
@@ -212,11 +221,12 @@ public class FirstEntryPoint implements LoggingCustomizer {
       justification =
           "Logging params cannot be controlled by an end user of the instrumented application")
   public void onStartupSuccess() {
+    long jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
     startupLogger.info(
         "Application Insights Java Agent {} started successfully (PID {}, JVM running for {} s)",
         agentVersion,
         new PidFinder().getValue(System::getenv),
-        findJvmUptimeInSeconds());
+        jvmUptimeMillis / 1000.0);
 
     String javaVersion = System.getProperty("java.version");
     String javaVendor = System.getProperty("java.vendor");
@@ -236,11 +246,13 @@ public class FirstEntryPoint implements LoggingCustomizer {
     }
 
     updateStatusFile(true);
-  }
 
-  private static double findJvmUptimeInSeconds() {
-    RuntimeMXBean runtimeMxBean = ManagementFactory.getRuntimeMXBean();
-    return runtimeMxBean.getUptime() / 1000.0;
+    // the background phases usually complete before the application is done starting up
+    StartupPhases.whenBackgroundPhasesDone()
+        .thenRun(
+            () ->
+                StartupDiagnostics.reportPhases(
+                    StartupPhases.getTimings(), jvmUptimeMillis, configuration));
   }
 
   @Override
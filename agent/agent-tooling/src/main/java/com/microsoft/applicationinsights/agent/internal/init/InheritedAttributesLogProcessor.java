@@ -15,10 +15,14 @@ import java.util.stream.Collectors;
 
 public final class InheritedAttributesLogProcessor implements LogRecordProcessor {
 
-  private final List<AttributeKey<?>> inheritedAttributes;
+  private volatile List<AttributeKey<?>> inheritedAttributes;
 
   public InheritedAttributesLogProcessor(
       List<Configuration.InheritedAttribute> inheritedAttributes) {
+    setInheritedAttributes(inheritedAttributes);
+  }
+
+  public void setInheritedAttributes(List<Configuration.InheritedAttribute> inheritedAttributes) {
     this.inheritedAttributes =
         inheritedAttributes.stream()
             .map(Configuration.InheritedAttribute::getAttributeKey)
@@ -28,6 +32,11 @@ public final class InheritedAttributesLogProcessor implements LogRecordProcessor
   @Override
   @SuppressWarnings("unchecked") // safe unchecked cast - type verified by runtime context
   public void onEmit(Context context, ReadWriteLogRecord logRecord) {
+    List<AttributeKey<?>> inheritedAttributes = this.inheritedAttributes;
+    if (inheritedAttributes.isEmpty()) {
+      // registered without any when configuration reload is enabled
+      return;
+    }
     Span currentSpan = Span.fromContext(context);
     if (!(currentSpan instanceof ReadableSpan)) {
       return;
@@ -15,10 +15,14 @@ import java.util.stream.Collectors;
 
 public final class InheritedAttributesSpanProcessor implements SpanProcessor {
 
-  private final List<AttributeKey<?>> inheritAttributes;
+  private volatile List<AttributeKey<?>> inheritAttributes;
 
   public InheritedAttributesSpanProcessor(
       List<Configuration.InheritedAttribute> inheritedAttributes) {
+    setInheritedAttributes(inheritedAttributes);
+  }
+
+  public void setInheritedAttributes(List<Configuration.InheritedAttribute> inheritedAttributes) {
     this.inheritAttributes =
         inheritedAttributes.stream()
             .map(Configuration.InheritedAttribute::getAttributeKey)
@@ -28,6 +32,11 @@ public final class InheritedAttributesSpanProcessor implements SpanProcessor {
   @Override
   @SuppressWarnings("unchecked") // safe unchecked cast - type verified by runtime context
   public void onStart(Context parentContext, ReadWriteSpan span) {
+    List<AttributeKey<?>> inheritAttributes = this.inheritAttributes;
+    if (inheritAttributes.isEmpty()) {
+      // registered without any when configuration reload is enabled
+      return;
+    }
     Span parentSpan = Span.fromContextOrNull(parentContext);
     if (!(parentSpan instanceof ReadableSpan)) {
       return;
@@ -0,0 +1,84 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.AiSemanticAttributes;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.OperationNames;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * Resolves the operation name which the children of a span, and the logs emitted under it,
+ * inherit.
+ *
+ * <p>All spans but the local root already carry the operation name as an attribute (see {@link
+ * AzureMonitorSpanProcessor}), so only the children of the root span need it to be built from the
+ * span name and the http method. That result only depends on these two, so it is remembered per
+ * http method and span name, and the same string instance is returned for every child of every
+ * request with the same route.
+ *
+ * <p>The operation name is not stored on the root span itself, since routing instrumentation can
+ * still update its name, and the operation name of the request is resolved from the final span
+ * name during export.
+ */
+final class OperationNameCache {
+
+  private static final AttributeKey<String> HTTP_REQUEST_METHOD =
+      AttributeKey.stringKey("http.request.method");
+
+  private static final String NO_HTTP_METHOD = "";
+
+  // span names of root spans are normally low cardinality (routes), and http methods are
+  // normalized by the instrumentation, these only protect against ones that are not
+  private static final int MAX_HTTP_METHODS = 32;
+  private static final int MAX_SPAN_NAMES = 1000;
+
+  // http method to span name to operation name
+  private static final Map<String, Map<String, String>> operationNames = new ConcurrentHashMap<>();
+
+  static String getOperationName(ReadableSpan span) {
+    String operationName = span.getAttribute(AiSemanticAttributes.OPERATION_NAME);
+    if (operationName != null) {
+      return operationName;
+    }
+    String httpMethod = span.getAttribute(HTTP_REQUEST_METHOD);
+    Map<String, String> bySpanName =
+        getBySpanName(httpMethod == null ? NO_HTTP_METHOD : httpMethod);
+    String spanName = span.getName();
+    if (bySpanName != null) {
+      operationName = bySpanName.get(spanName);
+      if (operationName != null) {
+        return operationName;
+      }
+    }
+    operationName = OperationNames.getOperationName(span);
+    // the span name or the operation name may have been updated concurrently
+    if (bySpanName != null
+        && bySpanName.size() < MAX_SPAN_NAMES
+        && span.getName().equals(spanName)
+        && span.getAttribute(AiSemanticAttributes.OPERATION_NAME) == null) {
+      bySpanName.put(spanName, operationName);
+    }
+    return operationName;
+  }
+
+  @Nullable
+  private static Map<String, String> getBySpanName(String httpMethod) {
+    Map<String, String> bySpanName = operationNames.get(httpMethod);
+    if (bySpanName == null && operationNames.size() < MAX_HTTP_METHODS) {
+      bySpanName = operationNames.computeIfAbsent(httpMethod, k -> new ConcurrentHashMap<>());
+    }
+    return bySpanName;
+  }
+
+  // visible for testing
+  static void clear() {
+    operationNames.clear();
+  }
+
+  private OperationNameCache() {}
+}
@@ -7,21 +7,31 @@ import static com.microsoft.applicationinsights.agent.internal.diagnostics.MsgId
 
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.PropertyHelper;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.Strings;
+import com.microsoft.applicationinsights.agent.internal.classicsdk.BytecodeUtilImpl;
+import com.microsoft.applicationinsights.agent.internal.classicsdk.CoalescingFlusher;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.AgentOverheadGovernor;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.DeadLockDetectorPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.FreeMemoryPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.GcPerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.HostIoPerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.HotThreadsPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.JmxAttributeData;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.JmxDataFetcher;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.JmxMetricPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.JvmHeapMemoryUsedPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.OshiPerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.PerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.PerformanceCounterContainer;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.ProcessCpuPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.ProcessMemoryPerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.ThreadContentionPerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.processors.AttributeValueMemo;
+import com.microsoft.applicationinsights.agent.internal.processors.ScopeVolumeTracker;
 import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.ObservableDoubleGauge;
 import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
@@ -45,6 +55,11 @@ public class PerformanceCounterInitializer {
 
   private static final Set<String> invalidJmxMetrics = ConcurrentHashMap.newKeySet();
 
+  // registered from the jmx metrics configuration, so that they can be replaced when it changes
+  // (guarded by the class)
+  private static final List<PerformanceCounter> jmxPerformanceCounters = new ArrayList<>();
+  private static final List<ObservableDoubleGauge> jmxGauges = new ArrayList<>();
+
   public static void initialize(Configuration configuration) {
 
     PerformanceCounterContainer.INSTANCE.setCollectionFrequencyInSec(
@@ -54,22 +69,7 @@ public class PerformanceCounterInitializer {
       PerformanceCounterContainer.INSTANCE.setLogAvailableJmxMetrics();
     }
 
-    // We don't want these two to be flowing to the OTLP endpoint
-    // because in the long term we will probably be deprecating these
-    // in favor of the otel instrumentation runtime metrics that relay
-    // the same information.
-    registerCounterInContainer(
-        "java.lang:type=Threading",
-        "Current Thread Count",
-        "ThreadCount",
-        configuration.jmxMetrics);
-    registerCounterInContainer(
-        "java.lang:type=ClassLoading",
-        "Loaded Class Count",
-        "LoadedClassCount",
-        configuration.jmxMetrics);
-
-    loadCustomJmxPerfCounters(configuration.jmxMetrics);
+    registerJmxMetrics(configuration.jmxMetrics);
 
     PerformanceCounterContainer.INSTANCE.register(
         new ProcessCpuPerformanceCounter(
@@ -82,12 +82,94 @@ public class PerformanceCounterInitializer {
       PerformanceCounterContainer.INSTANCE.register(new OshiPerformanceCounter());
     }
 
+    boolean hostTriggers =
+        configuration.preview.profiler.enabled
+            && !configuration.preview.profiler.hostTriggers.isEmpty();
+    if ((configuration.preview.hostIoPerformanceCounters || hostTriggers)
+        && HostIoPerformanceCounter.isSupported()) {
+      PerformanceCounterContainer.INSTANCE.register(new HostIoPerformanceCounter());
+    }
+
     ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
     if (threadBean.isSynchronizerUsageSupported()) {
       PerformanceCounterContainer.INSTANCE.register(new DeadLockDetectorPerformanceCounter());
     }
+    Configuration.ThreadContention threadContention = configuration.preview.threadContention;
+    if (threadContention.enabled && ThreadContentionPerformanceCounter.isSupported()) {
+      PerformanceCounterContainer.INSTANCE.register(
+          new ThreadContentionPerformanceCounter(
+              threadContention.convoyThreadCount,
+              threadContention.longHeldMonitorThresholdSeconds,
+              threadContention.maxReportedLocks,
+              threadContention.maxStackDepth,
+              threadContention.maxSampledThreads));
+    }
+    Configuration.HotThreads hotThreads = configuration.preview.hotThreads;
+    if (hotThreads.enabled && HotThreadsPerformanceCounter.isSupported()) {
+      HotThreadsPerformanceCounter hotThreadsCounter =
+          new HotThreadsPerformanceCounter(
+              hotThreads.intervalSeconds,
+              hotThreads.cpuThresholdPercent,
+              hotThreads.topThreadCount,
+              hotThreads.maxStackDepth,
+              hotThreads.threadPools,
+              hotThreads.maxReportedThreadPools,
+              hotThreads.maxSampledThreads,
+              hotThreads.maxSelfCostPercent);
+      hotThreadsCounter.start(hotThreads.intervalSeconds);
+      PerformanceCounterContainer.INSTANCE.register(hotThreadsCounter);
+    }
+    CoalescingFlusher flusher = BytecodeUtilImpl.flusher;
+    if (flusher != null) {
+      // only reports when 2.x TelemetryClient.flush() is being called
+      PerformanceCounterContainer.INSTANCE.register(flusher);
+    }
+    AttributeValueMemo attributeValueMemo = SecondEntryPoint.getAttributeValueMemo();
+    if (attributeValueMemo != null) {
+      PerformanceCounterContainer.INSTANCE.register(attributeValueMemo);
+    }
+    ScopeVolumeTracker scopeVolumeTracker = SecondEntryPoint.getScopeVolumeTracker();
+    if (scopeVolumeTracker != null) {
+      // also logs the summary of the busiest instrumentation scopes
+      PerformanceCounterContainer.INSTANCE.register(scopeVolumeTracker);
+    }
     PerformanceCounterContainer.INSTANCE.register(new JvmHeapMemoryUsedPerformanceCounter());
     PerformanceCounterContainer.INSTANCE.register(new GcPerformanceCounter());
+
+    Configuration.OverheadGovernor overheadGovernor = configuration.preview.overheadGovernor;
+    if (overheadGovernor.enabled) {
+      AgentOverheadGovernor governor =
+          new AgentOverheadGovernor(
+              overheadGovernor.maxCpuPercent, overheadGovernor.maxAllocatedMbPerSecond);
+      governor.start(overheadGovernor.checkIntervalSeconds);
+      PerformanceCounterContainer.INSTANCE.register(governor);
+    }
+  }
+
+  public static synchronized void reloadJmxMetrics(List<Configuration.JmxMetric> jmxMetrics) {
+    for (PerformanceCounter performanceCounter : jmxPerformanceCounters) {
+      PerformanceCounterContainer.INSTANCE.unregister(performanceCounter);
+    }
+    jmxPerformanceCounters.clear();
+    for (ObservableDoubleGauge gauge : jmxGauges) {
+      gauge.close();
+    }
+    jmxGauges.clear();
+
+    registerJmxMetrics(jmxMetrics);
+  }
+
+  private static synchronized void registerJmxMetrics(List<Configuration.JmxMetric> jmxMetrics) {
+    // We don't want these two to be flowing to the OTLP endpoint
+    // because in the long term we will probably be deprecating these
+    // in favor of the otel instrumentation runtime metrics that relay
+    // the same information.
+    registerCounterInContainer(
+        "java.lang:type=Threading", "Current Thread Count", "ThreadCount", jmxMetrics);
+    registerCounterInContainer(
+        "java.lang:type=ClassLoading", "Loaded Class Count", "LoadedClassCount", jmxMetrics);
+
+    loadCustomJmxPerfCounters(jmxMetrics);
   }
 
   private static boolean isAgentRunningInSandboxEnvWindows() {
@@ -105,6 +187,7 @@ public class PerformanceCounterInitializer {
       JmxMetricPerformanceCounter jmxPerfCounter =
           new JmxMetricPerformanceCounter(objectName, Arrays.asList(attributeData));
       PerformanceCounterContainer.INSTANCE.register(jmxPerfCounter);
+      jmxPerformanceCounters.add(jmxPerfCounter);
     }
   }
 
@@ -177,13 +260,14 @@ public class PerformanceCounterInitializer {
           otelMetricName = jmxAttributeData.metricName.replaceAll(INVALID_CHARACTER_REGEXP, "_");
         }
 
-        GlobalOpenTelemetry.getMeter("com.microsoft.applicationinsights.jmx")
-            .gaugeBuilder(otelMetricName)
-            .buildWithCallback(
-                observableDoubleMeasurement -> {
-                  calculateAndRecordValueForAttribute(
-                      observableDoubleMeasurement, objectName, jmxAttributeData);
-                });
+        jmxGauges.add(
+            GlobalOpenTelemetry.getMeter("com.microsoft.applicationinsights.jmx")
+                .gaugeBuilder(otelMetricName)
+                .buildWithCallback(
+                    observableDoubleMeasurement -> {
+                      calculateAndRecordValueForAttribute(
+                          observableDoubleMeasurement, objectName, jmxAttributeData);
+                    }));
       }
     }
   }
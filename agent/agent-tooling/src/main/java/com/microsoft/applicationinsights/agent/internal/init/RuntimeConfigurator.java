@@ -33,7 +33,7 @@ public class RuntimeConfigurator {
   private static final Logger logger = LoggerFactory.getLogger(RuntimeConfigurator.class);
 
   private final TelemetryClient telemetryClient;
-  private final Supplier<AzureMonitorLogFilteringProcessor> logFilteringProcessor;
+  private final Supplier<List<AzureMonitorLogFilteringProcessor>> logFilteringProcessors;
   private final Configuration initialConfig;
   private volatile RuntimeConfiguration currentConfig;
   private final Consumer<List<TelemetryItem>> heartbeatTelemetryItemsConsumer;
@@ -44,12 +44,12 @@ public class RuntimeConfigurator {
 
   RuntimeConfigurator(
       TelemetryClient telemetryClient,
-      Supplier<AzureMonitorLogFilteringProcessor> logFilteringProcessor,
+      Supplier<List<AzureMonitorLogFilteringProcessor>> logFilteringProcessors,
       Configuration initialConfig,
       Consumer<List<TelemetryItem>> heartbeatTelemetryItemConsumer,
       File tempDir) {
     this.telemetryClient = telemetryClient;
-    this.logFilteringProcessor = logFilteringProcessor;
+    this.logFilteringProcessors = logFilteringProcessors;
     this.initialConfig = initialConfig;
     currentConfig = captureInitialConfig(initialConfig);
     this.heartbeatTelemetryItemsConsumer = heartbeatTelemetryItemConsumer;
@@ -65,6 +65,8 @@ public class RuntimeConfigurator {
     runtimeConfig.sampling.percentage = initialConfig.sampling.percentage;
     runtimeConfig.sampling.requestsPerSecond = initialConfig.sampling.requestsPerSecond;
     runtimeConfig.samplingPreview.parentBased = initialConfig.preview.sampling.parentBased;
+    runtimeConfig.samplingPreview.ingestionSamplingEnabled =
+        initialConfig.preview.sampling.ingestionSamplingEnabled;
     // TODO (trask) make deep copies? (not needed currently)
     runtimeConfig.sampling.overrides = new ArrayList<>(initialConfig.sampling.overrides);
 
@@ -91,6 +93,7 @@ public class RuntimeConfigurator {
     copy.sampling.percentage = config.sampling.percentage;
     copy.sampling.requestsPerSecond = config.sampling.requestsPerSecond;
     copy.samplingPreview.parentBased = config.samplingPreview.parentBased;
+    copy.samplingPreview.ingestionSamplingEnabled = config.samplingPreview.ingestionSamplingEnabled;
     // TODO (trask) make deep copies? (not needed currently)
     copy.sampling.overrides = new ArrayList<>(config.sampling.overrides);
 
@@ -110,7 +113,8 @@ public class RuntimeConfigurator {
     return copy(currentConfig);
   }
 
-  public void apply(RuntimeConfiguration runtimeConfig) {
+  // synchronized since both the rp configuration and the configuration file can be reloaded
+  public synchronized void apply(RuntimeConfiguration runtimeConfig) {
 
     logger.debug("Applying runtime configuration");
 
@@ -135,12 +139,18 @@ public class RuntimeConfigurator {
     if (enabled != currentEnabled
         || !Objects.equals(runtimeConfig.sampling.percentage, currentConfig.sampling.percentage)
         || !Objects.equals(
-            runtimeConfig.sampling.requestsPerSecond, currentConfig.sampling.requestsPerSecond)) {
+            runtimeConfig.sampling.requestsPerSecond, currentConfig.sampling.requestsPerSecond)
+        // the overrides are only replaced (not modified) when the configuration is reloaded
+        || !runtimeConfig.sampling.overrides.equals(currentConfig.sampling.overrides)
+        || runtimeConfig.samplingPreview.parentBased != currentConfig.samplingPreview.parentBased
+        || runtimeConfig.samplingPreview.ingestionSamplingEnabled
+            != currentConfig.samplingPreview.ingestionSamplingEnabled) {
       updateSampling(enabled, runtimeConfig.sampling, runtimeConfig.samplingPreview);
     }
 
     // initialize Profiler
-    if (runtimeConfig.profilerEnabled && telemetryClient.getConnectionString() != null) {
+    if (runtimeConfig.profilerEnabled
+        && ProfilingInitializer.canStart(initialConfig.preview.profiler, telemetryClient)) {
       // this prevents profiler being initialized more than once in Azure Spring App
       if (!profilerStarted.getAndSet(true)) {
         try {
@@ -231,8 +241,7 @@ public class RuntimeConfigurator {
 
   private void updateInstrumentationLoggingLevel(String instrumentationLoggingLevel) {
     if (instrumentationLoggingLevel != null) {
-      AzureMonitorLogFilteringProcessor filteringProcessor = logFilteringProcessor.get();
-      if (filteringProcessor != null) {
+      for (AzureMonitorLogFilteringProcessor filteringProcessor : logFilteringProcessors.get()) {
         filteringProcessor.setSeverityThreshold(
             Configuration.LoggingInstrumentation.getSeverityThreshold(instrumentationLoggingLevel));
       }
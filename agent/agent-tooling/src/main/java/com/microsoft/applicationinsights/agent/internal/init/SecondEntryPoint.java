@@ -28,8 +28,11 @@ import com.google.auto.service.AutoService;
 import com.microsoft.applicationinsights.agent.bootstrap.AzureFunctions;
 import com.microsoft.applicationinsights.agent.bootstrap.preagg.AiContextCustomizerHolder;
 import com.microsoft.applicationinsights.agent.internal.classicsdk.BytecodeUtilImpl;
+import com.microsoft.applicationinsights.agent.internal.classicsdk.CoalescingFlusher;
 import com.microsoft.applicationinsights.agent.internal.common.FriendlyException;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorAction;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorActionType;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SamplingTelemetryType;
 import com.microsoft.applicationinsights.agent.internal.configuration.ConfigurationBuilder;
@@ -38,19 +41,35 @@ import com.microsoft.applicationinsights.agent.internal.configuration.SnippetCon
 import com.microsoft.applicationinsights.agent.internal.exporter.AgentLogExporter;
 import com.microsoft.applicationinsights.agent.internal.exporter.AgentMetricExporter;
 import com.microsoft.applicationinsights.agent.internal.exporter.AgentSpanExporter;
+import com.microsoft.applicationinsights.agent.internal.exporter.DirectLogRecordProcessor;
+import com.microsoft.applicationinsights.agent.internal.exporter.DirectSpanProcessor;
+import com.microsoft.applicationinsights.agent.internal.exporter.MetricCardinalityLimiter;
 import com.microsoft.applicationinsights.agent.internal.httpclient.LazyHttpClient;
 import com.microsoft.applicationinsights.agent.internal.legacyheaders.AiLegacyHeaderSpanProcessor;
+import com.microsoft.applicationinsights.agent.internal.processors.AttributeValueMemo;
 import com.microsoft.applicationinsights.agent.internal.processors.ExporterWithLogProcessor;
 import com.microsoft.applicationinsights.agent.internal.processors.ExporterWithSpanProcessor;
 import com.microsoft.applicationinsights.agent.internal.processors.LogExporterWithAttributeProcessor;
+import com.microsoft.applicationinsights.agent.internal.processors.LogExporterWithPayloadLimiter;
+import com.microsoft.applicationinsights.agent.internal.processors.LogExporterWithScopeVolume;
+import com.microsoft.applicationinsights.agent.internal.processors.PayloadLimiter;
+import com.microsoft.applicationinsights.agent.internal.processors.ReloadableLogRecordExporter;
+import com.microsoft.applicationinsights.agent.internal.processors.ReloadableSpanExporter;
+import com.microsoft.applicationinsights.agent.internal.processors.ScopeVolumeTracker;
+import com.microsoft.applicationinsights.agent.internal.processors.SpanEventFilter;
 import com.microsoft.applicationinsights.agent.internal.processors.SpanExporterWithAttributeProcessor;
+import com.microsoft.applicationinsights.agent.internal.processors.SpanExporterWithDependencyAggregation;
+import com.microsoft.applicationinsights.agent.internal.processors.SpanExporterWithPayloadLimiter;
+import com.microsoft.applicationinsights.agent.internal.processors.SpanExporterWithScopeVolume;
 import com.microsoft.applicationinsights.agent.internal.profiler.triggers.AlertTriggerSpanProcessor;
 import com.microsoft.applicationinsights.agent.internal.sampling.AiFixedPercentageSampler;
 import com.microsoft.applicationinsights.agent.internal.sampling.SamplingOverrides;
 import com.microsoft.applicationinsights.agent.internal.telemetry.BatchItemProcessor;
+import com.microsoft.applicationinsights.agent.internal.telemetry.ExceptionStormSuppressor;
 import com.microsoft.applicationinsights.agent.internal.telemetry.MetricFilter;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryObservers;
+import io.opentelemetry.javaagent.bootstrap.JavaagentFileHolder;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
 import io.opentelemetry.sdk.autoconfigure.AutoConfiguredOpenTelemetrySdkBuilder;
 import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizer;
@@ -71,6 +90,7 @@ import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
 import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -78,6 +98,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -91,12 +112,39 @@ public class SecondEntryPoint
       new ClientLogger("com.microsoft.applicationinsights.agent");
   private static File tempDir;
 
-  @Nullable private static AzureMonitorLogFilteringProcessor logFilteringProcessor;
+  // one per log record processor chain, there are two when preview.directExport is combined with
+  // another logs exporter
+  private static final List<AzureMonitorLogFilteringProcessor> logFilteringProcessors =
+      new CopyOnWriteArrayList<>();
+
+  @Nullable private static AttributeValueMemo attributeValueMemo;
+
+  @Nullable private static ScopeVolumeTracker scopeVolumeTracker;
+
+  @Nullable private static ConfigurationReloader configurationReloader;
+
+  // set when preview.directExport takes the Azure Monitor exporter out of the batch processors
+  private static boolean directSpanExport;
+  private static boolean directLogExport;
+
+  // replaced when the configuration is reloaded
+  private static volatile SamplingOverrides exceptionSamplingOverrides =
+      new SamplingOverrides(Collections.emptyList());
 
   static File getTempDir() {
     return tempDir;
   }
 
+  @Nullable
+  static AttributeValueMemo getAttributeValueMemo() {
+    return attributeValueMemo;
+  }
+
+  @Nullable
+  static ScopeVolumeTracker getScopeVolumeTracker() {
+    return scopeVolumeTracker;
+  }
+
   @Override
   public void customize(AutoConfigurationCustomizer autoConfiguration) {
     tempDir =
@@ -123,14 +171,11 @@ public class SecondEntryPoint
       LazyHttpClient.proxyPassword = configuration.proxy.password;
     }
 
-    List<MetricFilter> metricFilters =
-        configuration.preview.processors.stream()
-            .filter(processor -> processor.type == Configuration.ProcessorType.METRIC_FILTER)
-            .map(MetricFilter::new)
-            .collect(Collectors.toList());
+    List<MetricFilter> metricFilters = getMetricFilters(configuration);
 
     StatsbeatModule statsbeatModule =
         new StatsbeatModule(PropertyHelper::lazyUpdateVmRpIntegration);
+    StartupPhases.Phase telemetryClientPhase = StartupPhases.start("telemetry client");
     TelemetryClient telemetryClient =
         TelemetryClient.builder()
             .setCustomDimensions(configuration.customDimensions)
@@ -144,7 +189,9 @@ public class SecondEntryPoint
             .setRoleName(configuration.role.name)
             .setRoleInstance(configuration.role.instance)
             .setDiskPersistenceMaxSizeMb(configuration.preview.diskPersistenceMaxSizeMb)
+            .setTelemetrySpool(configuration.preview.telemetrySpool)
             .build();
+    telemetryClientPhase.close();
 
     Consumer<List<TelemetryItem>> heartbeatTelemetryItemConsumer =
         telemetryItems -> {
@@ -171,7 +218,7 @@ public class SecondEntryPoint
     RuntimeConfigurator runtimeConfigurator =
         new RuntimeConfigurator(
             telemetryClient,
-            () -> logFilteringProcessor,
+            () -> logFilteringProcessors,
             configuration,
             heartbeatTelemetryItemConsumer,
             tempDir);
@@ -186,6 +233,25 @@ public class SecondEntryPoint
     BytecodeUtilImpl.connectionStringConfiguredAtRuntime =
         configuration.connectionStringConfiguredAtRuntime;
 
+    ExceptionStormSuppressor exceptionStormSuppressor;
+    if (configuration.preview.exceptionStormSuppression.enabled) {
+      exceptionStormSuppressor =
+          ExceptionStormSuppressor.create(
+              configuration.preview.exceptionStormSuppression, telemetryClient);
+    } else {
+      exceptionStormSuppressor = null;
+    }
+    BytecodeUtilImpl.exceptionStormSuppressor = exceptionStormSuppressor;
+    attributeValueMemo = createAttributeValueMemo(configuration);
+    if (configuration.preview.scopeVolume.enabled) {
+      scopeVolumeTracker = ScopeVolumeTracker.create(configuration.preview.scopeVolume);
+    }
+    BytecodeUtilImpl.flusher =
+        new CoalescingFlusher(
+            telemetryClient::forceFlush,
+            configuration.preview.classicSdkFlush.mode,
+            configuration.preview.classicSdkFlush.maxWaitMillis);
+
     if (ConfigurationBuilder.inAzureFunctionsConsumptionWorker()) {
       AzureFunctions.setup(
           () -> telemetryClient.getConnectionString() != null,
@@ -198,20 +264,29 @@ public class SecondEntryPoint
           rpConfiguration, runtimeConfigurator, System::getenv, System::getProperty);
     }
 
-    // initialize StatsbeatModule
+    if (configuration.preview.configurationReload.enabled) {
+      configurationReloader =
+          startConfigurationReloader(configuration, runtimeConfigurator, telemetryClient);
+    }
+
+    // initialize StatsbeatModule, nothing else waits on it, so it's done off the startup thread
     if (telemetryClient.getConnectionString() != null) {
-      statsbeatModule.start(
-          AzureMonitorHelper.createStatsbeatTelemetryItemExporter(
-              LazyHttpClient.newHttpPipeLine(null, telemetryClient::getAadAudienceWithScope),
-              statsbeatModule,
-              tempDir),
-          telemetryClient::getStatsbeatConnectionString,
-          telemetryClient::getInstrumentationKey,
-          configuration.internal.statsbeat.disabledAll,
-          configuration.internal.statsbeat.shortIntervalSeconds,
-          configuration.internal.statsbeat.longIntervalSeconds,
-          configuration.preview.statsbeat.disabled,
-          initStatsbeatFeatureSet(configuration));
+      StartupPhases.runInBackground(
+          "statsbeat",
+          () ->
+              statsbeatModule.start(
+                  AzureMonitorHelper.createStatsbeatTelemetryItemExporter(
+                      LazyHttpClient.newHttpPipeLine(
+                          null, telemetryClient::getAadAudienceWithScope),
+                      statsbeatModule,
+                      tempDir),
+                  telemetryClient::getStatsbeatConnectionString,
+                  telemetryClient::getInstrumentationKey,
+                  configuration.internal.statsbeat.disabledAll,
+                  configuration.internal.statsbeat.shortIntervalSeconds,
+                  configuration.internal.statsbeat.longIntervalSeconds,
+                  configuration.preview.statsbeat.disabled,
+                  initStatsbeatFeatureSet(configuration)));
     }
 
     if (telemetryClient.getConnectionString() != null) {
@@ -225,6 +300,7 @@ public class SecondEntryPoint
 
     QuickPulse quickPulse;
     if (configuration.preview.liveMetrics.enabled) {
+      StartupPhases.Phase liveMetricsPhase = StartupPhases.start("live metrics");
       quickPulse =
           QuickPulse.create(
               LazyHttpClient.newHttpPipeLineWithDefaultRedirect(
@@ -237,6 +313,7 @@ public class SecondEntryPoint
               telemetryClient.getRoleName(),
               telemetryClient.getRoleInstance(),
               FirstEntryPoint.getAgentVersion());
+      liveMetricsPhase.close();
     } else {
       quickPulse = null;
     }
@@ -277,10 +354,30 @@ public class SecondEntryPoint
               }
               return props;
             })
+        .addPropertiesCustomizer(
+            otelConfig -> {
+              Map<String, String> props = new HashMap<>();
+              if (configuration.preview.directExport) {
+                // the Azure Monitor exporter is then registered below with a direct processor
+                String tracesExporter = otelConfig.getString("otel.traces.exporter");
+                if (containsAzureMonitor(tracesExporter)) {
+                  directSpanExport = true;
+                  props.put("otel.traces.exporter", removeAzureMonitor(tracesExporter));
+                }
+                String logsExporter = otelConfig.getString("otel.logs.exporter");
+                if (containsAzureMonitor(logsExporter)) {
+                  directLogExport = true;
+                  props.put("otel.logs.exporter", removeAzureMonitor(logsExporter));
+                }
+              }
+              return props;
+            })
         .addSpanExporterCustomizer(
             (spanExporter, configProperties) -> {
               if (spanExporter instanceof AzureMonitorSpanExporterProvider.MarkerSpanExporter) {
-                return buildTraceExporter(configuration, telemetryClient, quickPulse);
+                try (StartupPhases.Phase ignored = StartupPhases.start("trace exporter")) {
+                  return buildTraceExporter(configuration, telemetryClient, quickPulse);
+                }
               }
               return wrapSpanExporter(spanExporter, configuration);
             })
@@ -288,16 +385,20 @@ public class SecondEntryPoint
             (metricExporter, configProperties) -> {
               if (metricExporter
                   instanceof AzureMonitorMetricExporterProvider.MarkerMetricExporter) {
-                return buildMetricExporter(
-                    configuration, telemetryClient, metricFilters, configProperties);
+                try (StartupPhases.Phase ignored = StartupPhases.start("metric exporter")) {
+                  return buildMetricExporter(
+                      configuration, telemetryClient, metricFilters, configProperties);
+                }
               } else {
                 return metricExporter;
               }
             })
         .addLogRecordProcessorCustomizer(
             (logRecordProcessor, configProperties) -> {
+              // with preview.directExport, this is the batch processor of the other logs
+              // exporters, which still need the filtering and the inherited attributes
               if (logRecordProcessor instanceof BatchLogRecordProcessor) {
-                return wrapBatchLogRecordProcessor(logRecordProcessor, configuration);
+                return wrapLogRecordProcessor(logRecordProcessor, configuration);
               }
               return logRecordProcessor;
             })
@@ -305,13 +406,41 @@ public class SecondEntryPoint
             (logRecordExporter, configProperties) -> {
               if (logRecordExporter
                   instanceof AzureMonitorLogRecordExporterProvider.MarkerLogRecordExporter) {
-                return buildLogRecordExporter(configuration, telemetryClient, quickPulse);
+                try (StartupPhases.Phase ignored = StartupPhases.start("log exporter")) {
+                  return buildLogRecordExporter(
+                      configuration, telemetryClient, quickPulse, exceptionStormSuppressor);
+                }
               } else {
                 return wrapLogExporter(logRecordExporter, configuration);
               }
             })
         .addTracerProviderCustomizer(
-            (builder, otelConfig) -> configureTracing(builder, configuration))
+            (builder, otelConfig) -> {
+              configureTracing(builder, configuration);
+              if (directSpanExport) {
+                try (StartupPhases.Phase ignored = StartupPhases.start("trace exporter")) {
+                  // added last, so that the other span processors have run when it exports
+                  builder.addSpanProcessor(
+                      new DirectSpanProcessor(
+                          buildTraceExporter(configuration, telemetryClient, quickPulse)));
+                }
+              }
+              return builder;
+            })
+        .addLoggerProviderCustomizer(
+            (builder, otelConfig) -> {
+              if (directLogExport) {
+                try (StartupPhases.Phase ignored = StartupPhases.start("log exporter")) {
+                  LogRecordExporter logExporter =
+                      buildLogRecordExporter(
+                          configuration, telemetryClient, quickPulse, exceptionStormSuppressor);
+                  builder.addLogRecordProcessor(
+                      wrapLogRecordProcessor(
+                          new DirectLogRecordProcessor(logExporter), configuration));
+                }
+              }
+              return builder;
+            })
         .addMeterProviderCustomizer(
             (builder, otelConfig) -> configureMetrics(builder, configuration));
 
@@ -328,15 +457,65 @@ public class SecondEntryPoint
         });
   }
 
-  private static LogRecordProcessor wrapBatchLogRecordProcessor(
+  @Nullable
+  private static ConfigurationReloader startConfigurationReloader(
+      Configuration configuration,
+      RuntimeConfigurator runtimeConfigurator,
+      TelemetryClient telemetryClient) {
+    Path agentJarPath = JavaagentFileHolder.getJavaagentFile().toPath();
+    Path configPath =
+        ConfigurationBuilder.getConfigurationFilePath(
+            agentJarPath, System::getenv, System::getProperty);
+    if (configPath == null) {
+      startupLogger.warning(
+          "Configuration reload is enabled, but the configuration is not read from a file");
+      return null;
+    }
+    return ConfigurationReloader.start(
+        configPath,
+        agentJarPath,
+        FirstEntryPoint.getRpConfiguration(),
+        configuration,
+        runtimeConfigurator,
+        telemetryClient);
+  }
+
+  static List<MetricFilter> getMetricFilters(Configuration configuration) {
+    return configuration.preview.processors.stream()
+        .filter(processor -> processor.type == Configuration.ProcessorType.METRIC_FILTER)
+        .map(MetricFilter::new)
+        .collect(Collectors.toList());
+  }
+
+  private static List<Configuration.SamplingOverride> getSamplingOverrides(
+      Configuration configuration, SamplingTelemetryType telemetryType) {
+    return configuration.sampling.overrides.stream()
+        .filter(override -> override.telemetryType == telemetryType)
+        .collect(Collectors.toList());
+  }
+
+  // the span overrides are applied by the sampler, see RuntimeConfigurator
+  static void updateSamplingOverrides(Configuration configuration) {
+    exceptionSamplingOverrides =
+        new SamplingOverrides(getSamplingOverrides(configuration, SamplingTelemetryType.EXCEPTION));
+    for (AzureMonitorLogFilteringProcessor logFilteringProcessor : logFilteringProcessors) {
+      logFilteringProcessor.setSamplingOverrides(
+          getSamplingOverrides(configuration, SamplingTelemetryType.TRACE),
+          getSamplingOverrides(configuration, SamplingTelemetryType.EXCEPTION));
+    }
+  }
+
+  private static LogRecordProcessor wrapLogRecordProcessor(
       LogRecordProcessor logRecordProcessor, Configuration configuration) {
     List<LogRecordProcessor> logRecordProcessors = getLogRecordProcessors(configuration);
 
-    // the filtering log record processor needs to be chained on front of the batch log
+    // the filtering log record processor needs to be chained on front of the batch (or direct) log
     // record processor, hopefully log filtering will be better supported by
     // OpenTelemetry SDK in the future, see
     // https://github.com/open-telemetry/opentelemetry-specification/pull/4439
-    logFilteringProcessor = createLogFilteringProcessor(logRecordProcessor, configuration);
+    AzureMonitorLogFilteringProcessor logFilteringProcessor =
+        createLogFilteringProcessor(logRecordProcessor, configuration);
+    logFilteringProcessors.add(logFilteringProcessor);
 
     logRecordProcessors.add(logFilteringProcessor);
     return LogRecordProcessor.composite(logRecordProcessors.toArray(new LogRecordProcessor[0]));
@@ -345,36 +524,45 @@ public class SecondEntryPoint
   private static AzureMonitorLogFilteringProcessor createLogFilteringProcessor(
       LogRecordProcessor logRecordProcessor, Configuration configuration) {
 
-    List<Configuration.SamplingOverride> logSamplingOverrides =
-        configuration.sampling.overrides.stream()
-            .filter(override -> override.telemetryType == SamplingTelemetryType.TRACE)
-            .collect(Collectors.toList());
-    List<Configuration.SamplingOverride> exceptionSamplingOverrides =
-        configuration.sampling.overrides.stream()
-            .filter(override -> override.telemetryType == SamplingTelemetryType.EXCEPTION)
-            .collect(Collectors.toList());
-
     return new AzureMonitorLogFilteringProcessor(
-        logSamplingOverrides,
-        exceptionSamplingOverrides,
+        getSamplingOverrides(configuration, SamplingTelemetryType.TRACE),
+        getSamplingOverrides(configuration, SamplingTelemetryType.EXCEPTION),
         logRecordProcessor,
         configuration.instrumentation.logging.getSeverityThreshold());
   }
 
   private static SpanExporter buildTraceExporter(
       Configuration configuration, TelemetryClient telemetryClient, QuickPulse quickPulse) {
-    List<Configuration.SamplingOverride> exceptionSamplingOverrides =
-        configuration.sampling.overrides.stream()
-            .filter(override -> override.telemetryType == SamplingTelemetryType.EXCEPTION)
-            .collect(Collectors.toList());
+    exceptionSamplingOverrides =
+        new SamplingOverrides(getSamplingOverrides(configuration, SamplingTelemetryType.EXCEPTION));
+    SpanEventFilter spanEventFilter = new SpanEventFilter(configuration.preview.spanEventRules);
     SpanExporter spanExporter =
         createSpanExporter(
             telemetryClient,
             quickPulse,
             configuration.preview.captureHttpServer4xxAsError,
-            new SamplingOverrides(exceptionSamplingOverrides));
-
-    return wrapSpanExporter(spanExporter, configuration);
+            spanEventFilter);
+    if (configuration.preview.payloadBudget.enabled) {
+      // applied after the telemetry processors, right before mapping
+      spanExporter =
+          new SpanExporterWithPayloadLimiter(
+              new PayloadLimiter(configuration.preview.payloadBudget, spanEventFilter),
+              spanExporter);
+    }
+    spanExporter = wrapSpanExporter(spanExporter, configuration);
+
+    Configuration.DependencyAggregation dependencyAggregation =
+        configuration.preview.dependencyAggregation;
+    if (dependencyAggregation.enabled) {
+      // applied before the telemetry processors, so that the collapsed spans are not processed
+      spanExporter =
+          SpanExporterWithDependencyAggregation.create(dependencyAggregation, spanExporter);
+    }
+    if (scopeVolumeTracker != null) {
+      // applied first, so that the items over quota are dropped before anything else is done
+      spanExporter = new SpanExporterWithScopeVolume(scopeVolumeTracker, spanExporter);
+    }
+    return spanExporter;
   }
 
   private static MetricExporter buildMetricExporter(
@@ -394,15 +582,45 @@ public class SecondEntryPoint
             telemetryClient::populateDefaults,
             configuration.preview.captureHttpServer4xxAsError,
             otlpEnabled);
-    return new AgentMetricExporter(
-        metricFilters, mapper, telemetryClient.getMetricsBatchItemProcessor());
+    Configuration.MetricCardinalityLimit cardinalityLimit =
+        configuration.preview.metricCardinalityLimit;
+    AgentMetricExporter metricExporter =
+        new AgentMetricExporter(
+            metricFilters,
+            mapper,
+            telemetryClient.getMetricsBatchItemProcessor(),
+            cardinalityLimit.enabled
+                ? new MetricCardinalityLimiter(cardinalityLimit.maxSeriesPerMetric)
+                : null);
+    if (configurationReloader != null) {
+      configurationReloader.track(metricExporter);
+    }
+    return metricExporter;
   }
 
   private static LogRecordExporter buildLogRecordExporter(
-      Configuration configuration, TelemetryClient telemetryClient, QuickPulse quickPulse) {
-    LogRecordExporter logExporter = createLogExporter(telemetryClient, quickPulse, configuration);
-
-    return wrapLogExporter(logExporter, configuration);
+      Configuration configuration,
+      TelemetryClient telemetryClient,
+      QuickPulse quickPulse,
+      @Nullable ExceptionStormSuppressor exceptionStormSuppressor) {
+    LogRecordExporter logExporter =
+        createLogExporter(telemetryClient, quickPulse, exceptionStormSuppressor, configuration);
+    if (configuration.preview.payloadBudget.enabled) {
+      // applied after the telemetry processors, right before mapping
+      logExporter =
+          new LogExporterWithPayloadLimiter(
+              new PayloadLimiter(
+                  configuration.preview.payloadBudget,
+                  new SpanEventFilter(configuration.preview.spanEventRules)),
+              logExporter);
+    }
+
+    logExporter = wrapLogExporter(logExporter, configuration);
+    if (scopeVolumeTracker != null) {
+      // applied first, so that the items over quota are dropped before anything else is done
+      logExporter = new LogExporterWithScopeVolume(scopeVolumeTracker, logExporter);
+    }
+    return logExporter;
   }
 
   private static Set<Feature> initStatsbeatFeatureSet(Configuration config) {
@@ -582,7 +800,13 @@ public class SecondEntryPoint
         enabled, configuration.sampling, configuration.preview.sampling);
 
     tracerProvider.addSpanProcessor(new AzureMonitorSpanProcessor());
-    if (!configuration.preview.inheritedAttributes.isEmpty()) {
+    if (configurationReloader != null) {
+      // added even if there are no inheritedAttributes, so that they can be added by a reload
+      InheritedAttributesSpanProcessor processor =
+          new InheritedAttributesSpanProcessor(configuration.preview.inheritedAttributes);
+      configurationReloader.track(processor);
+      tracerProvider.addSpanProcessor(processor);
+    } else if (!configuration.preview.inheritedAttributes.isEmpty()) {
       tracerProvider.addSpanProcessor(
           new InheritedAttributesSpanProcessor(configuration.preview.inheritedAttributes));
     }
@@ -610,28 +834,14 @@ public class SecondEntryPoint
       TelemetryClient telemetryClient,
       @Nullable QuickPulse quickPulse,
       boolean captureHttpServer4xxAsError,
-      SamplingOverrides exceptionSamplingOverrides) {
+      SpanEventFilter spanEventFilter) {
 
     SpanDataMapper mapper =
         new SpanDataMapper(
             captureHttpServer4xxAsError,
             telemetryClient::populateDefaults,
-            (event, instrumentationName) -> {
-              boolean lettuce51 = instrumentationName.equals("io.opentelemetry.lettuce-5.1");
-              if (lettuce51 && event.getName().startsWith("redis.encode.")) {
-                // special case as these are noisy and come from the underlying library itself
-                return true;
-              }
-              boolean grpc16 = instrumentationName.equals("io.opentelemetry.grpc-1.6");
-              if (grpc16 && event.getName().equals("message")) {
-                // OpenTelemetry semantic conventions define semi-noisy grpc events
-                // https://github.com/open-telemetry/opentelemetry-specification/blob/main/specification/trace/semantic_conventions/rpc.md#events
-                //
-                // we want to suppress these (at least by default)
-                return true;
-              }
-              return false;
-            },
+            (event, instrumentationName) ->
+                spanEventFilter.isSuppressed(instrumentationName, event.getName()),
             (span, event) -> {
               AiFixedPercentageSampler sampler =
                   exceptionSamplingOverrides.getOverride(event.getAttributes());
@@ -653,6 +863,16 @@ public class SecondEntryPoint
 
   private static SpanExporter wrapSpanExporter(
       SpanExporter spanExporter, Configuration configuration) {
+    if (configurationReloader == null) {
+      return applySpanProcessors(spanExporter, configuration);
+    }
+    ReloadableSpanExporter reloadableExporter =
+        new ReloadableSpanExporter(spanExporter, applySpanProcessors(spanExporter, configuration));
+    configurationReloader.track(reloadableExporter);
+    return reloadableExporter;
+  }
+
+  static SpanExporter applySpanProcessors(SpanExporter spanExporter, Configuration configuration) {
 
     List<ProcessorConfig> processorConfigs = getSpanProcessorConfigs(configuration);
     // NOTE if changing the span processor to something async, flush it in the shutdown hook before
@@ -663,7 +883,9 @@ public class SecondEntryPoint
       for (ProcessorConfig processorConfig : processorConfigs) {
         switch (processorConfig.type) {
           case ATTRIBUTE:
-            spanExporter = new SpanExporterWithAttributeProcessor(processorConfig, spanExporter);
+            spanExporter =
+                new SpanExporterWithAttributeProcessor(
+                    processorConfig, spanExporter, attributeValueMemo);
             break;
           case SPAN:
             spanExporter = new ExporterWithSpanProcessor(processorConfig, spanExporter);
@@ -699,7 +921,13 @@ public class SecondEntryPoint
       logRecordProcessors.add(new AzureFunctionsLogProcessor());
     }
 
-    if (!configuration.preview.inheritedAttributes.isEmpty()) {
+    if (configurationReloader != null) {
+      // added even if there are no inheritedAttributes, so that they can be added by a reload
+      InheritedAttributesLogProcessor processor =
+          new InheritedAttributesLogProcessor(configuration.preview.inheritedAttributes);
+      configurationReloader.track(processor);
+      logRecordProcessors.add(processor);
+    } else if (!configuration.preview.inheritedAttributes.isEmpty()) {
       logRecordProcessors.add(
           new InheritedAttributesLogProcessor(configuration.preview.inheritedAttributes));
     }
@@ -717,6 +945,7 @@ public class SecondEntryPoint
   private static LogRecordExporter createLogExporter(
       TelemetryClient telemetryClient,
       @Nullable QuickPulse quickPulse,
+      @Nullable ExceptionStormSuppressor exceptionStormSuppressor,
       Configuration configuration) {
 
     LogDataMapper mapper =
@@ -725,11 +954,27 @@ public class SecondEntryPoint
             ConfigurationBuilder.inAzureFunctionsWorker(System::getenv),
             telemetryClient::populateDefaults);
 
-    return new AgentLogExporter(mapper, quickPulse, telemetryClient.getGeneralBatchItemProcessor());
+    return new AgentLogExporter(
+        mapper,
+        quickPulse,
+        telemetryClient.getGeneralBatchItemProcessor(),
+        exceptionStormSuppressor);
   }
 
   private static LogRecordExporter wrapLogExporter(
       LogRecordExporter logExporter, Configuration configuration) {
+    if (configurationReloader == null) {
+      return applyLogProcessors(logExporter, configuration);
+    }
+    ReloadableLogRecordExporter reloadableExporter =
+        new ReloadableLogRecordExporter(
+            logExporter, applyLogProcessors(logExporter, configuration));
+    configurationReloader.track(reloadableExporter);
+    return reloadableExporter;
+  }
+
+  static LogRecordExporter applyLogProcessors(
+      LogRecordExporter logExporter, Configuration configuration) {
 
     List<ProcessorConfig> processorConfigs = getLogProcessorConfigs(configuration);
     if (!processorConfigs.isEmpty()) {
@@ -738,7 +983,9 @@ public class SecondEntryPoint
       for (ProcessorConfig processorConfig : processorConfigs) {
         switch (processorConfig.type) {
           case ATTRIBUTE:
-            logExporter = new LogExporterWithAttributeProcessor(processorConfig, logExporter);
+            logExporter =
+                new LogExporterWithAttributeProcessor(
+                    processorConfig, logExporter, attributeValueMemo);
             break;
           case LOG:
             logExporter = new ExporterWithLogProcessor(processorConfig, logExporter);
@@ -752,6 +999,23 @@ public class SecondEntryPoint
     return logExporter;
   }
 
+  @Nullable
+  private static AttributeValueMemo createAttributeValueMemo(Configuration configuration) {
+    int maxSizeKb = configuration.preview.attributeProcessorMemo.maxSizeKb;
+    if (maxSizeKb <= 0) {
+      return null;
+    }
+    for (ProcessorConfig processorConfig : configuration.preview.processors) {
+      for (ProcessorAction action : processorConfig.actions) {
+        if (action.action == ProcessorActionType.HASH
+            || action.action == ProcessorActionType.MASK) {
+          return new AttributeValueMemo(maxSizeKb * 1024L);
+        }
+      }
+    }
+    return null;
+  }
+
   private static List<ProcessorConfig> getLogProcessorConfigs(Configuration configuration) {
     return configuration.preview.processors.stream()
         .filter(
@@ -771,7 +1035,15 @@ public class SecondEntryPoint
     drop(builder, "io.opentelemetry.sdk.logs", "processedLogs");
 
     if (configuration.internal.preAggregatedStandardMetrics.enabled) {
-      AiViewRegistry.registerViews(builder);
+      Configuration.MetricCardinalityLimit cardinalityLimit =
+          configuration.preview.metricCardinalityLimit;
+      if (cardinalityLimit.enabled) {
+        // bounds the aggregator memory for these views, leaving the exporter room to pick
+        // stable top series out of more candidates than it exports
+        AiViewRegistry.registerViews(builder, 2 * cardinalityLimit.maxSeriesPerMetric);
+      } else {
+        AiViewRegistry.registerViews(builder);
+      }
     }
     return builder;
   }
@@ -841,6 +1113,17 @@ public class SecondEntryPoint
     return metricsExporter;
   }
 
+  // visible for tests
+  static String removeAzureMonitor(String exporters) {
+    List<String> remaining = new ArrayList<>();
+    for (String exporter : exporters.split(",")) {
+      if (!AzureMonitorExporterProviderKeys.EXPORTER_NAME.equals(exporter.trim())) {
+        remaining.add(exporter.trim());
+      }
+    }
+    return remaining.isEmpty() ? "none" : String.join(",", remaining);
+  }
+
   // visible for tests
   static boolean containsAzureMonitor(String metricsExporter) {
     if (metricsExporter == null) {
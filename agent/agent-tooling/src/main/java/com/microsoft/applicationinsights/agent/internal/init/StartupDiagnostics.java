@@ -3,13 +3,18 @@
 
 package com.microsoft.applicationinsights.agent.internal.init;
 
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.EventTelemetryBuilder;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.FormattedTime;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
 import com.microsoft.applicationinsights.agent.internal.diagnostics.PidFinder;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
@@ -27,6 +32,11 @@ class StartupDiagnostics {
   public static final String APPLICATIONINSIGHTS_DEBUG_DIAG_EXPORT_TO_FILE =
       "applicationinsights.debug.startup.diag-export-to-file";
 
+  private static final String APPLICATIONINSIGHTS_DEBUG_PHASES_ENABLED =
+      "applicationinsights.debug.startup.phases.enabled";
+
+  static final String STARTUP_EVENT_NAME = "ApplicationInsightsAgentStartup";
+
   private static final Logger startupLogger =
       LoggerFactory.getLogger("com.microsoft.applicationinsights.agent");
 
@@ -72,12 +82,44 @@ class StartupDiagnostics {
     generateReport(diagnosticsReport);
   }
 
+  // called once the background startup phases are done, which can be after the agent startup
+  static void reportPhases(
+      List<StartupPhases.PhaseTiming> timings, long jvmUptimeMillis, Configuration configuration) {
+    String phases = StartupPhases.format(timings);
+    if (Boolean.getBoolean(APPLICATIONINSIGHTS_DEBUG_PHASES_ENABLED)) {
+      DiagnosticsReport diagnosticsReport = new DiagnosticsReport();
+      diagnosticsReport.addDiagnostic(phases);
+      generateReport(diagnosticsReport, "startup-phases.txt");
+    } else {
+      startupLogger.debug(phases);
+    }
+
+    TelemetryClient telemetryClient = TelemetryClient.getActive();
+    if (configuration.preview.reportStartupPhases
+        && telemetryClient != null
+        && telemetryClient.getConnectionString() != null) {
+      EventTelemetryBuilder telemetryBuilder = telemetryClient.newEventTelemetryBuilder();
+      telemetryBuilder.setName(STARTUP_EVENT_NAME);
+      telemetryBuilder.addProperty("agentVersion", FirstEntryPoint.getAgentVersion());
+      telemetryBuilder.addMeasurement("jvmUptimeMillis", (double) jvmUptimeMillis);
+      for (StartupPhases.PhaseTiming timing : timings) {
+        telemetryBuilder.addMeasurement(timing.name, (double) timing.getMillis());
+      }
+      telemetryBuilder.setTime(FormattedTime.offSetDateTimeFromNow());
+      telemetryClient.trackAsync(telemetryBuilder.build());
+    }
+  }
+
   private static void generateReport(DiagnosticsReport diagnosticsReport) {
+    generateReport(diagnosticsReport, "diagnostics.txt");
+  }
+
+  private static void generateReport(DiagnosticsReport diagnosticsReport, String fileName) {
     if (!diagnosticsReport.isEmpty()) {
       startupLogger.info("Start-up diagnostics" + File.separator + diagnosticsReport);
       boolean exportToFile = Boolean.getBoolean(APPLICATIONINSIGHTS_DEBUG_DIAG_EXPORT_TO_FILE);
       if (exportToFile) {
-        saveIntoFile(diagnosticsReport);
+        saveIntoFile(diagnosticsReport, fileName);
       }
     }
   }
@@ -91,11 +133,11 @@ class StartupDiagnostics {
     }
   }
 
-  private static void saveIntoFile(DiagnosticsReport diagnosticsReport) {
+  private static void saveIntoFile(DiagnosticsReport diagnosticsReport, String fileName) {
     Optional<File> optionalTempDir = createTempDirIfNotExists();
     if (optionalTempDir.isPresent()) {
       File tempDir = optionalTempDir.get();
-      File diagFile = new File(tempDir, "diagnostics.txt");
+      File diagFile = new File(tempDir, fileName);
       write(diagnosticsReport, diagFile);
     }
   }
@@ -0,0 +1,126 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.ThreadPoolUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records how long each phase of the agent startup takes, and runs the phases that nothing else
+ * waits on off the startup thread.
+ */
+final class StartupPhases {
+
+  // background phases are mostly waiting (class loading, jmx, file system), so two threads are
+  // enough, and they go away once startup is done
+  private static final ThreadPoolExecutor executor = createExecutor();
+
+  private static final List<PhaseTiming> timings = new CopyOnWriteArrayList<>();
+  private static final List<CompletableFuture<Void>> backgroundPhases =
+      new CopyOnWriteArrayList<>();
+
+  static Phase start(String name) {
+    return new Phase(name, false);
+  }
+
+  // failures are logged and don't fail the agent startup, same as if the phase was skipped
+  static void runInBackground(String name, Runnable task) {
+    backgroundPhases.add(
+        CompletableFuture.runAsync(
+            () -> {
+              try (Phase ignored = new Phase(name, true)) {
+                task.run();
+              } catch (RuntimeException e) {
+                // not a static field, since the first phases run before logging is configured
+                LoggerFactory.getLogger(StartupPhases.class)
+                    .warn("Failed to initialize {}", name, e);
+              }
+            },
+            executor));
+  }
+
+  static CompletableFuture<Void> whenBackgroundPhasesDone() {
+    return CompletableFuture.allOf(backgroundPhases.toArray(new CompletableFuture<?>[0]));
+  }
+
+  static List<PhaseTiming> getTimings() {
+    return new ArrayList<>(timings);
+  }
+
+  static String format(List<PhaseTiming> timings) {
+    StringBuilder sb = new StringBuilder("Startup phases:");
+    for (PhaseTiming timing : timings) {
+      sb.append(String.format(Locale.ROOT, "%n  %s: %d ms", timing.name, timing.getMillis()));
+      if (timing.background) {
+        sb.append(" (background)");
+      }
+    }
+    return sb.toString();
+  }
+
+  // visible for testing
+  static void reset() {
+    timings.clear();
+    backgroundPhases.clear();
+  }
+
+  private static ThreadPoolExecutor createExecutor() {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            2,
+            2,
+            10,
+            SECONDS,
+            new LinkedBlockingQueue<>(),
+            ThreadPoolUtils.createDaemonThreadFactory(StartupPhases.class));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private StartupPhases() {}
+
+  static final class Phase implements AutoCloseable {
+
+    private final String name;
+    private final boolean background;
+    private final long startNanos = System.nanoTime();
+
+    private Phase(String name, boolean background) {
+      this.name = name;
+      this.background = background;
+    }
+
+    @Override
+    public void close() {
+      timings.add(new PhaseTiming(name, System.nanoTime() - startNanos, background));
+    }
+  }
+
+  static final class PhaseTiming {
+
+    final String name;
+    final long durationNanos;
+    final boolean background;
+
+    PhaseTiming(String name, long durationNanos, boolean background) {
+      this.name = name;
+      this.durationNanos = durationNanos;
+      this.background = background;
+    }
+
+    long getMillis() {
+      return NANOSECONDS.toMillis(durationNanos);
+    }
+  }
+}
@@ -21,8 +21,7 @@ public class AiLegacyHeaderSpanProcessor implements SpanProcessor {
     LegacyIds legacyIds = LegacyIds.fromContext(parentContext);
     // need to check that the parent span is the same as the span context extracted from
     // AiLegacyPropagator, because only want to add these properties to the request span
-    if (legacyIds != null
-        && legacyIds.spanContext.equals(Span.fromContext(parentContext).getSpanContext())) {
+    if (legacyIds != null && isExtractedParent(legacyIds, parentContext)) {
       span.setAttribute(AiSemanticAttributes.LEGACY_PARENT_ID, legacyIds.legacyParentId);
       if (legacyIds.legacyRootId != null) {
         span.setAttribute(AiSemanticAttributes.LEGACY_ROOT_ID, legacyIds.legacyRootId);
@@ -30,6 +29,14 @@ public class AiLegacyHeaderSpanProcessor implements SpanProcessor {
     }
   }
 
+  private static boolean isExtractedParent(LegacyIds legacyIds, Context parentContext) {
+    SpanContext parentSpanContext = Span.fromContext(parentContext).getSpanContext();
+    // the extracted span context is stored as-is in the context, so the identity check covers the
+    // request span, and only child spans of a different parent need the full comparison
+    return legacyIds.spanContext == parentSpanContext
+        || legacyIds.spanContext.equals(parentSpanContext);
+  }
+
   @Override
   public boolean isStartRequired() {
     return true;
@@ -4,12 +4,9 @@
 package com.microsoft.applicationinsights.agent.internal.legacyheaders;
 
 import com.microsoft.applicationinsights.agent.internal.legacyheaders.AiLegacyHeaderSpanProcessor.LegacyIds;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanContext;
-import io.opentelemetry.api.trace.SpanId;
 import io.opentelemetry.api.trace.TraceFlags;
-import io.opentelemetry.api.trace.TraceId;
 import io.opentelemetry.api.trace.TraceState;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.context.propagation.TextMapGetter;
@@ -17,7 +14,7 @@ import io.opentelemetry.context.propagation.TextMapPropagator;
 import io.opentelemetry.context.propagation.TextMapSetter;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Collections;
 import javax.annotation.Nullable;
 
 // this propagator handles the legacy Application Insights distributed tracing header format
@@ -31,9 +28,12 @@ public class AiLegacyPropagator implements TextMapPropagator {
 
   private AiLegacyPropagator() {}
 
+  private static final Collection<String> FIELDS =
+      Collections.unmodifiableList(Arrays.asList("Request-Id", "Request-Context"));
+
   @Override
   public Collection<String> fields() {
-    return Arrays.asList("Request-Id", "Request-Context");
+    return FIELDS;
   }
 
   @Override
@@ -42,7 +42,10 @@ public class AiLegacyPropagator implements TextMapPropagator {
     if (!spanContext.isValid()) {
       return;
     }
-    setter.set(carrier, "Request-Id", getRequestId(spanContext));
+    setter.set(
+        carrier,
+        "Request-Id",
+        LegacyRequestIds.toRequestId(spanContext.getTraceId(), spanContext.getSpanId()));
   }
 
   @Override
@@ -61,18 +64,21 @@ public class AiLegacyPropagator implements TextMapPropagator {
       return context;
     }
 
-    String legacyRootId = aiExtractRootId(legacyParentId);
+    int rootStart = LegacyRequestIds.rootIdStart(legacyParentId);
+    int rootEnd = LegacyRequestIds.rootIdEnd(legacyParentId);
     String traceId;
-    if (TraceId.isValid(legacyRootId)) {
-      traceId = legacyRootId;
-      legacyRootId = null; // clear it out, because we don't need to create span attribute for it
+    String legacyRootId;
+    if (LegacyRequestIds.isValidTraceId(legacyParentId, rootStart, rootEnd)) {
+      traceId = legacyParentId.substring(rootStart, rootEnd);
+      legacyRootId = null; // no need to create span attribute for it
     } else {
-      traceId = generateTraceId();
+      traceId = LegacyRequestIds.generateTraceId();
+      legacyRootId = legacyParentId.substring(rootStart, rootEnd);
     }
 
     // have to generate a random spanId, and we will patch the real legacyParentId back in during
     // export
-    String spanId = generateSpanId();
+    String spanId = LegacyRequestIds.generateSpanId();
     // there are no flags, so we assume sampled
     SpanContext spanContext =
         SpanContext.createFromRemoteParent(
@@ -83,51 +89,7 @@ public class AiLegacyPropagator implements TextMapPropagator {
         .with(Span.wrap(spanContext));
   }
 
-  private static String getRequestId(SpanContext spanContext) {
-    return '|' + spanContext.getTraceId() + '.' + spanContext.getSpanId() + '.';
-  }
-
-  private static String aiExtractRootId(String parentId) {
-    // ported from .NET's System.Diagnostics.Activity.cs implementation:
-    // https://github.com/dotnet/corefx/blob/master/src/System.Diagnostics.DiagnosticSource/src/System/Diagnostics/Activity.cs
-
-    int rootEnd = parentId.indexOf('.');
-    if (rootEnd < 0) {
-      rootEnd = parentId.length();
-    }
-
-    int rootStart = parentId.charAt(0) == '|' ? 1 : 0;
-
-    return parentId.substring(rootStart, rootEnd);
-  }
-
-  private static final long INVALID_ID = 0;
-
-  // copied from io.opentelemetry.sdk.trace.RandomIdGenerator
-  @SuppressFBWarnings(
-      value = "SECPR", // Predictable pseudorandom number generator
-      justification = "Predictable random is ok for span id")
   public static String generateSpanId() {
-    long id;
-    ThreadLocalRandom random = ThreadLocalRandom.current();
-    do {
-      id = random.nextLong();
-    } while (id == INVALID_ID);
-    return SpanId.fromLong(id);
-  }
-
-  // copied from io.opentelemetry.sdk.trace.RandomIdGenerator
-  @SuppressFBWarnings(
-      value = "SECPR", // Predictable pseudorandom number generator
-      justification = "Predictable random is ok for trace id")
-  private static String generateTraceId() {
-    long idHi;
-    long idLo;
-    ThreadLocalRandom random = ThreadLocalRandom.current();
-    do {
-      idHi = random.nextLong();
-      idLo = random.nextLong();
-    } while (idHi == INVALID_ID && idLo == INVALID_ID);
-    return TraceId.fromLongs(idHi, idLo);
+    return LegacyRequestIds.generateSpanId();
   }
 }
@@ -0,0 +1,112 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.legacyheaders;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Char-level parsing and formatting of legacy Application Insights ids.
+ *
+ * <p>Parsing validates the root id in place inside the {@code Request-Id} header value, so the only
+ * string that gets allocated is the resulting id itself. Formatting writes into a per-thread
+ * buffer, so the only allocation is the resulting header value.
+ */
+final class LegacyRequestIds {
+
+  private static final int TRACE_ID_LENGTH = 32;
+  private static final int SPAN_ID_LENGTH = 16;
+  // |<trace id>.<span id>.
+  private static final int REQUEST_ID_LENGTH = TRACE_ID_LENGTH + SPAN_ID_LENGTH + 3;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private static final ThreadLocal<char[]> buffer =
+      ThreadLocal.withInitial(() -> new char[REQUEST_ID_LENGTH]);
+
+  // ported from .NET's System.Diagnostics.Activity.cs implementation:
+  // https://github.com/dotnet/corefx/blob/master/src/System.Diagnostics.DiagnosticSource/src/System/Diagnostics/Activity.cs
+  static int rootIdStart(String requestId) {
+    return requestId.charAt(0) == '|' ? 1 : 0;
+  }
+
+  static int rootIdEnd(String requestId) {
+    int rootEnd = requestId.indexOf('.');
+    return rootEnd < 0 ? requestId.length() : rootEnd;
+  }
+
+  // same semantics as TraceId.isValid(), but without extracting the substring first
+  static boolean isValidTraceId(String value, int start, int end) {
+    if (end - start != TRACE_ID_LENGTH) {
+      return false;
+    }
+    boolean allZeros = true;
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+      if (!isLowerBase16(c)) {
+        return false;
+      }
+      if (c != '0') {
+        allZeros = false;
+      }
+    }
+    return !allZeros;
+  }
+
+  static String toRequestId(String traceId, String spanId) {
+    char[] chars = buffer.get();
+    chars[0] = '|';
+    traceId.getChars(0, TRACE_ID_LENGTH, chars, 1);
+    chars[TRACE_ID_LENGTH + 1] = '.';
+    spanId.getChars(0, SPAN_ID_LENGTH, chars, TRACE_ID_LENGTH + 2);
+    chars[REQUEST_ID_LENGTH - 1] = '.';
+    return new String(chars, 0, REQUEST_ID_LENGTH);
+  }
+
+  // same distribution as io.opentelemetry.sdk.trace.RandomIdGenerator
+  @SuppressFBWarnings(
+      value = "SECPR", // Predictable pseudorandom number generator
+      justification = "Predictable random is ok for span id")
+  static String generateSpanId() {
+    long id;
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    do {
+      id = random.nextLong();
+    } while (id == 0);
+    char[] chars = buffer.get();
+    writeHex(id, chars, 0);
+    return new String(chars, 0, SPAN_ID_LENGTH);
+  }
+
+  // same distribution as io.opentelemetry.sdk.trace.RandomIdGenerator
+  @SuppressFBWarnings(
+      value = "SECPR", // Predictable pseudorandom number generator
+      justification = "Predictable random is ok for trace id")
+  static String generateTraceId() {
+    long idHi;
+    long idLo;
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    do {
+      idHi = random.nextLong();
+      idLo = random.nextLong();
+    } while (idHi == 0 && idLo == 0);
+    char[] chars = buffer.get();
+    writeHex(idHi, chars, 0);
+    writeHex(idLo, chars, SPAN_ID_LENGTH);
+    return new String(chars, 0, TRACE_ID_LENGTH);
+  }
+
+  private static void writeHex(long value, char[] dest, int offset) {
+    for (int i = SPAN_ID_LENGTH - 1; i >= 0; i--) {
+      dest[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+      value >>>= 4;
+    }
+  }
+
+  private static boolean isLowerBase16(char c) {
+    return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+  }
+
+  private LegacyRequestIds() {}
+}
@@ -0,0 +1,296 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.MessageTelemetryBuilder;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.FormattedTime;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.ThreadPoolUtils;
+import com.microsoft.applicationinsights.agent.internal.sampling.SamplingBackoff;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the cpu time and allocations of the agent's own threads under a budget.
+ *
+ * <p>Every check measures the agent threads (telemetry export, performance counters, profiler,
+ * ...) using the {@link ThreadMXBean}. While they are over the budget, the back-off level is raised
+ * one step per check, each step halving the sampling percentage and doubling the performance
+ * counter interval. Once they have stayed well under the budget for a few checks, the level is
+ * lowered one step at a time. Every adjustment is sent as trace telemetry.
+ */
+public final class AgentOverheadGovernor implements PerformanceCounter {
+
+  private static final Logger logger = LoggerFactory.getLogger(AgentOverheadGovernor.class);
+
+  static final String CPU_METRIC_NAME = "Agent CPU Percent";
+  static final String ALLOCATION_METRIC_NAME = "Agent Allocated MB Per Second";
+  static final String LEVEL_METRIC_NAME = "Agent Overhead Backoff Level";
+
+  static final int MAX_LEVEL = 4;
+
+  // consecutive checks well under the budget before lowering the level, since backing off itself
+  // lowers the overhead and restoring too early would just oscillate
+  static final int RESTORE_CHECKS = 3;
+
+  // threads whose name contains one of these are considered agent threads
+  private static final List<String> AGENT_THREAD_NAMES =
+      Arrays.asList(
+          "BatchItemProcessor",
+          "BatchSpanProcessor",
+          "BatchLogRecordProcessor",
+          "PeriodicMetricReader",
+          "PerformanceCounterContainer",
+          "ExceptionStormSuppressor",
+          "AppIdSupplier",
+          "RpConfigurationPolling",
+          "ProfilingInitializer",
+          "DiagnosisThreadPool",
+          "StatusFileWriter",
+          "AgentOverheadGovernor",
+          "HotThreadsPerformanceCounter");
+
+  private final ThreadMXBean threadBean;
+  @Nullable private final com.sun.management.ThreadMXBean allocationBean;
+  private final double maxCpuPercent;
+  private final double maxAllocatedMbPerSecond;
+  private final int availableProcessors;
+
+  // the rest is only accessed by the governor thread, except for the volatile ones
+
+  // cpu and allocated bytes of agent threads as of the last check
+  private final Map<Long, long[]> agentThreads = new HashMap<>();
+  private final Set<Long> otherThreads = new HashSet<>();
+  private long lastCheckNanos;
+  private int checksUnderBudget;
+
+  private volatile int level;
+  private volatile double cpuPercent;
+  private volatile double allocatedMbPerSecond;
+
+  public AgentOverheadGovernor(double maxCpuPercent, int maxAllocatedMbPerSecond) {
+    threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean.isThreadCpuTimeSupported() && !threadBean.isThreadCpuTimeEnabled()) {
+      threadBean.setThreadCpuTimeEnabled(true);
+    }
+    allocationBean = getAllocationBean(threadBean);
+    this.maxCpuPercent = maxCpuPercent;
+    this.maxAllocatedMbPerSecond = maxAllocatedMbPerSecond;
+    availableProcessors = Runtime.getRuntime().availableProcessors();
+    lastCheckNanos = System.nanoTime();
+  }
+
+  public void start(int checkIntervalSeconds) {
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(
+            ThreadPoolUtils.createDaemonThreadFactory(AgentOverheadGovernor.class));
+    executor.scheduleWithFixedDelay(
+        this::check, checkIntervalSeconds, checkIntervalSeconds, SECONDS);
+  }
+
+  private void check() {
+    try {
+      measure();
+      int previousLevel = level;
+      if (adjust(cpuPercent, allocatedMbPerSecond)) {
+        apply(previousLevel);
+      }
+    } catch (RuntimeException e) {
+      logger.error("Error checking the agent overhead", e);
+    }
+  }
+
+  private void measure() {
+    long now = System.nanoTime();
+    long elapsedNanos = now - lastCheckNanos;
+    lastCheckNanos = now;
+
+    long[] threadIds = threadBean.getAllThreadIds();
+    classifyNewThreads(threadIds);
+
+    List<Long> ids = new ArrayList<>();
+    for (long threadId : threadIds) {
+      if (agentThreads.containsKey(threadId)) {
+        ids.add(threadId);
+      }
+    }
+    long[] agentThreadIds = new long[ids.size()];
+    for (int i = 0; i < agentThreadIds.length; i++) {
+      agentThreadIds[i] = ids.get(i);
+    }
+    long[] allocatedBytes =
+        allocationBean == null ? null : allocationBean.getThreadAllocatedBytes(agentThreadIds);
+
+    long cpuNanosDelta = 0;
+    long allocatedBytesDelta = 0;
+    Map<Long, long[]> current = new HashMap<>();
+    for (int i = 0; i < agentThreadIds.length; i++) {
+      long[] previous = agentThreads.get(agentThreadIds[i]);
+      long cpuNanos = threadBean.getThreadCpuTime(agentThreadIds[i]);
+      long allocated = allocatedBytes == null ? -1 : allocatedBytes[i];
+      // -1 when not supported or the thread has terminated in the meantime
+      if (cpuNanos != -1 && previous[0] != -1) {
+        cpuNanosDelta += cpuNanos - previous[0];
+      }
+      if (allocated != -1 && previous[1] != -1) {
+        allocatedBytesDelta += allocated - previous[1];
+      }
+      current.put(agentThreadIds[i], new long[] {cpuNanos, allocated});
+    }
+    // also drops terminated threads
+    agentThreads.clear();
+    agentThreads.putAll(current);
+    Set<Long> live = new HashSet<>();
+    for (long threadId : threadIds) {
+      live.add(threadId);
+    }
+    otherThreads.retainAll(live);
+
+    if (elapsedNanos > 0) {
+      cpuPercent = 100.0 * cpuNanosDelta / ((double) elapsedNanos * availableProcessors);
+      allocatedMbPerSecond = (allocatedBytesDelta / (1024.0 * 1024)) / (elapsedNanos / 1e9);
+    }
+  }
+
+  private void classifyNewThreads(long[] threadIds) {
+    List<Long> newThreadIds = new ArrayList<>();
+    for (long threadId : threadIds) {
+      if (!agentThreads.containsKey(threadId) && !otherThreads.contains(threadId)) {
+        newThreadIds.add(threadId);
+      }
+    }
+    if (newThreadIds.isEmpty()) {
+      return;
+    }
+    long[] ids = new long[newThreadIds.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = newThreadIds.get(i);
+    }
+    // without stack traces, so this is cheap
+    for (ThreadInfo threadInfo : threadBean.getThreadInfo(ids, 0)) {
+      if (threadInfo == null) {
+        // terminated in the meantime
+        continue;
+      }
+      if (isAgentThread(threadInfo.getThreadName())) {
+        // no baseline yet, so that what the thread used before it was first seen (e.g. during
+        // startup) isn't attributed to a single check interval
+        agentThreads.put(threadInfo.getThreadId(), new long[] {-1, -1});
+      } else {
+        otherThreads.add(threadInfo.getThreadId());
+      }
+    }
+  }
+
+  // visible for testing
+  static boolean isAgentThread(String threadName) {
+    for (String agentThreadName : AGENT_THREAD_NAMES) {
+      if (threadName.contains(agentThreadName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // returns whether the level changed, visible for testing
+  boolean adjust(double cpuPercent, double allocatedMbPerSecond) {
+    if (cpuPercent > maxCpuPercent || allocatedMbPerSecond > maxAllocatedMbPerSecond) {
+      checksUnderBudget = 0;
+      if (level < MAX_LEVEL) {
+        level++;
+        return true;
+      }
+      return false;
+    }
+    if (cpuPercent < maxCpuPercent / 2 && allocatedMbPerSecond < maxAllocatedMbPerSecond / 2) {
+      if (level > 0 && ++checksUnderBudget >= RESTORE_CHECKS) {
+        checksUnderBudget = 0;
+        level--;
+        return true;
+      }
+    } else {
+      checksUnderBudget = 0;
+    }
+    return false;
+  }
+
+  // visible for testing
+  int getLevel() {
+    return level;
+  }
+
+  private void apply(int previousLevel) {
+    int factor = 1 << level;
+    SamplingBackoff.setDivisor(factor);
+    PerformanceCounterContainer.INSTANCE.setCollectionIntervalMultiplier(factor);
+
+    String message =
+        String.format(
+            Locale.ROOT,
+            "Agent overhead is %s the budget (cpu %.1f%% of %.1f%%, allocations %.1f MB/s of %.1f"
+                + " MB/s), changing the back-off level from %d to %d: sampling percentage is"
+                + " divided by %d and the performance counter interval is multiplied by %d",
+            level > previousLevel ? "over" : "well under",
+            cpuPercent,
+            maxCpuPercent,
+            allocatedMbPerSecond,
+            maxAllocatedMbPerSecond,
+            previousLevel,
+            level,
+            factor,
+            factor);
+    if (level > previousLevel) {
+      logger.warn(message);
+    } else {
+      logger.info(message);
+    }
+
+    TelemetryClient telemetryClient = TelemetryClient.getActive();
+    MessageTelemetryBuilder telemetryBuilder = telemetryClient.newMessageTelemetryBuilder();
+    telemetryBuilder.setMessage(message);
+    telemetryBuilder.setTime(FormattedTime.offSetDateTimeFromNow());
+    telemetryClient.trackAsync(telemetryBuilder.build());
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    telemetryClient.trackAsync(telemetryClient.newMetricTelemetry(CPU_METRIC_NAME, cpuPercent));
+    if (allocationBean != null) {
+      telemetryClient.trackAsync(
+          telemetryClient.newMetricTelemetry(ALLOCATION_METRIC_NAME, allocatedMbPerSecond));
+    }
+    telemetryClient.trackAsync(telemetryClient.newMetricTelemetry(LEVEL_METRIC_NAME, level));
+  }
+
+  @Nullable
+  private static com.sun.management.ThreadMXBean getAllocationBean(ThreadMXBean threadBean) {
+    if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+      return null;
+    }
+    com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+    if (!allocationBean.isThreadAllocatedMemorySupported()) {
+      return null;
+    }
+    if (!allocationBean.isThreadAllocatedMemoryEnabled()) {
+      allocationBean.setThreadAllocatedMemoryEnabled(true);
+    }
+    return allocationBean;
+  }
+}
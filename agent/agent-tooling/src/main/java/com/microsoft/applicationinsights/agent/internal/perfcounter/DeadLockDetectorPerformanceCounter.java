@@ -3,6 +3,8 @@
 
 package com.microsoft.applicationinsights.agent.internal.perfcounter;
 
+import static java.util.concurrent.TimeUnit.HOURS;
+
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.MessageTelemetryBuilder;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.FormattedTime;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
@@ -10,6 +12,7 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MonitorInfo;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
 
 /**
  * The class uses the JVM ThreadMXBean to detect thread deadlocks.
@@ -17,7 +20,9 @@ import java.lang.management.ThreadMXBean;
  * <p>A metric with value 0 is sent when there are no blocked threads.
  *
  * <p>Otherwise the number of detected blocked threads is sent, along with minimal stack traces as
- * trace telemetries.
+ * trace telemetries. Since deadlocked threads never recover, the stack traces are only sent again
+ * when the set of deadlocked threads changes, or at most once every {@link
+ * #MESSAGE_REPEAT_INTERVAL_NANOS}.
  */
 public final class DeadLockDetectorPerformanceCounter implements PerformanceCounter {
 
@@ -26,8 +31,13 @@ public final class DeadLockDetectorPerformanceCounter implements PerformanceCoun
   // TODO (trask) this seems low..
   private static final int MAX_STACK_TRACE = 3;
 
+  private static final long MESSAGE_REPEAT_INTERVAL_NANOS = HOURS.toNanos(1);
+
   private final ThreadMXBean threadBean;
 
+  private long[] lastReportedThreadIds = new long[0];
+  private long lastMessageNanos;
+
   public DeadLockDetectorPerformanceCounter() {
     threadBean = ManagementFactory.getThreadMXBean();
   }
@@ -41,7 +51,16 @@ public final class DeadLockDetectorPerformanceCounter implements PerformanceCoun
     telemetryClient.trackAsync(telemetryClient.newMetricTelemetry(METRIC_NAME, blockedThreadCount));
 
     if (blockedThreadCount > 0) {
-      sendDetailedMessage(telemetryClient, threadIds);
+      Arrays.sort(threadIds);
+      long now = System.nanoTime();
+      if (!Arrays.equals(threadIds, lastReportedThreadIds)
+          || now - lastMessageNanos >= MESSAGE_REPEAT_INTERVAL_NANOS) {
+        lastReportedThreadIds = threadIds;
+        lastMessageNanos = now;
+        sendDetailedMessage(telemetryClient, threadIds);
+      }
+    } else {
+      lastReportedThreadIds = new long[0];
     }
   }
 
@@ -61,7 +80,7 @@ public final class DeadLockDetectorPerformanceCounter implements PerformanceCoun
     telemetryClient.trackAsync(telemetryBuilder.build());
   }
 
-  private static void appendThreadInfoAndStack(StringBuilder sb, ThreadInfo threadInfo) {
+  static void appendThreadInfoAndStack(StringBuilder sb, ThreadInfo threadInfo) {
     setThreadInfo(sb, threadInfo);
 
     StackTraceElement[] stackTraceElements = threadInfo.getStackTrace();
@@ -0,0 +1,201 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static java.util.Arrays.asList;
+
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.kernel.DiskStats;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.net.NetworkInterfaceStats;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.net.TcpConnectionState;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.LinuxGlobalDiskIoStats;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.LinuxGlobalNetworkStats;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.LinuxTcpConnectionStates;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.LinuxTcpProtocolStats;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.TwoStepProcReader;
+import java.io.File;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Host network interface, TCP and disk I/O counters (linux only).
+ *
+ * <p>The kernel exposes these as ever-increasing totals, so except for the TCP connection counts
+ * they are reported as rates computed from the increments since the previous report, and nothing
+ * is reported for the first collection.
+ */
+public class HostIoPerformanceCounter implements PerformanceCounter {
+
+  private static final Logger logger = LoggerFactory.getLogger(HostIoPerformanceCounter.class);
+
+  private static final File PROC_DIR = new File("/proc");
+
+  private static final double NANOS_IN_SECOND = 1_000_000_000;
+  private static final double MILLIS_IN_SECOND = 1000;
+
+  private static final String LOOPBACK_INTERFACE = "lo";
+
+  private final LinuxGlobalNetworkStats networkStats;
+  private final LinuxTcpProtocolStats tcpProtocolStats;
+  private final List<LinuxTcpConnectionStates> tcpConnectionStates;
+  private final LinuxGlobalDiskIoStats diskStats;
+  private final List<TwoStepProcReader> readers;
+
+  private boolean hasPrevious;
+  private long prevCollectionTimeNanos;
+
+  public static boolean isSupported() {
+    return new File(PROC_DIR, "net/dev").canRead() && new File(PROC_DIR, "diskstats").canRead();
+  }
+
+  public HostIoPerformanceCounter() {
+    this(PROC_DIR);
+  }
+
+  // visible for testing
+  HostIoPerformanceCounter(File procDir) {
+    networkStats = new LinuxGlobalNetworkStats(new File(procDir, "net/dev"));
+    tcpProtocolStats = new LinuxTcpProtocolStats(new File(procDir, "net/snmp"));
+    tcpConnectionStates =
+        asList(
+            new LinuxTcpConnectionStates(new File(procDir, "net/tcp")),
+            new LinuxTcpConnectionStates(new File(procDir, "net/tcp6")));
+    diskStats = new LinuxGlobalDiskIoStats(new File(procDir, "diskstats"));
+    readers =
+        asList(
+            networkStats,
+            tcpProtocolStats,
+            tcpConnectionStates.get(0),
+            tcpConnectionStates.get(1),
+            diskStats);
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    collect(
+        System.nanoTime(),
+        (name, value) -> {
+          telemetryClient.trackAsync(telemetryClient.newMetricTelemetry(name, value));
+          logger.trace("Sent performance counter for '{}': '{}'", name, value);
+        });
+  }
+
+  // visible for testing
+  void collect(long nanoTime, BiConsumer<String, Double> metrics) {
+    for (TwoStepProcReader reader : readers) {
+      reader.poll();
+    }
+    for (TwoStepProcReader reader : readers) {
+      reader.update();
+    }
+
+    for (TcpConnectionState state : TcpConnectionState.values()) {
+      int count = 0;
+      for (LinuxTcpConnectionStates states : tcpConnectionStates) {
+        count += states.getCount(state);
+      }
+      metrics.accept("\\TCP(" + state.name() + ")\\Connections", (double) count);
+    }
+
+    double elapsedSeconds = (nanoTime - prevCollectionTimeNanos) / NANOS_IN_SECOND;
+    boolean report = hasPrevious && elapsedSeconds > 0;
+    hasPrevious = true;
+    prevCollectionTimeNanos = nanoTime;
+    if (!report) {
+      return;
+    }
+
+    reportNetwork(metrics, elapsedSeconds);
+    reportTcp(metrics, elapsedSeconds);
+    reportDisks(metrics, elapsedSeconds);
+  }
+
+  private void reportNetwork(BiConsumer<String, Double> metrics, double elapsedSeconds) {
+    BigInteger totalBytes = BigInteger.ZERO;
+    for (NetworkInterfaceStats stats : networkStats.getInterfaceStats()) {
+      if (stats.getName().equals(LOOPBACK_INTERFACE)) {
+        continue;
+      }
+      BigInteger received = nonNegative(stats.getReceived());
+      BigInteger sent = nonNegative(stats.getSent());
+      BigInteger packetsReceived = nonNegative(stats.getPacketsReceived());
+      BigInteger packetsSent = nonNegative(stats.getPacketsSent());
+      if (received == null || sent == null || packetsReceived == null || packetsSent == null) {
+        // new interface (or its counters were reset)
+        continue;
+      }
+      String prefix = "\\Network Interface(" + stats.getName() + ")\\";
+      metrics.accept(prefix + "Bytes Received/sec", received.doubleValue() / elapsedSeconds);
+      metrics.accept(prefix + "Bytes Sent/sec", sent.doubleValue() / elapsedSeconds);
+      metrics.accept(
+          prefix + "Packets Received/sec", packetsReceived.doubleValue() / elapsedSeconds);
+      metrics.accept(prefix + "Packets Sent/sec", packetsSent.doubleValue() / elapsedSeconds);
+      totalBytes = totalBytes.add(received).add(sent);
+    }
+    metrics.accept(MetricNames.TOTAL_NETWORK_BYTES, totalBytes.doubleValue() / elapsedSeconds);
+  }
+
+  @Nullable
+  private static BigInteger nonNegative(@Nullable BigInteger increment) {
+    return increment == null || increment.signum() < 0 ? null : increment;
+  }
+
+  private void reportTcp(BiConsumer<String, Double> metrics, double elapsedSeconds) {
+    long sent = tcpProtocolStats.getSentSegments();
+    long retransmitted = tcpProtocolStats.getRetransmittedSegments();
+    if (sent >= 0 && retransmitted >= 0) {
+      metrics.accept("\\TCP\\Segments Retransmitted/sec", retransmitted / elapsedSeconds);
+      metrics.accept(
+          MetricNames.TCP_SEGMENTS_RETRANSMITTED_PERCENTAGE,
+          sent == 0 ? 0 : 100.0 * retransmitted / sent);
+    }
+    long failedAttempts = tcpProtocolStats.getFailedConnectionAttempts();
+    if (failedAttempts >= 0) {
+      metrics.accept("\\TCP\\Connection Failures/sec", failedAttempts / elapsedSeconds);
+    }
+    long resets = tcpProtocolStats.getResetConnections();
+    if (resets >= 0) {
+      metrics.accept("\\TCP\\Connections Reset/sec", resets / elapsedSeconds);
+    }
+  }
+
+  private void reportDisks(BiConsumer<String, Double> metrics, double elapsedSeconds) {
+    long totalTransfers = 0;
+    long totalTransferMillis = 0;
+    boolean reported = false;
+    for (DiskStats disk : diskStats.getDiskStats()) {
+      long reads = disk.getReadsCompleted();
+      long writes = disk.getWritesCompleted();
+      long readMillis = disk.getReadTime();
+      long writeMillis = disk.getWriteTime();
+      if (reads < 0 || writes < 0 || readMillis < 0 || writeMillis < 0) {
+        // new disk
+        continue;
+      }
+      String prefix = "\\PhysicalDisk(" + disk.getName() + ")\\";
+      metrics.accept(prefix + "Disk Read Bytes/sec", disk.getBytesRead() / elapsedSeconds);
+      metrics.accept(prefix + "Disk Write Bytes/sec", disk.getBytesWritten() / elapsedSeconds);
+      metrics.accept(prefix + "Disk Reads/sec", reads / elapsedSeconds);
+      metrics.accept(prefix + "Disk Writes/sec", writes / elapsedSeconds);
+      metrics.accept(prefix + "Avg. Disk sec/Read", secondsPerTransfer(readMillis, reads));
+      metrics.accept(prefix + "Avg. Disk sec/Write", secondsPerTransfer(writeMillis, writes));
+      totalTransfers += reads + writes;
+      totalTransferMillis += readMillis + writeMillis;
+      reported = true;
+    }
+    if (reported) {
+      metrics.accept(
+          MetricNames.TOTAL_DISK_SECONDS_PER_TRANSFER,
+          secondsPerTransfer(totalTransferMillis, totalTransfers));
+    }
+  }
+
+  private static double secondsPerTransfer(long millis, long transfers) {
+    return transfers == 0 ? 0 : millis / MILLIS_IN_SECOND / transfers;
+  }
+}
@@ -0,0 +1,209 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Samples the cpu time of every live thread, and computes how much cpu each thread and each thread
+ * pool used since the previous sample.
+ *
+ * <p>Threads are grouped into pools by the first configured name pattern they match, or otherwise
+ * by their name with digits replaced, so that e.g. "http-nio-8080-exec-1" and
+ * "http-nio-8080-exec-2" both belong to "http-nio-#-exec-#".
+ *
+ * <p>A sample costs one cpu time lookup per live thread, plus one {@link ThreadInfo} (without stack
+ * trace) per thread that used cpu. When there are more live threads than {@code maxSampledThreads},
+ * or when a sample takes longer than its self-cost budget, the following samples are skipped
+ * proportionally so that the average cost stays bounded.
+ *
+ * <p>This class is not thread safe, it is only called from the sampler thread.
+ */
+class HotThreadSampler {
+
+  private static final Pattern DIGITS = Pattern.compile("[0-9]+");
+
+  // thread names can be unbounded (e.g. when they contain a request id)
+  private static final int MAX_CACHED_POOL_NAMES = 10_000;
+
+  private final ThreadMXBean threadBean;
+  private final Map<String, Pattern> threadPoolPatterns;
+  private final int topThreadCount;
+  private final int maxSampledThreads;
+  private final long maxSelfCostNanos;
+  private final LongSupplier nanoTime;
+
+  // cpu time (in nanos) per thread id as of the previous sample
+  private Map<Long, Long> previousCpuTimes = new HashMap<>();
+  private long previousSampleNanos;
+  private boolean hasPrevious;
+
+  private final Map<String, String> poolNames = new HashMap<>();
+
+  private int samplesToSkip;
+
+  HotThreadSampler(
+      ThreadMXBean threadBean,
+      Map<String, Pattern> threadPoolPatterns,
+      int topThreadCount,
+      int maxSampledThreads,
+      long maxSelfCostNanos,
+      LongSupplier nanoTime) {
+    this.threadBean = threadBean;
+    this.threadPoolPatterns = threadPoolPatterns;
+    this.topThreadCount = topThreadCount;
+    this.maxSampledThreads = Math.max(1, maxSampledThreads);
+    this.maxSelfCostNanos = Math.max(1, maxSelfCostNanos);
+    this.nanoTime = nanoTime;
+  }
+
+  /**
+   * Returns {@code null} for the first sample (which there is nothing to compare to), and when this
+   * sample was skipped because of back-off.
+   */
+  @Nullable
+  Sample sample() {
+    if (samplesToSkip > 0) {
+      samplesToSkip--;
+      return null;
+    }
+    long startNanos = nanoTime.getAsLong();
+
+    long[] threadIds = threadBean.getAllThreadIds();
+    Map<Long, Long> cpuTimes = new HashMap<>(threadIds.length * 2);
+    List<Long> busyThreadIds = new ArrayList<>();
+    List<Long> busyThreadCpuNanos = new ArrayList<>();
+    for (long threadId : threadIds) {
+      long cpuTime = threadBean.getThreadCpuTime(threadId);
+      if (cpuTime < 0) {
+        // thread terminated in the meantime
+        continue;
+      }
+      cpuTimes.put(threadId, cpuTime);
+      Long previous = previousCpuTimes.get(threadId);
+      // threads that were not seen in the previous sample are only accounted from now on
+      if (previous != null && cpuTime > previous) {
+        busyThreadIds.add(threadId);
+        busyThreadCpuNanos.add(cpuTime - previous);
+      }
+    }
+
+    long[] ids = new long[busyThreadIds.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = busyThreadIds.get(i);
+    }
+    ThreadInfo[] threadInfos = threadBean.getThreadInfo(ids, 0);
+
+    List<HotThread> busyThreads = new ArrayList<>(ids.length);
+    Map<String, Long> poolCpuNanos = new HashMap<>();
+    for (int i = 0; i < threadInfos.length; i++) {
+      ThreadInfo threadInfo = threadInfos[i];
+      if (threadInfo == null) {
+        continue;
+      }
+      long cpuNanos = busyThreadCpuNanos.get(i);
+      String poolName = getPoolName(threadInfo.getThreadName());
+      busyThreads.add(new HotThread(ids[i], threadInfo.getThreadName(), poolName, cpuNanos));
+      poolCpuNanos.merge(poolName, cpuNanos, Long::sum);
+    }
+
+    busyThreads.sort((a, b) -> Long.compare(b.cpuNanos, a.cpuNanos));
+    if (busyThreads.size() > topThreadCount) {
+      busyThreads = new ArrayList<>(busyThreads.subList(0, topThreadCount));
+    }
+
+    boolean report = hasPrevious;
+    long elapsedNanos = startNanos - previousSampleNanos;
+    previousCpuTimes = cpuTimes;
+    previousSampleNanos = startNanos;
+    hasPrevious = true;
+
+    long durationNanos = nanoTime.getAsLong() - startNanos;
+    samplesToSkip =
+        (int)
+            Math.max(
+                (threadIds.length - 1) / maxSampledThreads, durationNanos / maxSelfCostNanos);
+
+    if (!report || elapsedNanos <= 0) {
+      return null;
+    }
+    return new Sample(threadIds.length, elapsedNanos, busyThreads, poolCpuNanos, durationNanos);
+  }
+
+  int getSamplesToSkip() {
+    return samplesToSkip;
+  }
+
+  private String getPoolName(String threadName) {
+    String poolName = poolNames.get(threadName);
+    if (poolName == null) {
+      poolName = getPoolName(threadName, threadPoolPatterns);
+      if (poolNames.size() >= MAX_CACHED_POOL_NAMES) {
+        poolNames.clear();
+      }
+      poolNames.put(threadName, poolName);
+    }
+    return poolName;
+  }
+
+  // visible for testing
+  static String getPoolName(String threadName, Map<String, Pattern> threadPoolPatterns) {
+    for (Map.Entry<String, Pattern> entry : threadPoolPatterns.entrySet()) {
+      if (entry.getValue().matcher(threadName).matches()) {
+        return entry.getKey();
+      }
+    }
+    return DIGITS.matcher(threadName).replaceAll("#");
+  }
+
+  static class Sample {
+    final int threadCount;
+    // since the previous sample
+    final long elapsedNanos;
+    // the threads which used the most cpu, most first
+    final List<HotThread> topThreads;
+    final Map<String, Long> poolCpuNanos;
+    final long durationNanos;
+
+    Sample(
+        int threadCount,
+        long elapsedNanos,
+        List<HotThread> topThreads,
+        Map<String, Long> poolCpuNanos,
+        long durationNanos) {
+      this.threadCount = threadCount;
+      this.elapsedNanos = elapsedNanos;
+      this.topThreads = topThreads;
+      this.poolCpuNanos = poolCpuNanos;
+      this.durationNanos = durationNanos;
+    }
+
+    /** Percentage of one core. */
+    double getCpuPercent(long cpuNanos) {
+      return 100.0 * cpuNanos / elapsedNanos;
+    }
+  }
+
+  static class HotThread {
+    final long threadId;
+    final String threadName;
+    final String poolName;
+    final long cpuNanos;
+
+    HotThread(long threadId, String threadName, String poolName, long cpuNanos) {
+      this.threadId = threadId;
+      this.threadName = threadName;
+      this.poolName = poolName;
+      this.cpuNanos = cpuNanos;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.MessageTelemetryBuilder;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.FormattedTime;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.ThreadPoolUtils;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples the cpu time of every thread on its own interval (which is typically shorter than the
+ * performance counter interval), see {@link HotThreadSampler}.
+ *
+ * <p>When the hottest thread of a sample used at least the configured share of a core, the top
+ * threads along with a short stack trace are sent as trace telemetry, at most once every {@link
+ * #MIN_MESSAGE_INTERVAL_NANOS}. The cpu used by each thread pool since the previous report is sent
+ * as a metric per pool, for the busiest pools only, since thread names are not bounded.
+ */
+public final class HotThreadsPerformanceCounter implements PerformanceCounter {
+
+  private static final Logger logger = LoggerFactory.getLogger(HotThreadsPerformanceCounter.class);
+
+  private static final long MIN_MESSAGE_INTERVAL_NANOS = MINUTES.toNanos(5);
+
+  private final ThreadMXBean threadBean;
+  private final HotThreadSampler sampler;
+  private final double cpuThresholdPercent;
+  private final int maxStackDepth;
+  private final int maxReportedThreadPools;
+
+  // only accessed by the sampler thread
+  private long lastMessageNanos;
+  private boolean messageSent;
+
+  // accumulated by the sampler thread since the last report
+  private final Object lock = new Object();
+  private Map<String, Long> poolCpuNanos = new HashMap<>();
+  private long sampledNanos;
+  @Nullable private TelemetryClient telemetryClient;
+
+  public HotThreadsPerformanceCounter(
+      int intervalSeconds,
+      double cpuThresholdPercent,
+      int topThreadCount,
+      int maxStackDepth,
+      Map<String, String> threadPools,
+      int maxReportedThreadPools,
+      int maxSampledThreads,
+      double maxSelfCostPercent) {
+    threadBean = ManagementFactory.getThreadMXBean();
+    if (!threadBean.isThreadCpuTimeEnabled()) {
+      threadBean.setThreadCpuTimeEnabled(true);
+    }
+    Map<String, Pattern> threadPoolPatterns = new LinkedHashMap<>();
+    for (Map.Entry<String, String> entry : threadPools.entrySet()) {
+      threadPoolPatterns.put(entry.getKey(), Pattern.compile(entry.getValue()));
+    }
+    sampler =
+        new HotThreadSampler(
+            threadBean,
+            threadPoolPatterns,
+            topThreadCount,
+            maxSampledThreads,
+            (long) (SECONDS.toNanos(intervalSeconds) * maxSelfCostPercent / 100),
+            System::nanoTime);
+    this.cpuThresholdPercent = cpuThresholdPercent;
+    this.maxStackDepth = maxStackDepth;
+    this.maxReportedThreadPools = maxReportedThreadPools;
+  }
+
+  public static boolean isSupported() {
+    return ManagementFactory.getThreadMXBean().isThreadCpuTimeSupported();
+  }
+
+  public void start(int intervalSeconds) {
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(
+            ThreadPoolUtils.createDaemonThreadFactory(HotThreadsPerformanceCounter.class));
+    executor.scheduleWithFixedDelay(this::sample, 0, intervalSeconds, SECONDS);
+  }
+
+  private void sample() {
+    try {
+      HotThreadSampler.Sample sample = sampler.sample();
+      if (sample == null) {
+        return;
+      }
+      logger.debug(
+          "sampled cpu time of {} threads in {} ms",
+          sample.threadCount,
+          NANOSECONDS.toMillis(sample.durationNanos));
+
+      TelemetryClient telemetryClient;
+      synchronized (lock) {
+        for (Map.Entry<String, Long> entry : sample.poolCpuNanos.entrySet()) {
+          poolCpuNanos.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+        sampledNanos += sample.elapsedNanos;
+        telemetryClient = this.telemetryClient;
+      }
+
+      if (telemetryClient == null || sample.topThreads.isEmpty()) {
+        return;
+      }
+      HotThreadSampler.HotThread hottest = sample.topThreads.get(0);
+      if (sample.getCpuPercent(hottest.cpuNanos) < cpuThresholdPercent) {
+        return;
+      }
+      long now = System.nanoTime();
+      if (!messageSent || now - lastMessageNanos >= MIN_MESSAGE_INTERVAL_NANOS) {
+        messageSent = true;
+        lastMessageNanos = now;
+        sendDetailedMessage(telemetryClient, sample);
+      }
+    } catch (RuntimeException e) {
+      logger.error("Error sampling the thread cpu time", e);
+    }
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    Map<String, Long> poolCpuNanos;
+    long sampledNanos;
+    synchronized (lock) {
+      // the telemetry client is only needed by the sampler thread to send the detailed message
+      this.telemetryClient = telemetryClient;
+      poolCpuNanos = this.poolCpuNanos;
+      sampledNanos = this.sampledNanos;
+      this.poolCpuNanos = new HashMap<>();
+      this.sampledNanos = 0;
+    }
+    if (sampledNanos == 0) {
+      return;
+    }
+    List<Map.Entry<String, Long>> pools = new ArrayList<>(poolCpuNanos.entrySet());
+    pools.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+    for (int i = 0; i < pools.size() && i < maxReportedThreadPools; i++) {
+      Map.Entry<String, Long> pool = pools.get(i);
+      telemetryClient.trackAsync(
+          telemetryClient.newMetricTelemetry(
+              getMetricName(pool.getKey()), 100.0 * pool.getValue() / sampledNanos));
+    }
+  }
+
+  private static String getMetricName(String poolName) {
+    return "\\Thread Pool(" + poolName + ")\\% Processor Time";
+  }
+
+  private void sendDetailedMessage(
+      TelemetryClient telemetryClient, HotThreadSampler.Sample sample) {
+
+    long[] threadIds = new long[sample.topThreads.size()];
+    for (int i = 0; i < threadIds.length; i++) {
+      threadIds[i] = sample.topThreads.get(i).threadId;
+    }
+    // only capturing stack traces for the top threads keeps the cost independent of the number of
+    // threads
+    ThreadInfo[] threadInfos = threadBean.getThreadInfo(threadIds, maxStackDepth);
+
+    StringBuilder sb =
+        new StringBuilder("Hot threads (")
+            .append(sample.threadCount)
+            .append(" threads, sampled over ")
+            .append(NANOSECONDS.toMillis(sample.elapsedNanos))
+            .append(" ms):");
+    for (int i = 0; i < threadIds.length; i++) {
+      HotThreadSampler.HotThread thread = sample.topThreads.get(i);
+      sb.append("\n")
+          .append(String.format(Locale.ROOT, "%.1f", sample.getCpuPercent(thread.cpuNanos)))
+          .append("% cpu, thread pool ")
+          .append(thread.poolName);
+      if (threadInfos[i] != null) {
+        DeadLockDetectorPerformanceCounter.appendThreadInfoAndStack(sb, threadInfos[i]);
+      } else {
+        sb.append("\n  ").append(thread.threadName).append(" (terminated)");
+      }
+    }
+
+    MessageTelemetryBuilder telemetryBuilder = telemetryClient.newMessageTelemetryBuilder();
+    telemetryBuilder.setMessage(sb.toString());
+    telemetryBuilder.setTime(FormattedTime.offSetDateTimeFromNow());
+    telemetryClient.trackAsync(telemetryBuilder.build());
+  }
+}
@@ -28,5 +28,15 @@ public final class MetricNames {
 
   public static final String PROCESS_IO = "\\Process(??APP_WIN32_PROC??)\\IO Data Bytes/sec";
 
+  // host i/o counters (linux only), see HostIoPerformanceCounter
+
+  public static final String TCP_SEGMENTS_RETRANSMITTED_PERCENTAGE =
+      "\\TCP\\% Segments Retransmitted";
+
+  public static final String TOTAL_DISK_SECONDS_PER_TRANSFER =
+      "\\PhysicalDisk(_Total)\\Avg. Disk sec/Transfer";
+
+  public static final String TOTAL_NETWORK_BYTES = "\\Network Interface(_Total)\\Bytes Total/sec";
+
   private MetricNames() {}
 }
@@ -5,6 +5,8 @@ package com.microsoft.applicationinsights.agent.internal.perfcounter;
 
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.ThreadPoolUtils;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentPerfCounterCollectionJfrEvent;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -52,6 +54,12 @@ public enum PerformanceCounterContainer {
 
   private long collectionFrequencyInMillis = DEFAULT_COLLECTION_FREQUENCY_IN_SEC * 1000;
 
+  // only every N-th scheduled collection is performed, used to back off when the agent's own
+  // overhead is too high
+  private volatile int collectionIntervalMultiplier = 1;
+  // only accessed by the collection thread
+  private int skippedCollections;
+
   private ScheduledThreadPoolExecutor threads;
 
   /**
@@ -64,6 +72,10 @@ public enum PerformanceCounterContainer {
     performanceCounters.add(performanceCounter);
   }
 
+  public void unregister(PerformanceCounter performanceCounter) {
+    performanceCounters.remove(performanceCounter);
+  }
+
   /**
    * Sets the timeout to wait between collection of Performance Counters.
    *
@@ -91,6 +103,16 @@ public enum PerformanceCounterContainer {
     this.collectionFrequencyInMillis = collectionFrequencyInSec * 1000;
   }
 
+  /**
+   * Widens the interval between collections to the given multiple of the collection frequency,
+   * without rescheduling.
+   *
+   * @param collectionIntervalMultiplier The multiple, 1 restores the configured frequency.
+   */
+  public void setCollectionIntervalMultiplier(int collectionIntervalMultiplier) {
+    this.collectionIntervalMultiplier = Math.max(1, collectionIntervalMultiplier);
+  }
+
   public void setLogAvailableJmxMetrics() {
     availableJmxMetricLogger = new AvailableJmxMetricLogger();
   }
@@ -120,24 +142,36 @@ public enum PerformanceCounterContainer {
         new Runnable() {
           @Override
           public void run() {
+            if (++skippedCollections < collectionIntervalMultiplier) {
+              return;
+            }
+            skippedCollections = 0;
+
             if (availableJmxMetricLogger != null) {
               availableJmxMetricLogger.logAvailableJmxMetrics();
             }
 
             TelemetryClient telemetryClient = TelemetryClient.getActive();
 
+            AgentPerfCounterCollectionJfrEvent jfrEvent =
+                AgentJfrEvents.beginPerfCounterCollection();
+            int failedCount = 0;
             for (PerformanceCounter performanceCounter : performanceCounters) {
               try {
                 performanceCounter.report(telemetryClient);
               } catch (ThreadDeath td) {
                 throw td;
               } catch (Throwable t) {
+                failedCount++;
                 logger.error(
                     "Exception while reporting performance counter: '{}'",
                     performanceCounter.getClass().getName(),
                     t);
               }
             }
+            if (jfrEvent != null) {
+              jfrEvent.complete(performanceCounters.size(), failedCount);
+            }
           }
         },
         collectionFrequencyInMillis,
@@ -0,0 +1,130 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.MessageTelemetryBuilder;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.FormattedTime;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class uses the JVM thread contention monitoring to report near-deadlocks, i.e. lock convoys
+ * and monitors that are held for a long time while other threads are blocked on them.
+ *
+ * <p>The number of blocked threads and the total time threads spent blocked are sent as metrics on
+ * every (non skipped) sample. The top contended monitors, along with the stack trace of their
+ * owners, are sent as trace telemetry, at most once every {@link #MIN_MESSAGE_INTERVAL_NANOS}.
+ */
+public final class ThreadContentionPerformanceCounter implements PerformanceCounter {
+
+  private static final Logger logger =
+      LoggerFactory.getLogger(ThreadContentionPerformanceCounter.class);
+
+  private static final String BLOCKED_THREADS_METRIC_NAME = "Blocked Threads";
+  private static final String BLOCKED_TIME_METRIC_NAME = "Thread Blocked Time";
+
+  private static final long MIN_MESSAGE_INTERVAL_NANOS = MINUTES.toNanos(5);
+
+  private final ThreadMXBean threadBean;
+  private final ThreadContentionSampler sampler;
+  private final int maxStackDepth;
+
+  private long lastMessageNanos;
+  private boolean messageSent;
+
+  public ThreadContentionPerformanceCounter(
+      int convoyThreadCount,
+      int longHeldMonitorThresholdSeconds,
+      int maxReportedLocks,
+      int maxStackDepth,
+      int maxSampledThreads) {
+    threadBean = ManagementFactory.getThreadMXBean();
+    if (!threadBean.isThreadContentionMonitoringEnabled()) {
+      threadBean.setThreadContentionMonitoringEnabled(true);
+    }
+    sampler =
+        new ThreadContentionSampler(
+            threadBean,
+            convoyThreadCount,
+            SECONDS.toNanos(longHeldMonitorThresholdSeconds),
+            maxReportedLocks,
+            maxSampledThreads,
+            System::nanoTime);
+    this.maxStackDepth = maxStackDepth;
+  }
+
+  public static boolean isSupported() {
+    return ManagementFactory.getThreadMXBean().isThreadContentionMonitoringSupported();
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    ThreadContentionSampler.Sample sample = sampler.sample();
+    if (sample == null) {
+      return;
+    }
+    logger.debug(
+        "sampled contention of {} threads in {} ms",
+        sample.threadCount,
+        NANOSECONDS.toMillis(sample.durationNanos));
+
+    telemetryClient.trackAsync(
+        telemetryClient.newMetricTelemetry(
+            BLOCKED_THREADS_METRIC_NAME, sample.blockedThreadCount));
+    telemetryClient.trackAsync(
+        telemetryClient.newMetricTelemetry(BLOCKED_TIME_METRIC_NAME, sample.blockedTimeMillis));
+
+    if (sample.hasSuspiciousLocks()) {
+      long now = System.nanoTime();
+      if (!messageSent || now - lastMessageNanos >= MIN_MESSAGE_INTERVAL_NANOS) {
+        messageSent = true;
+        lastMessageNanos = now;
+        sendDetailedMessage(telemetryClient, sample);
+      }
+    }
+  }
+
+  private void sendDetailedMessage(
+      TelemetryClient telemetryClient, ThreadContentionSampler.Sample sample) {
+
+    MessageTelemetryBuilder telemetryBuilder = telemetryClient.newMessageTelemetryBuilder();
+
+    StringBuilder sb = new StringBuilder("Suspected thread contention: ");
+    for (ThreadContentionSampler.ContendedLock lock : sample.topLocks) {
+      sb.append("\n")
+          .append(lock.lockName)
+          .append(" blocks ")
+          .append(lock.blockedThreadCount)
+          .append(" thread(s)");
+      if (lock.convoy) {
+        sb.append(" (convoy)");
+      }
+      if (lock.longHeld) {
+        sb.append(" (held for at least ")
+            .append(NANOSECONDS.toSeconds(lock.heldNanos))
+            .append(" seconds)");
+      }
+      if (lock.ownerId == -1) {
+        continue;
+      }
+      // only capturing stack traces for the owners keeps the cost independent of the number of
+      // blocked threads
+      ThreadInfo ownerInfo = threadBean.getThreadInfo(lock.ownerId, maxStackDepth);
+      if (ownerInfo != null) {
+        DeadLockDetectorPerformanceCounter.appendThreadInfoAndStack(sb, ownerInfo);
+      }
+    }
+    telemetryBuilder.setMessage(sb.toString());
+    telemetryBuilder.setTime(FormattedTime.offSetDateTimeFromNow());
+    telemetryClient.trackAsync(telemetryBuilder.build());
+  }
+}
@@ -0,0 +1,211 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Samples thread blocked times using the JVM thread contention monitoring and aggregates them per
+ * monitor.
+ *
+ * <p>Thread infos are requested without stack traces, so a sample costs roughly one {@link
+ * ThreadInfo} per live thread. When there are more live threads than {@code maxSampledThreads},
+ * the following samples are skipped proportionally so that the average cost stays bounded.
+ *
+ * <p>This class is not thread safe, it is only called from the performance counter thread.
+ */
+class ThreadContentionSampler {
+
+  private final ThreadMXBean threadBean;
+  private final int convoyThreadCount;
+  private final long longHeldThresholdNanos;
+  private final int maxReportedLocks;
+  private final int maxSampledThreads;
+  private final LongSupplier nanoTime;
+
+  // blocked time (in millis) per thread id as of the previous sample
+  private Map<Long, Long> previousBlockedTimes = new HashMap<>();
+  // owner per contended monitor as of the previous sample, used to detect long-held monitors
+  private Map<String, Holder> previousHolders = new HashMap<>();
+
+  private int samplesToSkip;
+
+  ThreadContentionSampler(
+      ThreadMXBean threadBean,
+      int convoyThreadCount,
+      long longHeldThresholdNanos,
+      int maxReportedLocks,
+      int maxSampledThreads,
+      LongSupplier nanoTime) {
+    this.threadBean = threadBean;
+    this.convoyThreadCount = convoyThreadCount;
+    this.longHeldThresholdNanos = longHeldThresholdNanos;
+    this.maxReportedLocks = maxReportedLocks;
+    this.maxSampledThreads = Math.max(1, maxSampledThreads);
+    this.nanoTime = nanoTime;
+  }
+
+  /** Returns {@code null} when this sample was skipped because of back-off. */
+  @Nullable
+  Sample sample() {
+    if (samplesToSkip > 0) {
+      samplesToSkip--;
+      return null;
+    }
+    long startNanos = nanoTime.getAsLong();
+
+    long[] threadIds = threadBean.getAllThreadIds();
+    ThreadInfo[] threadInfos = threadBean.getThreadInfo(threadIds, 0);
+
+    Map<Long, Long> blockedTimes = new HashMap<>(threadInfos.length * 2);
+    Map<String, ContendedLock> locks = new HashMap<>();
+    int blockedThreadCount = 0;
+    long blockedTimeMillis = 0;
+
+    for (ThreadInfo threadInfo : threadInfos) {
+      if (threadInfo == null) {
+        // thread terminated in the meantime
+        continue;
+      }
+      long threadId = threadInfo.getThreadId();
+      long blockedTime = threadInfo.getBlockedTime();
+      long blockedTimeDelta = 0;
+      if (blockedTime >= 0) {
+        blockedTimes.put(threadId, blockedTime);
+        Long previous = previousBlockedTimes.get(threadId);
+        // threads that were not seen in the previous sample are only accounted from now on
+        if (previous != null) {
+          blockedTimeDelta = Math.max(0, blockedTime - previous);
+        }
+      }
+      blockedTimeMillis += blockedTimeDelta;
+
+      if (threadInfo.getThreadState() != Thread.State.BLOCKED) {
+        continue;
+      }
+      blockedThreadCount++;
+      String lockName = threadInfo.getLockName();
+      if (lockName == null) {
+        continue;
+      }
+      ContendedLock lock = locks.get(lockName);
+      if (lock == null) {
+        lock =
+            new ContendedLock(
+                lockName, threadInfo.getLockOwnerId(), threadInfo.getLockOwnerName());
+        locks.put(lockName, lock);
+      }
+      lock.blockedThreadCount++;
+      lock.blockedTimeMillis += blockedTimeDelta;
+    }
+
+    Map<String, Holder> holders = new HashMap<>(locks.size() * 2);
+    for (ContendedLock lock : locks.values()) {
+      Holder previous = previousHolders.get(lock.lockName);
+      Holder holder;
+      if (previous != null && previous.ownerId == lock.ownerId) {
+        holder = previous;
+      } else {
+        holder = new Holder(lock.ownerId, startNanos);
+      }
+      holders.put(lock.lockName, holder);
+      lock.heldNanos = startNanos - holder.sinceNanos;
+      lock.convoy = lock.blockedThreadCount >= convoyThreadCount;
+      lock.longHeld = lock.ownerId != -1 && lock.heldNanos >= longHeldThresholdNanos;
+    }
+
+    previousBlockedTimes = blockedTimes;
+    previousHolders = holders;
+
+    if (threadIds.length > maxSampledThreads) {
+      samplesToSkip = (threadIds.length - 1) / maxSampledThreads;
+    }
+
+    List<ContendedLock> topLocks = new ArrayList<>(locks.values());
+    topLocks.sort(
+        (a, b) -> {
+          int result = Integer.compare(b.blockedThreadCount, a.blockedThreadCount);
+          return result != 0 ? result : Long.compare(b.blockedTimeMillis, a.blockedTimeMillis);
+        });
+    if (topLocks.size() > maxReportedLocks) {
+      topLocks = new ArrayList<>(topLocks.subList(0, maxReportedLocks));
+    }
+
+    return new Sample(
+        threadIds.length,
+        blockedThreadCount,
+        blockedTimeMillis,
+        topLocks,
+        nanoTime.getAsLong() - startNanos);
+  }
+
+  int getSamplesToSkip() {
+    return samplesToSkip;
+  }
+
+  private static class Holder {
+    private final long ownerId;
+    private final long sinceNanos;
+
+    private Holder(long ownerId, long sinceNanos) {
+      this.ownerId = ownerId;
+      this.sinceNanos = sinceNanos;
+    }
+  }
+
+  static class Sample {
+    final int threadCount;
+    final int blockedThreadCount;
+    // sum of the time all threads spent blocked since the previous sample
+    final long blockedTimeMillis;
+    final List<ContendedLock> topLocks;
+    final long durationNanos;
+
+    Sample(
+        int threadCount,
+        int blockedThreadCount,
+        long blockedTimeMillis,
+        List<ContendedLock> topLocks,
+        long durationNanos) {
+      this.threadCount = threadCount;
+      this.blockedThreadCount = blockedThreadCount;
+      this.blockedTimeMillis = blockedTimeMillis;
+      this.topLocks = topLocks;
+      this.durationNanos = durationNanos;
+    }
+
+    boolean hasSuspiciousLocks() {
+      for (ContendedLock lock : topLocks) {
+        if (lock.convoy || lock.longHeld) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  static class ContendedLock {
+    final String lockName;
+    final long ownerId;
+    @Nullable final String ownerName;
+    int blockedThreadCount;
+    long blockedTimeMillis;
+    long heldNanos;
+    boolean convoy;
+    boolean longHeld;
+
+    ContendedLock(String lockName, long ownerId, @Nullable String ownerName) {
+      this.lockName = lockName;
+      this.ownerId = ownerId;
+      this.ownerName = ownerName;
+    }
+  }
+}
@@ -6,14 +6,15 @@ package com.microsoft.applicationinsights.agent.internal.processors;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.MatchType;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorAttribute;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorIncludeExclude;
+import com.microsoft.applicationinsights.agent.internal.configuration.PrefilteredPattern;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 public abstract class AgentProcessor {
@@ -103,11 +104,13 @@ public abstract class AgentProcessor {
   public static class RegexpIncludeExclude extends IncludeExclude {
 
     // pattern to match against span names or log bodies
-    private final List<Pattern> patterns;
-    private final Map<AttributeKey<?>, Pattern> attributeValuePatterns;
+    // (a single combined pattern, unless the patterns can't be combined)
+    private final List<PrefilteredPattern> patterns;
+    private final Map<AttributeKey<?>, PrefilteredPattern> attributeValuePatterns;
 
     private RegexpIncludeExclude(
-        List<Pattern> patterns, Map<AttributeKey<?>, Pattern> attributeValuePatterns) {
+        List<PrefilteredPattern> patterns,
+        Map<AttributeKey<?>, PrefilteredPattern> attributeValuePatterns) {
       this.patterns = patterns;
       this.attributeValuePatterns = attributeValuePatterns;
     }
@@ -115,42 +118,33 @@ public abstract class AgentProcessor {
     public static RegexpIncludeExclude create(
         ProcessorIncludeExclude includeExclude, boolean isLog) {
       List<ProcessorAttribute> attributes = includeExclude.attributes;
-      Map<AttributeKey<?>, Pattern> attributeKeyValuePatterns = new HashMap<>();
+      Map<AttributeKey<?>, PrefilteredPattern> attributeKeyValuePatterns = new HashMap<>();
       if (attributes != null) {
         for (ProcessorAttribute attribute : attributes) {
           if (attribute.value != null) {
             attributeKeyValuePatterns.put(
-                attribute.getAttributeKey(), Pattern.compile(String.valueOf(attribute.value)));
+                attribute.getAttributeKey(),
+                PrefilteredPattern.compile(String.valueOf(attribute.value)));
           }
         }
       }
 
-      List<Pattern> patterns = new ArrayList<>();
-      if (isLog) {
-        if (includeExclude.logBodies != null) {
-          for (String regex : includeExclude.logBodies) {
-            patterns.add(Pattern.compile(regex));
-          }
-        }
-      } else {
-        if (includeExclude.spanNames != null) {
-          for (String regex : includeExclude.spanNames) {
-            patterns.add(Pattern.compile(regex));
-          }
-        }
-      }
+      List<String> regexes = isLog ? includeExclude.logBodies : includeExclude.spanNames;
+      List<PrefilteredPattern> patterns =
+          regexes != null ? PrefilteredPattern.anyOf(regexes) : Collections.emptyList();
 
       return new RegexpIncludeExclude(patterns, attributeKeyValuePatterns);
     }
 
     // Function to compare span attribute value with user provided value
-    private static boolean isAttributeValueMatch(String attributeValue, Pattern valuePattern) {
-      return valuePattern.matcher(attributeValue).find();
+    private static boolean isAttributeValueMatch(
+        String attributeValue, PrefilteredPattern valuePattern) {
+      return valuePattern.find(attributeValue);
     }
 
-    private static boolean isPatternFound(String name, List<Pattern> patterns) {
-      for (Pattern pattern : patterns) {
-        if (pattern.matcher(name).find()) {
+    private static boolean isPatternFound(String name, List<PrefilteredPattern> patterns) {
+      for (PrefilteredPattern pattern : patterns) {
+        if (pattern.find(name)) {
           // pattern matches the span!!!
           return true;
         }
@@ -171,7 +165,8 @@ public abstract class AgentProcessor {
 
     // Function to compare span with user provided attributes list
     private boolean checkAttributes(Attributes attributes) {
-      for (Entry<AttributeKey<?>, Pattern> attributeEntry : attributeValuePatterns.entrySet()) {
+      for (Entry<AttributeKey<?>, PrefilteredPattern> attributeEntry :
+          attributeValuePatterns.entrySet()) {
         // All of these attributes must match exactly for a match to occur.
 
         Object existingAttributeValue = attributes.get(attributeEntry.getKey());
@@ -4,6 +4,7 @@
 package com.microsoft.applicationinsights.agent.internal.processors;
 
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.SpanDataMapper;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.MaskAttribute;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorAction;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
 import io.opentelemetry.api.common.AttributeKey;
@@ -21,22 +22,30 @@ import org.apache.commons.codec.digest.DigestUtils;
 public class AttributeProcessor extends AgentProcessor {
 
   private final List<ProcessorAction> actions;
+  @Nullable private final AttributeValueMemo memo;
 
   private AttributeProcessor(
       List<ProcessorAction> actions,
       @Nullable IncludeExclude include,
-      @Nullable IncludeExclude exclude) {
+      @Nullable IncludeExclude exclude,
+      @Nullable AttributeValueMemo memo) {
     super(include, exclude);
     this.actions = actions;
+    this.memo = memo;
   }
 
   // Creates a Span Processor object
   public static AttributeProcessor create(ProcessorConfig config, boolean isLog) {
+    return create(config, isLog, null);
+  }
+
+  public static AttributeProcessor create(
+      ProcessorConfig config, boolean isLog, @Nullable AttributeValueMemo memo) {
     IncludeExclude normalizedInclude =
         config.include != null ? getNormalizedIncludeExclude(config.include, isLog) : null;
     IncludeExclude normalizedExclude =
         config.exclude != null ? getNormalizedIncludeExclude(config.exclude, isLog) : null;
-    return new AttributeProcessor(config.actions, normalizedInclude, normalizedExclude);
+    return new AttributeProcessor(config.actions, normalizedInclude, normalizedExclude, memo);
   }
 
   // Process actions on SpanData
@@ -59,7 +68,7 @@ public class AttributeProcessor extends AgentProcessor {
     return result;
   }
 
-  private static Attributes processAction(Attributes attributes, ProcessorAction actionObj) {
+  private Attributes processAction(Attributes attributes, ProcessorAction actionObj) {
     switch (actionObj.action) {
       case INSERT:
         return processInsertAction(attributes, actionObj);
@@ -68,11 +77,11 @@ public class AttributeProcessor extends AgentProcessor {
       case DELETE:
         return processDeleteAction(attributes, actionObj);
       case HASH:
-        return processHashAction(attributes, actionObj);
+        return processHashAction(attributes, actionObj, memo);
       case EXTRACT:
         return processExtractAction(attributes, actionObj);
       case MASK:
-        return processMaskAction(attributes, actionObj);
+        return processMaskAction(attributes, actionObj, memo);
     }
     return attributes;
   }
@@ -165,7 +174,8 @@ public class AttributeProcessor extends AgentProcessor {
     return builder.build();
   }
 
-  private static Attributes processHashAction(Attributes attributes, ProcessorAction actionObj) {
+  private static Attributes processHashAction(
+      Attributes attributes, ProcessorAction actionObj, @Nullable AttributeValueMemo memo) {
     Attributes existingAttributes = attributes;
 
     // Currently we only support String
@@ -184,7 +194,11 @@ public class AttributeProcessor extends AgentProcessor {
     }
 
     AttributesBuilder builderCopy = existingAttributes.toBuilder();
-    builderCopy.put(attributeKey, DigestUtils.sha256Hex(existingValue));
+    builderCopy.put(
+        attributeKey,
+        memo != null
+            ? memo.hash(existingValue, DigestUtils::sha256Hex)
+            : DigestUtils.sha256Hex(existingValue));
     return builderCopy.build();
   }
 
@@ -203,6 +217,9 @@ public class AttributeProcessor extends AgentProcessor {
     if (existingValue == null) {
       return existingAttributes;
     }
+    if (!actionObj.extractAttribute.pattern.mayMatch(existingValue)) {
+      return existingAttributes;
+    }
     Matcher matcher = actionObj.extractAttribute.pattern.matcher(existingValue);
     if (!matcher.matches()) {
       return existingAttributes;
@@ -215,7 +232,8 @@ public class AttributeProcessor extends AgentProcessor {
     return builder.build();
   }
 
-  private static Attributes processMaskAction(Attributes attributes, ProcessorAction actionObj) {
+  private static Attributes processMaskAction(
+      Attributes attributes, ProcessorAction actionObj, @Nullable AttributeValueMemo memo) {
     Attributes existingAttributes = attributes;
 
     // Currently we only support String
@@ -233,8 +251,14 @@ public class AttributeProcessor extends AgentProcessor {
       return existingAttributes;
     }
 
-    Matcher matcher = actionObj.maskAttribute.pattern.matcher(existingValue);
-    String newValue = matcher.replaceAll(actionObj.maskAttribute.replace);
+    if (!actionObj.maskAttribute.pattern.mayMatch(existingValue)) {
+      return existingAttributes;
+    }
+    MaskAttribute maskAttribute = actionObj.maskAttribute;
+    String newValue =
+        memo != null
+            ? memo.get(maskAttribute, existingValue, value -> mask(maskAttribute, value))
+            : mask(maskAttribute, existingValue);
     if (newValue.equals(existingValue)) {
       return existingAttributes;
     }
@@ -244,6 +268,10 @@ public class AttributeProcessor extends AgentProcessor {
     return builder.build();
   }
 
+  private static String mask(MaskAttribute maskAttribute, String value) {
+    return maskAttribute.pattern.matcher(value).replaceAll(maskAttribute.replace);
+  }
+
   // support backward compatibility for http.url
   private static HttpUrlKeyValuePair processHttpUrl(Attributes attributes) {
     String urlFull = attributes.get(AttributeKey.stringKey("url.full"));
@@ -0,0 +1,141 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import com.microsoft.applicationinsights.agent.internal.perfcounter.PerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Remembers the results of the HASH and MASK attribute processor actions.
+ *
+ * <p>The values these actions are applied to (user emails, tenant ids, SQL statements) repeat
+ * heavily, so this avoids computing the same SHA-256 or running the same regex replacement over and
+ * over on the export thread. It is an LRU bounded by the (estimated) memory of its keys and values.
+ */
+public final class AttributeValueMemo implements PerformanceCounter {
+
+  static final String HIT_RATIO_METRIC_NAME = "Attribute Processor Memo Hit Ratio";
+  static final String LOOKUPS_METRIC_NAME = "Attribute Processor Memo Lookups";
+
+  // the result of HASH only depends on the value, so it's shared by all HASH actions
+  private static final Object HASH = new Object();
+
+  // rough size of an entry without the two strings (key object, map node, string headers)
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+  private final long maxBytes;
+  // values larger than this are not remembered, so that a few huge values can't evict everything
+  private final long maxEntryBytes;
+
+  // guarded by itself
+  private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+  // guarded by entries
+  private long bytes;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public AttributeValueMemo(long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.maxEntryBytes = maxBytes / 16;
+  }
+
+  String hash(String value, Function<String, String> hashFunction) {
+    return get(HASH, value, hashFunction);
+  }
+
+  // action identifies the transformation, results are only shared between lookups with the same
+  // action
+  String get(Object action, String value, Function<String, String> function) {
+    Key key = new Key(action, value);
+    synchronized (entries) {
+      String result = entries.get(key);
+      if (result != null) {
+        hits.increment();
+        return result;
+      }
+    }
+    misses.increment();
+    // computing outside of the lock, another thread may compute the same value concurrently, but
+    // that's harmless
+    String result = function.apply(value);
+    long entryBytes = sizeOf(value, result);
+    if (entryBytes > maxEntryBytes) {
+      return result;
+    }
+    synchronized (entries) {
+      if (entries.put(key, result) == null) {
+        bytes += entryBytes;
+      }
+      Iterator<Map.Entry<Key, String>> i = entries.entrySet().iterator();
+      while (bytes > maxBytes && i.hasNext()) {
+        Map.Entry<Key, String> eldest = i.next();
+        bytes -= sizeOf(eldest.getKey().value, eldest.getValue());
+        i.remove();
+      }
+    }
+    return result;
+  }
+
+  // visible for testing
+  long getBytes() {
+    synchronized (entries) {
+      return bytes;
+    }
+  }
+
+  private static long sizeOf(String value, String result) {
+    // MASK often leaves the value unchanged, in which case the result is the same string
+    long resultBytes = result.equals(value) ? 0 : 2L * result.length();
+    return ENTRY_OVERHEAD_BYTES + 2L * value.length() + resultBytes;
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    long hitCount = hits.sumThenReset();
+    long lookupCount = hitCount + misses.sumThenReset();
+    if (lookupCount == 0) {
+      return;
+    }
+    telemetryClient.trackAsync(
+        telemetryClient.newMetricTelemetry(HIT_RATIO_METRIC_NAME, 100.0 * hitCount / lookupCount));
+    telemetryClient.trackAsync(
+        telemetryClient.newMetricTelemetry(LOOKUPS_METRIC_NAME, lookupCount));
+  }
+
+  private static final class Key {
+
+    private final Object action;
+    private final String value;
+    private final int hashCode;
+
+    private Key(Object action, String value) {
+      this.action = action;
+      this.value = value;
+      this.hashCode = 31 * System.identityHashCode(action) + value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return action == other.action && value.equals(other.value);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -5,6 +5,8 @@ package com.microsoft.applicationinsights.agent.internal.processors;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
 import com.microsoft.applicationinsights.agent.internal.processors.AgentProcessor.IncludeExclude;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentProcessorJfrEvent;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.logs.data.LogRecordData;
 import io.opentelemetry.sdk.logs.export.LogRecordExporter;
@@ -27,10 +29,14 @@ public class ExporterWithLogProcessor implements LogRecordExporter {
   @Override
   public CompletableResultCode export(Collection<LogRecordData> logs) {
     // we need to filter attributes before passing on to delegate
+    AgentProcessorJfrEvent jfrEvent = AgentJfrEvents.beginProcessor();
     List<LogRecordData> copy = new ArrayList<>();
     for (LogRecordData log : logs) {
       copy.add(process(log));
     }
+    if (jfrEvent != null) {
+      jfrEvent.complete("log", "log", copy.size());
+    }
     return delegate.export(copy);
   }
 
@@ -5,6 +5,8 @@ package com.microsoft.applicationinsights.agent.internal.processors;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
 import com.microsoft.applicationinsights.agent.internal.processors.AgentProcessor.IncludeExclude;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentProcessorJfrEvent;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
@@ -27,10 +29,14 @@ public class ExporterWithSpanProcessor implements SpanExporter {
   @Override
   public CompletableResultCode export(Collection<SpanData> spans) {
     // we need to filter attributes before passing on to delegate
+    AgentProcessorJfrEvent jfrEvent = AgentJfrEvents.beginProcessor();
     List<SpanData> copy = new ArrayList<>();
     for (SpanData span : spans) {
       copy.add(process(span));
     }
+    if (jfrEvent != null) {
+      jfrEvent.complete("span", "span", copy.size());
+    }
     return delegate.export(copy);
   }
 
@@ -4,12 +4,15 @@
 package com.microsoft.applicationinsights.agent.internal.processors;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentProcessorJfrEvent;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.logs.data.LogRecordData;
 import io.opentelemetry.sdk.logs.export.LogRecordExporter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import javax.annotation.Nullable;
 
 public class LogExporterWithAttributeProcessor implements LogRecordExporter {
 
@@ -19,18 +22,29 @@ public class LogExporterWithAttributeProcessor implements LogRecordExporter {
   // caller should check config.isValid before creating
   public LogExporterWithAttributeProcessor(
       Configuration.ProcessorConfig config, LogRecordExporter delegate) {
+    this(config, delegate, null);
+  }
+
+  public LogExporterWithAttributeProcessor(
+      Configuration.ProcessorConfig config,
+      LogRecordExporter delegate,
+      @Nullable AttributeValueMemo memo) {
     config.validate();
-    attributeProcessor = AttributeProcessor.create(config, true);
+    attributeProcessor = AttributeProcessor.create(config, true, memo);
     this.delegate = delegate;
   }
 
   @Override
   public CompletableResultCode export(Collection<LogRecordData> logs) {
     // we need to filter attributes before passing on to delegate
+    AgentProcessorJfrEvent jfrEvent = AgentJfrEvents.beginProcessor();
     List<LogRecordData> copy = new ArrayList<>();
     for (LogRecordData log : logs) {
       copy.add(process(log));
     }
+    if (jfrEvent != null) {
+      jfrEvent.complete("log", "attribute", copy.size());
+    }
     return delegate.export(copy);
   }
 
@@ -0,0 +1,47 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentProcessorJfrEvent;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class LogExporterWithPayloadLimiter implements LogRecordExporter {
+
+  private final LogRecordExporter delegate;
+  private final PayloadLimiter payloadLimiter;
+
+  public LogExporterWithPayloadLimiter(PayloadLimiter payloadLimiter, LogRecordExporter delegate) {
+    this.payloadLimiter = payloadLimiter;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public CompletableResultCode export(Collection<LogRecordData> logs) {
+    AgentProcessorJfrEvent jfrEvent = AgentJfrEvents.beginProcessor();
+    List<LogRecordData> copy = new ArrayList<>(logs.size());
+    for (LogRecordData log : logs) {
+      copy.add(payloadLimiter.apply(log));
+    }
+    if (jfrEvent != null) {
+      jfrEvent.complete("log", "payloadBudget", copy.size());
+    }
+    return delegate.export(copy);
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return delegate.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    return delegate.shutdown();
+  }
+}
@@ -0,0 +1,52 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentProcessorJfrEvent;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class LogExporterWithScopeVolume implements LogRecordExporter {
+
+  private final LogRecordExporter delegate;
+  private final ScopeVolumeTracker tracker;
+
+  public LogExporterWithScopeVolume(ScopeVolumeTracker tracker, LogRecordExporter delegate) {
+    this.tracker = tracker;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public CompletableResultCode export(Collection<LogRecordData> logs) {
+    AgentProcessorJfrEvent jfrEvent = AgentJfrEvents.beginProcessor();
+    List<LogRecordData> copy = new ArrayList<>(logs.size());
+    for (LogRecordData log : logs) {
+      if (tracker.record(log)) {
+        copy.add(log);
+      }
+    }
+    if (jfrEvent != null) {
+      jfrEvent.complete("log", "scopeVolume", copy.size());
+    }
+    if (copy.isEmpty()) {
+      return CompletableResultCode.ofSuccess();
+    }
+    return delegate.export(copy);
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return delegate.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    return delegate.shutdown();
+  }
+}
@@ -7,6 +7,7 @@ import static com.microsoft.applicationinsights.agent.internal.processors.Proces
 import static com.microsoft.applicationinsights.agent.internal.processors.ProcessorUtil.getGroupNamesList;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
+import com.microsoft.applicationinsights.agent.internal.configuration.PrefilteredPattern;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.common.AttributesBuilder;
@@ -14,12 +15,11 @@ import io.opentelemetry.sdk.logs.data.Body;
 import io.opentelemetry.sdk.logs.data.LogRecordData;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 public class LogProcessor extends AgentProcessor {
   private final List<AttributeKey<?>> fromAttributes;
-  private final List<Pattern> toAttributeRulePatterns;
+  private final List<PrefilteredPattern> toAttributeRulePatterns;
   private final List<List<String>> groupNames;
   private final String separator;
 
@@ -27,7 +27,7 @@ public class LogProcessor extends AgentProcessor {
       @Nullable IncludeExclude include,
       @Nullable IncludeExclude exclude,
       List<AttributeKey<?>> fromAttributes,
-      List<Pattern> toAttributeRulePatterns,
+      List<PrefilteredPattern> toAttributeRulePatterns,
       List<List<String>> groupNames,
       String separator) {
     super(include, exclude);
@@ -52,10 +52,10 @@ public class LogProcessor extends AgentProcessor {
     if (config.body.toAttributes != null) {
       toAttributeRules.addAll(config.body.toAttributes.rules);
     }
-    List<Pattern> toAttributeRulePatterns = new ArrayList<>();
+    List<PrefilteredPattern> toAttributeRulePatterns = new ArrayList<>();
     if (config.body.toAttributes != null) {
       for (String rule : config.body.toAttributes.rules) {
-        toAttributeRulePatterns.add(Pattern.compile(rule));
+        toAttributeRulePatterns.add(PrefilteredPattern.compile(rule));
       }
     }
     List<List<String>> groupNames = getGroupNamesList(toAttributeRules);
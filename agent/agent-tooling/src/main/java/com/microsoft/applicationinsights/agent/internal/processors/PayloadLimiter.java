@@ -0,0 +1,241 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.AiSemanticAttributes;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.AttributeType;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Limits how much data a single span (including its events) or log record adds to the exported
+ * telemetry, before it is mapped.
+ *
+ * <p>String attribute values are first truncated to the length of the first attribute length limit
+ * whose key pattern matches. Then, if the total length of the attribute keys and values is still
+ * over the budget, the longest string values are all truncated to the same length, so that the
+ * (typically short) attributes which the mapping relies on are left intact. Truncated values end
+ * with {@link #TRUNCATION_MARKER}, and the result only depends on the input.
+ *
+ * <p>Suppressed span events are removed (see {@link SpanEventFilter}), and span events beyond the
+ * maximum are dropped, keeping the earliest ones. Exception events are never dropped or truncated,
+ * and neither are the exception attributes of log records and spans, which are parsed into the
+ * exception telemetry (and fingerprinted by the exception storm suppression) after this.
+ */
+public class PayloadLimiter {
+
+  static final String TRUNCATION_MARKER = "...[truncated]";
+
+  // string values are never truncated below this to fit into the total budget
+  private static final int MIN_TRUNCATED_LENGTH = 64;
+
+  // attribute keys are normally bounded, this only protects against ones that are not
+  private static final int MAX_CACHED_KEYS = 1000;
+
+  private static final String EXCEPTION_EVENT_NAME = "exception";
+  private static final String EXCEPTION_ATTRIBUTE_PREFIX = "exception.";
+
+  private final SpanEventFilter eventFilter;
+  private final int maxEventsPerSpan;
+  private final List<Pattern> keyPatterns = new ArrayList<>();
+  private final int[] maxLengths;
+  private final int maxTotalAttributeLength;
+
+  // attribute key to max length of its value
+  private final Map<String, Integer> maxLengthCache = new ConcurrentHashMap<>();
+
+  public PayloadLimiter(Configuration.PayloadBudget budget, SpanEventFilter eventFilter) {
+    this.eventFilter = eventFilter;
+    maxEventsPerSpan = budget.maxEventsPerSpan;
+    maxLengths = new int[budget.attributeLengthLimits.size()];
+    for (int i = 0; i < maxLengths.length; i++) {
+      Configuration.AttributeLengthLimit lengthLimit = budget.attributeLengthLimits.get(i);
+      keyPatterns.add(Pattern.compile(lengthLimit.keyPattern));
+      maxLengths[i] = lengthLimit.maxLength;
+    }
+    maxTotalAttributeLength = budget.maxTotalAttributeLength;
+  }
+
+  public SpanData apply(SpanData span) {
+    Attributes attributes = limit(span.getAttributes());
+    List<EventData> events = limitEvents(span);
+    if (attributes == span.getAttributes() && events == span.getEvents()) {
+      return span;
+    }
+    return new LimitedSpanData(span, attributes, events);
+  }
+
+  public LogRecordData apply(LogRecordData log) {
+    Attributes attributes = limit(log.getAttributes());
+    if (attributes == log.getAttributes()) {
+      return log;
+    }
+    return new MyLogData(log, attributes);
+  }
+
+  private List<EventData> limitEvents(SpanData span) {
+    List<EventData> events = span.getEvents();
+    if (events.isEmpty()) {
+      return events;
+    }
+    String instrumentationName = span.getInstrumentationScopeInfo().getName();
+    List<EventData> limited = new ArrayList<>(Math.min(events.size(), maxEventsPerSpan));
+    boolean changed = false;
+    int count = 0;
+    for (EventData event : events) {
+      if (event.getName().equals(EXCEPTION_EVENT_NAME)) {
+        limited.add(event);
+        continue;
+      }
+      if (eventFilter.isSuppressed(instrumentationName, event.getName())
+          || count >= maxEventsPerSpan) {
+        changed = true;
+        continue;
+      }
+      count++;
+      Attributes attributes = limit(event.getAttributes());
+      if (attributes != event.getAttributes()) {
+        event =
+            EventData.create(
+                event.getEpochNanos(),
+                event.getName(),
+                attributes,
+                event.getTotalAttributeCount());
+        changed = true;
+      }
+      limited.add(event);
+    }
+    return changed ? limited : events;
+  }
+
+  // returns the same instance if nothing had to be truncated
+  Attributes limit(Attributes attributes) {
+    if (attributes.isEmpty()) {
+      return attributes;
+    }
+    List<AttributeKey<String>> stringKeys = new ArrayList<>();
+    List<String> stringValues = new ArrayList<>();
+    boolean changed = false;
+    long fixedLength = 0;
+    long stringLength = 0;
+    for (Map.Entry<AttributeKey<?>, Object> entry : attributes.asMap().entrySet()) {
+      AttributeKey<?> key = entry.getKey();
+      if (isExempt(key.getKey())) {
+        // neither truncated nor counted towards the total budget
+        continue;
+      }
+      fixedLength += key.getKey().length();
+      if (key.getType() != AttributeType.STRING) {
+        fixedLength += String.valueOf(entry.getValue()).length();
+        continue;
+      }
+      String value = (String) entry.getValue();
+      int maxLength = getMaxLength(key.getKey());
+      if (value.length() > maxLength) {
+        value = truncate(value, maxLength);
+        changed = true;
+      }
+      @SuppressWarnings("unchecked")
+      AttributeKey<String> stringKey = (AttributeKey<String>) key;
+      stringKeys.add(stringKey);
+      stringValues.add(value);
+      stringLength += value.length();
+    }
+
+    if (fixedLength + stringLength > maxTotalAttributeLength) {
+      int maxLength = getCommonMaxLength(stringValues, maxTotalAttributeLength - fixedLength);
+      for (int i = 0; i < stringValues.size(); i++) {
+        String value = stringValues.get(i);
+        if (value.length() > maxLength) {
+          stringValues.set(i, truncate(value, maxLength));
+          changed = true;
+        }
+      }
+    }
+    if (!changed) {
+      return attributes;
+    }
+    AttributesBuilder builder = attributes.toBuilder();
+    for (int i = 0; i < stringKeys.size(); i++) {
+      builder.put(stringKeys.get(i), stringValues.get(i));
+    }
+    return builder.build();
+  }
+
+  private static boolean isExempt(String key) {
+    return key.startsWith(EXCEPTION_ATTRIBUTE_PREFIX)
+        || key.equals(AiSemanticAttributes.LOGGED_EXCEPTION.getKey());
+  }
+
+  private int getMaxLength(String key) {
+    Integer maxLength = maxLengthCache.get(key);
+    if (maxLength == null) {
+      maxLength = Integer.MAX_VALUE;
+      for (int i = 0; i < maxLengths.length; i++) {
+        if (keyPatterns.get(i).matcher(key).matches()) {
+          maxLength = maxLengths[i];
+          break;
+        }
+      }
+      if (maxLengthCache.size() >= MAX_CACHED_KEYS) {
+        maxLengthCache.clear();
+      }
+      maxLengthCache.put(key, maxLength);
+    }
+    return maxLength;
+  }
+
+  // the largest length which values can be truncated to so that their total fits in the budget
+  static int getCommonMaxLength(List<String> values, long budget) {
+    int[] lengths = new int[values.size()];
+    for (int i = 0; i < lengths.length; i++) {
+      lengths[i] = values.get(i).length();
+    }
+    Arrays.sort(lengths);
+    long remaining = budget;
+    for (int i = 0; i < lengths.length; i++) {
+      int valuesLeft = lengths.length - i;
+      if ((long) lengths[i] * valuesLeft > remaining) {
+        return (int) Math.max(MIN_TRUNCATED_LENGTH, remaining / valuesLeft);
+      }
+      remaining -= lengths[i];
+    }
+    return Integer.MAX_VALUE;
+  }
+
+  static String truncate(String value, int maxLength) {
+    int end = maxLength - TRUNCATION_MARKER.length();
+    if (Character.isHighSurrogate(value.charAt(end - 1))) {
+      // don't split a surrogate pair
+      end--;
+    }
+    return value.substring(0, end) + TRUNCATION_MARKER;
+  }
+
+  private static class LimitedSpanData extends MySpanData {
+
+    private final List<EventData> events;
+
+    private LimitedSpanData(SpanData delegate, Attributes attributes, List<EventData> events) {
+      super(delegate, attributes);
+      this.events = events;
+    }
+
+    @Override
+    public List<EventData> getEvents() {
+      return events;
+    }
+  }
+}
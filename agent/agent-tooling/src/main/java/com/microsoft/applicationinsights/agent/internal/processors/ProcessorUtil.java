@@ -4,6 +4,7 @@
 package com.microsoft.applicationinsights.agent.internal.processors;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Patterns;
+import com.microsoft.applicationinsights.agent.internal.configuration.PrefilteredPattern;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.common.AttributesBuilder;
@@ -11,7 +12,6 @@ import io.opentelemetry.sdk.trace.data.SpanData;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class ProcessorUtil {
 
@@ -19,10 +19,10 @@ public class ProcessorUtil {
   // extracted attributes.
   public static String applyRule(
       List<String> groupNamesList,
-      Pattern pattern,
+      PrefilteredPattern pattern,
       String name,
       AttributesBuilder attributesBuilder) {
-    if (groupNamesList.isEmpty()) {
+    if (groupNamesList.isEmpty() || !pattern.mayMatch(name)) {
       return name;
     }
     Matcher matcher = pattern.matcher(name);
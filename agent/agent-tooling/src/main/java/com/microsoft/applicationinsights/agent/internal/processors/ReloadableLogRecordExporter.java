@@ -0,0 +1,52 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import java.util.Collection;
+
+/**
+ * Sends log records through a chain of telemetry processors that can be replaced while the
+ * application is running.
+ *
+ * <p>Each batch goes through either the previous or the new chain as a whole, since the chain is
+ * read once per export.
+ */
+public class ReloadableLogRecordExporter implements LogRecordExporter {
+
+  // the exporter at the end of the chain, i.e. without any processors
+  private final LogRecordExporter exporter;
+  private volatile LogRecordExporter processorChain;
+
+  public ReloadableLogRecordExporter(LogRecordExporter exporter, LogRecordExporter processorChain) {
+    this.exporter = exporter;
+    this.processorChain = processorChain;
+  }
+
+  public LogRecordExporter getExporter() {
+    return exporter;
+  }
+
+  // the chain needs to end with the exporter returned by getExporter()
+  public void setProcessorChain(LogRecordExporter processorChain) {
+    this.processorChain = processorChain;
+  }
+
+  @Override
+  public CompletableResultCode export(Collection<LogRecordData> logs) {
+    return processorChain.export(logs);
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return processorChain.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    return processorChain.shutdown();
+  }
+}
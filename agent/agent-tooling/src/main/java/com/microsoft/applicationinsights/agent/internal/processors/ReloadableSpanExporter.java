@@ -0,0 +1,52 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.Collection;
+
+/**
+ * Sends spans through a chain of telemetry processors that can be replaced while the application
+ * is running.
+ *
+ * <p>Each batch goes through either the previous or the new chain as a whole, since the chain is
+ * read once per export.
+ */
+public class ReloadableSpanExporter implements SpanExporter {
+
+  // the exporter at the end of the chain, i.e. without any processors
+  private final SpanExporter exporter;
+  private volatile SpanExporter processorChain;
+
+  public ReloadableSpanExporter(SpanExporter exporter, SpanExporter processorChain) {
+    this.exporter = exporter;
+    this.processorChain = processorChain;
+  }
+
+  public SpanExporter getExporter() {
+    return exporter;
+  }
+
+  // the chain needs to end with the exporter returned by getExporter()
+  public void setProcessorChain(SpanExporter processorChain) {
+    this.processorChain = processorChain;
+  }
+
+  @Override
+  public CompletableResultCode export(Collection<SpanData> spans) {
+    return processorChain.export(spans);
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return processorChain.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    return processorChain.shutdown();
+  }
+}
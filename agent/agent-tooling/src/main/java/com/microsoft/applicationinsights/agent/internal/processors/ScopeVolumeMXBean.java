@@ -0,0 +1,23 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import java.util.Map;
+
+// This class name must end in MXBean (case sensitive)
+@SuppressWarnings({"checkstyle:AbbreviationAsWordInName", "IdentifierName"})
+public interface ScopeVolumeMXBean {
+
+  // Attributes, keyed by "<telemetry type> <instrumentation scope>", totals since startup
+  Map<String, Long> getItemCounts();
+
+  Map<String, Long> getEstimatedBytes();
+
+  Map<String, Long> getDroppedItemCounts();
+
+  // Operations
+  // - no operations currently implemented
+  // Notifications
+  // - no notifications currently implemented
+}
@@ -0,0 +1,359 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.PerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+import javax.annotation.Nullable;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the spans and log records, and their estimated serialized size, per instrumentation scope
+ * and telemetry type, and drops the items from a scope which are over its quota.
+ *
+ * <p>The totals since startup are exposed over JMX, and the busiest scopes over the last summary
+ * interval are logged. Quotas are checked before anything else is done with an item, so that the
+ * dropped items cost next to nothing, and they allow bursts of up to one second worth of items.
+ */
+public final class ScopeVolumeTracker implements PerformanceCounter, ScopeVolumeMXBean {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScopeVolumeTracker.class);
+
+  static final String DROPPED_METRIC_NAME = "Instrumentation Scope Quota Dropped Items";
+
+  private static final String JMX_NAME = "com.microsoft:type=AI-scope-volume";
+
+  // the same telemetry types as the mapping produces
+  static final String REQUEST = "Request";
+  static final String DEPENDENCY = "RemoteDependency";
+  static final String MESSAGE = "Message";
+  static final String EXCEPTION = "Exception";
+
+  // rough size of an envelope without the attributes (tags, timestamps, ids, etc)
+  private static final int ENVELOPE_OVERHEAD_BYTES = 500;
+  // rough size of the telemetry produced for each span event without its attributes
+  private static final int EVENT_OVERHEAD_BYTES = 300;
+
+  // instrumentation scopes are normally bounded, this only protects against ones that are not
+  private static final int MAX_TRACKED_SCOPES = 1000;
+  private static final String OTHER_SCOPES = "(other)";
+
+  private static final AttributeKey<String> EXCEPTION_TYPE =
+      AttributeKey.stringKey("exception.type");
+
+  private final LongSupplier nanoTime;
+  private final long summaryIntervalNanos;
+  private final int summaryTopCount;
+
+  // instrumentation scope name to its quota
+  private final Map<String, Quota> quotas = new HashMap<>();
+
+  // telemetry type + instrumentation scope name to its counters
+  private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+  private final LongAdder droppedSinceReport = new LongAdder();
+
+  // guarded by this
+  private long lastSummaryNanos;
+
+  public static ScopeVolumeTracker create(Configuration.ScopeVolume scopeVolume) {
+    ScopeVolumeTracker tracker = new ScopeVolumeTracker(scopeVolume, System::nanoTime);
+    tracker.registerMbean();
+    return tracker;
+  }
+
+  // visible for testing
+  ScopeVolumeTracker(Configuration.ScopeVolume scopeVolume, LongSupplier nanoTime) {
+    this.nanoTime = nanoTime;
+    summaryIntervalNanos = TimeUnit.SECONDS.toNanos(scopeVolume.summaryIntervalSeconds);
+    summaryTopCount = scopeVolume.summaryTopCount;
+    long now = nanoTime.getAsLong();
+    for (Configuration.ScopeQuota quota : scopeVolume.quotas) {
+      // the first quota for a scope wins
+      quotas.putIfAbsent(quota.instrumentationScope, new Quota(quota.maxItemsPerSecond, now));
+    }
+    lastSummaryNanos = now;
+  }
+
+  private void registerMbean() {
+    try {
+      ObjectName objectName = new ObjectName(JMX_NAME);
+
+      try {
+        MBeanInfo existing = ManagementFactory.getPlatformMBeanServer().getMBeanInfo(objectName);
+        if (existing != null) {
+          ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+      } catch (Exception e) {
+        // Expected if mbean does not exist
+      }
+
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+
+    } catch (Exception e) {
+      logger.error("Failed to register MBEAN", e);
+    }
+  }
+
+  // returns false if the span is over the quota of its instrumentation scope
+  public boolean record(SpanData span) {
+    String scope = span.getInstrumentationScopeInfo().getName();
+    Counters scopeCounters = getCounters(getTelemetryType(span), scope);
+    if (!tryAcquire(scope)) {
+      scopeCounters.dropped.increment();
+      droppedSinceReport.increment();
+      return false;
+    }
+    scopeCounters.items.increment();
+    scopeCounters.bytes.add(estimateBytes(span));
+    return true;
+  }
+
+  // returns false if the log record is over the quota of its instrumentation scope
+  public boolean record(LogRecordData log) {
+    String scope = log.getInstrumentationScopeInfo().getName();
+    Attributes attributes = log.getAttributes();
+    String telemetryType = attributes.get(EXCEPTION_TYPE) != null ? EXCEPTION : MESSAGE;
+    Counters scopeCounters = getCounters(telemetryType, scope);
+    if (!tryAcquire(scope)) {
+      scopeCounters.dropped.increment();
+      droppedSinceReport.increment();
+      return false;
+    }
+    scopeCounters.items.increment();
+    scopeCounters.bytes.add(
+        ENVELOPE_OVERHEAD_BYTES + log.getBody().asString().length() + estimateBytes(attributes));
+    return true;
+  }
+
+  private boolean tryAcquire(String scope) {
+    if (quotas.isEmpty()) {
+      return true;
+    }
+    Quota quota = quotas.get(scope);
+    return quota == null || quota.tryAcquire(nanoTime.getAsLong());
+  }
+
+  private Counters getCounters(String telemetryType, String scope) {
+    String key = telemetryType + ' ' + scope;
+    Counters scopeCounters = counters.get(key);
+    if (scopeCounters != null) {
+      return scopeCounters;
+    }
+    if (counters.size() >= MAX_TRACKED_SCOPES) {
+      key = telemetryType + ' ' + OTHER_SCOPES;
+    }
+    return counters.computeIfAbsent(key, k -> new Counters());
+  }
+
+  static String getTelemetryType(SpanData span) {
+    SpanKind kind = span.getKind();
+    if (kind == SpanKind.SERVER
+        || kind == SpanKind.CONSUMER
+        || (kind == SpanKind.INTERNAL && !span.getParentSpanContext().isValid())) {
+      return REQUEST;
+    }
+    return DEPENDENCY;
+  }
+
+  static long estimateBytes(SpanData span) {
+    long bytes = ENVELOPE_OVERHEAD_BYTES + span.getName().length();
+    bytes += estimateBytes(span.getAttributes());
+    // span events are sent as separate telemetry items
+    for (EventData event : span.getEvents()) {
+      bytes += EVENT_OVERHEAD_BYTES + event.getName().length();
+      bytes += estimateBytes(event.getAttributes());
+    }
+    return bytes;
+  }
+
+  private static long estimateBytes(Attributes attributes) {
+    long[] bytes = {0};
+    attributes.forEach(
+        (key, value) -> {
+          // quotes, colon and comma
+          bytes[0] += key.getKey().length() + String.valueOf(value).length() + 6;
+        });
+    return bytes[0];
+  }
+
+  @Override
+  public Map<String, Long> getItemCounts() {
+    return snapshot(c -> c.items.sum());
+  }
+
+  @Override
+  public Map<String, Long> getEstimatedBytes() {
+    return snapshot(c -> c.bytes.sum());
+  }
+
+  @Override
+  public Map<String, Long> getDroppedItemCounts() {
+    return snapshot(c -> c.dropped.sum());
+  }
+
+  private Map<String, Long> snapshot(ToLongFunction<Counters> getter) {
+    Map<String, Long> snapshot = new TreeMap<>();
+    for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+      snapshot.put(entry.getKey(), getter.applyAsLong(entry.getValue()));
+    }
+    return snapshot;
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    long droppedCount = droppedSinceReport.sumThenReset();
+    if (!quotas.isEmpty()) {
+      telemetryClient.trackAsync(
+          telemetryClient.newMetricTelemetry(DROPPED_METRIC_NAME, droppedCount));
+    }
+    String summary = getSummaryIfDue();
+    if (summary != null) {
+      logger.info(summary);
+    }
+  }
+
+  // visible for testing
+  @Nullable
+  synchronized String getSummaryIfDue() {
+    long now = nanoTime.getAsLong();
+    long elapsedNanos = now - lastSummaryNanos;
+    if (elapsedNanos < summaryIntervalNanos) {
+      return null;
+    }
+    lastSummaryNanos = now;
+
+    List<Delta> deltas = new ArrayList<>();
+    for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+      Delta delta = entry.getValue().nextDelta(entry.getKey());
+      if (delta.items > 0 || delta.dropped > 0) {
+        deltas.add(delta);
+      }
+    }
+    if (deltas.isEmpty() || summaryTopCount == 0) {
+      return null;
+    }
+    deltas.sort(
+        Comparator.comparingLong((Delta delta) -> delta.bytes)
+            .thenComparingLong(delta -> delta.dropped)
+            .reversed());
+
+    StringBuilder sb = new StringBuilder();
+    sb.append("Telemetry volume by instrumentation scope over the last ")
+        .append(NANOSECONDS.toSeconds(elapsedNanos))
+        .append(" seconds:");
+    for (int i = 0; i < Math.min(deltas.size(), summaryTopCount); i++) {
+      Delta delta = deltas.get(i);
+      sb.append("\n  ")
+          .append(delta.key)
+          .append(": ")
+          .append(delta.items)
+          .append(" items, ")
+          .append(delta.bytes / 1024)
+          .append(" KB (estimated), ")
+          .append(delta.dropped)
+          .append(" dropped by quota");
+    }
+    if (deltas.size() > summaryTopCount) {
+      sb.append("\n  (").append(deltas.size() - summaryTopCount).append(" more)");
+    }
+    return sb.toString();
+  }
+
+  private static class Counters {
+
+    // totals since startup
+    private final LongAdder items = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // the totals as of the last summary, guarded by the tracker
+    private long summaryItems;
+    private long summaryBytes;
+    private long summaryDropped;
+
+    private Delta nextDelta(String key) {
+      long currentItems = items.sum();
+      long currentBytes = bytes.sum();
+      long currentDropped = dropped.sum();
+      Delta delta =
+          new Delta(
+              key,
+              currentItems - summaryItems,
+              currentBytes - summaryBytes,
+              currentDropped - summaryDropped);
+      summaryItems = currentItems;
+      summaryBytes = currentBytes;
+      summaryDropped = currentDropped;
+      return delta;
+    }
+  }
+
+  private static class Delta {
+
+    private final String key;
+    private final long items;
+    private final long bytes;
+    private final long dropped;
+
+    private Delta(String key, long items, long bytes, long dropped) {
+      this.key = key;
+      this.items = items;
+      this.bytes = bytes;
+      this.dropped = dropped;
+    }
+  }
+
+  // token bucket holding up to one second worth of items
+  private static class Quota {
+
+    private final double itemsPerNano;
+    private final double maxTokens;
+
+    // guarded by this
+    private double tokens;
+    private long lastRefillNanos;
+
+    private Quota(double maxItemsPerSecond, long nowNanos) {
+      itemsPerNano = maxItemsPerSecond / TimeUnit.SECONDS.toNanos(1);
+      maxTokens = Math.max(1, maxItemsPerSecond);
+      tokens = maxTokens;
+      lastRefillNanos = nowNanos;
+    }
+
+    private synchronized boolean tryAcquire(long nowNanos) {
+      tokens = Math.min(maxTokens, tokens + (nowNanos - lastRefillNanos) * itemsPerNano);
+      lastRefillNanos = nowNanos;
+      if (tokens < 1) {
+        return false;
+      }
+      tokens--;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SpanEventRule;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SpanEventRuleAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Decides which span events are suppressed, based on the configured rules followed by the built-in
+ * ones. The first rule that matches both the instrumentation scope and the event name wins, and
+ * events that match no rule are kept.
+ */
+public class SpanEventFilter {
+
+  private static final List<Rule> BUILT_IN_RULES = new ArrayList<>();
+
+  static {
+    // special case as these are noisy and come from the underlying library itself
+    BUILT_IN_RULES.add(new Rule("io.opentelemetry.lettuce-5.1", "redis\\.encode\\..*", true));
+    // OpenTelemetry semantic conventions define semi-noisy grpc events
+    // https://github.com/open-telemetry/opentelemetry-specification/blob/main/specification/trace/semantic_conventions/rpc.md#events
+    //
+    // we want to suppress these (at least by default)
+    BUILT_IN_RULES.add(new Rule("io.opentelemetry.grpc-1.6", "message", true));
+  }
+
+  private final List<Rule> rules;
+
+  public SpanEventFilter(List<SpanEventRule> configuredRules) {
+    rules = new ArrayList<>(configuredRules.size() + BUILT_IN_RULES.size());
+    for (SpanEventRule rule : configuredRules) {
+      rules.add(
+          new Rule(
+              rule.instrumentationScope, rule.eventName, rule.action == SpanEventRuleAction.DENY));
+    }
+    rules.addAll(BUILT_IN_RULES);
+  }
+
+  public boolean isSuppressed(String instrumentationName, String eventName) {
+    for (Rule rule : rules) {
+      if (rule.matches(instrumentationName, eventName)) {
+        return rule.suppress;
+      }
+    }
+    return false;
+  }
+
+  private static class Rule {
+
+    @Nullable private final String instrumentationScope;
+    private final Pattern eventName;
+    private final boolean suppress;
+
+    private Rule(@Nullable String instrumentationScope, String eventName, boolean suppress) {
+      this.instrumentationScope = instrumentationScope;
+      this.eventName = Pattern.compile(eventName);
+      this.suppress = suppress;
+    }
+
+    private boolean matches(String instrumentationName, String eventName) {
+      return (instrumentationScope == null || instrumentationScope.equals(instrumentationName))
+          && this.eventName.matcher(eventName).matches();
+    }
+  }
+}
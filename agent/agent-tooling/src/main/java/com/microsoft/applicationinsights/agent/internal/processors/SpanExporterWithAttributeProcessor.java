@@ -5,12 +5,15 @@ package com.microsoft.applicationinsights.agent.internal.processors;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
 import com.microsoft.applicationinsights.agent.internal.processors.AgentProcessor.IncludeExclude;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentProcessorJfrEvent;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import javax.annotation.Nullable;
 
 public class SpanExporterWithAttributeProcessor implements SpanExporter {
 
@@ -19,18 +22,27 @@ public class SpanExporterWithAttributeProcessor implements SpanExporter {
 
   // caller should check config.isValid before creating
   public SpanExporterWithAttributeProcessor(ProcessorConfig config, SpanExporter delegate) {
+    this(config, delegate, null);
+  }
+
+  public SpanExporterWithAttributeProcessor(
+      ProcessorConfig config, SpanExporter delegate, @Nullable AttributeValueMemo memo) {
     config.validate();
-    attributeProcessor = AttributeProcessor.create(config, false);
+    attributeProcessor = AttributeProcessor.create(config, false, memo);
     this.delegate = delegate;
   }
 
   @Override
   public CompletableResultCode export(Collection<SpanData> spans) {
     // we need to filter attributes before passing on to delegate
+    AgentProcessorJfrEvent jfrEvent = AgentJfrEvents.beginProcessor();
     List<SpanData> copy = new ArrayList<>();
     for (SpanData span : spans) {
       copy.add(process(span));
     }
+    if (jfrEvent != null) {
+      jfrEvent.complete("span", "attribute", copy.size());
+    }
     return delegate.export(copy);
   }
 
@@ -0,0 +1,359 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.ThreadPoolUtils;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.DependencyAggregation;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.DelegatingSpanData;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.StatusData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Collapses repetitive database dependencies (typically N+1 queries issued by an ORM) into a single
+ * aggregated dependency per parent.
+ *
+ * <p>Client spans with a {@code db.system} attribute are grouped by their parent and by their type,
+ * target and normalized statement. The first {@code maxIndividualDependencies} of each group are
+ * exported as usual, and the rest are only counted. The aggregated dependency is a copy of the
+ * first collapsed span, which starts when the first collapsed span started and lasts as long as
+ * the collapsed spans took in total, with the count, total and max duration and failure count
+ * added as attributes. It is exported right before the parent span, since the parent ends after
+ * its (synchronous) children, or on its own once {@code maxPendingNanos} have passed (checked
+ * periodically, so that this also happens when nothing else is exported).
+ */
+public class SpanExporterWithDependencyAggregation implements SpanExporter {
+
+  public static final String COUNT_ATTRIBUTE = "AggregatedCount";
+  public static final String TOTAL_DURATION_ATTRIBUTE = "AggregatedTotalDurationMs";
+  public static final String MAX_DURATION_ATTRIBUTE = "AggregatedMaxDurationMs";
+  public static final String FAILURE_COUNT_ATTRIBUTE = "AggregatedFailureCount";
+
+  private static final AttributeKey<String> DB_SYSTEM = AttributeKey.stringKey("db.system");
+  // the newer semantic conventions first
+  private static final List<AttributeKey<String>> DB_STATEMENT_KEYS =
+      Arrays.asList(
+          AttributeKey.stringKey("db.query.text"), AttributeKey.stringKey("db.statement"));
+  private static final List<AttributeKey<String>> DB_NAME_KEYS =
+      Arrays.asList(AttributeKey.stringKey("db.namespace"), AttributeKey.stringKey("db.name"));
+  private static final List<AttributeKey<String>> SERVER_ADDRESS_KEYS =
+      Arrays.asList(
+          AttributeKey.stringKey("server.address"), AttributeKey.stringKey("net.peer.name"));
+  private static final List<AttributeKey<Long>> SERVER_PORT_KEYS =
+      Arrays.asList(AttributeKey.longKey("server.port"), AttributeKey.longKey("net.peer.port"));
+
+  // statements are normally already sanitized by the instrumentation, this only covers the
+  // literals it leaves (e.g. in redis keys) and varying lengths of parameter lists
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern NUMBER = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+  private static final Pattern PARAMETER_LIST =
+      Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+  private final SpanExporter delegate;
+  private final int maxIndividualDependencies;
+  private final long maxPendingNanos;
+  private final int maxPendingParents;
+  private final LongSupplier nanoTime;
+
+  // trace id + span id of the parent to the dependencies under it, oldest first
+  private final LinkedHashMap<String, Parent> parents = new LinkedHashMap<>();
+
+  public static SpanExporterWithDependencyAggregation create(
+      DependencyAggregation configuration, SpanExporter delegate) {
+    SpanExporterWithDependencyAggregation exporter =
+        new SpanExporterWithDependencyAggregation(
+            configuration.maxIndividualDependencies,
+            SECONDS.toNanos(configuration.maxPendingSeconds),
+            configuration.maxPendingParents,
+            System::nanoTime,
+            delegate);
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(
+            ThreadPoolUtils.createDaemonThreadFactory(SpanExporterWithDependencyAggregation.class));
+    // checking more often than the max pending time so that aggregated spans are not delayed much
+    long periodSeconds = Math.max(1, configuration.maxPendingSeconds / 4);
+    executor.scheduleWithFixedDelay(exporter::exportExpired, periodSeconds, periodSeconds, SECONDS);
+    return exporter;
+  }
+
+  // visible for testing
+  SpanExporterWithDependencyAggregation(
+      int maxIndividualDependencies,
+      long maxPendingNanos,
+      int maxPendingParents,
+      LongSupplier nanoTime,
+      SpanExporter delegate) {
+    this.maxIndividualDependencies = maxIndividualDependencies;
+    this.maxPendingNanos = maxPendingNanos;
+    this.maxPendingParents = maxPendingParents;
+    this.nanoTime = nanoTime;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public CompletableResultCode export(Collection<SpanData> spans) {
+    List<SpanData> copy = new ArrayList<>(spans.size());
+    synchronized (this) {
+      for (SpanData span : spans) {
+        Parent parent =
+            parents.isEmpty() ? null : parents.remove(span.getTraceId() + span.getSpanId());
+        if (parent != null) {
+          parent.addAggregatedSpans(copy);
+        }
+        if (!collapse(span, copy)) {
+          copy.add(span);
+        }
+      }
+      removeExpired(copy);
+    }
+    if (copy.isEmpty()) {
+      return CompletableResultCode.ofSuccess();
+    }
+    return delegate.export(copy);
+  }
+
+  // visible for testing
+  void exportExpired() {
+    List<SpanData> expired = new ArrayList<>();
+    synchronized (this) {
+      removeExpired(expired);
+    }
+    if (!expired.isEmpty()) {
+      delegate.export(expired);
+    }
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    List<SpanData> pending = removeAll();
+    if (pending.isEmpty()) {
+      return delegate.flush();
+    }
+    return CompletableResultCode.ofAll(Arrays.asList(delegate.export(pending), delegate.flush()));
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    List<SpanData> pending = removeAll();
+    if (!pending.isEmpty()) {
+      delegate.export(pending);
+    }
+    return delegate.shutdown();
+  }
+
+  // returns true if the span has been counted towards an aggregated span instead of exported
+  private boolean collapse(SpanData span, List<SpanData> out) {
+    if (span.getKind() != SpanKind.CLIENT || !span.getParentSpanContext().isValid()) {
+      return false;
+    }
+    Attributes attributes = span.getAttributes();
+    String type = attributes.get(DB_SYSTEM);
+    if (type == null) {
+      return false;
+    }
+    String parentKey = span.getTraceId() + span.getParentSpanId();
+    Parent parent = parents.get(parentKey);
+    if (parent == null) {
+      if (parents.size() >= maxPendingParents) {
+        Iterator<Parent> oldest = parents.values().iterator();
+        oldest.next().addAggregatedSpans(out);
+        oldest.remove();
+      }
+      parent = new Parent(nanoTime.getAsLong());
+      parents.put(parentKey, parent);
+    }
+    String groupKey = type + '\n' + getTarget(attributes) + '\n' + getCommand(span);
+    Group group = parent.groups.get(groupKey);
+    if (group == null) {
+      group = new Group();
+      parent.groups.put(groupKey, group);
+    }
+    return group.add(span, maxIndividualDependencies);
+  }
+
+  private void removeExpired(List<SpanData> out) {
+    long now = nanoTime.getAsLong();
+    Iterator<Parent> i = parents.values().iterator();
+    while (i.hasNext()) {
+      Parent parent = i.next();
+      if (now - parent.createdNanos < maxPendingNanos) {
+        // the rest were created later
+        break;
+      }
+      parent.addAggregatedSpans(out);
+      i.remove();
+    }
+  }
+
+  private synchronized List<SpanData> removeAll() {
+    List<SpanData> out = new ArrayList<>();
+    for (Parent parent : parents.values()) {
+      parent.addAggregatedSpans(out);
+    }
+    parents.clear();
+    return out;
+  }
+
+  private static String getTarget(Attributes attributes) {
+    StringBuilder sb = new StringBuilder();
+    String address = getFirst(attributes, SERVER_ADDRESS_KEYS);
+    if (address != null) {
+      sb.append(address);
+    }
+    Long port = getFirst(attributes, SERVER_PORT_KEYS);
+    if (port != null) {
+      sb.append(':').append(port);
+    }
+    String dbName = getFirst(attributes, DB_NAME_KEYS);
+    if (dbName != null) {
+      sb.append('/').append(dbName);
+    }
+    return sb.toString();
+  }
+
+  private static String getCommand(SpanData span) {
+    String statement = getFirst(span.getAttributes(), DB_STATEMENT_KEYS);
+    if (statement == null) {
+      return span.getName();
+    }
+    return normalize(statement);
+  }
+
+  // visible for testing
+  static String normalize(String statement) {
+    String normalized = STRING_LITERAL.matcher(statement).replaceAll("?");
+    normalized = NUMBER.matcher(normalized).replaceAll("?");
+    normalized = WHITESPACE.matcher(normalized).replaceAll(" ");
+    return PARAMETER_LIST.matcher(normalized).replaceAll("(?)").trim();
+  }
+
+  @Nullable
+  private static <T> T getFirst(Attributes attributes, List<AttributeKey<T>> keys) {
+    for (AttributeKey<T> key : keys) {
+      T value = attributes.get(key);
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  private static class Parent {
+
+    private final long createdNanos;
+    // group key to group, in the order the groups were first seen
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+
+    private Parent(long createdNanos) {
+      this.createdNanos = createdNanos;
+    }
+
+    private void addAggregatedSpans(List<SpanData> out) {
+      for (Group group : groups.values()) {
+        if (group.first != null) {
+          out.add(new AggregatedSpanData(group.first, group));
+        }
+      }
+    }
+  }
+
+  private static class Group {
+
+    private int count;
+
+    // the rest is only set once spans have been collapsed
+    @Nullable private SpanData first;
+    private int collapsedCount;
+    private long totalDurationNanos;
+    private long maxDurationNanos;
+    private int failureCount;
+
+    // returns true if the span has been collapsed
+    private boolean add(SpanData span, int maxIndividualDependencies) {
+      if (++count <= maxIndividualDependencies) {
+        return false;
+      }
+      if (first == null) {
+        first = span;
+      }
+      collapsedCount++;
+      long durationNanos = span.getEndEpochNanos() - span.getStartEpochNanos();
+      totalDurationNanos += durationNanos;
+      maxDurationNanos = Math.max(maxDurationNanos, durationNanos);
+      if (span.getStatus().getStatusCode() == StatusCode.ERROR) {
+        failureCount++;
+      }
+      return true;
+    }
+  }
+
+  private static class AggregatedSpanData extends DelegatingSpanData {
+
+    private final Attributes attributes;
+    private final long endEpochNanos;
+    private final StatusData status;
+
+    private AggregatedSpanData(SpanData first, Group group) {
+      super(first);
+      attributes =
+          first.getAttributes().toBuilder()
+              .put(COUNT_ATTRIBUTE, group.collapsedCount)
+              .put(TOTAL_DURATION_ATTRIBUTE, NANOSECONDS.toMillis(group.totalDurationNanos))
+              .put(MAX_DURATION_ATTRIBUTE, NANOSECONDS.toMillis(group.maxDurationNanos))
+              .put(FAILURE_COUNT_ATTRIBUTE, group.failureCount)
+              .build();
+      endEpochNanos = first.getStartEpochNanos() + group.totalDurationNanos;
+      status = group.failureCount > 0 ? StatusData.error() : first.getStatus();
+    }
+
+    @Override
+    public Attributes getAttributes() {
+      return attributes;
+    }
+
+    @Override
+    public long getEndEpochNanos() {
+      return endEpochNanos;
+    }
+
+    @Override
+    public StatusData getStatus() {
+      return status;
+    }
+
+    // the events of the individual spans are not kept
+    @Override
+    public List<EventData> getEvents() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public int getTotalRecordedEvents() {
+      return 0;
+    }
+  }
+}
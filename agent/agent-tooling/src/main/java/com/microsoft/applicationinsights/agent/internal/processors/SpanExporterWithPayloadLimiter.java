@@ -0,0 +1,47 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentProcessorJfrEvent;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class SpanExporterWithPayloadLimiter implements SpanExporter {
+
+  private final SpanExporter delegate;
+  private final PayloadLimiter payloadLimiter;
+
+  public SpanExporterWithPayloadLimiter(PayloadLimiter payloadLimiter, SpanExporter delegate) {
+    this.payloadLimiter = payloadLimiter;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public CompletableResultCode export(Collection<SpanData> spans) {
+    AgentProcessorJfrEvent jfrEvent = AgentJfrEvents.beginProcessor();
+    List<SpanData> copy = new ArrayList<>(spans.size());
+    for (SpanData span : spans) {
+      copy.add(payloadLimiter.apply(span));
+    }
+    if (jfrEvent != null) {
+      jfrEvent.complete("span", "payloadBudget", copy.size());
+    }
+    return delegate.export(copy);
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return delegate.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    return delegate.shutdown();
+  }
+}
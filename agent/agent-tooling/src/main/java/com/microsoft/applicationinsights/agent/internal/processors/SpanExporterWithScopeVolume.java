@@ -0,0 +1,52 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentProcessorJfrEvent;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class SpanExporterWithScopeVolume implements SpanExporter {
+
+  private final SpanExporter delegate;
+  private final ScopeVolumeTracker tracker;
+
+  public SpanExporterWithScopeVolume(ScopeVolumeTracker tracker, SpanExporter delegate) {
+    this.tracker = tracker;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public CompletableResultCode export(Collection<SpanData> spans) {
+    AgentProcessorJfrEvent jfrEvent = AgentJfrEvents.beginProcessor();
+    List<SpanData> copy = new ArrayList<>(spans.size());
+    for (SpanData span : spans) {
+      if (tracker.record(span)) {
+        copy.add(span);
+      }
+    }
+    if (jfrEvent != null) {
+      jfrEvent.complete("span", "scopeVolume", copy.size());
+    }
+    if (copy.isEmpty()) {
+      return CompletableResultCode.ofSuccess();
+    }
+    return delegate.export(copy);
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return delegate.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    return delegate.shutdown();
+  }
+}
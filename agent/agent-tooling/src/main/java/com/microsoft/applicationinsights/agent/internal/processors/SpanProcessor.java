@@ -8,18 +8,18 @@ import static com.microsoft.applicationinsights.agent.internal.processors.Proces
 import static com.microsoft.applicationinsights.agent.internal.processors.ProcessorUtil.spanHasAllFromAttributeKeys;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
+import com.microsoft.applicationinsights.agent.internal.configuration.PrefilteredPattern;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.sdk.trace.data.SpanData;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 public class SpanProcessor extends AgentProcessor {
   private final List<AttributeKey<?>> fromAttributes;
-  private final List<Pattern> toAttributeRulePatterns;
+  private final List<PrefilteredPattern> toAttributeRulePatterns;
   private final List<List<String>> groupNames;
   private final String separator;
 
@@ -27,7 +27,7 @@ public class SpanProcessor extends AgentProcessor {
       @Nullable IncludeExclude include,
       @Nullable IncludeExclude exclude,
       List<AttributeKey<?>> fromAttributes,
-      List<Pattern> toAttributeRulePatterns,
+      List<PrefilteredPattern> toAttributeRulePatterns,
       List<List<String>> groupNames,
       String separator) {
     super(include, exclude);
@@ -52,10 +52,10 @@ public class SpanProcessor extends AgentProcessor {
     if (config.name.toAttributes != null) {
       toAttributeRules.addAll(config.name.toAttributes.rules);
     }
-    List<Pattern> toAttributeRulePatterns = new ArrayList<>();
+    List<PrefilteredPattern> toAttributeRulePatterns = new ArrayList<>();
     if (config.name.toAttributes != null) {
       for (String rule : config.name.toAttributes.rules) {
-        toAttributeRulePatterns.add(Pattern.compile(rule));
+        toAttributeRulePatterns.add(PrefilteredPattern.compile(rule));
       }
     }
     List<List<String>> groupNames = getGroupNamesList(toAttributeRules);
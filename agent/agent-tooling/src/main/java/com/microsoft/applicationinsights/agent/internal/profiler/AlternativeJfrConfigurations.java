@@ -133,6 +133,9 @@ class AlternativeJfrConfigurations {
   static RecordingConfiguration get(ProfileTypes profile, AlertMetricType type) {
     switch (type) {
       case MEMORY:
+      case ALLOCATION_RATE:
+      case PROMOTION_RATE:
+      case OLD_GEN_EXHAUSTION:
         return getMemory(profile);
       case REQUEST:
         return getRequestConfiguration(profile);
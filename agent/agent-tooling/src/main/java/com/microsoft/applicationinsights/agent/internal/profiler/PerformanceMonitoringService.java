@@ -9,6 +9,8 @@ import com.microsoft.applicationinsights.agent.internal.configuration.GcReportin
 import com.microsoft.applicationinsights.agent.internal.diagnostics.PidFinder;
 import com.microsoft.applicationinsights.agent.internal.profiler.service.ServiceProfilerClient;
 import com.microsoft.applicationinsights.agent.internal.profiler.triggers.AlertingSubsystemInit;
+import com.microsoft.applicationinsights.agent.internal.profiler.upload.LocalProfileStore;
+import com.microsoft.applicationinsights.agent.internal.profiler.upload.ProfileUploader;
 import com.microsoft.applicationinsights.agent.internal.profiler.upload.UploadService;
 import com.microsoft.applicationinsights.agent.internal.profiler.util.ServiceLoaderUtil;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
@@ -22,6 +24,7 @@ import java.io.File;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -52,7 +55,7 @@ public class PerformanceMonitoringService {
   //////////////////////////////////////////////////////////
   // These are brought up and down on demand if the profiler is fully enabled
   @Nullable private AlertingSubsystem alerting;
-  @Nullable private UploadService uploadService;
+  @Nullable private ProfileUploader uploadService;
   @Nullable private ScheduledExecutorService alertServiceExecutorService;
   @Nullable private Profiler profiler;
   @Nullable private DiagnosticEngine diagnosticEngine;
@@ -79,7 +82,7 @@ public class PerformanceMonitoringService {
 
   // When we introduce full disable, tighten up the synchronization here
   synchronized void enableProfiler(
-      ServiceProfilerClient serviceProfilerClient,
+      @Nullable ServiceProfilerClient serviceProfilerClient,
       ScheduledExecutorService serviceProfilerExecutorService) {
     // Prevent double init
     if (currentlyEnabled) {
@@ -112,14 +115,25 @@ public class PerformanceMonitoringService {
             diagnosticEngine,
             alertServiceExecutorService);
 
-    uploadService =
-        new UploadService(
-            serviceProfilerClient,
-            builder -> {},
-            machineName,
-            processId,
-            telemetryClient::getAppId,
-            roleName);
+    if (serviceProfilerClient == null) {
+      // offline mode
+      uploadService =
+          new LocalProfileStore(
+              getOfflineDirectory(),
+              configuration.offline.maxSizeMb * 1024L * 1024L,
+              TimeUnit.HOURS.toMillis(configuration.offline.maxAgeHours),
+              machineName,
+              processId);
+    } else {
+      uploadService =
+          new UploadService(
+              serviceProfilerClient,
+              builder -> {},
+              machineName,
+              processId,
+              telemetryClient::getAppId,
+              roleName);
+    }
 
     try {
       // Daemon remains alive permanently due to scheduling an update
@@ -135,6 +149,13 @@ public class PerformanceMonitoringService {
     }
   }
 
+  private File getOfflineDirectory() {
+    if (configuration.offline.directory != null) {
+      return new File(configuration.offline.directory);
+    }
+    return new File(tempDir, "profiles");
+  }
+
   @Nullable
   private DiagnosticEngine startDiagnosticEngine() {
     try {
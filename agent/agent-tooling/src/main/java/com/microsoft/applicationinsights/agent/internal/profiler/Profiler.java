@@ -5,8 +5,9 @@ package com.microsoft.applicationinsights.agent.internal.profiler;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
 import com.microsoft.applicationinsights.agent.internal.profiler.config.ProfilerConfiguration;
+import com.microsoft.applicationinsights.agent.internal.profiler.summary.RecordingSummarizer;
+import com.microsoft.applicationinsights.agent.internal.profiler.upload.ProfileUploader;
 import com.microsoft.applicationinsights.agent.internal.profiler.upload.UploadListener;
-import com.microsoft.applicationinsights.agent.internal.profiler.upload.UploadService;
 import com.microsoft.applicationinsights.alerting.alert.AlertBreach;
 import com.microsoft.applicationinsights.alerting.config.AlertConfiguration;
 import com.microsoft.applicationinsights.alerting.config.AlertMetricType;
@@ -20,6 +21,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -49,7 +51,7 @@ public class Profiler {
   private ScheduledExecutorService scheduledExecutorService;
 
   // Action to perform when a profile has been created
-  private UploadService uploadService;
+  private ProfileUploader uploadService;
 
   private FlightRecorderConnection flightRecorderConnection;
   private RecordingOptions.Builder recordingOptionsBuilder;
@@ -67,6 +69,8 @@ public class Profiler {
 
   private final File temporaryDirectory;
 
+  @Nullable private final RecordingSummarizer recordingSummarizer;
+
   public Profiler(Configuration.ProfilerConfiguration config, File tempDir) {
 
     periodicConfig =
@@ -83,6 +87,10 @@ public class Profiler {
     spanRecordingConfiguration = AlternativeJfrConfigurations.getSpanProfileConfig(config);
     manualRecordingConfiguration = AlternativeJfrConfigurations.getManualProfileConfig(config);
     temporaryDirectory = tempDir;
+    recordingSummarizer =
+        config.enableRecordingSummary && RecordingSummarizer.isSupported()
+            ? new RecordingSummarizer(config.recordingSummaryTopN)
+            : null;
   }
 
   /**
@@ -91,7 +99,7 @@ public class Profiler {
    * @throws IOException Trouble communicating with MBean server
    */
   public void initialize(
-      UploadService uploadService, ScheduledExecutorService scheduledExecutorService)
+      ProfileUploader uploadService, ScheduledExecutorService scheduledExecutorService)
       throws Exception {
     this.uploadService = uploadService;
     this.scheduledExecutorService = scheduledExecutorService;
@@ -139,6 +147,9 @@ public class Profiler {
           recordingConfiguration = spanRecordingConfiguration;
           break;
         case MEMORY:
+        case ALLOCATION_RATE:
+        case PROMOTION_RATE:
+        case OLD_GEN_EXHAUSTION:
           recordingConfiguration = memoryRecordingConfiguration;
           break;
         case MANUAL:
@@ -221,10 +232,18 @@ public class Profiler {
         // dump profile to file
         closeRecording(activeRecording, activeRecordingFile);
 
+        // the upload hands off (or deletes) the file, so the summary works on its own copy
+        File summaryFile = linkForSummary(activeRecordingFile);
+
         // upload new profile
         uploadService.upload(
             alertBreach, recordingStart.toEpochMilli(), activeRecordingFile, uploadListener);
 
+        if (summaryFile != null) {
+          // separate task, so that parsing the recording never delays (or fails) the upload
+          scheduledExecutorService.execute(() -> summarizeRecording(summaryFile, uploadListener));
+        }
+
       } catch (Exception e) {
         logger.error("Failed to upload recording", e);
       } catch (Error e) {
@@ -237,6 +256,45 @@ public class Profiler {
     };
   }
 
+  @Nullable
+  private File linkForSummary(File recordingFile) {
+    if (recordingSummarizer == null) {
+      return null;
+    }
+    File summaryFile =
+        new File(recordingFile.getParentFile(), recordingFile.getName() + ".summary");
+    try {
+      Files.deleteIfExists(summaryFile.toPath());
+      try {
+        // no copy needed when the file system supports hard links
+        Files.createLink(summaryFile.toPath(), recordingFile.toPath());
+      } catch (IOException | UnsupportedOperationException e) {
+        Files.copy(recordingFile.toPath(), summaryFile.toPath());
+      }
+      return summaryFile;
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Failed to summarize recording", e);
+      return null;
+    }
+  }
+
+  @SuppressWarnings("CatchingUnchecked")
+  private void summarizeRecording(File summaryFile, UploadListener uploadListener) {
+    if (recordingSummarizer == null) {
+      return;
+    }
+    try {
+      uploadListener.onRecordingSummary(recordingSummarizer.summarize(summaryFile));
+    } catch (Exception | LinkageError e) {
+      // e.g. the jfr consumer api is partially missing, the recording has been uploaded already
+      logger.warn("Failed to summarize recording", e);
+    } finally {
+      if (!summaryFile.delete()) {
+        logger.debug("Failed to delete {}", summaryFile.getAbsolutePath());
+      }
+    }
+  }
+
   private static void closeRecording(Recording recording, File recordingFile) {
     try {
       // close recording
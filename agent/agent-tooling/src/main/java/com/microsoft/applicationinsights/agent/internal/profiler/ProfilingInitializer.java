@@ -15,6 +15,7 @@ import com.microsoft.applicationinsights.agent.internal.configuration.GcReportin
 import com.microsoft.applicationinsights.agent.internal.diagnostics.SdkVersionFinder;
 import com.microsoft.applicationinsights.agent.internal.httpclient.LazyHttpClient;
 import com.microsoft.applicationinsights.agent.internal.profiler.config.ConfigService;
+import com.microsoft.applicationinsights.agent.internal.profiler.config.LocalConfigService;
 import com.microsoft.applicationinsights.agent.internal.profiler.config.ProfilerConfiguration;
 import com.microsoft.applicationinsights.agent.internal.profiler.service.ServiceProfilerClient;
 import com.microsoft.applicationinsights.agent.internal.profiler.triggers.AlertConfigParser;
@@ -29,6 +30,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,7 +60,8 @@ public class ProfilingInitializer {
   // These remain permanently live even if the profiler is disabled within the UI
   private HttpPipeline httpPipeline;
   private ScheduledExecutorService serviceProfilerExecutorService;
-  private ServiceProfilerClient serviceProfilerClient;
+  // null in offline mode
+  @Nullable private ServiceProfilerClient serviceProfilerClient;
   //////////////////////////////////////////////////////////
 
   private PerformanceMonitoringService performanceMonitoringService;
@@ -104,6 +107,15 @@ public class ProfilingInitializer {
     return profilingInitializer;
   }
 
+  /**
+   * Profiles are uploaded to the profiler endpoint of the connection string, so the profiler can
+   * only start once there is one, unless it runs in offline mode (profiles are kept locally).
+   */
+  public static boolean canStart(
+      Configuration.ProfilerConfiguration configuration, TelemetryClient telemetryClient) {
+    return configuration.offline.enabled || telemetryClient.getConnectionString() != null;
+  }
+
   synchronized void initialize() {
     if (tempDir == null) {
       throw new FriendlyException(
@@ -117,6 +129,18 @@ public class ProfilingInitializer {
   }
 
   private synchronized void performInit() {
+    serviceProfilerExecutorService =
+        Executors.newScheduledThreadPool(
+            1,
+            ThreadPoolUtils.createDaemonThreadFactory(
+                ProfilingInitializer.class, "ServiceProfilerService"));
+
+    if (configuration.offline.enabled) {
+      logger.info("Profiler is running in offline mode, profiles will not be uploaded");
+      startPollingForLocalConfigUpdates();
+      return;
+    }
+
     // Cannot use default creator, as we need to add POST to the allowed redirects
     httpPipeline =
         LazyHttpClient.newHttpPipeLine(
@@ -129,24 +153,19 @@ public class ProfilingInitializer {
                     new HashSet<>(
                         Arrays.asList(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.POST)))));
 
-    serviceProfilerExecutorService =
-        Executors.newScheduledThreadPool(
-            1,
-            ThreadPoolUtils.createDaemonThreadFactory(
-                ProfilingInitializer.class, "ServiceProfilerService"));
-
-    serviceProfilerClient =
+    ServiceProfilerClient serviceProfilerClient =
         new ServiceProfilerClient(
             getServiceProfilerFrontEndPoint(configuration),
             telemetryClient.getInstrumentationKey(),
             httpPipeline,
             userAgent);
+    this.serviceProfilerClient = serviceProfilerClient;
 
     // Monitor service remains alive permanently due to scheduling an periodic config pull
-    startPollingForConfigUpdates();
+    startPollingForConfigUpdates(serviceProfilerClient);
   }
 
-  private void startPollingForConfigUpdates() {
+  private void startPollingForConfigUpdates(ServiceProfilerClient serviceProfilerClient) {
     ConfigService configService = new ConfigService(serviceProfilerClient);
     serviceProfilerExecutorService.scheduleAtFixedRate(
         () -> pullProfilerSettings(configService),
@@ -163,6 +182,26 @@ public class ProfilingInitializer {
     }
   }
 
+  private void startPollingForLocalConfigUpdates() {
+    LocalConfigService localConfigService = new LocalConfigService(configuration.offline);
+    serviceProfilerExecutorService.scheduleAtFixedRate(
+        () -> pullLocalProfilerSettings(localConfigService),
+        5,
+        configuration.configPollPeriodSeconds,
+        TimeUnit.SECONDS);
+  }
+
+  private void pullLocalProfilerSettings(LocalConfigService localConfigService) {
+    try {
+      ProfilerConfiguration config = localConfigService.pullSettings();
+      if (config != null) {
+        applyConfiguration(config);
+      }
+    } catch (Throwable t) {
+      logger.error("Error reading offline profiler settings", t);
+    }
+  }
+
   private void logProfilerPullError(Throwable e) {
     if (currentlyEnabled.get()) {
       logger.error("Error pulling service profiler settings", e);
@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.config;
+
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import javax.annotation.Nullable;
+
+/**
+ * Provides the profiler settings in offline mode, from a settings file (in the same format as the
+ * settings returned by the service profiler endpoint) when it exists, and otherwise from the local
+ * agent configuration.
+ */
+public class LocalConfigService {
+
+  private final Configuration.OfflineProfilerConfiguration configuration;
+  @Nullable private final File settingsFile;
+
+  // last modified time of the settings file which was last read, 0 when the local agent
+  // configuration was last used, and -1 before the first pull
+  private long lastModified = -1;
+
+  @SuppressFBWarnings(
+      value = "SECPTI", // Potential Path Traversal
+      justification =
+          "The constructed file path cannot be controlled by an end user of the instrumented application")
+  public LocalConfigService(Configuration.OfflineProfilerConfiguration configuration) {
+    this.configuration = configuration;
+    settingsFile = configuration.settingsFile == null ? null : new File(configuration.settingsFile);
+  }
+
+  /** Returns the latest settings, or null if they have not been modified since the last pull. */
+  @Nullable
+  public ProfilerConfiguration pullSettings() throws IOException {
+    long fileLastModified =
+        settingsFile != null && settingsFile.isFile() ? settingsFile.lastModified() : 0;
+    if (fileLastModified == lastModified) {
+      return null;
+    }
+    // updated before reading, so that an invalid file is only reported once (until it changes)
+    lastModified = fileLastModified;
+    if (settingsFile == null || fileLastModified == 0) {
+      return fromLocalConfiguration();
+    }
+    return readSettingsFile(settingsFile, fileLastModified);
+  }
+
+  private static ProfilerConfiguration readSettingsFile(File file, long fileLastModified)
+      throws IOException {
+    ProfilerConfiguration config;
+    try (JsonReader reader = JsonProviders.createReader(Files.readAllBytes(file.toPath()))) {
+      config = ProfilerConfiguration.fromJson(reader);
+    }
+    if (config.getLastModified() == null) {
+      config.setLastModified(new Date(fileLastModified));
+    }
+    return config;
+  }
+
+  private ProfilerConfiguration fromLocalConfiguration() {
+    return new ProfilerConfiguration()
+        .setId("offline")
+        .setLastModified(new Date())
+        .setEnabled(true)
+        .setCpuTriggerConfiguration(
+            triggerConfiguration(
+                "cpu", configuration.cpuTriggerEnabled, configuration.cpuThreshold))
+        .setMemoryTriggerConfiguration(
+            triggerConfiguration(
+                "memory", configuration.memoryTriggerEnabled, configuration.memoryThreshold));
+  }
+
+  // e.g. --cpu-trigger-enabled true --cpu-threshold 80.0 --cpu-trigger-profilingDuration 120
+  // --cpu-trigger-cooldown 14400
+  private String triggerConfiguration(String prefix, boolean enabled, float threshold) {
+    return "--"
+        + prefix
+        + "-trigger-enabled "
+        + enabled
+        + " --"
+        + prefix
+        + "-threshold "
+        + threshold
+        + " --"
+        + prefix
+        + "-trigger-profilingDuration "
+        + configuration.profileDurationSeconds
+        + " --"
+        + prefix
+        + "-trigger-cooldown "
+        + configuration.cooldownSeconds;
+  }
+}
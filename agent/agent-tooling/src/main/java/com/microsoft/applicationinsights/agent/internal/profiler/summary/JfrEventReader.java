@@ -0,0 +1,237 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.summary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams the events of a JFR recording file, one event at a time.
+ *
+ * <p>The agent is compiled for Java 8, where {@code jdk.jfr.consumer} is not part of the platform
+ * API, so it is accessed reflectively (it is present at runtime on every JVM that can make the
+ * recordings in the first place).
+ */
+final class JfrEventReader implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(JfrEventReader.class);
+
+  @Nullable private static final Accessors accessors = Accessors.lookup();
+
+  private final Accessors a;
+  private final Object recordingFile;
+  @Nullable private Object event;
+
+  static boolean isSupported() {
+    return accessors != null;
+  }
+
+  JfrEventReader(Path path) throws IOException {
+    if (accessors == null) {
+      throw new IllegalStateException("The JFR consumer API is not available");
+    }
+    a = accessors;
+    try {
+      recordingFile = a.recordingFileConstructor.newInstance(path);
+    } catch (InvocationTargetException e) {
+      throw unwrap(e);
+    } catch (ReflectiveOperationException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /** Moves to the next event, returns false once there are no more events. */
+  boolean next() throws IOException {
+    if (!invokeBoolean(a.hasMoreEvents, recordingFile)) {
+      event = null;
+      return false;
+    }
+    event = invoke(a.readEvent, recordingFile);
+    return true;
+  }
+
+  String getEventType() throws IOException {
+    Object eventType = invokeNonNull(a.getEventType, currentEvent());
+    return (String) invokeNonNull(a.getEventTypeName, eventType);
+  }
+
+  Duration getDuration() throws IOException {
+    return (Duration) invokeNonNull(a.getEventDuration, currentEvent());
+  }
+
+  /** Returns 0 if the current event does not have the field. */
+  long getLong(String field) throws IOException {
+    Object current = currentEvent();
+    if (!invokeBoolean(a.hasField, current, field)) {
+      return 0;
+    }
+    return (Long) invokeNonNull(a.getLong, current, field);
+  }
+
+  /** Returns {@link Duration#ZERO} if the current event does not have the field. */
+  Duration getDuration(String field) throws IOException {
+    Object current = currentEvent();
+    if (!invokeBoolean(a.hasField, current, field)) {
+      return Duration.ZERO;
+    }
+    return (Duration) invokeNonNull(a.getDurationField, current, field);
+  }
+
+  /** Returns the name of a class-valued field, or null if the event does not have one. */
+  @Nullable
+  String getClassName(String field) throws IOException {
+    Object current = currentEvent();
+    if (!invokeBoolean(a.hasField, current, field)) {
+      return null;
+    }
+    Object recordedClass = invoke(a.getClassField, current, field);
+    return recordedClass == null ? null : (String) invokeNonNull(a.getClassName, recordedClass);
+  }
+
+  /**
+   * Returns the first java frame of the current event's stack trace (as "class.method") whose class
+   * matches the filter, or the top java frame if none does, or null if there is no stack trace.
+   */
+  @Nullable
+  String getFrame(Predicate<String> classNameFilter) throws IOException {
+    Object stackTrace = invoke(a.getStackTrace, currentEvent());
+    if (stackTrace == null) {
+      return null;
+    }
+    String topFrame = null;
+    for (Object frame : (List<?>) invokeNonNull(a.getFrames, stackTrace)) {
+      if (!invokeBoolean(a.isJavaFrame, frame)) {
+        continue;
+      }
+      Object method = invokeNonNull(a.getMethod, frame);
+      String className =
+          (String) invokeNonNull(a.getClassName, invokeNonNull(a.getMethodType, method));
+      if (classNameFilter.test(className)) {
+        return className + "." + invoke(a.getMethodName, method);
+      }
+      if (topFrame == null) {
+        topFrame = className + "." + invoke(a.getMethodName, method);
+      }
+    }
+    return topFrame;
+  }
+
+  @Override
+  public void close() throws IOException {
+    invoke(a.close, recordingFile);
+  }
+
+  private Object currentEvent() {
+    if (event == null) {
+      throw new IllegalStateException("No current event");
+    }
+    return event;
+  }
+
+  @Nullable
+  private static Object invoke(Method method, Object target, Object... args) throws IOException {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw unwrap(e);
+    } catch (IllegalAccessException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static Object invokeNonNull(Method method, Object target, Object... args)
+      throws IOException {
+    Object result = invoke(method, target, args);
+    if (result == null) {
+      throw new IOException("Unexpected null result from " + method.getName());
+    }
+    return result;
+  }
+
+  private static boolean invokeBoolean(Method method, Object target, Object... args)
+      throws IOException {
+    return Boolean.TRUE.equals(invoke(method, target, args));
+  }
+
+  private static IOException unwrap(InvocationTargetException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    }
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    return new IOException(cause);
+  }
+
+  private static final class Accessors {
+
+    private final Constructor<?> recordingFileConstructor;
+    private final Method hasMoreEvents;
+    private final Method readEvent;
+    private final Method close;
+    private final Method getEventType;
+    private final Method getEventTypeName;
+    private final Method getEventDuration;
+    private final Method hasField;
+    private final Method getLong;
+    private final Method getDurationField;
+    private final Method getClassField;
+    private final Method getStackTrace;
+    private final Method getFrames;
+    private final Method isJavaFrame;
+    private final Method getMethod;
+    private final Method getMethodType;
+    private final Method getMethodName;
+    private final Method getClassName;
+
+    private Accessors() throws ReflectiveOperationException {
+      Class<?> recordingFileClass = Class.forName("jdk.jfr.consumer.RecordingFile");
+      Class<?> recordedEventClass = Class.forName("jdk.jfr.consumer.RecordedEvent");
+      Class<?> recordedStackTraceClass = Class.forName("jdk.jfr.consumer.RecordedStackTrace");
+      Class<?> recordedFrameClass = Class.forName("jdk.jfr.consumer.RecordedFrame");
+      Class<?> recordedMethodClass = Class.forName("jdk.jfr.consumer.RecordedMethod");
+      Class<?> recordedClassClass = Class.forName("jdk.jfr.consumer.RecordedClass");
+
+      recordingFileConstructor = recordingFileClass.getConstructor(Path.class);
+      hasMoreEvents = recordingFileClass.getMethod("hasMoreEvents");
+      readEvent = recordingFileClass.getMethod("readEvent");
+      close = recordingFileClass.getMethod("close");
+      getEventType = recordedEventClass.getMethod("getEventType");
+      getEventTypeName = Class.forName("jdk.jfr.EventType").getMethod("getName");
+      getEventDuration = recordedEventClass.getMethod("getDuration");
+      hasField = recordedEventClass.getMethod("hasField", String.class);
+      getLong = recordedEventClass.getMethod("getLong", String.class);
+      getDurationField = recordedEventClass.getMethod("getDuration", String.class);
+      getClassField = recordedEventClass.getMethod("getClass", String.class);
+      getStackTrace = recordedEventClass.getMethod("getStackTrace");
+      getFrames = recordedStackTraceClass.getMethod("getFrames");
+      isJavaFrame = recordedFrameClass.getMethod("isJavaFrame");
+      getMethod = recordedFrameClass.getMethod("getMethod");
+      getMethodType = recordedMethodClass.getMethod("getType");
+      getMethodName = recordedMethodClass.getMethod("getName");
+      getClassName = recordedClassClass.getMethod("getName");
+    }
+
+    @Nullable
+    private static Accessors lookup() {
+      try {
+        return new Accessors();
+      } catch (ReflectiveOperationException | LinkageError e) {
+        logger.debug("JFR consumer API is not available, recordings will not be summarized", e);
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.summary;
+
+import java.io.File;
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * Summarizes a JFR recording on the host: hot methods by cpu samples, allocation sites, lock
+ * contention sites and gc pauses.
+ *
+ * <p>The recording is streamed one event at a time, and the number of distinct sites tracked per
+ * category is capped, so memory use does not depend on the size of the recording.
+ */
+public class RecordingSummarizer {
+
+  // visible for testing
+  static final int MAX_TRACKED_SITES = 10_000;
+
+  private final int topN;
+  private final int maxTrackedSites;
+
+  public static boolean isSupported() {
+    return JfrEventReader.isSupported();
+  }
+
+  public RecordingSummarizer(int topN) {
+    this(topN, MAX_TRACKED_SITES);
+  }
+
+  // visible for testing
+  RecordingSummarizer(int topN, int maxTrackedSites) {
+    this.topN = topN;
+    this.maxTrackedSites = maxTrackedSites;
+  }
+
+  public RecordingSummary summarize(File recording) throws IOException {
+    SiteCounter hotMethods = new SiteCounter(maxTrackedSites);
+    // jdk.ObjectAllocationSample (java 16+) replaces the TLAB events, and if both happen to be
+    // enabled only the former is used, so that allocations are not counted twice
+    SiteCounter sampledAllocations = new SiteCounter(maxTrackedSites);
+    SiteCounter tlabAllocations = new SiteCounter(maxTrackedSites);
+    SiteCounter lockContention = new SiteCounter(maxTrackedSites);
+    long gcCount = 0;
+    long gcPauseNanos = 0;
+    long gcLongestPauseNanos = 0;
+
+    try (JfrEventReader reader = new JfrEventReader(recording.toPath())) {
+      while (reader.next()) {
+        switch (reader.getEventType()) {
+          case "jdk.ExecutionSample":
+            // the method which was actually running
+            add(hotMethods, reader.getFrame(className -> true), 1);
+            break;
+          case "jdk.ObjectAllocationSample":
+            add(sampledAllocations, getApplicationFrame(reader), reader.getLong("weight"));
+            break;
+          case "jdk.ObjectAllocationInNewTLAB":
+            add(tlabAllocations, getApplicationFrame(reader), reader.getLong("tlabSize"));
+            break;
+          case "jdk.ObjectAllocationOutsideTLAB":
+            add(tlabAllocations, getApplicationFrame(reader), reader.getLong("allocationSize"));
+            break;
+          case "jdk.JavaMonitorEnter":
+            add(lockContention, getApplicationFrame(reader), reader.getDuration().toNanos());
+            break;
+          case "jdk.ThreadPark":
+            if (isParkedOnLock(reader.getClassName("parkedClass"))) {
+              add(lockContention, getApplicationFrame(reader), reader.getDuration().toNanos());
+            }
+            break;
+          case "jdk.GarbageCollection":
+            long longestPauseNanos = reader.getDuration("longestPause").toNanos();
+            gcCount++;
+            gcPauseNanos += reader.getDuration("sumOfPauses").toNanos();
+            gcLongestPauseNanos = Math.max(gcLongestPauseNanos, longestPauseNanos);
+            break;
+          default:
+            break;
+        }
+      }
+    }
+
+    SiteCounter allocations =
+        sampledAllocations.getTotal() > 0 ? sampledAllocations : tlabAllocations;
+    return new RecordingSummary(
+        hotMethods.getTotal(),
+        hotMethods.top(topN),
+        allocations.getTotal(),
+        allocations.top(topN),
+        lockContention.getTotal(),
+        lockContention.top(topN),
+        gcCount,
+        gcPauseNanos,
+        gcLongestPauseNanos);
+  }
+
+  private static void add(SiteCounter counter, @Nullable String site, long value) {
+    counter.add(site == null ? "<unknown>" : site, value);
+  }
+
+  // the first frame outside of the JDK, since the top frames of allocations and lock waits are
+  // usually JDK internals (e.g. Arrays.copyOf or LockSupport.park)
+  @Nullable
+  private static String getApplicationFrame(JfrEventReader reader) throws IOException {
+    return reader.getFrame(className -> !isJdkClass(className));
+  }
+
+  private static boolean isJdkClass(String className) {
+    return className.startsWith("java.")
+        || className.startsWith("javax.")
+        || className.startsWith("jdk.")
+        || className.startsWith("sun.")
+        || className.startsWith("com.sun.");
+  }
+
+  // threads also park while they have nothing to do (e.g. idle thread pool threads waiting on a
+  // condition), which is not contention, so only parking on a lock (e.g.
+  // ReentrantLock$NonfairSync, ReentrantReadWriteLock$FairSync or StampedLock) is counted
+  private static boolean isParkedOnLock(@Nullable String parkedClass) {
+    return parkedClass != null && (parkedClass.endsWith("Sync") || parkedClass.endsWith("Lock"));
+  }
+}
@@ -0,0 +1,164 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.summary;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/** Compact summary of a JFR recording, sent as a custom event next to the ServiceProfilerIndex. */
+public class RecordingSummary {
+
+  private static final double NANOS_IN_MILLI = 1_000_000;
+  private static final double BYTES_IN_MB = 1024 * 1024;
+
+  private final long cpuSampleCount;
+  private final List<Site> hotMethods;
+  private final long allocatedBytes;
+  private final List<Site> allocationSites;
+  private final long lockContentionNanos;
+  private final List<Site> lockContentionSites;
+  private final long gcCount;
+  private final long gcPauseNanos;
+  private final long gcLongestPauseNanos;
+
+  @SuppressWarnings("TooManyParameters")
+  RecordingSummary(
+      long cpuSampleCount,
+      List<Site> hotMethods,
+      long allocatedBytes,
+      List<Site> allocationSites,
+      long lockContentionNanos,
+      List<Site> lockContentionSites,
+      long gcCount,
+      long gcPauseNanos,
+      long gcLongestPauseNanos) {
+    this.cpuSampleCount = cpuSampleCount;
+    this.hotMethods = hotMethods;
+    this.allocatedBytes = allocatedBytes;
+    this.allocationSites = allocationSites;
+    this.lockContentionNanos = lockContentionNanos;
+    this.lockContentionSites = lockContentionSites;
+    this.gcCount = gcCount;
+    this.gcPauseNanos = gcPauseNanos;
+    this.gcLongestPauseNanos = gcLongestPauseNanos;
+  }
+
+  public long getCpuSampleCount() {
+    return cpuSampleCount;
+  }
+
+  /** Value is the number of cpu samples in which the method was on top of the stack. */
+  public List<Site> getHotMethods() {
+    return hotMethods;
+  }
+
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /** Value is the number of bytes allocated. */
+  public List<Site> getAllocationSites() {
+    return allocationSites;
+  }
+
+  public long getLockContentionNanos() {
+    return lockContentionNanos;
+  }
+
+  /** Value is the number of nanoseconds spent blocked. */
+  public List<Site> getLockContentionSites() {
+    return lockContentionSites;
+  }
+
+  public long getGcCount() {
+    return gcCount;
+  }
+
+  public long getGcPauseNanos() {
+    return gcPauseNanos;
+  }
+
+  public long getGcLongestPauseNanos() {
+    return gcLongestPauseNanos;
+  }
+
+  public Map<String, String> getProperties() {
+    Map<String, String> properties = new HashMap<>();
+    StringBuilder sb = new StringBuilder();
+    for (Site site : hotMethods) {
+      appendLine(sb, site, percentage(site.getValue(), cpuSampleCount) + "%");
+    }
+    properties.put("HotMethods", sb.toString());
+
+    sb.setLength(0);
+    for (Site site : allocationSites) {
+      appendLine(sb, site, format(site.getValue() / BYTES_IN_MB) + " MB");
+    }
+    properties.put("AllocationSites", sb.toString());
+
+    sb.setLength(0);
+    for (Site site : lockContentionSites) {
+      appendLine(
+          sb,
+          site,
+          format(site.getValue() / NANOS_IN_MILLI) + " ms in " + site.getCount() + " events");
+    }
+    properties.put("LockContentionSites", sb.toString());
+    return properties;
+  }
+
+  public Map<String, Double> getMetrics() {
+    Map<String, Double> metrics = new HashMap<>();
+    metrics.put("CpuSampleCount", (double) cpuSampleCount);
+    metrics.put("AllocatedMB", allocatedBytes / BYTES_IN_MB);
+    metrics.put("LockContentionMs", lockContentionNanos / NANOS_IN_MILLI);
+    metrics.put("GcCount", (double) gcCount);
+    metrics.put("GcPauseMs", gcPauseNanos / NANOS_IN_MILLI);
+    metrics.put("GcLongestPauseMs", gcLongestPauseNanos / NANOS_IN_MILLI);
+    return metrics;
+  }
+
+  private static void appendLine(StringBuilder sb, Site site, String value) {
+    if (sb.length() > 0) {
+      sb.append('\n');
+    }
+    sb.append(site.getName()).append(" (").append(value).append(')');
+  }
+
+  private static String percentage(long value, long total) {
+    return format(total == 0 ? 0 : 100.0 * value / total);
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.1f", value);
+  }
+
+  public static class Site {
+
+    private final String name;
+    private final long value;
+    private final long count;
+
+    Site(String name, long value, long count) {
+      this.name = name;
+      this.value = value;
+      this.count = count;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getValue() {
+      return value;
+    }
+
+    /** Number of events at this site. */
+    public long getCount() {
+      return count;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.summary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sums a value per site (e.g. a method), tracking at most a fixed number of distinct sites so that
+ * memory stays bounded however large the recording is.
+ */
+final class SiteCounter {
+
+  private final int maxSites;
+  private final Map<String, long[]> sites = new HashMap<>();
+
+  // includes the values of sites which could not be tracked because the limit had been reached
+  private long total;
+
+  SiteCounter(int maxSites) {
+    this.maxSites = maxSites;
+  }
+
+  void add(String site, long value) {
+    total += value;
+    long[] counts = sites.get(site);
+    if (counts == null) {
+      if (sites.size() >= maxSites) {
+        return;
+      }
+      counts = new long[2];
+      sites.put(site, counts);
+    }
+    counts[0] += value;
+    counts[1]++;
+  }
+
+  long getTotal() {
+    return total;
+  }
+
+  /** Returns the sites with the highest values, highest first. */
+  List<RecordingSummary.Site> top(int n) {
+    List<RecordingSummary.Site> all = new ArrayList<>(sites.size());
+    for (Map.Entry<String, long[]> entry : sites.entrySet()) {
+      all.add(new RecordingSummary.Site(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+    }
+    all.sort(
+        Comparator.comparingLong(RecordingSummary.Site::getValue)
+            .reversed()
+            .thenComparing(RecordingSummary.Site::getName));
+    return all.size() > n ? new ArrayList<>(all.subList(0, n)) : all;
+  }
+}
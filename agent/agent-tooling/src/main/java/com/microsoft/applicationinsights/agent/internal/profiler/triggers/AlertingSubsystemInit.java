@@ -3,7 +3,10 @@
 
 package com.microsoft.applicationinsights.agent.internal.profiler.triggers;
 
+import static com.microsoft.applicationinsights.agent.internal.perfcounter.MetricNames.TCP_SEGMENTS_RETRANSMITTED_PERCENTAGE;
 import static com.microsoft.applicationinsights.agent.internal.perfcounter.MetricNames.TOTAL_CPU_PERCENTAGE;
+import static com.microsoft.applicationinsights.agent.internal.perfcounter.MetricNames.TOTAL_DISK_SECONDS_PER_TRANSFER;
+import static com.microsoft.applicationinsights.agent.internal.perfcounter.MetricNames.TOTAL_NETWORK_BYTES;
 
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.EventTelemetryBuilder;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.MessageTelemetryBuilder;
@@ -14,7 +17,9 @@ import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.Format
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
 import com.microsoft.applicationinsights.agent.internal.configuration.GcReportingLevel;
 import com.microsoft.applicationinsights.agent.internal.profiler.Profiler;
+import com.microsoft.applicationinsights.agent.internal.profiler.summary.RecordingSummary;
 import com.microsoft.applicationinsights.agent.internal.profiler.upload.ServiceProfilerIndex;
+import com.microsoft.applicationinsights.agent.internal.profiler.upload.UploadListener;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryObservers;
 import com.microsoft.applicationinsights.alerting.AlertingSubsystem;
@@ -72,6 +77,30 @@ public class AlertingSubsystemInit {
           AlertMetricType.REQUEST, new AlertPipelineMultiplexer(spanPipelines));
     }
 
+    Map<AlertMetricType, List<AlertPipeline>> hostPipelines =
+        configuration.hostTriggers.stream()
+            .collect(
+                Collectors.groupingBy(
+                    it -> HostAlertPipelineBuilder.getAlertMetricType(it.type),
+                    Collectors.mapping(
+                        it -> HostAlertPipelineBuilder.build(it, alertAction, TimeSource.DEFAULT),
+                        Collectors.toList())));
+    hostPipelines.forEach(
+        (type, pipelines) ->
+            alertingSubsystem.setPipeline(type, new AlertPipelineMultiplexer(pipelines)));
+
+    Map<AlertMetricType, List<AlertPipeline>> gcPipelines =
+        configuration.gcTriggers.stream()
+            .collect(
+                Collectors.groupingBy(
+                    it -> GcAlertPipelineBuilder.getAlertMetricType(it.type),
+                    Collectors.mapping(
+                        it -> GcAlertPipelineBuilder.build(it, alertAction, TimeSource.DEFAULT),
+                        Collectors.toList())));
+    gcPipelines.forEach(
+        (type, pipelines) ->
+            alertingSubsystem.setPipeline(type, new AlertPipelineMultiplexer(pipelines)));
+
     addObserver(alertingSubsystem, telemetryObservers);
 
     GcEventInit.init(
@@ -102,12 +131,21 @@ public class AlertingSubsystemInit {
           }
           MetricDataPoint point = ((MetricsData) data).getMetrics().get(0);
           AlertMetricType alertMetricType = null;
+          double value = point.getValue();
           if (point.getName().equals(TOTAL_CPU_PERCENTAGE)) {
             alertMetricType = AlertMetricType.CPU;
+          } else if (point.getName().equals(TCP_SEGMENTS_RETRANSMITTED_PERCENTAGE)) {
+            alertMetricType = AlertMetricType.TCP_RETRANSMISSION;
+          } else if (point.getName().equals(TOTAL_DISK_SECONDS_PER_TRANSFER)) {
+            alertMetricType = AlertMetricType.DISK_LATENCY;
+            // the disk latency trigger threshold is in milliseconds
+            value *= 1000;
+          } else if (point.getName().equals(TOTAL_NETWORK_BYTES)) {
+            alertMetricType = AlertMetricType.NETWORK_THROUGHPUT;
           }
 
           if (alertMetricType != null) {
-            alertingSubsystem.track(alertMetricType, point.getValue());
+            alertingSubsystem.track(alertMetricType, value);
           }
         });
   }
@@ -125,7 +163,17 @@ public class AlertingSubsystemInit {
 
       profiler.accept(
           alert,
-          serviceProfilerIndex -> sendServiceProfilerIndex(serviceProfilerIndex, telemetryClient));
+          new UploadListener() {
+            @Override
+            public void onUpload(ServiceProfilerIndex serviceProfilerIndex) {
+              sendServiceProfilerIndex(serviceProfilerIndex, telemetryClient);
+            }
+
+            @Override
+            public void onRecordingSummary(RecordingSummary recordingSummary) {
+              sendRecordingSummary(alert, recordingSummary, telemetryClient);
+            }
+          });
 
       if (diagnosticEngine != null) {
         diagnosticEngine.performDiagnosis(alert);
@@ -156,6 +204,29 @@ public class AlertingSubsystemInit {
     sendMessageTelemetry(telemetryClient, "StopProfiler succeeded.");
   }
 
+  private static void sendRecordingSummary(
+      AlertBreach alert, RecordingSummary recordingSummary, TelemetryClient telemetryClient) {
+
+    EventTelemetryBuilder telemetryBuilder = telemetryClient.newEventTelemetryBuilder();
+
+    telemetryBuilder.setName("ServiceProfilerRecordingSummary");
+
+    // same values as the ServiceProfilerIndex event, so that the two can be correlated
+    telemetryBuilder.addProperty("ArtifactId", alert.getProfileId());
+    telemetryBuilder.addProperty("Source", "JFR-" + alert.getType().name());
+
+    for (Map.Entry<String, String> entry : recordingSummary.getProperties().entrySet()) {
+      telemetryBuilder.addProperty(entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<String, Double> entry : recordingSummary.getMetrics().entrySet()) {
+      telemetryBuilder.addMeasurement(entry.getKey(), entry.getValue());
+    }
+
+    telemetryBuilder.setTime(FormattedTime.offSetDateTimeFromNow());
+
+    telemetryClient.trackAsync(telemetryBuilder.build());
+  }
+
   private static void sendMessageTelemetry(TelemetryClient telemetryClient, String message) {
     MessageTelemetryBuilder telemetryBuilder = telemetryClient.newMessageTelemetryBuilder();
 
@@ -0,0 +1,84 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.triggers;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.alerting.alert.AlertBreach;
+import com.microsoft.applicationinsights.alerting.analysis.TimeSource;
+import com.microsoft.applicationinsights.alerting.analysis.aggregations.RollingAverage;
+import com.microsoft.applicationinsights.alerting.analysis.filter.AlertRequestFilter;
+import com.microsoft.applicationinsights.alerting.analysis.pipelines.AlertPipeline;
+import com.microsoft.applicationinsights.alerting.analysis.pipelines.SingleAlertPipeline;
+import com.microsoft.applicationinsights.alerting.config.AlertConfiguration;
+import com.microsoft.applicationinsights.alerting.config.AlertMetricType;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Constructs an AlertPipeline for processing the memory trends derived from the gc events. */
+class GcAlertPipelineBuilder {
+
+  private static final Logger logger = LoggerFactory.getLogger(GcAlertPipelineBuilder.class);
+
+  // same window as the cpu and memory triggers
+  private static final int ROLLING_AVERAGE_WINDOW_SECONDS = 120;
+
+  private GcAlertPipelineBuilder() {}
+
+  static AlertPipeline build(
+      Configuration.GcTrigger configuration,
+      Consumer<AlertBreach> alertAction,
+      TimeSource timeSource) {
+
+    if (configuration.profileDuration < 30) {
+      logger.warn(
+          "A profile duration of "
+              + configuration.profileDuration
+              + " seconds was requested, profiles must be a minimum of 30 seconds. This configuration has been set to 30 seconds");
+      configuration.profileDuration = 30;
+    }
+
+    float threshold = configuration.threshold;
+    if (configuration.type == Configuration.GcTriggerType.OLD_GEN_EXHAUSTION) {
+      // alerts fire when the value goes above the threshold, see GcEventInit
+      threshold = (float) getHeadroomConsumedPerHour(configuration.threshold * 3600.0);
+    }
+
+    AlertConfiguration config =
+        AlertConfiguration.builder()
+            .setType(getAlertMetricType(configuration.type))
+            .setEnabled(true)
+            .setThreshold(threshold)
+            .setProfileDurationSeconds(configuration.profileDuration)
+            .setCooldownSeconds(configuration.cooldown)
+            .build();
+
+    return SingleAlertPipeline.create(
+        new AlertRequestFilter.AcceptAll(),
+        new RollingAverage(ROLLING_AVERAGE_WINDOW_SECONDS, timeSource, true),
+        config,
+        alertAction);
+  }
+
+  /**
+   * The projected time until the tenured generation is full is tracked as the percentage of its
+   * remaining headroom which is consumed per hour, so that (like for every other trigger) a higher
+   * value is worse, and so that no growth (an infinite time) is simply 0.
+   */
+  static double getHeadroomConsumedPerHour(double secondsToExhaustion) {
+    return 100 * 3600 / secondsToExhaustion;
+  }
+
+  static AlertMetricType getAlertMetricType(Configuration.GcTriggerType type) {
+    switch (type) {
+      case ALLOCATION_RATE:
+        return AlertMetricType.ALLOCATION_RATE;
+      case PROMOTION_RATE:
+        return AlertMetricType.PROMOTION_RATE;
+      case OLD_GEN_EXHAUSTION:
+        return AlertMetricType.OLD_GEN_EXHAUSTION;
+    }
+    throw new AssertionError("Unexpected gc trigger type: " + type);
+  }
+}
@@ -14,6 +14,8 @@ import com.microsoft.gcmonitor.GcCollectionEvent;
 import com.microsoft.gcmonitor.GcEventConsumer;
 import com.microsoft.gcmonitor.GcMonitorFactory;
 import com.microsoft.gcmonitor.UnableToMonitorMemoryException;
+import com.microsoft.gcmonitor.analysis.GcMemoryAnalysis;
+import com.microsoft.gcmonitor.analysis.GcMemoryAnalyzer;
 import com.microsoft.gcmonitor.memorypools.MemoryPool;
 import java.lang.management.MemoryUsage;
 import java.util.Optional;
@@ -37,6 +39,12 @@ class GcEventInit {
   // here
   private static final String JVM_INSTANCE_UID = UUID.randomUUID().toString();
 
+  private static final double BYTES_IN_MB = 1024 * 1024;
+
+  // number of tenured collections that the tenured generation trend is fitted over
+  private static final int MIN_OLD_GEN_TREND_SAMPLES = 3;
+  private static final int MAX_OLD_GEN_TREND_SAMPLES = 10;
+
   static class GcEventMonitorConfiguration {
 
     final GcReportingLevel reportingLevel;
@@ -85,8 +93,11 @@ class GcEventInit {
       AlertingSubsystem alertingSubsystem,
       TelemetryClient telemetryClient,
       GcEventMonitorConfiguration gcEventMonitorConfiguration) {
+    GcMemoryAnalyzer memoryAnalyzer =
+        new GcMemoryAnalyzer(MIN_OLD_GEN_TREND_SAMPLES, MAX_OLD_GEN_TREND_SAMPLES);
     return event -> {
       sendTenuredFillPercentageToAlerting(alertingSubsystem, event);
+      sendMemoryTrendsToAlerting(alertingSubsystem, memoryAnalyzer.analyze(event));
       emitGcEvent(telemetryClient, gcEventMonitorConfiguration, event);
     };
   }
@@ -108,6 +119,26 @@ class GcEventInit {
     }
   }
 
+  /** Forward the allocation rate, promotion rate and tenured generation trend to alerting. */
+  private static void sendMemoryTrendsToAlerting(
+      AlertingSubsystem alertingSubsystem, GcMemoryAnalysis analysis) {
+    analysis
+        .getAllocationRate()
+        .ifPresent(
+            rate -> alertingSubsystem.track(AlertMetricType.ALLOCATION_RATE, rate / BYTES_IN_MB));
+    analysis
+        .getPromotionRate()
+        .ifPresent(
+            rate -> alertingSubsystem.track(AlertMetricType.PROMOTION_RATE, rate / BYTES_IN_MB));
+    analysis
+        .getOldGenSecondsToExhaustion()
+        .ifPresent(
+            seconds ->
+                alertingSubsystem.track(
+                    AlertMetricType.OLD_GEN_EXHAUSTION,
+                    GcAlertPipelineBuilder.getHeadroomConsumedPerHour(seconds)));
+  }
+
   /** If gc reporting is enabled, send gc event to Application Insights. */
   private static void emitGcEvent(
       TelemetryClient telemetryClient,
@@ -0,0 +1,69 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.triggers;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.alerting.alert.AlertBreach;
+import com.microsoft.applicationinsights.alerting.analysis.TimeSource;
+import com.microsoft.applicationinsights.alerting.analysis.aggregations.RollingAverage;
+import com.microsoft.applicationinsights.alerting.analysis.filter.AlertRequestFilter;
+import com.microsoft.applicationinsights.alerting.analysis.pipelines.AlertPipeline;
+import com.microsoft.applicationinsights.alerting.analysis.pipelines.SingleAlertPipeline;
+import com.microsoft.applicationinsights.alerting.config.AlertConfiguration;
+import com.microsoft.applicationinsights.alerting.config.AlertMetricType;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Constructs an AlertPipeline for processing the host i/o performance counters. */
+class HostAlertPipelineBuilder {
+
+  private static final Logger logger = LoggerFactory.getLogger(HostAlertPipelineBuilder.class);
+
+  // same window as the cpu and memory triggers
+  private static final int ROLLING_AVERAGE_WINDOW_SECONDS = 120;
+
+  private HostAlertPipelineBuilder() {}
+
+  static AlertPipeline build(
+      Configuration.HostTrigger configuration,
+      Consumer<AlertBreach> alertAction,
+      TimeSource timeSource) {
+
+    if (configuration.profileDuration < 30) {
+      logger.warn(
+          "A profile duration of "
+              + configuration.profileDuration
+              + " seconds was requested, profiles must be a minimum of 30 seconds. This configuration has been set to 30 seconds");
+      configuration.profileDuration = 30;
+    }
+
+    AlertConfiguration config =
+        AlertConfiguration.builder()
+            .setType(getAlertMetricType(configuration.type))
+            .setEnabled(true)
+            .setThreshold(configuration.threshold)
+            .setProfileDurationSeconds(configuration.profileDuration)
+            .setCooldownSeconds(configuration.cooldown)
+            .build();
+
+    return SingleAlertPipeline.create(
+        new AlertRequestFilter.AcceptAll(),
+        new RollingAverage(ROLLING_AVERAGE_WINDOW_SECONDS, timeSource, true),
+        config,
+        alertAction);
+  }
+
+  static AlertMetricType getAlertMetricType(Configuration.HostTriggerType type) {
+    switch (type) {
+      case TCP_RETRANSMISSION:
+        return AlertMetricType.TCP_RETRANSMISSION;
+      case DISK_LATENCY:
+        return AlertMetricType.DISK_LATENCY;
+      case NETWORK_THROUGHPUT:
+        return AlertMetricType.NETWORK_THROUGHPUT;
+    }
+    throw new AssertionError("Unexpected host trigger type: " + type);
+  }
+}
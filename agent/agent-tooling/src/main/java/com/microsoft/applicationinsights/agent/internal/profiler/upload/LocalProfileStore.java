@@ -0,0 +1,200 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.upload;
+
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import com.azure.json.JsonToken;
+import com.azure.json.JsonWriter;
+import com.microsoft.applicationinsights.alerting.alert.AlertBreach;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps profiles in a local directory instead of uploading them (offline mode).
+ *
+ * <p>Next to the recordings there is an index file, with one json object per line describing each
+ * retained recording, so that operators can find the recording they are after without opening
+ * them. The profiler service never sees these recordings, so no ServiceProfilerIndex event is
+ * sent for them.
+ */
+public class LocalProfileStore implements ProfileUploader {
+
+  private static final Logger logger = LoggerFactory.getLogger(LocalProfileStore.class);
+
+  // visible for testing
+  static final String INDEX_FILE_NAME = "index.jsonl";
+
+  private static final String EXTENSION = ".jfr";
+
+  private static final DateTimeFormatter FILE_NAME_TIMESTAMP_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'", Locale.ROOT).withZone(ZoneOffset.UTC);
+
+  private final File directory;
+  private final long maxSizeBytes;
+  private final long maxAgeMillis;
+  private final String machineName;
+  private final String processId;
+
+  public LocalProfileStore(
+      File directory, long maxSizeBytes, long maxAgeMillis, String machineName, String processId) {
+    this.directory = directory;
+    this.maxSizeBytes = maxSizeBytes;
+    this.maxAgeMillis = maxAgeMillis;
+    this.machineName = machineName;
+    this.processId = processId;
+  }
+
+  @Override
+  public void upload(
+      AlertBreach alertBreach, long timestamp, File file, UploadListener uploadListener) {
+    try {
+      File target = store(alertBreach, timestamp, file);
+      logger.info("Profile saved to {}", target.getAbsolutePath());
+    } catch (IOException | RuntimeException e) {
+      logger.error("Failed to save profile to {}", directory.getAbsolutePath(), e);
+    }
+  }
+
+  // visible for testing
+  @SuppressFBWarnings(
+      value = "SECPTI", // Potential Path Traversal
+      justification =
+          "The constructed file path cannot be controlled by an end user of the instrumented application")
+  synchronized File store(AlertBreach alertBreach, long timestamp, File file) throws IOException {
+    Files.createDirectories(directory.toPath());
+
+    File target =
+        new File(
+            directory,
+            FILE_NAME_TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(timestamp))
+                + "_"
+                + alertBreach.getType().name()
+                + "_"
+                + alertBreach.getProfileId()
+                + EXTENSION);
+    Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    List<String> index = readIndex();
+    index.add(createIndexEntry(alertBreach, timestamp, target));
+
+    Set<String> retained = applyRetention(target);
+    List<String> retainedIndex = new ArrayList<>();
+    for (String entry : index) {
+      String fileName = getFileName(entry);
+      if (fileName != null && retained.contains(fileName)) {
+        retainedIndex.add(entry);
+      }
+    }
+    writeIndex(retainedIndex);
+    return target;
+  }
+
+  // deletes the oldest recordings until both limits are met (except for the latest recording, which
+  // is always kept), and returns the names of the recordings which are left
+  private Set<String> applyRetention(File latest) {
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+    if (files == null) {
+      files = new File[0];
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+
+    long now = System.currentTimeMillis();
+    long totalSize = 0;
+    Set<String> retained = new HashSet<>();
+    for (File file : files) {
+      totalSize += file.length();
+      boolean expired = now - file.lastModified() > maxAgeMillis || totalSize > maxSizeBytes;
+      if (!expired || file.equals(latest)) {
+        retained.add(file.getName());
+      } else if (!file.delete()) {
+        logger.warn("Failed to delete expired profile {}", file.getAbsolutePath());
+        retained.add(file.getName());
+      } else {
+        logger.debug("Deleted expired profile {}", file.getAbsolutePath());
+      }
+    }
+    return retained;
+  }
+
+  private String createIndexEntry(AlertBreach alertBreach, long timestamp, File file)
+      throws IOException {
+    StringWriter out = new StringWriter();
+    try (JsonWriter writer = JsonProviders.createWriter(out)) {
+      writer.writeStartObject();
+      writer.writeStringField("file", file.getName());
+      writer.writeStringField("profileId", alertBreach.getProfileId());
+      writer.writeStringField("triggeredBy", "JFR-" + alertBreach.getType().name());
+      writer.writeStringField("timestamp", Instant.ofEpochMilli(timestamp).toString());
+      writer.writeLongField("sizeBytes", file.length());
+      writer.writeDoubleField("alertValue", alertBreach.getAlertValue());
+      writer.writeDoubleField("cpuUsage", alertBreach.getCpuMetric());
+      writer.writeDoubleField("memoryUsage", alertBreach.getMemoryUsage());
+      writer.writeStringField("machineName", machineName);
+      writer.writeStringField("processId", processId);
+      writer.writeEndObject();
+    }
+    return out.toString();
+  }
+
+  @Nullable
+  private static String getFileName(String indexEntry) {
+    try (JsonReader reader = JsonProviders.createReader(indexEntry)) {
+      return reader.readObject(
+          entryReader -> {
+            String fileName = null;
+            while (entryReader.nextToken() != JsonToken.END_OBJECT) {
+              String fieldName = entryReader.getFieldName();
+              entryReader.nextToken();
+              if ("file".equals(fieldName)) {
+                fileName = entryReader.getString();
+              } else {
+                entryReader.skipChildren();
+              }
+            }
+            return fileName;
+          });
+    } catch (IOException | RuntimeException e) {
+      logger.debug("Dropping invalid profile index entry: {}", indexEntry, e);
+      return null;
+    }
+  }
+
+  private List<String> readIndex() throws IOException {
+    File indexFile = new File(directory, INDEX_FILE_NAME);
+    if (!indexFile.exists()) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8));
+  }
+
+  // replaces the index file in one step, so that readers never see a partially written index
+  private void writeIndex(List<String> index) throws IOException {
+    File tempFile = new File(directory, INDEX_FILE_NAME + ".tmp");
+    Files.write(tempFile.toPath(), index, StandardCharsets.UTF_8);
+    Files.move(
+        tempFile.toPath(),
+        new File(directory, INDEX_FILE_NAME).toPath(),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,17 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.upload;
+
+import com.microsoft.applicationinsights.alerting.alert.AlertBreach;
+import java.io.File;
+
+/** Takes over a JFR recording once it has been written to disk. */
+public interface ProfileUploader {
+
+  /**
+   * The recording file is deleted once this returns, so it has to be copied (or moved) before then
+   * if it is needed afterwards.
+   */
+  void upload(AlertBreach alertBreach, long timestamp, File file, UploadListener uploadListener);
+}
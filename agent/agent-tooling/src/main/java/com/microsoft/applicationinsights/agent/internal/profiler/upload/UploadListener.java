@@ -3,7 +3,12 @@
 
 package com.microsoft.applicationinsights.agent.internal.profiler.upload;
 
+import com.microsoft.applicationinsights.agent.internal.profiler.summary.RecordingSummary;
+
 @FunctionalInterface
 public interface UploadListener {
   void onUpload(ServiceProfilerIndex serviceProfilerIndex);
+
+  /** Called before the upload, if the recording could be summarized on the host. */
+  default void onRecordingSummary(RecordingSummary recordingSummary) {}
 }
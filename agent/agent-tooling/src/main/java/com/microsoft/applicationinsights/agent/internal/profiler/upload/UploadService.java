@@ -40,7 +40,7 @@ import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
 
 /** Uploads profiles to the service profiler endpoint. */
-public class UploadService {
+public class UploadService implements ProfileUploader {
 
   private static final String DATA_CUBE_META_NAME = "spDataCube";
   private static final String MACHINE_NAME_META_NAME = "spMachineName";
@@ -85,6 +85,7 @@ public class UploadService {
     this.roleName = roleName;
   }
 
+  @Override
   public void upload(
       AlertBreach alertBreach, long timestamp, File file, UploadListener uploadListener) {
 
@@ -5,6 +5,8 @@ package com.microsoft.applicationinsights.agent.internal.sampling;
 
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.AiSemanticAttributes;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.RequestChecker;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentSamplingDecisionJfrEvent;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanContext;
@@ -13,6 +15,7 @@ import io.opentelemetry.context.Context;
 import io.opentelemetry.sdk.trace.ReadableSpan;
 import io.opentelemetry.sdk.trace.data.LinkData;
 import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
 import io.opentelemetry.sdk.trace.samplers.SamplingResult;
 import java.util.List;
 import javax.annotation.Nullable;
@@ -56,6 +59,21 @@ public class AiSampler implements Sampler {
       Attributes attributes,
       List<LinkData> parentLinks) {
 
+    AgentSamplingDecisionJfrEvent jfrEvent = AgentJfrEvents.beginSamplingDecision();
+    SamplingResult samplingResult = shouldSample(parentContext, traceId, spanKind, attributes);
+    if (jfrEvent != null) {
+      // not present on dropped spans (or when ingestion sampling is left to decide)
+      Double sampleRate = samplingResult.getAttributes().get(AiSemanticAttributes.SAMPLE_RATE);
+      jfrEvent.complete(
+          sampleRate == null ? Double.NaN : sampleRate,
+          samplingResult.getDecision() == SamplingDecision.RECORD_AND_SAMPLE);
+    }
+    return samplingResult;
+  }
+
+  private SamplingResult shouldSample(
+      Context parentContext, String traceId, SpanKind spanKind, Attributes attributes) {
+
     Span parentSpan = Span.fromContext(parentContext);
     SpanContext parentSpanContext = parentSpan.getSpanContext();
     Double parentSpanSampleRate = null;
@@ -16,15 +16,18 @@ public class Samplers {
     Sampler sampler;
     if (sampling.requestsPerSecond != null) {
       SamplingPercentage requestSamplingPercentage =
-          SamplingPercentage.rateLimited(sampling.requestsPerSecond);
-      SamplingPercentage parentlessDependencySamplingPercentage = SamplingPercentage.fixed(100);
+          SamplingBackoff.apply(SamplingPercentage.rateLimited(sampling.requestsPerSecond));
+      SamplingPercentage parentlessDependencySamplingPercentage =
+          SamplingBackoff.apply(SamplingPercentage.fixed(100));
       sampler =
           AiSampler.create(
               requestSamplingPercentage,
               parentlessDependencySamplingPercentage,
               samplingPreview.ingestionSamplingEnabled);
     } else if (sampling.percentage != null) {
-      SamplingPercentage samplingPercentage = SamplingPercentage.fixed(sampling.percentage);
+      // the same instance is used for both, see the fixed-rate optimization in AiSampler
+      SamplingPercentage samplingPercentage =
+          SamplingBackoff.apply(SamplingPercentage.fixed(sampling.percentage));
       sampler =
           AiSampler.create(
               samplingPercentage, samplingPercentage, samplingPreview.ingestionSamplingEnabled);
@@ -0,0 +1,41 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.sampling;
+
+/**
+ * Lets the agent lower the configured sampling percentage while its own overhead is too high.
+ *
+ * <p>The sampling percentage is divided by a whole number, so that it stays in the 100/N form that
+ * item counts depend on (see {@link SamplingPercentage}).
+ */
+public final class SamplingBackoff {
+
+  private static volatile int divisor = 1;
+
+  public static int getDivisor() {
+    return divisor;
+  }
+
+  public static void setDivisor(int divisor) {
+    if (divisor < 1) {
+      throw new IllegalArgumentException("divisor must be at least 1: " + divisor);
+    }
+    SamplingBackoff.divisor = divisor;
+  }
+
+  static SamplingPercentage apply(SamplingPercentage samplingPercentage) {
+    return () -> divide(samplingPercentage.get(), divisor);
+  }
+
+  // visible for testing
+  static double divide(double samplingPercentage, int divisor) {
+    if (divisor == 1 || samplingPercentage == 0) {
+      return samplingPercentage;
+    }
+    // (100 / N) / divisor == 100 / (N * divisor)
+    return 100.0 / (Math.round(100 / samplingPercentage) * divisor);
+  }
+
+  private SamplingBackoff() {}
+}
@@ -6,16 +6,28 @@ package com.microsoft.applicationinsights.agent.internal.telemetry;
 import static com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.AzureMonitorMsgId.BATCH_ITEM_PROCESSOR_ERROR;
 
 import com.azure.core.util.logging.ClientLogger;
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import com.azure.json.JsonWriter;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.configuration.ConnectionString;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.logging.OperationLogger;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.models.TelemetryItem;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.pipeline.TelemetryItemExporter;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentBatchExportJfrEvent;
+import com.microsoft.applicationinsights.diagnostics.jfr.AgentJfrEvents;
 import io.opentelemetry.api.logs.LoggerProvider;
 import io.opentelemetry.internal.shaded.jctools.queues.atomic.MpscAtomicArrayQueue;
 import io.opentelemetry.javaagent.bootstrap.CallDepth;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.internal.DaemonThreadFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -25,6 +37,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
 
 // copied from io.opentelemetry.sdk.trace.export.BatchSpanProcessor
 public final class BatchItemProcessor {
@@ -55,7 +70,9 @@ public final class BatchItemProcessor {
       int maxExportBatchSize,
       long exporterTimeoutNanos,
       int maxPendingExports,
-      String queueName) {
+      String queueName,
+      @Nullable TelemetrySpool spool,
+      Supplier<ConnectionString> connectionStringSupplier) {
     MpscAtomicArrayQueue<TelemetryItem> queue = new MpscAtomicArrayQueue<>(maxQueueSize);
     this.worker =
         new Worker(
@@ -66,7 +83,9 @@ public final class BatchItemProcessor {
             maxPendingExports,
             queue,
             queue.capacity(),
-            queueName);
+            queueName,
+            spool,
+            connectionStringSupplier);
 
     Thread workerThread = new DaemonThreadFactory(WORKER_THREAD_NAME).newThread(worker);
     workerThread.setUncaughtExceptionHandler((t, e) -> logger.error(e.getMessage(), e));
@@ -88,6 +107,80 @@ public final class BatchItemProcessor {
     return worker.forceFlush();
   }
 
+  // visible for testing
+  static void replaySegment(
+      TelemetrySpool spool,
+      File file,
+      ConnectionString currentConnectionString,
+      Map<String, ConnectionString> connectionStrings,
+      int maxExportBatchSize,
+      Function<List<TelemetryItem>, CompletableResultCode> sender) {
+    List<TelemetryItem> items = new ArrayList<>();
+    boolean readFailed = false;
+    int unreadable = 0;
+    try {
+      for (byte[] record : TelemetrySpool.readSegment(file)) {
+        TelemetrySpool.Record parsed = TelemetrySpool.parseRecord(record);
+        if (parsed == null) {
+          unreadable++;
+          continue;
+        }
+        try {
+          TelemetryItem item = deserialize(parsed.item);
+          item.setConnectionString(
+              getConnectionString(parsed, currentConnectionString, connectionStrings));
+          items.add(item);
+        } catch (IOException | RuntimeException e) {
+          unreadable++;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.warning("Could not read telemetry spool segment {}", file, e);
+      readFailed = true;
+    }
+    if (unreadable > 0) {
+      // these can never be sent, so they don't prevent the segment from being deleted
+      logger.warning("Dropping {} unreadable spooled telemetry items from {}", unreadable, file);
+    }
+    logger.verbose("Replaying {} spooled telemetry items from {}", items.size(), file);
+    List<CompletableResultCode> results = new ArrayList<>();
+    for (int i = 0; i < items.size(); i += maxExportBatchSize) {
+      results.add(sender.apply(items.subList(i, Math.min(i + maxExportBatchSize, items.size()))));
+    }
+    if (readFailed) {
+      // nothing from this segment has been sent, so it is replayed again on the next start
+      return;
+    }
+    // same as for live items: failed batches are written to disk downstream (the spool is only
+    // used together with the disk persistence), or are not retryable, so keeping the segment as
+    // well would send them twice
+    CompletableResultCode.ofAll(results).whenComplete(() -> spool.deleteRecovered(file));
+  }
+
+  private static ConnectionString getConnectionString(
+      TelemetrySpool.Record record,
+      ConnectionString currentConnectionString,
+      Map<String, ConnectionString> connectionStrings) {
+    if (record.instrumentationKey.equals(currentConnectionString.getInstrumentationKey())
+        && record.ingestionEndpoint.equals(currentConnectionString.getIngestionEndpoint())) {
+      return currentConnectionString;
+    }
+    return connectionStrings.computeIfAbsent(
+        record.instrumentationKey + "\n" + record.ingestionEndpoint,
+        k ->
+            ConnectionString.parse(
+                "InstrumentationKey="
+                    + record.instrumentationKey
+                    + ";IngestionEndpoint="
+                    + record.ingestionEndpoint));
+  }
+
+  private static TelemetryItem deserialize(byte[] record) throws IOException {
+    try (JsonReader reader = JsonProviders.createReader(record)) {
+      return TelemetryItem.fromJson(reader);
+    }
+  }
+
   // Worker is a thread that batches multiple items and calls the registered TelemetryItemExporter
   // to export the data.
   private static final class Worker implements Runnable {
@@ -118,12 +211,25 @@ public final class BatchItemProcessor {
     private final Set<CompletableResultCode> pendingExports =
         Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    @Nullable private final TelemetrySpool spool;
+    private final Supplier<ConnectionString> connectionStringSupplier;
+    // makes the spool sequence numbers match the queue order
+    private final Object spoolLock = new Object();
+    // number of items polled from the queue, which is the spool sequence number of the next one
+    private long polledCount;
+    private long batchStartSeq;
+    // only accessed by the worker thread
+    private boolean spoolReplayed;
+
     private static final OperationLogger queuingItemLogger =
         new OperationLogger(BatchItemProcessor.class, "Queuing telemetry item");
 
     private static final OperationLogger addAsyncExport =
         new OperationLogger(BatchItemProcessor.class, "Add async export");
 
+    private static final OperationLogger spoolItemLogger =
+        new OperationLogger(BatchItemProcessor.class, "Spooling telemetry item");
+
     private Worker(
         TelemetryItemExporter exporter,
         long scheduleDelayNanos,
@@ -132,7 +238,9 @@ public final class BatchItemProcessor {
         int maxPendingExports,
         Queue<TelemetryItem> queue,
         int queueCapacity,
-        String queueName) {
+        String queueName,
+        @Nullable TelemetrySpool spool,
+        Supplier<ConnectionString> connectionStringSupplier) {
       this.exporter = exporter;
       this.scheduleDelayNanos = scheduleDelayNanos;
       this.maxExportBatchSize = maxExportBatchSize;
@@ -143,10 +251,12 @@ public final class BatchItemProcessor {
       this.queueName = queueName;
       this.signal = new ArrayBlockingQueue<>(1);
       this.batch = new ArrayList<>(this.maxExportBatchSize);
+      this.spool = spool;
+      this.connectionStringSupplier = connectionStringSupplier;
     }
 
     private void addItem(TelemetryItem item) {
-      if (!queue.offer(item)) {
+      if (!offer(item)) {
         queuingItemLogger.recordFailure(
             "Max "
                 + queueName
@@ -161,6 +271,7 @@ public final class BatchItemProcessor {
                 + (queueCapacity * 2)
                 + " } }",
             BATCH_ITEM_PROCESSOR_ERROR);
+        AgentJfrEvents.queueDrop(queueName, queueCapacity);
       } else {
         queuingItemLogger.recordSuccess();
         if (queue.size() >= itemsNeeded.get()) {
@@ -169,6 +280,33 @@ public final class BatchItemProcessor {
       }
     }
 
+    private boolean offer(TelemetryItem item) {
+      if (spool == null) {
+        return queue.offer(item);
+      }
+      // serializing outside of the lock
+      byte[] payload = serialize(item);
+      synchronized (spoolLock) {
+        if (!queue.offer(item)) {
+          return false;
+        }
+        if (payload == null) {
+          spool.skip();
+        } else {
+          spool.append(payload);
+        }
+        return true;
+      }
+    }
+
+    private void addToBatch(TelemetryItem item) {
+      if (batch.isEmpty()) {
+        batchStartSeq = polledCount;
+      }
+      polledCount++;
+      batch.add(item);
+    }
+
     @Override
     public void run() {
       // incrementing CallDepth for LoggerProvider causes the OpenTelemetry Java agent logging
@@ -191,16 +329,28 @@ public final class BatchItemProcessor {
       updateNextExportTime();
 
       while (continueWork) {
+        if (spool != null && !spoolReplayed) {
+          // nothing is sent before there is a connection string (e.g. it can be configured at
+          // runtime), so this is retried on each iteration until then
+          ConnectionString connectionString = connectionStringSupplier.get();
+          if (connectionString != null) {
+            spoolReplayed = true;
+            replaySpool(spool, connectionString);
+          }
+        }
         if (flushRequested.get() != null) {
           flush();
         }
         while (!queue.isEmpty() && batch.size() < maxExportBatchSize) {
-          batch.add(queue.poll());
+          addToBatch(queue.poll());
         }
         if (batch.size() >= maxExportBatchSize || System.nanoTime() >= nextExportTime) {
           exportCurrentBatch();
           updateNextExportTime();
         }
+        if (spool != null) {
+          spool.forceIfDue();
+        }
         if (queue.isEmpty()) {
           try {
             long pollWaitTime = nextExportTime - System.nanoTime();
@@ -222,7 +372,7 @@ public final class BatchItemProcessor {
       while (itemsToFlush > 0) {
         TelemetryItem item = queue.poll();
         assert item != null;
-        batch.add(item);
+        addToBatch(item);
         itemsToFlush--;
         if (batch.size() >= maxExportBatchSize) {
           exportCurrentBatch();
@@ -298,9 +448,17 @@ public final class BatchItemProcessor {
         return;
       }
 
+      AgentBatchExportJfrEvent jfrEvent = AgentJfrEvents.beginBatchExport();
       try {
         // batching, retry, logging, and writing to disk on failure occur downstream
         CompletableResultCode result = exporter.send(Collections.unmodifiableList(batch));
+        if (spool != null) {
+          // failed batches are written to disk downstream (or are not retryable), so either way
+          // the items no longer need to be spooled
+          long fromSeq = batchStartSeq;
+          long toSeq = batchStartSeq + batch.size();
+          result.whenComplete(() -> spool.acknowledge(fromSeq, toSeq));
+        }
         if (pendingExports.size() < maxPendingExports - 1) {
           addAsyncExport.recordSuccess();
           pendingExports.add(result);
@@ -321,8 +479,45 @@ public final class BatchItemProcessor {
           result.join(exporterTimeoutNanos, TimeUnit.NANOSECONDS);
         }
       } finally {
+        if (jfrEvent != null) {
+          jfrEvent.complete(queueName, batch.size());
+        }
         batch.clear();
       }
     }
+
+    // sends the items that were spooled, but not acknowledged, by a previous process
+    private void replaySpool(TelemetrySpool spool, ConnectionString currentConnectionString) {
+      Map<String, ConnectionString> connectionStrings = new HashMap<>();
+      for (File file : spool.getRecoveredSegments()) {
+        replaySegment(
+            spool,
+            file,
+            currentConnectionString,
+            connectionStrings,
+            maxExportBatchSize,
+            exporter::send);
+      }
+    }
+
+    @Nullable
+    private static byte[] serialize(TelemetryItem item) {
+      ConnectionString connectionString = item.getConnectionString();
+      if (connectionString == null) {
+        return null;
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (JsonWriter writer = JsonProviders.createWriter(out)) {
+        item.toJson(writer);
+      } catch (IOException | RuntimeException e) {
+        spoolItemLogger.recordFailure(
+            "Could not serialize telemetry item for spooling", e, BATCH_ITEM_PROCESSOR_ERROR);
+        return null;
+      }
+      return TelemetrySpool.toRecord(
+          connectionString.getInstrumentationKey(),
+          connectionString.getIngestionEndpoint(),
+          out.toByteArray());
+    }
   }
 }
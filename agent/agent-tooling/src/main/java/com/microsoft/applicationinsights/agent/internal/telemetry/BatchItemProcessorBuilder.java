@@ -6,8 +6,11 @@ package com.microsoft.applicationinsights.agent.internal.telemetry;
 import static io.opentelemetry.api.internal.Utils.checkArgument;
 import static java.util.Objects.requireNonNull;
 
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.configuration.ConnectionString;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.pipeline.TelemetryItemExporter;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
 
 // copied from io.opentelemetry.sdk.trace.export.BatchSpanProcessorBuilder
 final class BatchItemProcessorBuilder {
@@ -29,6 +32,8 @@ final class BatchItemProcessorBuilder {
   private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
   private int maxExportBatchSize = DEFAULT_MAX_EXPORT_BATCH_SIZE;
   private int maxPendingExports = DEFAULT_MAX_PENDING_EXPORTS;
+  @Nullable private TelemetrySpool spool;
+  private Supplier<ConnectionString> connectionStringSupplier = () -> null;
 
   BatchItemProcessorBuilder(TelemetryItemExporter exporter) {
     this.exporter = requireNonNull(exporter, "exporter");
@@ -89,6 +94,23 @@ final class BatchItemProcessorBuilder {
     return this;
   }
 
+  /**
+   * Sets the spool that items are recorded to until they have been handed off to the exporter.
+   *
+   * <p>Items left in the spool by a previous process are replayed on startup, using the connection
+   * string returned by {@code connectionStringSupplier}.
+   *
+   * @param spool the spool.
+   * @param connectionStringSupplier supplies the connection string for replayed items.
+   * @return this.
+   */
+  BatchItemProcessorBuilder setSpool(
+      TelemetrySpool spool, Supplier<ConnectionString> connectionStringSupplier) {
+    this.spool = requireNonNull(spool, "spool");
+    this.connectionStringSupplier = connectionStringSupplier;
+    return this;
+  }
+
   /**
    * Returns a new {@link BatchItemProcessor} that batches, then converts items to proto and
    * forwards them to the given {@code exporter}.
@@ -104,6 +126,8 @@ final class BatchItemProcessorBuilder {
         maxExportBatchSize,
         exporterTimeoutNanos,
         maxPendingExports,
-        queueName);
+        queueName,
+        spool,
+        connectionStringSupplier);
   }
 }
@@ -0,0 +1,425 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.ExceptionDetailBuilder;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.ExceptionTelemetryBuilder;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.FormattedTime;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.Strings;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.utils.ThreadPoolUtils;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ExceptionStormSuppression;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Limits how many exceptions with the same fingerprint (type plus top stack frames) are sent in
+ * full within a time window.
+ *
+ * <p>When a dependency goes down, every request typically fails with the same exception. The first
+ * {@code maxFullOccurrences} occurrences of each fingerprint within a window are sent as usual
+ * (with the fingerprint added as a property), and the rest are only counted, without building their
+ * parsed stack, and reported as a single aggregated exception record once the window ends.
+ *
+ * <p>Suppressed exceptions are not passed to live metrics either, since that would require building
+ * the full telemetry item, so during a storm live metrics only shows the exceptions which are sent
+ * in full and the aggregated records.
+ */
+public final class ExceptionStormSuppressor {
+
+  public static final String FINGERPRINT_PROPERTY = "ExceptionFingerprint";
+  public static final String SUPPRESSED_COUNT_PROPERTY = "SuppressedCount";
+
+  // bounds memory if exceptions have (nearly) unique stacks, beyond this nothing is suppressed
+  private static final int MAX_TRACKED_FINGERPRINTS = 1000;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  // limits the depth in case of a very long cause chain
+  private static final int MAX_CAUSES = 10;
+
+  private static final String CAUSED_BY = "Caused by: ";
+
+  private static final int UNKNOWN_LINE_NUMBER = -1;
+  private static final int NATIVE_METHOD_LINE_NUMBER = -2;
+
+  private final int maxFullOccurrences;
+  private final long windowNanos;
+  private final int stackFrames;
+  private final LongSupplier nanoTime;
+  private final SuppressedExceptionsConsumer suppressedExceptionsConsumer;
+
+  private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+
+  public static ExceptionStormSuppressor create(
+      ExceptionStormSuppression configuration, TelemetryClient telemetryClient) {
+    ExceptionStormSuppressor suppressor =
+        new ExceptionStormSuppressor(
+            configuration.maxFullOccurrences,
+            TimeUnit.SECONDS.toNanos(configuration.windowSeconds),
+            configuration.stackFrames,
+            System::nanoTime,
+            (fingerprint, typeName, message, count) ->
+                trackSuppressed(telemetryClient, fingerprint, typeName, message, count));
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(
+            ThreadPoolUtils.createDaemonThreadFactory(ExceptionStormSuppressor.class));
+    // checking more often than the window so that aggregated records are not delayed much
+    long periodSeconds = Math.max(1, configuration.windowSeconds / 4);
+    executor.scheduleWithFixedDelay(
+        suppressor::flushExpired, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    return suppressor;
+  }
+
+  ExceptionStormSuppressor(
+      int maxFullOccurrences,
+      long windowNanos,
+      int stackFrames,
+      LongSupplier nanoTime,
+      SuppressedExceptionsConsumer suppressedExceptionsConsumer) {
+    this.maxFullOccurrences = maxFullOccurrences;
+    this.windowNanos = windowNanos;
+    this.stackFrames = stackFrames;
+    this.nanoTime = nanoTime;
+    this.suppressedExceptionsConsumer = suppressedExceptionsConsumer;
+  }
+
+  /**
+   * Returns the fingerprint of the exception if it should be sent in full, or {@code null} if it
+   * has been counted towards the aggregated record for its fingerprint instead.
+   */
+  @Nullable
+  public String track(Throwable throwable) {
+    long fingerprint = fingerprint(throwable, stackFrames);
+    if (!track(fingerprint, throwable.getClass().getName(), throwable.getMessage())) {
+      return null;
+    }
+    return toId(fingerprint);
+  }
+
+  /**
+   * Same as {@link #track(Throwable)}, for exceptions that are only available in their printed
+   * form (e.g. captured from logging frameworks).
+   */
+  @Nullable
+  public String track(String stackTrace) {
+    long fingerprint = fingerprint(stackTrace, stackFrames);
+    int firstLineEnd = indexOfLineEnd(stackTrace, 0);
+    String firstLine = stackTrace.substring(0, firstLineEnd);
+    int separator = firstLine.indexOf(": ");
+    String typeName = separator == -1 ? firstLine : firstLine.substring(0, separator);
+    String message = separator == -1 ? null : firstLine.substring(separator + 2);
+    if (!track(fingerprint, typeName, message)) {
+      return null;
+    }
+    return toId(fingerprint);
+  }
+
+  private boolean track(long fingerprint, String typeName, @Nullable String message) {
+    long now = nanoTime.getAsLong();
+    while (true) {
+      Window window = windows.get(fingerprint);
+      if (window == null) {
+        if (windows.size() >= MAX_TRACKED_FINGERPRINTS) {
+          return true;
+        }
+        window = windows.computeIfAbsent(fingerprint, k -> new Window(now));
+      }
+      Aggregate expired = null;
+      boolean track;
+      synchronized (window) {
+        if (window.removed) {
+          // raced with flushExpired()
+          continue;
+        }
+        if (now - window.startNanos >= windowNanos) {
+          expired = window.reset(now);
+        }
+        if (++window.count <= maxFullOccurrences) {
+          track = true;
+        } else {
+          if (window.suppressed++ == 0) {
+            window.typeName = typeName;
+            window.message = message;
+          }
+          track = false;
+        }
+      }
+      if (expired != null) {
+        report(fingerprint, expired);
+      }
+      return track;
+    }
+  }
+
+  /** Reports and forgets windows which have ended. */
+  void flushExpired() {
+    long now = nanoTime.getAsLong();
+    Iterator<Map.Entry<Long, Window>> i = windows.entrySet().iterator();
+    while (i.hasNext()) {
+      Map.Entry<Long, Window> entry = i.next();
+      Window window = entry.getValue();
+      Aggregate expired;
+      synchronized (window) {
+        if (now - window.startNanos < windowNanos) {
+          continue;
+        }
+        expired = window.reset(now);
+        window.removed = true;
+        i.remove();
+      }
+      if (expired != null) {
+        report(entry.getKey(), expired);
+      }
+    }
+  }
+
+  private void report(long fingerprint, Aggregate aggregate) {
+    suppressedExceptionsConsumer.accept(
+        toId(fingerprint), aggregate.typeName, aggregate.message, aggregate.count);
+  }
+
+  // both fingerprints are computed by fingerprint(String, List, List) from the same normalized
+  // form, so that an exception has the same fingerprint whether it is tracked as a Throwable or
+  // captured from logging in its printed form
+  static long fingerprint(Throwable throwable, int stackFrames) {
+    StackTraceElement[] trace = throwable.getStackTrace();
+    List<String> frames = new ArrayList<>(Math.min(stackFrames, trace.length));
+    for (int i = 0; i < Math.min(stackFrames, trace.length); i++) {
+      StackTraceElement frame = trace[i];
+      frames.add(normalizeFrame(frame.getClassName(), frame.getMethodName(), getLineNumber(frame)));
+    }
+    List<String> causeTypeNames = new ArrayList<>();
+    // same as printStackTrace(), which stops at the first cause that was already printed
+    Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    seen.add(throwable);
+    Throwable cause = throwable.getCause();
+    while (cause != null && seen.add(cause) && causeTypeNames.size() < MAX_CAUSES) {
+      causeTypeNames.add(cause.getClass().getName());
+      cause = cause.getCause();
+    }
+    return fingerprint(throwable.getClass().getName(), frames, causeTypeNames);
+  }
+
+  // the printed form of the above: the type from the first line, the "\tat " lines which directly
+  // follow it, and the types from the (not indented) "Caused by: " lines, while the frames and
+  // causes of suppressed exceptions are indented and skipped
+  static long fingerprint(String stackTrace, int stackFrames) {
+    int lineEnd = indexOfLineEnd(stackTrace, 0);
+    String typeName = stackTrace.substring(0, indexOfTypeEnd(stackTrace, 0, lineEnd));
+    List<String> frames = new ArrayList<>(stackFrames);
+    List<String> causeTypeNames = new ArrayList<>();
+    boolean inTopFrames = true;
+    int lineStart = nextLineStart(stackTrace, lineEnd);
+    while (lineStart < stackTrace.length() && causeTypeNames.size() < MAX_CAUSES) {
+      lineEnd = indexOfLineEnd(stackTrace, lineStart);
+      int contentStart = lineStart;
+      while (contentStart < lineEnd && Character.isWhitespace(stackTrace.charAt(contentStart))) {
+        contentStart++;
+      }
+      if (inTopFrames && stackTrace.startsWith("at ", contentStart)) {
+        if (frames.size() < stackFrames) {
+          frames.add(normalizeFrame(stackTrace, contentStart + 3, lineEnd));
+        }
+      } else {
+        inTopFrames = false;
+        if (stackTrace.startsWith(CAUSED_BY, lineStart)
+            // e.g. "Caused by: [CIRCULAR REFERENCE: ...]"
+            && !stackTrace.startsWith("[", lineStart + CAUSED_BY.length())) {
+          int causeStart = lineStart + CAUSED_BY.length();
+          causeTypeNames.add(
+              stackTrace.substring(causeStart, indexOfTypeEnd(stackTrace, causeStart, lineEnd)));
+        }
+      }
+      lineStart = nextLineStart(stackTrace, lineEnd);
+    }
+    return fingerprint(typeName, frames, causeTypeNames);
+  }
+
+  // FNV-1a over the exception type, the top stack frames, and the types in the cause chain
+  private static long fingerprint(
+      String typeName, List<String> frames, List<String> causeTypeNames) {
+    long hash = hash(FNV_OFFSET_BASIS, typeName);
+    for (String frame : frames) {
+      hash = hash(hash, frame);
+    }
+    for (String causeTypeName : causeTypeNames) {
+      hash = hash(hash, causeTypeName);
+    }
+    return hash;
+  }
+
+  // the line number as printed by StackTraceElement.toString()
+  private static int getLineNumber(StackTraceElement frame) {
+    if (frame.isNativeMethod()) {
+      return NATIVE_METHOD_LINE_NUMBER;
+    }
+    if (frame.getFileName() == null || frame.getLineNumber() < 0) {
+      return UNKNOWN_LINE_NUMBER;
+    }
+    return frame.getLineNumber();
+  }
+
+  private static String normalizeFrame(String className, String methodName, int lineNumber) {
+    return className + '.' + methodName + ':' + lineNumber;
+  }
+
+  // parses a printed frame, e.g. "java.base/java.lang.Thread.run(Thread.java:833)", optionally
+  // followed by packaging data (e.g. " ~[na:na]" from logback)
+  private static String normalizeFrame(String stackTrace, int start, int end) {
+    int locationStart = stackTrace.indexOf('(', start);
+    if (locationStart == -1 || locationStart > end) {
+      return stackTrace.substring(start, end);
+    }
+    // skipping the class loader and module names
+    int nameStart = stackTrace.lastIndexOf('/', locationStart) + 1;
+    if (nameStart < start) {
+      nameStart = start;
+    }
+    int locationEnd = stackTrace.indexOf(')', locationStart);
+    if (locationEnd == -1 || locationEnd > end) {
+      locationEnd = end;
+    }
+    String location = stackTrace.substring(locationStart + 1, locationEnd);
+    int lineNumber;
+    if (location.equals("Native Method")) {
+      lineNumber = NATIVE_METHOD_LINE_NUMBER;
+    } else {
+      lineNumber = UNKNOWN_LINE_NUMBER;
+      int separator = location.lastIndexOf(':');
+      if (separator != -1) {
+        try {
+          lineNumber = Integer.parseInt(location.substring(separator + 1));
+        } catch (NumberFormatException e) {
+          // e.g. "Foo.java:unknown" from some logging frameworks, treated as unknown
+        }
+      }
+    }
+    return stackTrace.substring(nameStart, locationStart) + ':' + lineNumber;
+  }
+
+  private static int indexOfTypeEnd(String text, int start, int lineEnd) {
+    int typeEnd = text.indexOf(':', start);
+    return typeEnd == -1 || typeEnd > lineEnd ? lineEnd : typeEnd;
+  }
+
+  private static int indexOfLineEnd(String text, int from) {
+    for (int i = from; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\n' || c == '\r') {
+        return i;
+      }
+    }
+    return text.length();
+  }
+
+  private static int nextLineStart(String text, int lineEnd) {
+    int i = lineEnd;
+    while (i < text.length() && (text.charAt(i) == '\n' || text.charAt(i) == '\r')) {
+      i++;
+    }
+    return i;
+  }
+
+  private static long hash(long hash, String value) {
+    return hash(hash, value, 0, value.length());
+  }
+
+  private static long hash(long hash, String value, int start, int end) {
+    for (int i = start; i < end; i++) {
+      hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+    }
+    // separator, so that adjacent values can't run into each other
+    return (hash ^ 0xffff) * FNV_PRIME;
+  }
+
+  private static String toId(long fingerprint) {
+    String hex = Long.toHexString(fingerprint);
+    StringBuilder sb = new StringBuilder(16);
+    for (int i = hex.length(); i < 16; i++) {
+      sb.append('0');
+    }
+    return sb.append(hex).toString();
+  }
+
+  private static void trackSuppressed(
+      TelemetryClient telemetryClient,
+      String fingerprint,
+      String typeName,
+      @Nullable String message,
+      int count) {
+    ExceptionTelemetryBuilder telemetryBuilder = telemetryClient.newExceptionTelemetryBuilder();
+
+    ExceptionDetailBuilder exceptionDetails = new ExceptionDetailBuilder();
+    exceptionDetails.setTypeName(typeName);
+    exceptionDetails.setMessage(Strings.isNullOrEmpty(message) ? typeName : message);
+    exceptionDetails.setHasFullStack(false);
+    telemetryBuilder.setExceptions(Collections.singletonList(exceptionDetails));
+
+    telemetryBuilder.addProperty(FINGERPRINT_PROPERTY, fingerprint);
+    telemetryBuilder.addProperty(SUPPRESSED_COUNT_PROPERTY, Integer.toString(count));
+    telemetryBuilder.setTime(FormattedTime.offSetDateTimeFromNow());
+
+    telemetryClient.trackAsync(telemetryBuilder.build());
+  }
+
+  @FunctionalInterface
+  interface SuppressedExceptionsConsumer {
+    void accept(String fingerprint, String typeName, @Nullable String message, int count);
+  }
+
+  private static class Window {
+
+    // all guarded by this
+    private long startNanos;
+    private int count;
+    private int suppressed;
+    // of the first suppressed occurrence in the window
+    @Nullable private String typeName;
+    @Nullable private String message;
+    private boolean removed;
+
+    private Window(long startNanos) {
+      this.startNanos = startNanos;
+    }
+
+    @Nullable
+    private Aggregate reset(long now) {
+      Aggregate aggregate = null;
+      if (suppressed > 0 && typeName != null) {
+        aggregate = new Aggregate(typeName, message, suppressed);
+      }
+      startNanos = now;
+      count = 0;
+      suppressed = 0;
+      typeName = null;
+      message = null;
+      return aggregate;
+    }
+  }
+
+  private static class Aggregate {
+
+    private final String typeName;
+    @Nullable private final String message;
+    private final int count;
+
+    private Aggregate(String typeName, @Nullable String message, int count) {
+      this.typeName = typeName;
+      this.message = message;
+      this.count = count;
+    }
+  }
+}
@@ -4,12 +4,12 @@
 package com.microsoft.applicationinsights.agent.internal.telemetry;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.agent.internal.configuration.PrefilteredPattern;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 public class MetricFilter {
 
@@ -32,7 +32,7 @@ public class MetricFilter {
   public static class IncludeExclude {
     public final Configuration.MatchType matchType;
     public final Set<String> metricNames;
-    public final List<Pattern> metricNamePatterns;
+    public final List<PrefilteredPattern> metricNamePatterns;
 
     public IncludeExclude(Configuration.ProcessorIncludeExclude includeExcludeConfiguration) {
       this.matchType = includeExcludeConfiguration.matchType;
@@ -47,7 +47,7 @@ public class MetricFilter {
           for (String metricName : includeExcludeConfiguration.metricNames) {
             // these patterns have already been validated in
             // Configuration.MetricFilterConfig.validate()
-            this.metricNamePatterns.add(Pattern.compile(metricName));
+            this.metricNamePatterns.add(PrefilteredPattern.compile(metricName));
           }
           break;
         default:
@@ -60,8 +60,8 @@ public class MetricFilter {
         case STRICT:
           return metricNames.contains(metricName);
         case REGEXP:
-          for (Pattern metricNamePattern : metricNamePatterns) {
-            if (!metricNamePattern.matcher(metricName).matches()) {
+          for (PrefilteredPattern metricNamePattern : metricNamePatterns) {
+            if (!metricNamePattern.matches(metricName)) {
               return false;
             }
           }
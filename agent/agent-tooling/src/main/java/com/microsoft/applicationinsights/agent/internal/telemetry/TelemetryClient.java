@@ -3,6 +3,8 @@
 
 package com.microsoft.applicationinsights.agent.internal.telemetry;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 import com.azure.core.http.HttpPipeline;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.AbstractTelemetryBuilder;
 import com.azure.monitor.opentelemetry.autoconfigure.implementation.builders.AvailabilityTelemetryBuilder;
@@ -37,6 +39,7 @@ import com.microsoft.applicationinsights.agent.internal.httpclient.LazyHttpClien
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.resources.Resource;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -44,10 +47,15 @@ import java.util.Map;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import org.apache.commons.text.StringSubstitutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class TelemetryClient {
 
+  private static final Logger logger = LoggerFactory.getLogger(TelemetryClient.class);
+
   private static final String TELEMETRY_FOLDER_NAME = "telemetry";
+  private static final String SPOOL_FOLDER_NAME = "spool";
 
   @Nullable private static volatile TelemetryClient active;
 
@@ -68,7 +76,7 @@ public class TelemetryClient {
   // contains customDimensions from json configuration
   private final Map<String, String> globalProperties;
 
-  private final List<MetricFilter> metricFilters;
+  private volatile List<MetricFilter> metricFilters;
 
   @Nullable private volatile QuickPulse quickPulse;
 
@@ -77,6 +85,7 @@ public class TelemetryClient {
   private final int generalExportQueueCapacity;
   private final int metricsExportQueueCapacity;
   private final int diskPersistenceMaxSizeMb;
+  private final Configuration.TelemetrySpoolConfiguration telemetrySpool;
 
   @Nullable private final Configuration.AadAuthentication aadAuthentication;
 
@@ -113,6 +122,7 @@ public class TelemetryClient {
     this.roleName = builder.roleName;
     this.roleInstance = builder.roleInstance;
     this.diskPersistenceMaxSizeMb = builder.diskPersistenceMaxSizeMb;
+    this.telemetrySpool = builder.telemetrySpool;
 
     appIdSupplier = new AppIdSupplier();
     if (this.connectionString != null) {
@@ -254,14 +264,40 @@ public class TelemetryClient {
                   false));
     }
 
-    return BatchItemProcessor.builder(
-            new TelemetryItemExporter(telemetryPipeline, telemetryPipelineListener))
-        .setMaxQueueSize(exportQueueCapacity)
-        .setMaxExportBatchSize(maxExportBatchSize)
-        // the number 100 was calculated as the max number of concurrent exports that the single
-        // worker thread can drive, so anything higher than this should not increase throughput
-        .setMaxPendingExports(100)
-        .build(queueName);
+    BatchItemProcessorBuilder builder =
+        BatchItemProcessor.builder(
+                new TelemetryItemExporter(telemetryPipeline, telemetryPipelineListener))
+            .setMaxQueueSize(exportQueueCapacity)
+            .setMaxExportBatchSize(maxExportBatchSize)
+            // the number 100 was calculated as the max number of concurrent exports that the single
+            // worker thread can drive, so anything higher than this should not increase throughput
+            .setMaxPendingExports(100);
+
+    TelemetrySpool spool = openSpool(queueName);
+    if (spool != null) {
+      builder.setSpool(spool, this::getConnectionString);
+    }
+    return builder.build(queueName);
+  }
+
+  @Nullable
+  private TelemetrySpool openSpool(String queueName) {
+    // spooled items are only acknowledged once failed exports have been written to disk
+    if (!telemetrySpool.enabled || tempDir == null) {
+      return null;
+    }
+    try {
+      return TelemetrySpool.open(
+          TempDirs.getSubDir(tempDir, SPOOL_FOLDER_NAME),
+          queueName,
+          telemetrySpool.maxSizeMb * 1024 * 1024,
+          telemetrySpool.segmentSizeKb * 1024,
+          telemetrySpool.fsync,
+          MILLISECONDS.toNanos(telemetrySpool.fsyncIntervalMillis));
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not open the telemetry spool, telemetry will not be spooled", e);
+      return null;
+    }
   }
 
   /** Gets or sets the default instrumentation key for the application. */
@@ -420,6 +456,10 @@ public class TelemetryClient {
     this.quickPulse = quickPulse;
   }
 
+  public void setMetricFilters(List<MetricFilter> metricFilters) {
+    this.metricFilters = metricFilters;
+  }
+
   public void setOtelResource(Resource resource) {
     otelResource = resource;
   }
@@ -439,6 +479,8 @@ public class TelemetryClient {
     @Nullable private String roleName;
     @Nullable private String roleInstance;
     private int diskPersistenceMaxSizeMb;
+    private Configuration.TelemetrySpoolConfiguration telemetrySpool =
+        new Configuration.TelemetrySpoolConfiguration();
 
     public Builder setCustomDimensions(Map<String, String> customDimensions) {
       StringSubstitutor substitutor = new StringSubstitutor(System.getenv());
@@ -529,6 +571,11 @@ public class TelemetryClient {
       return this;
     }
 
+    public Builder setTelemetrySpool(Configuration.TelemetrySpoolConfiguration telemetrySpool) {
+      this.telemetrySpool = telemetrySpool;
+      return this;
+    }
+
     public TelemetryClient build() {
       return new TelemetryClient(this);
     }
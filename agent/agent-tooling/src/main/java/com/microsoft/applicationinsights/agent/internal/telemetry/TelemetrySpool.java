@@ -0,0 +1,424 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SpoolFsyncPolicy;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only write-ahead spool made of fixed size, memory-mapped segment files.
+ *
+ * <p>Every item accepted into an export queue is assigned the next sequence number (whether or not
+ * it could actually be spooled), so that the export worker, which polls the queue in the same
+ * order, can acknowledge ranges of sequence numbers once a batch has been handed off. Segments
+ * whose sequence numbers have all been acknowledged are deleted.
+ *
+ * <p>Records are written to the page cache through the mapping, so they survive the JVM being
+ * killed without any fsync. The fsync policy only matters for surviving a host crash.
+ *
+ * <p>Segment files that are found on startup belong to a previous process (the spool directory is
+ * locked for the lifetime of the process), and are returned by {@link #getRecoveredSegments()} so
+ * that they can be replayed.
+ */
+final class TelemetrySpool {
+
+  private static final Logger logger = LoggerFactory.getLogger(TelemetrySpool.class);
+
+  private static final String SEGMENT_FILE_EXTENSION = ".spool";
+  private static final String LOCK_FILE_NAME = "spool.lock";
+  // multiple processes can share the same temp dir
+  private static final int MAX_SPOOL_DIRECTORIES = 16;
+
+  private static final int MAGIC = 0x41495350; // "AISP"
+  private static final int SEGMENT_HEADER_SIZE = 4;
+  // length + crc32
+  private static final int RECORD_HEADER_SIZE = 8;
+  // neither instrumentation keys nor urls can contain a new line
+  private static final byte RECORD_FIELD_SEPARATOR = '\n';
+
+  private final File directory;
+  private final int segmentSize;
+  private final int maxSegments;
+  private final SpoolFsyncPolicy fsyncPolicy;
+  private final long fsyncIntervalNanos;
+  private final List<File> recoveredSegments;
+  // held for the lifetime of the process
+  @SuppressWarnings("unused")
+  private final FileLock lock;
+
+  // guarded by this
+  private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+  private final CRC32 crc = new CRC32();
+  private long nextSegmentId;
+  private long nextSeq;
+  // all sequence numbers below this have been acknowledged
+  private long acknowledgedUpTo;
+  // acknowledged ranges (start -> end) above acknowledgedUpTo
+  private final TreeMap<Long, Long> acknowledgedRanges = new TreeMap<>();
+  private long lastForceNanos = System.nanoTime();
+  private boolean unforcedWrites;
+  private boolean fullLogged;
+
+  @Nullable
+  static TelemetrySpool open(
+      File baseDirectory,
+      String queueName,
+      int maxSizeBytes,
+      int segmentSize,
+      SpoolFsyncPolicy fsyncPolicy,
+      long fsyncIntervalNanos)
+      throws IOException {
+    for (int i = 0; i < MAX_SPOOL_DIRECTORIES; i++) {
+      File directory = new File(baseDirectory, queueName + "-" + i);
+      if (!directory.exists() && !directory.mkdirs()) {
+        throw new IOException("Could not create directory: " + directory);
+      }
+      FileLock lock = tryLock(new File(directory, LOCK_FILE_NAME));
+      if (lock != null) {
+        return new TelemetrySpool(
+            directory,
+            lock,
+            Math.max(1, maxSizeBytes / segmentSize),
+            segmentSize,
+            fsyncPolicy,
+            fsyncIntervalNanos);
+      }
+    }
+    logger.warn("All spool directories under {} are in use", baseDirectory);
+    return null;
+  }
+
+  @Nullable
+  private static FileLock tryLock(File lockFile) throws IOException {
+    @SuppressWarnings("resource") // closed along with the lock, or kept open for the process
+    FileChannel channel = new RandomAccessFile(lockFile, "rw").getChannel();
+    try {
+      FileLock lock = channel.tryLock();
+      if (lock == null) {
+        channel.close();
+      }
+      return lock;
+    } catch (OverlappingFileLockException e) {
+      // locked by this same process
+      channel.close();
+      return null;
+    }
+  }
+
+  private TelemetrySpool(
+      File directory,
+      FileLock lock,
+      int maxSegments,
+      int segmentSize,
+      SpoolFsyncPolicy fsyncPolicy,
+      long fsyncIntervalNanos) {
+    this.directory = directory;
+    this.lock = lock;
+    this.maxSegments = maxSegments;
+    this.segmentSize = segmentSize;
+    this.fsyncPolicy = fsyncPolicy;
+    this.fsyncIntervalNanos = fsyncIntervalNanos;
+
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_FILE_EXTENSION));
+    if (files == null) {
+      files = new File[0];
+    }
+    // file names are zero padded, so this is oldest first
+    Arrays.sort(files);
+    recoveredSegments = new ArrayList<>(Arrays.asList(files));
+    for (File file : files) {
+      nextSegmentId = Math.max(nextSegmentId, parseSegmentId(file) + 1);
+    }
+  }
+
+  List<File> getRecoveredSegments() {
+    return recoveredSegments;
+  }
+
+  /** Consumes the next sequence number without spooling anything. */
+  synchronized void skip() {
+    nextSeq++;
+  }
+
+  /** Returns {@code false} if the item was not spooled (the spool is full). */
+  synchronized boolean append(byte[] payload) {
+    long seq = nextSeq++;
+    int recordSize = RECORD_HEADER_SIZE + payload.length;
+    if (recordSize > segmentSize - SEGMENT_HEADER_SIZE) {
+      return false;
+    }
+    Segment active = segments.peekLast();
+    if (active == null || active.endSeq != -1 || active.buffer.remaining() < recordSize) {
+      if (active != null && active.endSeq == -1) {
+        active.endSeq = seq;
+        active.buffer.force();
+      }
+      deleteAcknowledgedSegments();
+      if (segments.size() >= maxSegments) {
+        if (!fullLogged) {
+          fullLogged = true;
+          logger.warn(
+              "Telemetry spool {} is full, items will not be spooled until the backlog is sent",
+              directory);
+        }
+        return false;
+      }
+      try {
+        active = newSegment();
+      } catch (IOException e) {
+        logger.warn("Could not create telemetry spool segment in {}", directory, e);
+        return false;
+      }
+      segments.addLast(active);
+      fullLogged = false;
+    }
+
+    MappedByteBuffer buffer = active.buffer;
+    int position = buffer.position();
+    crc.reset();
+    crc.update(payload, 0, payload.length);
+    // the length is written last, so that a record which was only partially written when the
+    // process died is never considered complete
+    buffer.position(position + 4);
+    buffer.putInt((int) crc.getValue());
+    buffer.put(payload);
+    buffer.putInt(position, payload.length);
+
+    if (fsyncPolicy == SpoolFsyncPolicy.ALWAYS) {
+      buffer.force();
+    } else {
+      unforcedWrites = true;
+    }
+    return true;
+  }
+
+  /** Acknowledges the sequence numbers from {@code fromSeq} (inclusive) to {@code toSeq}. */
+  synchronized void acknowledge(long fromSeq, long toSeq) {
+    if (toSeq <= fromSeq) {
+      return;
+    }
+    if (fromSeq <= acknowledgedUpTo) {
+      acknowledgedUpTo = Math.max(acknowledgedUpTo, toSeq);
+    } else {
+      acknowledgedRanges.put(fromSeq, toSeq);
+    }
+    Long end;
+    while ((end = acknowledgedRanges.remove(acknowledgedUpTo)) != null) {
+      acknowledgedUpTo = end;
+    }
+    deleteAcknowledgedSegments();
+  }
+
+  synchronized void forceIfDue() {
+    if (fsyncPolicy != SpoolFsyncPolicy.PERIODIC || !unforcedWrites) {
+      return;
+    }
+    long now = System.nanoTime();
+    if (now - lastForceNanos >= fsyncIntervalNanos) {
+      for (Segment segment : segments) {
+        segment.buffer.force();
+      }
+      unforcedWrites = false;
+      lastForceNanos = now;
+    }
+  }
+
+  /** Deletes a segment from a previous process after its records have been replayed. */
+  void deleteRecovered(File file) {
+    if (!file.delete() && file.exists()) {
+      logger.warn("Could not delete replayed telemetry spool segment {}", file);
+    }
+  }
+
+  // guarded by this
+  private void deleteAcknowledgedSegments() {
+    Iterator<Segment> i = segments.iterator();
+    while (i.hasNext()) {
+      Segment segment = i.next();
+      boolean active = segment.endSeq == -1;
+      if (active && acknowledgedUpTo >= nextSeq) {
+        // everything has been acknowledged, so the active segment can be reused from the start
+        segment.reset();
+        return;
+      }
+      if (active || segment.endSeq > acknowledgedUpTo) {
+        return;
+      }
+      segment.delete();
+      i.remove();
+    }
+  }
+
+  private Segment newSegment() throws IOException {
+    File file =
+        new File(
+            directory,
+            String.format(Locale.ROOT, "%019d", nextSegmentId++) + SEGMENT_FILE_EXTENSION);
+    MappedByteBuffer buffer;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(segmentSize);
+      // the mapping stays valid after the channel is closed
+      buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+    buffer.putInt(MAGIC);
+    return new Segment(file, buffer);
+  }
+
+  private static long parseSegmentId(File file) {
+    String name = file.getName();
+    try {
+      return Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_EXTENSION.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Reads the complete records of a segment file, stopping at the first record that is incomplete
+   * or corrupt.
+   */
+  static List<byte[]> readSegment(File file) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    List<byte[]> records = new ArrayList<>();
+    if (buffer.remaining() < SEGMENT_HEADER_SIZE || buffer.getInt() != MAGIC) {
+      return records;
+    }
+    CRC32 crc = new CRC32();
+    while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+      int length = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (length <= 0 || length > buffer.remaining()) {
+        break;
+      }
+      byte[] payload = new byte[length];
+      buffer.get(payload);
+      crc.reset();
+      crc.update(payload, 0, length);
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+      records.add(payload);
+    }
+    return records;
+  }
+
+  /**
+   * Prefixes a serialized item with the instrumentation key and the ingestion endpoint which it is
+   * sent to, since these are not part of the serialized item, and can be different for each item
+   * (e.g. connection string overrides).
+   */
+  static byte[] toRecord(String instrumentationKey, String ingestionEndpoint, byte[] item) {
+    byte[] instrumentationKeyBytes = instrumentationKey.getBytes(UTF_8);
+    byte[] ingestionEndpointBytes = ingestionEndpoint.getBytes(UTF_8);
+    ByteBuffer buffer =
+        ByteBuffer.allocate(
+            instrumentationKeyBytes.length + ingestionEndpointBytes.length + item.length + 2);
+    buffer.put(instrumentationKeyBytes);
+    buffer.put(RECORD_FIELD_SEPARATOR);
+    buffer.put(ingestionEndpointBytes);
+    buffer.put(RECORD_FIELD_SEPARATOR);
+    buffer.put(item);
+    return buffer.array();
+  }
+
+  /** Returns {@code null} if the record was not written by {@link #toRecord}. */
+  @Nullable
+  static Record parseRecord(byte[] record) {
+    int instrumentationKeyEnd = indexOf(record, RECORD_FIELD_SEPARATOR, 0);
+    if (instrumentationKeyEnd == -1) {
+      return null;
+    }
+    int ingestionEndpointEnd = indexOf(record, RECORD_FIELD_SEPARATOR, instrumentationKeyEnd + 1);
+    if (ingestionEndpointEnd == -1) {
+      return null;
+    }
+    return new Record(
+        new String(record, 0, instrumentationKeyEnd, UTF_8),
+        new String(
+            record,
+            instrumentationKeyEnd + 1,
+            ingestionEndpointEnd - instrumentationKeyEnd - 1,
+            UTF_8),
+        Arrays.copyOfRange(record, ingestionEndpointEnd + 1, record.length));
+  }
+
+  private static int indexOf(byte[] bytes, byte value, int from) {
+    for (int i = from; i < bytes.length; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static final class Record {
+
+    final String instrumentationKey;
+    final String ingestionEndpoint;
+    final byte[] item;
+
+    private Record(String instrumentationKey, String ingestionEndpoint, byte[] item) {
+      this.instrumentationKey = instrumentationKey;
+      this.ingestionEndpoint = ingestionEndpoint;
+      this.item = item;
+    }
+  }
+
+  private static class Segment {
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    // exclusive, -1 while this is the active segment
+    private long endSeq = -1;
+
+    private Segment(File file, MappedByteBuffer buffer) {
+      this.file = file;
+      this.buffer = buffer;
+    }
+
+    private void reset() {
+      int used = buffer.position();
+      if (used == SEGMENT_HEADER_SIZE) {
+        return;
+      }
+      // clearing the first record length first, so that nothing is replayed even if the process
+      // dies while clearing the rest
+      buffer.putInt(SEGMENT_HEADER_SIZE, 0);
+      for (int i = SEGMENT_HEADER_SIZE + 4; i < used; i++) {
+        buffer.put(i, (byte) 0);
+      }
+      buffer.position(SEGMENT_HEADER_SIZE);
+    }
+
+    private void delete() {
+      // a file which is still mapped cannot be deleted on Windows, so making sure that it is at
+      // least not replayed
+      if (!file.delete() && file.exists()) {
+        buffer.putInt(SEGMENT_HEADER_SIZE, 0);
+        buffer.force();
+      }
+    }
+  }
+}
@@ -16,9 +16,18 @@ import java.util.Set;
 public class AiViewRegistry {
 
   public static void registerViews(SdkMeterProviderBuilder builder) {
+    registerViews(builder, 0);
+  }
+
+  // cardinalityLimit <= 0 keeps the SDK default
+  public static void registerViews(SdkMeterProviderBuilder builder, int cardinalityLimit) {
     for (MetricView view : MetricView.values()) {
       registerView(
-          builder, view.getInstrumentName(), view.getAttributeKeys(), view.isCaptureSynthetic());
+          builder,
+          view.getInstrumentName(),
+          view.getAttributeKeys(),
+          view.isCaptureSynthetic(),
+          cardinalityLimit);
     }
   }
 
@@ -26,10 +35,14 @@ public class AiViewRegistry {
       SdkMeterProviderBuilder builder,
       String instrumentName,
       Set<AttributeKey<?>> attributeKeys,
-      boolean captureSynthetic) {
+      boolean captureSynthetic,
+      int cardinalityLimit) {
     ViewBuilder viewBuilder = View.builder();
     ViewBuilderAccessor.add(
         viewBuilder, new MetricViewAttributesProcessor(attributeKeys, captureSynthetic));
+    if (cardinalityLimit > 0) {
+      viewBuilder.setCardinalityLimit(cardinalityLimit);
+    }
     builder.registerView(
         InstrumentSelector.builder().setName(instrumentName).build(), viewBuilder.build());
   }
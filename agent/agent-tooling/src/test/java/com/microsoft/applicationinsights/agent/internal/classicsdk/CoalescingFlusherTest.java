@@ -0,0 +1,150 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.classicsdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ClassicSdkFlushMode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class CoalescingFlusherTest {
+
+  // flushes which have been started, but are only completed by the test (like a slow ingestion)
+  private final List<CompletableResultCode> flushes = new ArrayList<>();
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(10);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldCoalesceConcurrentFlushes() {
+    CoalescingFlusher flusher =
+        new CoalescingFlusher(this::startFlush, ClassicSdkFlushMode.BLOCK, 0);
+
+    CompletableResultCode first = flusher.requestFlush();
+    List<CompletableResultCode> others = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      others.add(flusher.requestFlush());
+    }
+
+    // all callers that arrived while the first flush was in flight share a single next flush
+    assertThat(startedFlushes()).isEqualTo(1);
+    assertThat(others).containsOnly(others.get(0));
+    assertThat(others.get(0)).isNotSameAs(first);
+
+    completeFlush(0);
+    assertThat(first.isSuccess()).isTrue();
+    assertThat(others.get(0).isDone()).isFalse();
+    assertThat(startedFlushes()).isEqualTo(2);
+
+    completeFlush(1);
+    assertThat(others.get(0).isSuccess()).isTrue();
+
+    // nothing in flight anymore, so the next call starts a new flush right away
+    flusher.requestFlush();
+    assertThat(startedFlushes()).isEqualTo(3);
+  }
+
+  @Test
+  void blockingCallersShouldBeReleasedTogether() throws Exception {
+    CoalescingFlusher flusher =
+        new CoalescingFlusher(this::startFlush, ClassicSdkFlushMode.BLOCK, 0);
+
+    int callers = 10;
+    CountDownLatch done = new CountDownLatch(callers);
+    for (int i = 0; i < callers; i++) {
+      executor.execute(
+          () -> {
+            flusher.flush();
+            done.countDown();
+          });
+    }
+    waitForStartedFlushes(1);
+    // giving the other callers time to arrive while the first flush is still in flight
+    Thread.sleep(200);
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!done.await(10, TimeUnit.MILLISECONDS) && System.nanoTime() < deadline) {
+      completeStartedFlushes();
+    }
+
+    assertThat(done.getCount()).isZero();
+    assertThat(startedFlushes()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  void boundedWaitShouldNotWaitForSlowFlush() {
+    CoalescingFlusher flusher =
+        new CoalescingFlusher(this::startFlush, ClassicSdkFlushMode.BOUNDED_WAIT, 50);
+
+    long start = System.nanoTime();
+    flusher.flush();
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertThat(elapsedMillis).isBetween(40L, 5000L);
+    assertThat(startedFlushes()).isEqualTo(1);
+  }
+
+  @Test
+  void fireAndForgetShouldNotWait() {
+    CoalescingFlusher flusher =
+        new CoalescingFlusher(this::startFlush, ClassicSdkFlushMode.FIRE_AND_FORGET, 0);
+
+    for (int i = 0; i < 100; i++) {
+      flusher.flush();
+    }
+
+    assertThat(startedFlushes()).isEqualTo(1);
+  }
+
+  private CompletableResultCode startFlush() {
+    CompletableResultCode result = new CompletableResultCode();
+    synchronized (flushes) {
+      flushes.add(result);
+    }
+    return result;
+  }
+
+  private int startedFlushes() {
+    synchronized (flushes) {
+      return flushes.size();
+    }
+  }
+
+  private void completeFlush(int index) {
+    CompletableResultCode result;
+    synchronized (flushes) {
+      result = flushes.get(index);
+    }
+    result.succeed();
+  }
+
+  private void completeStartedFlushes() {
+    List<CompletableResultCode> started;
+    synchronized (flushes) {
+      started = new ArrayList<>(flushes);
+    }
+    for (CompletableResultCode result : started) {
+      result.succeed();
+    }
+  }
+
+  private void waitForStartedFlushes(int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (startedFlushes() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+}
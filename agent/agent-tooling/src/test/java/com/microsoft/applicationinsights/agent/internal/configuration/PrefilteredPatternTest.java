@@ -0,0 +1,191 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class PrefilteredPatternTest {
+
+  private static final List<String> REGEXES =
+      Arrays.asList(
+          "",
+          "abc",
+          "^GET /api/.*",
+          "/api/v[0-9]+/users/(?<userId>[0-9]+)",
+          "^/api/(?<operationWebsite>.*?)/(?<operationId>.*?)$",
+          "(?<redactedUserName>[\\.a-zA-Z0-9]+)@(?<redactedDomainName>[\\.a-zA-Z0-9]+)",
+          ".*secret.*",
+          "health|ready",
+          "a|b?",
+          "ab?c",
+          "ab+c",
+          "ab*c",
+          "ab{0,2}c",
+          "ab{2}c",
+          "a.b",
+          "a\\.b",
+          "a\\.?b",
+          "x\\d+y",
+          "\\bword\\b",
+          "[]a]bc",
+          "[^]a]bc",
+          "[a-c&&[^b]]xy",
+          "(abc)?de",
+          "(?:ab|cd)ef",
+          "(?=ab)a",
+          "(?!ab)ba",
+          "(?i)abc",
+          "a(?i)bc",
+          "\\Qa.b\\E",
+          "\\x61bc",
+          "\\u0061bc",
+          "(a)\\1",
+          "ab??c",
+          "ab*+c",
+          "a}b",
+          "a]b",
+          "a-b",
+          "\\(ab\\)",
+          "^$",
+          "fo{1,}o");
+
+  private static final String ALPHABET = "abcdexy/.-(){}[]@ 0123456789ABCGETapiusr";
+
+  @Test
+  void shouldExtractRequiredLiterals() {
+    assertThat(PrefilteredPattern.requiredLiterals("^GET /api/.*")).containsExactly("GET /api/");
+    assertThat(PrefilteredPattern.requiredLiterals("health|ready"))
+        .containsExactly("health", "ready");
+    assertThat(PrefilteredPattern.requiredLiterals("ab?c")).containsExactly("a");
+    assertThat(PrefilteredPattern.requiredLiterals("ab+c")).containsExactly("ab");
+    assertThat(PrefilteredPattern.requiredLiterals("a\\.b")).containsExactly("a.b");
+    assertThat(PrefilteredPattern.requiredLiterals(".*secret.*")).containsExactly("secret");
+
+    // no literal in one of the alternatives, or not fully understood
+    assertThat(PrefilteredPattern.requiredLiterals("a|b?")).isNull();
+    assertThat(PrefilteredPattern.requiredLiterals("[0-9]+")).isNull();
+    assertThat(PrefilteredPattern.requiredLiterals("(?i)abc")).isNull();
+    assertThat(PrefilteredPattern.requiredLiterals("\\x61bc")).isNull();
+    assertThat(PrefilteredPattern.requiredLiterals("\\Qa.b\\E")).isNull();
+  }
+
+  @Test
+  void shouldSkipRegexWhenLiteralIsMissing() {
+    PrefilteredPattern pattern = PrefilteredPattern.compile("^GET /api/.*");
+    assertThat(pattern.mayMatch("POST /api/users")).isFalse();
+    assertThat(pattern.mayMatch("GET /api/users")).isTrue();
+  }
+
+  @Test
+  void shouldCombineAlternatives() {
+    List<PrefilteredPattern> combined = PrefilteredPattern.anyOf(Arrays.asList("abc", "x\\d+y"));
+    assertThat(combined).hasSize(1);
+
+    // named groups (and back references) would clash
+    assertThat(PrefilteredPattern.anyOf(Arrays.asList("(?<a>x)", "(?<a>y)"))).hasSize(2);
+  }
+
+  @Test
+  void shouldBehaveIdenticallyToPattern() {
+    Random random = new Random(42);
+    List<String> inputs = new ArrayList<>();
+    for (String regex : REGEXES) {
+      // inputs close to what the regexes are looking for, plus some edits of them
+      String input = regex.replaceAll("\\\\", "");
+      inputs.add(input);
+      for (int i = 0; i < 20; i++) {
+        inputs.add(mutate(input, random));
+      }
+    }
+    inputs.addAll(
+        Arrays.asList(
+            "GET /api/users",
+            "/api/v2/users/123",
+            "/api/website/operation",
+            "john.doe@example.com",
+            "my secret value",
+            "ac",
+            "abbbc",
+            "fooo",
+            "word in a sentence"));
+    for (int i = 0; i < 2000; i++) {
+      inputs.add(randomString(random));
+    }
+
+    for (String regex : REGEXES) {
+      Pattern expected = Pattern.compile(regex);
+      PrefilteredPattern actual = PrefilteredPattern.compile(regex);
+      for (String input : inputs) {
+        boolean found = expected.matcher(input).find();
+        assertThat(actual.find(input)).as("find %s in %s", regex, input).isEqualTo(found);
+        assertThat(actual.matches(input))
+            .as("match %s with %s", regex, input)
+            .isEqualTo(expected.matcher(input).matches());
+        if (found) {
+          assertThat(actual.mayMatch(input)).as("prefilter %s for %s", regex, input).isTrue();
+        }
+      }
+    }
+
+    for (int i = 0; i < 200; i++) {
+      List<String> regexes = new ArrayList<>();
+      int count = 1 + random.nextInt(4);
+      for (int j = 0; j < count; j++) {
+        regexes.add(REGEXES.get(random.nextInt(REGEXES.size())));
+      }
+      List<PrefilteredPattern> anyOf = PrefilteredPattern.anyOf(regexes);
+      for (String input : inputs) {
+        boolean expected = false;
+        for (String regex : regexes) {
+          expected |= Pattern.compile(regex).matcher(input).find();
+        }
+        boolean actual = false;
+        for (PrefilteredPattern pattern : anyOf) {
+          actual |= pattern.find(input);
+        }
+        assertThat(actual).as("find any of %s in %s", regexes, input).isEqualTo(expected);
+      }
+    }
+  }
+
+  private static String mutate(String input, Random random) {
+    StringBuilder sb = new StringBuilder(input);
+    int edits = 1 + random.nextInt(3);
+    for (int i = 0; i < edits; i++) {
+      int position = sb.length() == 0 ? 0 : random.nextInt(sb.length());
+      switch (random.nextInt(3)) {
+        case 0:
+          sb.insert(position, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+          break;
+        case 1:
+          if (sb.length() > 0) {
+            sb.deleteCharAt(position);
+          }
+          break;
+        default:
+          if (sb.length() > 0) {
+            sb.setCharAt(position, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+          }
+          break;
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String randomString(Random random) {
+    StringBuilder sb = new StringBuilder();
+    int length = random.nextInt(12);
+    for (int i = 0; i < length; i++) {
+      sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,94 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.diagnostics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.diagnostics.collection.libos.net.NetworkInterfaceStats;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.net.TcpConnectionState;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.LinuxGlobalNetworkStats;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.LinuxTcpConnectionStates;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LinuxNetworkReadersTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void shouldReadTcpConnectionsBeyondFirstFewKilobytes() throws Exception {
+    List<String> lines = new ArrayList<>();
+    lines.add(
+        "  sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode");
+    for (int i = 0; i < 200; i++) {
+      lines.add(
+          "   "
+              + i
+              + ": 0100007F:1F90 0100007F:C350 01 00000000:00000000 00:00000000 00000000  1000        0 12346 1 0000000000000000 20 4 30 10 -1");
+    }
+    Path tcp = tempDir.resolve("tcp");
+    Files.write(tcp, lines, StandardCharsets.UTF_8);
+
+    LinuxTcpConnectionStates reader = new LinuxTcpConnectionStates(tcp.toFile());
+    reader.poll();
+    reader.update();
+
+    assertThat(reader.getCount(TcpConnectionState.ESTABLISHED)).isEqualTo(200);
+    assertThat(reader.getCount(TcpConnectionState.LISTEN)).isZero();
+  }
+
+  @Test
+  void shouldNotFailWhenTcp6IsMissing() {
+    LinuxTcpConnectionStates reader =
+        new LinuxTcpConnectionStates(tempDir.resolve("tcp6").toFile());
+    reader.poll();
+    reader.update();
+
+    assertThat(reader.isAvailable()).isFalse();
+    assertThat(reader.getCount(TcpConnectionState.LISTEN)).isZero();
+  }
+
+  @Test
+  void shouldDropInterfacesWhichAreGone() throws Exception {
+    Path dev = tempDir.resolve("dev");
+    writeDev(
+        dev,
+        "  eth0:1234567890 1000000    0    0    0     0          0         0 987654321  800000    0    0    0     0       0          0",
+        "veth1a2b:  1000      10    0    0    0     0          0         0     2000      20    0    0    0     0       0          0");
+
+    LinuxGlobalNetworkStats reader = new LinuxGlobalNetworkStats(dev.toFile());
+    reader.poll();
+    reader.update();
+    assertThat(reader.getInterfaceStats())
+        .extracting(NetworkInterfaceStats::getName)
+        .containsExactlyInAnyOrder("eth0", "veth1a2b");
+
+    writeDev(
+        dev,
+        "  eth0:1234568890 1000010    0    0    0     0          0         0 987655321  800010    0    0    0     0       0          0");
+    reader.poll();
+    reader.update();
+    assertThat(reader.getInterfaceStats())
+        .extracting(NetworkInterfaceStats::getName)
+        .containsExactly("eth0");
+    assertThat(reader.getTotalReceived()).isEqualTo(BigInteger.valueOf(1000));
+    assertThat(reader.getTotalWrite()).isEqualTo(BigInteger.valueOf(1000));
+  }
+
+  private static void writeDev(Path dev, String... interfaces) throws Exception {
+    List<String> lines = new ArrayList<>();
+    lines.add("Inter-|   Receive                                                |  Transmit");
+    lines.add(
+        " face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop fifo colls carrier compressed");
+    lines.addAll(Arrays.asList(interfaces));
+    Files.write(dev, lines, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.diagnostics.status;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import com.microsoft.applicationinsights.agent.internal.diagnostics.DiagnosticsHelper;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StatusFileAtomicWriteTest {
+
+  @TempDir File tempFolder;
+
+  @BeforeEach
+  void setup() {
+    // atomic replacement is only used on linux, see StatusFile.writeToBuffer()
+    assumeFalse(DiagnosticsHelper.isOsWindows());
+  }
+
+  @Test
+  void shouldReplaceContentWithoutLeavingTempFile() throws Exception {
+    File file = new File(tempFolder, "status_test.json");
+
+    StatusFile.writeAtomically(file, "{\"a\":1}".getBytes(UTF_8));
+    StatusFile.writeAtomically(file, "{\"b\":2}".getBytes(UTF_8));
+
+    assertThat(new String(Files.readAllBytes(file.toPath()), UTF_8)).isEqualTo("{\"b\":2}");
+    assertThat(tempFolder.list()).containsExactly("status_test.json");
+  }
+
+  @Test
+  void shouldRecoverFromTempFileLeftByCrash() throws Exception {
+    File file = new File(tempFolder, "status_test.json");
+    StatusFile.writeAtomically(file, "{\"a\":1}".getBytes(UTF_8));
+    // simulates a crash after the temp file was partially written, but before it was renamed
+    File temp = new File(tempFolder, "status_test.json" + StatusFile.TEMP_FILE_SUFFIX);
+    Files.write(temp.toPath(), "{\"partial".getBytes(UTF_8));
+
+    // the previous content is still intact
+    assertThat(new String(Files.readAllBytes(file.toPath()), UTF_8)).isEqualTo("{\"a\":1}");
+
+    StatusFile.writeAtomically(file, "{\"b\":2}".getBytes(UTF_8));
+
+    assertThat(new String(Files.readAllBytes(file.toPath()), UTF_8)).isEqualTo("{\"b\":2}");
+    assertThat(tempFolder.list()).containsExactly("status_test.json");
+  }
+
+  @Test
+  void readersShouldNeverObservePartialContent() throws Exception {
+    File file = new File(tempFolder, "status_test.json");
+    String small = "{\"a\":1}";
+    StringBuilder sb = new StringBuilder("{\"b\":\"");
+    for (int i = 0; i < 100_000; i++) {
+      sb.append('x');
+    }
+    String large = sb.append("\"}").toString();
+    StatusFile.writeAtomically(file, small.getBytes(UTF_8));
+
+    AtomicBoolean done = new AtomicBoolean();
+    List<String> unexpected = new ArrayList<>();
+    Thread reader =
+        new Thread(
+            () -> {
+              while (!done.get()) {
+                try {
+                  String content = new String(Files.readAllBytes(file.toPath()), UTF_8);
+                  if (!content.equals(small) && !content.equals(large)) {
+                    unexpected.add(content);
+                  }
+                } catch (NoSuchFileException e) {
+                  unexpected.add("<missing>");
+                } catch (Exception e) {
+                  unexpected.add(e.toString());
+                }
+              }
+            });
+    reader.start();
+    try {
+      for (int i = 0; i < 200; i++) {
+        StatusFile.writeAtomically(file, (i % 2 == 0 ? large : small).getBytes(UTF_8));
+      }
+    } finally {
+      done.set(true);
+      reader.join();
+    }
+
+    assertThat(unexpected).isEmpty();
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.diagnostics.status;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import com.microsoft.applicationinsights.agent.internal.diagnostics.DiagnosticsHelper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StatusFileWriteTest {
+
+  private static final String KEY = "StatusFileWriteTest";
+
+  @TempDir File tempFolder;
+
+  private String originalDirectory;
+
+  @BeforeEach
+  void setup() {
+    // the file is rewritten in place on windows, see StatusFile.writeToBuffer()
+    assumeFalse(DiagnosticsHelper.isOsWindows());
+    originalDirectory = StatusFile.directory;
+  }
+
+  @AfterEach
+  void tearDown() {
+    StatusFile.CONSTANT_VALUES.remove(KEY);
+    StatusFile.directory = originalDirectory;
+  }
+
+  @Test
+  void shouldCoalesceConcurrentWrites() throws Exception {
+    StatusFile.directory = tempFolder.getAbsolutePath();
+    StatusFile.CONSTANT_VALUES.put(KEY, "first");
+
+    int threadCount = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  return;
+                }
+                for (int j = 0; j < 100; j++) {
+                  StatusFile.scheduleWrite();
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // a single write for the whole burst
+    assertThat(StatusFile.WRITER_THREAD.getQueue()).hasSize(1);
+
+    // picked up by the pending write, since the content is only built once it runs
+    StatusFile.CONSTANT_VALUES.put(KEY, "last");
+
+    File file = new File(tempFolder, StatusFile.constructFileName(StatusFile.getJsonMap()));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!file.exists() && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+    }
+    assertThat(read(file)).contains("\"last\"");
+    assertThat(StatusFile.WRITER_THREAD.getQueue()).isEmpty();
+  }
+
+  @Test
+  void shouldSkipUnchangedContent() throws Exception {
+    File file = new File(tempFolder, "status_test.json");
+    StatusFile.writeIfChanged(file, "{\"a\":1}".getBytes(UTF_8));
+    // a different content on disk shows whether the next write happened
+    Files.write(file.toPath(), "{\"other\":1}".getBytes(UTF_8));
+
+    StatusFile.writeIfChanged(file, "{\"a\":1}".getBytes(UTF_8));
+    assertThat(read(file)).isEqualTo("{\"other\":1}");
+
+    StatusFile.writeIfChanged(file, "{\"b\":2}".getBytes(UTF_8));
+    assertThat(read(file)).isEqualTo("{\"b\":2}");
+  }
+
+  @Test
+  void shouldRewriteUnchangedContentWhenFileIsMissing() throws Exception {
+    File file = new File(tempFolder, "status_test.json");
+    StatusFile.writeIfChanged(file, "{\"a\":1}".getBytes(UTF_8));
+    // e.g. by log cleanup
+    Files.delete(file.toPath());
+
+    StatusFile.writeIfChanged(file, "{\"a\":1}".getBytes(UTF_8));
+
+    assertThat(read(file)).isEqualTo("{\"a\":1}");
+  }
+
+  @Test
+  void shouldRetryAfterFailedWrite() throws Exception {
+    File file = new File(tempFolder, "status_test.json");
+    StatusFile.writeIfChanged(file, "{\"a\":1}".getBytes(UTF_8));
+
+    // the temp file can't be created while there is a directory in its place
+    File temp = new File(tempFolder, "status_test.json" + StatusFile.TEMP_FILE_SUFFIX);
+    assertThat(temp.mkdir()).isTrue();
+    assertThatThrownBy(() -> StatusFile.writeIfChanged(file, "{\"b\":2}".getBytes(UTF_8)))
+        .isInstanceOf(IOException.class);
+    assertThat(temp.delete()).isTrue();
+    // a content on disk which is neither, to show whether the next write happened
+    Files.write(file.toPath(), "{\"partial".getBytes(UTF_8));
+
+    // the same content as the last successful write, but that is not known to be on disk anymore
+    StatusFile.writeIfChanged(file, "{\"a\":1}".getBytes(UTF_8));
+
+    assertThat(read(file)).isEqualTo("{\"a\":1}");
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), UTF_8);
+  }
+}
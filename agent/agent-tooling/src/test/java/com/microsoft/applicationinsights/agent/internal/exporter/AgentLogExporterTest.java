@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.exporter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.LogDataMapper;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.models.TelemetryItem;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.agent.internal.telemetry.ExceptionStormSuppressor;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.logs.Severity;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.testing.logs.TestLogRecordData;
+import io.opentelemetry.semconv.ExceptionAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class AgentLogExporterTest {
+
+  private static final String STACK_TRACE =
+      "java.lang.IllegalStateException: connection refused\n"
+          + "\tat com.example.Client.connect(Client.java:42)\n"
+          + "\tat com.example.Service.handle(Service.java:17)\n";
+
+  @Test
+  void shouldNotMapSuppressedExceptions() {
+    Configuration.ExceptionStormSuppression configuration =
+        new Configuration.ExceptionStormSuppression();
+    configuration.enabled = true;
+    configuration.maxFullOccurrences = 1;
+    TelemetryClient telemetryClient = TelemetryClient.createForTest();
+
+    // the telemetry initializer is called by every map()
+    AtomicInteger mapped = new AtomicInteger();
+    LogDataMapper mapper =
+        new LogDataMapper(
+            false,
+            false,
+            (builder, resource) -> {
+              mapped.incrementAndGet();
+              telemetryClient.populateDefaults(builder, resource);
+            });
+    List<TelemetryItem> exported = new ArrayList<>();
+    AgentLogExporter exporter =
+        new AgentLogExporter(
+            mapper,
+            exported::add,
+            ExceptionStormSuppressor.create(configuration, telemetryClient));
+
+    exporter.internalExport(exceptionLog());
+    exporter.internalExport(exceptionLog());
+    exporter.internalExport(exceptionLog());
+
+    assertThat(mapped.get()).isEqualTo(1);
+    assertThat(exported).hasSize(1);
+  }
+
+  private static LogRecordData exceptionLog() {
+    return TestLogRecordData.builder()
+        .setBody("request failed")
+        .setSeverity(Severity.ERROR)
+        .setAttributes(
+            Attributes.builder()
+                .put(ExceptionAttributes.EXCEPTION_TYPE, "java.lang.IllegalStateException")
+                .put(ExceptionAttributes.EXCEPTION_MESSAGE, "connection refused")
+                .put(ExceptionAttributes.EXCEPTION_STACKTRACE, STACK_TRACE)
+                .build())
+        .build();
+  }
+}
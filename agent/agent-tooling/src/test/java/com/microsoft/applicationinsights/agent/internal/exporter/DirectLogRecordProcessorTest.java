@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.exporter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DirectLogRecordProcessorTest {
+
+  private final RecordingLogRecordExporter exporter = new RecordingLogRecordExporter();
+
+  @Test
+  void shouldExportOnEmit() {
+    SdkLoggerProvider loggerProvider =
+        SdkLoggerProvider.builder()
+            .addLogRecordProcessor(new DirectLogRecordProcessor(exporter))
+            .build();
+
+    loggerProvider.get("test").logRecordBuilder().setBody("hello").emit();
+
+    // exported from the emitting thread, without any batching
+    assertThat(exporter.logs).hasSize(1);
+    assertThat(exporter.logs.get(0).getBody().asString()).isEqualTo("hello");
+    loggerProvider.close();
+  }
+
+  @Test
+  void shouldPassThroughFlushAndShutdown() {
+    DirectLogRecordProcessor processor = new DirectLogRecordProcessor(exporter);
+
+    assertThat(processor.forceFlush().isSuccess()).isTrue();
+    assertThat(exporter.flushCount).isEqualTo(1);
+
+    assertThat(processor.shutdown().isSuccess()).isTrue();
+    processor.shutdown();
+    assertThat(exporter.shutdownCount).isEqualTo(1);
+  }
+
+  private static class RecordingLogRecordExporter implements LogRecordExporter {
+
+    private final List<LogRecordData> logs = new ArrayList<>();
+    private int flushCount;
+    private int shutdownCount;
+
+    @Override
+    public CompletableResultCode export(Collection<LogRecordData> logs) {
+      this.logs.addAll(logs);
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+      flushCount++;
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+      shutdownCount++;
+      return CompletableResultCode.ofSuccess();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.exporter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DirectSpanProcessorTest {
+
+  private final RecordingSpanExporter exporter = new RecordingSpanExporter();
+
+  @Test
+  void shouldExportSampledSpans() {
+    SdkTracerProvider tracerProvider = newTracerProvider(Sampler.alwaysOn());
+
+    tracerProvider.get("test").spanBuilder("sampled").startSpan().end();
+
+    assertThat(exporter.spans).hasSize(1);
+    assertThat(exporter.spans.get(0).getName()).isEqualTo("sampled");
+    tracerProvider.close();
+  }
+
+  @Test
+  void shouldSkipUnsampledSpans() {
+    // recorded (so that the span processors see it) but not sampled
+    SdkTracerProvider tracerProvider = newTracerProvider(new RecordOnlySampler());
+
+    tracerProvider.get("test").spanBuilder("unsampled").startSpan().end();
+
+    assertThat(exporter.spans).isEmpty();
+    tracerProvider.close();
+  }
+
+  @Test
+  void shouldPassThroughFlushAndShutdown() {
+    DirectSpanProcessor processor = new DirectSpanProcessor(exporter);
+
+    assertThat(processor.forceFlush().isSuccess()).isTrue();
+    assertThat(exporter.flushCount).isEqualTo(1);
+
+    assertThat(processor.shutdown().isSuccess()).isTrue();
+    processor.shutdown();
+    assertThat(exporter.shutdownCount).isEqualTo(1);
+  }
+
+  private SdkTracerProvider newTracerProvider(Sampler sampler) {
+    return SdkTracerProvider.builder()
+        .setSampler(sampler)
+        .addSpanProcessor(new DirectSpanProcessor(exporter))
+        .build();
+  }
+
+  private static class RecordOnlySampler implements Sampler {
+
+    @Override
+    public SamplingResult shouldSample(
+        Context parentContext,
+        String traceId,
+        String name,
+        SpanKind spanKind,
+        Attributes attributes,
+        List<LinkData> parentLinks) {
+      return SamplingResult.create(SamplingDecision.RECORD_ONLY);
+    }
+
+    @Override
+    public String getDescription() {
+      return "RecordOnlySampler";
+    }
+  }
+
+  private static class RecordingSpanExporter implements SpanExporter {
+
+    private final List<SpanData> spans = new ArrayList<>();
+    private int flushCount;
+    private int shutdownCount;
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+      this.spans.addAll(spans);
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+      flushCount++;
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+      shutdownCount++;
+      return CompletableResultCode.ofSuccess();
+    }
+  }
+}
@@ -0,0 +1,167 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.exporter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableHistogramData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableHistogramPointData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableLongPointData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableMetricData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableSumData;
+import io.opentelemetry.sdk.resources.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class MetricCardinalityLimiterTest {
+
+  private static final AttributeKey<String> USER_ID = AttributeKey.stringKey("user.id");
+
+  @Test
+  void shouldNotTouchMetricWithinLimit() {
+    MetricCardinalityLimiter limiter = new MetricCardinalityLimiter(10);
+    MetricData metricData = longSum(point("a", 1), point("b", 2));
+
+    assertThat(limiter.limit(metricData)).isSameAs(metricData);
+    assertThat(limiter.drainOverflowedPoints()).isZero();
+  }
+
+  @Test
+  void shouldMergeExcessSeriesIntoOverflowSeries() {
+    MetricCardinalityLimiter limiter = new MetricCardinalityLimiter(2);
+    List<LongPointData> points = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      points.add(point("user" + i, 1));
+    }
+
+    MetricData limited = limiter.limit(longSum(points.toArray(new LongPointData[0])));
+
+    List<LongPointData> exported = new ArrayList<>(limited.getLongSumData().getPoints());
+    assertThat(exported).hasSize(3);
+    LongPointData overflow = exported.get(2);
+    assertThat(overflow.getAttributes().get(MetricCardinalityLimiter.OVERFLOW)).isTrue();
+    assertThat(overflow.getAttributes().get(USER_ID)).isNull();
+    assertThat(overflow.getValue()).isEqualTo(8);
+    assertThat(limiter.drainOverflowedPoints()).isEqualTo(8);
+    assertThat(limiter.drainOverflowedPoints()).isZero();
+  }
+
+  @Test
+  void shouldMergeHistogramOverflow() {
+    MetricCardinalityLimiter limiter = new MetricCardinalityLimiter(1);
+
+    MetricData limited =
+        limiter.limit(
+            histogram(
+                histogramPoint("a", 10, 1, 5, 5), // heaviest, kept
+                histogramPoint("b", 2, 3, 1, 2),
+                histogramPoint("c", 1, 0.5, 0.5, 1)));
+
+    List<HistogramPointData> exported = new ArrayList<>(limited.getHistogramData().getPoints());
+    assertThat(exported).hasSize(2);
+    assertThat(exported.get(0).getAttributes().get(USER_ID)).isEqualTo("a");
+    HistogramPointData overflow = exported.get(1);
+    assertThat(overflow.getCount()).isEqualTo(3);
+    assertThat(overflow.getSum()).isEqualTo(3.5);
+    assertThat(overflow.getMin()).isEqualTo(0.5);
+    assertThat(overflow.getMax()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldKeepSelectionStableAcrossIntervals() {
+    MetricCardinalityLimiter.SeriesSelector<String> selector =
+        new MetricCardinalityLimiter.SeriesSelector<>(2);
+
+    assertThat(selector.select(weights("a", 10, "b", 10, "c", 1))).containsOnly("a", "b");
+
+    // a new series that is only slightly busier than an established one doesn't replace it
+    assertThat(selector.select(weights("c", 12, "a", 10, "b", 10))).containsOnly("a", "b");
+
+    // but one that stays busier does
+    Set<String> selected = new HashSet<>();
+    for (int i = 0; i < 5; i++) {
+      selected = selector.select(weights("c", 30, "a", 10, "b", 1));
+    }
+    assertThat(selected).containsOnly("a", "c");
+  }
+
+  @Test
+  void shouldLimitEveryIntervalWhenSeriesKeepChanging() {
+    MetricCardinalityLimiter limiter = new MetricCardinalityLimiter(5);
+    for (int interval = 0; interval < 20; interval++) {
+      List<LongPointData> points = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        points.add(point("interval" + interval + "-user" + i, 1));
+      }
+      MetricData limited = limiter.limit(longSum(points.toArray(new LongPointData[0])));
+      assertThat(limited.getLongSumData().getPoints()).hasSize(6);
+    }
+    assertThat(limiter.drainOverflowedPoints()).isEqualTo(20 * 95);
+  }
+
+  private static Map<String, Double> weights(Object... keysAndWeights) {
+    Map<String, Double> weights = new LinkedHashMap<>();
+    for (int i = 0; i < keysAndWeights.length; i += 2) {
+      weights.put((String) keysAndWeights[i], ((Integer) keysAndWeights[i + 1]).doubleValue());
+    }
+    return weights;
+  }
+
+  private static LongPointData point(String userId, long value) {
+    return ImmutableLongPointData.create(0, 1, Attributes.of(USER_ID, userId), value);
+  }
+
+  private static HistogramPointData histogramPoint(
+      String userId, long count, double sum, double min, double max) {
+    return ImmutableHistogramPointData.create(
+        0,
+        1,
+        Attributes.of(USER_ID, userId),
+        sum,
+        true,
+        min,
+        true,
+        max,
+        Collections.singletonList(1.0),
+        // everything in the first bucket is good enough here
+        Arrays.asList(count, 0L));
+  }
+
+  private static MetricData longSum(LongPointData... points) {
+    return ImmutableMetricData.createLongSum(
+        Resource.empty(),
+        InstrumentationScopeInfo.create("test"),
+        "requests",
+        "",
+        "1",
+        ImmutableSumData.create(true, AggregationTemporality.DELTA, Arrays.asList(points)));
+  }
+
+  private static MetricData histogram(HistogramPointData... points) {
+    return ImmutableMetricData.createDoubleHistogram(
+        Resource.empty(),
+        InstrumentationScopeInfo.create("test"),
+        "duration",
+        "",
+        "ms",
+        ImmutableHistogramData.create(
+            AggregationTemporality.DELTA,
+            Arrays.stream(points).collect(Collectors.toList())));
+  }
+}
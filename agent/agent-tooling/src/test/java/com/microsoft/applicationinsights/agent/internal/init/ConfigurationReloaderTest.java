@@ -0,0 +1,191 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.agent.internal.configuration.ConfigurationBuilder;
+import com.microsoft.applicationinsights.agent.internal.processors.MockLoggerExporter;
+import com.microsoft.applicationinsights.agent.internal.processors.MockSpanExporter;
+import com.microsoft.applicationinsights.agent.internal.processors.ReloadableLogRecordExporter;
+import com.microsoft.applicationinsights.agent.internal.processors.ReloadableSpanExporter;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.testing.logs.TestLogRecordData;
+import io.opentelemetry.sdk.testing.trace.TestSpanData;
+import io.opentelemetry.sdk.trace.data.StatusData;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigurationReloaderTest {
+
+  private static final AttributeKey<String> RELOADED = AttributeKey.stringKey("reloaded");
+
+  @TempDir Path tempDir;
+
+  private Path agentJarPath;
+  private Path configPath;
+
+  @BeforeEach
+  void beforeEach() {
+    agentJarPath = tempDir.resolve("applicationinsights-agent.jar");
+    configPath = tempDir.resolve("applicationinsights.json");
+  }
+
+  @Test
+  void shouldNotReportChangesForEqualConfigurations() {
+    assertThat(ConfigurationReloader.diff(new Configuration(), new Configuration())).isEmpty();
+  }
+
+  @Test
+  void shouldReportChangedSettings() {
+    Configuration previous = new Configuration();
+    Configuration current = new Configuration();
+    current.sampling.percentage = 50.0;
+    current.jmxMetrics.add(new Configuration.JmxMetric());
+    Configuration.ProcessorConfig processorConfig = new Configuration.ProcessorConfig();
+    processorConfig.type = Configuration.ProcessorType.ATTRIBUTE;
+    current.preview.processors.add(processorConfig);
+    current.proxy.host = "example.com";
+
+    assertThat(ConfigurationReloader.diff(previous, current))
+        .containsExactly(
+            ConfigurationReloader.JMX_METRICS,
+            ConfigurationReloader.PROCESSORS,
+            "proxy",
+            ConfigurationReloader.SAMPLING_PERCENTAGE);
+  }
+
+  @Test
+  void shouldReportInstrumentationLoggingSettingsSeparately() {
+    Configuration previous = new Configuration();
+    Configuration current = new Configuration();
+    current.instrumentation.logging.level = "WARN";
+    current.instrumentation.logging.enabled = false;
+
+    assertThat(ConfigurationReloader.diff(previous, current))
+        .containsExactly(
+            "instrumentation.logging.enabled", ConfigurationReloader.INSTRUMENTATION_LOGGING_LEVEL);
+  }
+
+  @Test
+  void shouldApplyValidChanges() throws IOException {
+    writeConfig("{ \"instrumentation\": { \"logging\": { \"level\": \"INFO\" } } }");
+    RuntimeConfigurator runtimeConfigurator = newRuntimeConfigurator();
+    ConfigurationReloader reloader = newReloader(runtimeConfigurator);
+
+    writeConfig(
+        "{ \"instrumentation\": { \"logging\": { \"level\": \"WARN\", \"enabled\": false } } }");
+    reloader.reload();
+
+    assertThat(reloader.getConfiguration().instrumentation.logging.level).isEqualTo("WARN");
+    assertThat(runtimeConfigurator.getCurrentConfigCopy().instrumentationLoggingLevel)
+        .isEqualTo("WARN");
+  }
+
+  @Test
+  void shouldKeepPreviousConfigurationWhenFileIsInvalid() throws IOException {
+    writeConfig("{ \"instrumentation\": { \"logging\": { \"level\": \"INFO\" } } }");
+    RuntimeConfigurator runtimeConfigurator = newRuntimeConfigurator();
+    ConfigurationReloader reloader = newReloader(runtimeConfigurator);
+    Configuration previous = reloader.getConfiguration();
+
+    // not json
+    writeConfig("{ \"instrumentation\": { \"logging\": ");
+    reloader.reload();
+
+    assertThat(reloader.getConfiguration()).isSameAs(previous);
+
+    // fails validation
+    writeConfig("{ \"instrumentation\": { \"logging\": { \"level\": \"LOUD\" } } }");
+    reloader.reload();
+
+    assertThat(reloader.getConfiguration()).isSameAs(previous);
+    assertThat(runtimeConfigurator.getCurrentConfigCopy().instrumentationLoggingLevel)
+        .isEqualTo("INFO");
+  }
+
+  @Test
+  void shouldSwapProcessorChains() throws IOException {
+    writeConfig("{}");
+    ConfigurationReloader reloader = newReloader(newRuntimeConfigurator());
+    MockSpanExporter spanExporter = new MockSpanExporter();
+    ReloadableSpanExporter reloadableSpanExporter =
+        new ReloadableSpanExporter(spanExporter, spanExporter);
+    reloader.track(reloadableSpanExporter);
+    MockLoggerExporter logExporter = new MockLoggerExporter();
+    ReloadableLogRecordExporter reloadableLogExporter =
+        new ReloadableLogRecordExporter(logExporter, logExporter);
+    reloader.track(reloadableLogExporter);
+
+    writeConfig(
+        "{ \"preview\": { \"processors\": [ { \"type\": \"attribute\", \"actions\": ["
+            + " { \"key\": \"reloaded\", \"value\": \"yes\", \"action\": \"insert\" } ] } ] } }");
+    reloader.reload();
+
+    reloadableSpanExporter.export(
+        Collections.singletonList(
+            TestSpanData.builder()
+                .setName("GET")
+                .setKind(SpanKind.SERVER)
+                .setAttributes(Attributes.empty())
+                .setStatus(StatusData.unset())
+                .setStartEpochNanos(0)
+                .setEndEpochNanos(1)
+                .setHasEnded(true)
+                .setTotalRecordedEvents(0)
+                .setTotalRecordedLinks(0)
+                .build()));
+    reloadableLogExporter.export(
+        Collections.singletonList(
+            TestLogRecordData.builder()
+                .setBody("my log")
+                .setAttributes(Attributes.empty())
+                .build()));
+
+    assertThat(spanExporter.getSpans()).hasSize(1);
+    assertThat(spanExporter.getSpans().get(0).getAttributes().get(RELOADED)).isEqualTo("yes");
+    assertThat(logExporter.getLogs()).hasSize(1);
+    assertThat(logExporter.getLogs().get(0).getAttributes().get(RELOADED)).isEqualTo("yes");
+  }
+
+  private void writeConfig(String json) throws IOException {
+    Files.write(configPath, json.getBytes(UTF_8));
+  }
+
+  private RuntimeConfigurator newRuntimeConfigurator() throws IOException {
+    return new RuntimeConfigurator(
+        TelemetryClient.createForTest(),
+        Collections::emptyList,
+        loadConfiguration(),
+        item -> {},
+        null);
+  }
+
+  private ConfigurationReloader newReloader(RuntimeConfigurator runtimeConfigurator)
+      throws IOException {
+    return new ConfigurationReloader(
+        configPath,
+        agentJarPath,
+        null,
+        loadConfiguration(),
+        runtimeConfigurator,
+        TelemetryClient.createForTest(),
+        name -> null,
+        name -> null);
+  }
+
+  private Configuration loadConfiguration() throws IOException {
+    return ConfigurationBuilder.create(agentJarPath, null, name -> null, name -> null);
+  }
+}
@@ -0,0 +1,81 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.AiSemanticAttributes;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.OperationNames;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class OperationNameCacheTest {
+
+  private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder().build();
+  private final Tracer tracer = tracerProvider.get("test");
+
+  @AfterEach
+  void afterEach() {
+    OperationNameCache.clear();
+    tracerProvider.close();
+  }
+
+  @Test
+  void shouldReuseOperationNamePerSpanNameAndHttpMethod() {
+    ReadableSpan first = startServerSpan("/orders/{id}", "GET");
+    ReadableSpan second = startServerSpan("/orders/{id}", "GET");
+
+    String operationName = OperationNameCache.getOperationName(first);
+
+    assertThat(operationName).isEqualTo(OperationNames.getOperationName(first));
+    assertThat(OperationNameCache.getOperationName(second)).isSameAs(operationName);
+  }
+
+  @Test
+  void shouldNotShareOperationNameAcrossHttpMethods() {
+    ReadableSpan get = startServerSpan("/orders/{id}", "GET");
+    ReadableSpan delete = startServerSpan("/orders/{id}", "DELETE");
+
+    OperationNameCache.getOperationName(get);
+
+    assertThat(OperationNameCache.getOperationName(delete))
+        .isEqualTo(OperationNames.getOperationName(delete));
+  }
+
+  @Test
+  void shouldFollowSpanNameUpdates() {
+    ReadableSpan span = startServerSpan("GET", "GET");
+    OperationNameCache.getOperationName(span);
+
+    // e.g. updated by routing instrumentation
+    ((Span) span).updateName("GET /orders/{id}");
+
+    assertThat(OperationNameCache.getOperationName(span))
+        .isEqualTo(OperationNames.getOperationName(span));
+  }
+
+  @Test
+  void shouldPreferOperationNameAttribute() {
+    ReadableSpan span = startServerSpan("/orders/{id}", "GET");
+    OperationNameCache.getOperationName(span);
+
+    ((Span) span).setAttribute(AiSemanticAttributes.OPERATION_NAME, "custom");
+
+    assertThat(OperationNameCache.getOperationName(span)).isEqualTo("custom");
+  }
+
+  private ReadableSpan startServerSpan(String name, String httpMethod) {
+    return (ReadableSpan)
+        tracer
+            .spanBuilder(name)
+            .setSpanKind(SpanKind.SERVER)
+            .setAttribute("http.request.method", httpMethod)
+            .startSpan();
+  }
+}
@@ -14,6 +14,7 @@ import com.microsoft.applicationinsights.agent.internal.sampling.Samplers;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import java.net.URISyntaxException;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -73,7 +74,7 @@ class RpConfigurationPollingTest {
 
     // when
     RuntimeConfigurator runtimeConfigurator =
-        new RuntimeConfigurator(telemetryClient, () -> null, config, item -> {}, null);
+        new RuntimeConfigurator(telemetryClient, Collections::emptyList, config, item -> {}, null);
     new RpConfigurationPolling(
             rpConfiguration, runtimeConfigurator, this::envVars, System::getProperty)
         .run();
@@ -119,7 +120,7 @@ class RpConfigurationPollingTest {
 
     // when
     RuntimeConfigurator runtimeConfigurator =
-        new RuntimeConfigurator(telemetryClient, () -> null, config, item -> {}, null);
+        new RuntimeConfigurator(telemetryClient, Collections::emptyList, config, item -> {}, null);
     new RpConfigurationPolling(
             rpConfiguration, runtimeConfigurator, this::envVars, System::getProperty)
         .run();
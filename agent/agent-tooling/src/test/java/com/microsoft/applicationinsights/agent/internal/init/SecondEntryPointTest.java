@@ -8,6 +8,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.util.stream.Stream;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
 class SecondEntryPointTest {
@@ -45,4 +46,16 @@ class SecondEntryPointTest {
     String result = SecondEntryPoint.conditionallyAddAzureMonitorExporter(exporter, amle);
     assertThat(SecondEntryPoint.containsAzureMonitor(result)).isEqualTo(expectAzureMonitor);
   }
+
+  @ParameterizedTest(name = "{0} -> {1}")
+  @CsvSource(
+      delimiter = '|',
+      value = {
+        "azure_monitor | none",
+        "otlp,azure_monitor | otlp",
+        "azure_monitor, otlp,logging | otlp,logging",
+      })
+  void testRemoveAzureMonitor(String exporters, String expected) {
+    assertThat(SecondEntryPoint.removeAzureMonitor(exporters)).isEqualTo(expected);
+  }
 }
@@ -0,0 +1,73 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class StartupPhasesTest {
+
+  @AfterEach
+  void tearDown() {
+    StartupPhases.reset();
+  }
+
+  @Test
+  void shouldRecordPhases() {
+    try (StartupPhases.Phase ignored = StartupPhases.start("configuration")) {
+      // nothing
+    }
+
+    List<StartupPhases.PhaseTiming> timings = StartupPhases.getTimings();
+    assertThat(timings).hasSize(1);
+    assertThat(timings.get(0).name).isEqualTo("configuration");
+    assertThat(timings.get(0).background).isFalse();
+    assertThat(timings.get(0).durationNanos).isGreaterThanOrEqualTo(0);
+  }
+
+  @Test
+  void shouldRunBackgroundPhasesInParallel() throws Exception {
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    Runnable task =
+        () -> {
+          bothStarted.countDown();
+          try {
+            // only completes if the other phase runs at the same time
+            assertThat(bothStarted.await(10, SECONDS)).isTrue();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        };
+    StartupPhases.runInBackground("performance counters", task);
+    StartupPhases.runInBackground("profiler", task);
+
+    StartupPhases.whenBackgroundPhasesDone().get(10, SECONDS);
+
+    assertThat(StartupPhases.getTimings())
+        .extracting(timing -> timing.name)
+        .containsExactlyInAnyOrder("performance counters", "profiler");
+    assertThat(StartupPhases.getTimings()).allMatch(timing -> timing.background);
+  }
+
+  @Test
+  void shouldNotFailOnBackgroundPhaseFailure() throws Exception {
+    StartupPhases.runInBackground(
+        "profiler",
+        () -> {
+          throw new IllegalStateException("test");
+        });
+
+    StartupPhases.whenBackgroundPhasesDone().get(10, SECONDS);
+
+    assertThat(StartupPhases.getTimings()).extracting(timing -> timing.name).contains("profiler");
+    assertThat(StartupPhases.format(StartupPhases.getTimings()))
+        .contains("profiler: ")
+        .contains("(background)");
+  }
+}
@@ -0,0 +1,146 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.legacyheaders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanId;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceId;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+// compares the char-level implementation against the previous substring-based implementation
+// using randomly generated header values
+class LegacyRequestIdsTest {
+
+  private static final String CHARS = "0123456789abcdefABCDEF|.-_gz";
+
+  private final Random random = new Random(42);
+
+  @Test
+  void shouldExtractSameRootIdAsSubstringImplementation() {
+    for (int i = 0; i < 100_000; i++) {
+      String requestId = randomRequestId();
+
+      String expectedRootId = referenceExtractRootId(requestId);
+      int start = LegacyRequestIds.rootIdStart(requestId);
+      int end = LegacyRequestIds.rootIdEnd(requestId);
+
+      assertThat(requestId.substring(start, end)).isEqualTo(expectedRootId);
+      assertThat(LegacyRequestIds.isValidTraceId(requestId, start, end))
+          .as(requestId)
+          .isEqualTo(TraceId.isValid(expectedRootId));
+    }
+  }
+
+  @Test
+  void shouldExtractSameTraceIdAsSubstringImplementation() {
+    for (int i = 0; i < 10_000; i++) {
+      String requestId = randomRequestId();
+      Map<String, String> carrier = new HashMap<>();
+      carrier.put("Request-Id", requestId);
+
+      Context context =
+          AiLegacyPropagator.getInstance().extract(Context.root(), carrier, MapGetter.INSTANCE);
+
+      SpanContext spanContext = Span.fromContext(context).getSpanContext();
+      assertThat(spanContext.isValid()).isTrue();
+      assertThat(spanContext.isRemote()).isTrue();
+      String expectedRootId = referenceExtractRootId(requestId);
+      if (TraceId.isValid(expectedRootId)) {
+        assertThat(spanContext.getTraceId()).isEqualTo(expectedRootId);
+      }
+    }
+  }
+
+  @Test
+  void shouldFormatSameRequestIdAsConcatenation() {
+    for (int i = 0; i < 10_000; i++) {
+      String traceId = TraceId.fromLongs(random.nextLong(), random.nextLong());
+      String spanId = SpanId.fromLong(random.nextLong());
+      SpanContext spanContext =
+          SpanContext.create(traceId, spanId, TraceFlags.getSampled(), TraceState.getDefault());
+      Map<String, String> carrier = new HashMap<>();
+
+      AiLegacyPropagator.getInstance()
+          .inject(Context.root().with(Span.wrap(spanContext)), carrier, Map::put);
+
+      assertThat(carrier)
+          .isEqualTo(Collections.singletonMap("Request-Id", '|' + traceId + '.' + spanId + '.'));
+    }
+  }
+
+  @Test
+  void shouldGenerateValidIds() {
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(SpanId.isValid(LegacyRequestIds.generateSpanId())).isTrue();
+      assertThat(TraceId.isValid(LegacyRequestIds.generateTraceId())).isTrue();
+    }
+  }
+
+  private String randomRequestId() {
+    StringBuilder sb = new StringBuilder();
+    if (random.nextBoolean()) {
+      sb.append('|');
+    }
+    int shape = random.nextInt(4);
+    if (shape == 0) {
+      // well-formed w3c compatible root id
+      sb.append(TraceId.fromLongs(random.nextLong(), random.nextLong()));
+    } else if (shape == 1) {
+      // all zeros
+      sb.append(TraceId.getInvalid());
+    } else if (shape == 2) {
+      // nearly well-formed root id with one character changed
+      char[] chars = TraceId.fromLongs(random.nextLong(), random.nextLong()).toCharArray();
+      chars[random.nextInt(chars.length)] = CHARS.charAt(random.nextInt(CHARS.length()));
+      sb.append(chars);
+    }
+    int length = random.nextInt(shape == 3 ? 50 : 20);
+    for (int i = 0; i < length; i++) {
+      sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+    }
+    if (sb.length() == 0) {
+      sb.append('x');
+    }
+    return sb.toString();
+  }
+
+  // previous implementation
+  private static String referenceExtractRootId(String parentId) {
+    int rootEnd = parentId.indexOf('.');
+    if (rootEnd < 0) {
+      rootEnd = parentId.length();
+    }
+
+    int rootStart = parentId.charAt(0) == '|' ? 1 : 0;
+
+    return parentId.substring(rootStart, rootEnd);
+  }
+
+  private enum MapGetter implements TextMapGetter<Map<String, String>> {
+    INSTANCE;
+
+    @Override
+    public Iterable<String> keys(Map<String, String> carrier) {
+      return carrier.keySet();
+    }
+
+    @Override
+    @Nullable
+    public String get(@Nullable Map<String, String> carrier, String key) {
+      return carrier == null ? null : carrier.get(key);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class AgentOverheadGovernorTest {
+
+  @Test
+  void shouldBackOffOneLevelPerCheckWhileOverBudget() {
+    AgentOverheadGovernor governor = new AgentOverheadGovernor(5, 50);
+
+    assertThat(governor.adjust(6, 0)).isTrue();
+    assertThat(governor.adjust(1, 60)).isTrue();
+    assertThat(governor.getLevel()).isEqualTo(2);
+
+    for (int i = 0; i < 10; i++) {
+      governor.adjust(100, 0);
+    }
+    assertThat(governor.getLevel()).isEqualTo(AgentOverheadGovernor.MAX_LEVEL);
+  }
+
+  @Test
+  void shouldRestoreOnlyAfterStayingWellUnderBudget() {
+    AgentOverheadGovernor governor = new AgentOverheadGovernor(5, 50);
+    governor.adjust(6, 0);
+    governor.adjust(6, 0);
+
+    // under the budget, but not well under it
+    for (int i = 0; i < 10; i++) {
+      assertThat(governor.adjust(4, 0)).isFalse();
+    }
+
+    // interrupted streak
+    governor.adjust(1, 0);
+    governor.adjust(1, 0);
+    governor.adjust(4, 0);
+    assertThat(governor.getLevel()).isEqualTo(2);
+
+    for (int i = 1; i < AgentOverheadGovernor.RESTORE_CHECKS; i++) {
+      assertThat(governor.adjust(1, 0)).isFalse();
+    }
+    assertThat(governor.adjust(1, 0)).isTrue();
+    assertThat(governor.getLevel()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRecognizeAgentThreads() {
+    assertThat(AgentOverheadGovernor.isAgentThread("BatchItemProcessor_WorkerThread")).isTrue();
+    assertThat(AgentOverheadGovernor.isAgentThread("PerformanceCounterContainer-1")).isTrue();
+    assertThat(AgentOverheadGovernor.isAgentThread("http-nio-8080-exec-1")).isFalse();
+  }
+}
@@ -0,0 +1,101 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HostIoPerformanceCounterTest {
+
+  @TempDir Path procDir;
+
+  @Test
+  void shouldOnlyReportConnectionCountsOnFirstCollection() throws Exception {
+    copyFixture("first");
+    HostIoPerformanceCounter counter = new HostIoPerformanceCounter(procDir.toFile());
+
+    Map<String, Double> metrics = new HashMap<>();
+    counter.collect(0, metrics::put);
+
+    assertThat(metrics)
+        .containsEntry("\\TCP(LISTEN)\\Connections", 2.0)
+        .containsEntry("\\TCP(ESTABLISHED)\\Connections", 2.0)
+        .containsEntry("\\TCP(TIME_WAIT)\\Connections", 1.0)
+        .containsEntry("\\TCP(CLOSE_WAIT)\\Connections", 1.0)
+        .containsEntry("\\TCP(SYN_SENT)\\Connections", 0.0);
+    assertThat(metrics.keySet()).allMatch(name -> name.startsWith("\\TCP("));
+  }
+
+  @Test
+  void shouldReportRatesFromDeltas() throws Exception {
+    copyFixture("first");
+    HostIoPerformanceCounter counter = new HostIoPerformanceCounter(procDir.toFile());
+    counter.collect(0, (name, value) -> {});
+
+    copyFixture("second");
+    Map<String, Double> metrics = new HashMap<>();
+    counter.collect(SECONDS.toNanos(10), metrics::put);
+
+    assertThat(metrics)
+        .containsEntry("\\Network Interface(eth0)\\Bytes Received/sec", 100000.0)
+        .containsEntry("\\Network Interface(eth0)\\Bytes Sent/sec", 50000.0)
+        .containsEntry("\\Network Interface(eth0)\\Packets Received/sec", 100.0)
+        .containsEntry("\\Network Interface(eth0)\\Packets Sent/sec", 40.0)
+        .containsEntry(MetricNames.TOTAL_NETWORK_BYTES, 150000.0)
+        .doesNotContainKey("\\Network Interface(lo)\\Bytes Received/sec");
+
+    assertThat(metrics)
+        .containsEntry("\\TCP\\Segments Retransmitted/sec", 20.0)
+        .containsEntry(MetricNames.TCP_SEGMENTS_RETRANSMITTED_PERCENTAGE, 2.0)
+        .containsEntry("\\TCP\\Connection Failures/sec", 1.0)
+        .containsEntry("\\TCP\\Connections Reset/sec", 0.5)
+        .containsEntry("\\TCP(LISTEN)\\Connections", 2.0)
+        .containsEntry("\\TCP(SYN_SENT)\\Connections", 1.0)
+        .containsEntry("\\TCP(TIME_WAIT)\\Connections", 0.0);
+
+    assertThat(metrics)
+        .containsEntry("\\PhysicalDisk(sda)\\Disk Read Bytes/sec", 102400.0)
+        .containsEntry("\\PhysicalDisk(sda)\\Disk Write Bytes/sec", 204800.0)
+        .containsEntry("\\PhysicalDisk(sda)\\Disk Reads/sec", 10.0)
+        .containsEntry("\\PhysicalDisk(sda)\\Disk Writes/sec", 20.0)
+        .containsEntry("\\PhysicalDisk(nvme0n1)\\Avg. Disk sec/Read", 0.0)
+        .doesNotContainKey("\\PhysicalDisk(sda1)\\Disk Reads/sec")
+        .doesNotContainKey("\\PhysicalDisk(loop0)\\Disk Reads/sec");
+    assertThat(metrics.get("\\PhysicalDisk(sda)\\Avg. Disk sec/Read"))
+        .isCloseTo(0.0005, within(1e-9));
+    assertThat(metrics.get("\\PhysicalDisk(sda)\\Avg. Disk sec/Write"))
+        .isCloseTo(0.00125, within(1e-9));
+    assertThat(metrics.get(MetricNames.TOTAL_DISK_SECONDS_PER_TRANSFER))
+        .isCloseTo(0.001, within(1e-9));
+  }
+
+  // overwrites the files in place (instead of replacing them), since the readers keep them open
+  private void copyFixture(String name) throws IOException, URISyntaxException {
+    Path fixture =
+        Paths.get(HostIoPerformanceCounterTest.class.getResource("/host-io/" + name).toURI());
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(fixture)) {
+      files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      Path target = procDir.resolve(fixture.relativize(file).toString());
+      Files.createDirectories(target.getParent());
+      Files.write(target, Files.readAllBytes(file));
+    }
+  }
+}
@@ -0,0 +1,132 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HotThreadSamplerTest {
+
+  // written to by the busy work, so that it is not optimized away
+  private static volatile long sink;
+
+  private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private final List<Thread> threads = new ArrayList<>();
+
+  private long[] nanoTime;
+  private volatile boolean stop;
+
+  @BeforeEach
+  void setUp() {
+    threadBean.setThreadCpuTimeEnabled(true);
+    nanoTime = new long[] {0L};
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    stop = true;
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @Test
+  void shouldReportBusyThreadsAndTheirPool() {
+    Map<String, Pattern> threadPools = new LinkedHashMap<>();
+    threadPools.put("spinners", Pattern.compile("spinner-.*"));
+    HotThreadSampler sampler =
+        new HotThreadSampler(
+            threadBean, threadPools, 5, 1000, SECONDS.toNanos(1), () -> nanoTime[0]);
+
+    Thread spinner = startThread("spinner-1", this::spin);
+    // nothing to compare to yet
+    assertThat(sampler.sample()).isNull();
+
+    long startCpuTime = threadBean.getThreadCpuTime(spinner.getId());
+    await()
+        .until(
+            () ->
+                threadBean.getThreadCpuTime(spinner.getId()) - startCpuTime
+                    > MILLISECONDS.toNanos(100));
+    nanoTime[0] += SECONDS.toNanos(10);
+    HotThreadSampler.Sample sample = sampler.sample();
+
+    assertThat(sample).isNotNull();
+    assertThat(sample.elapsedNanos).isEqualTo(SECONDS.toNanos(10));
+    List<String> threadNames = new ArrayList<>();
+    for (HotThreadSampler.HotThread thread : sample.topThreads) {
+      threadNames.add(thread.threadName);
+      if (thread.threadId == spinner.getId()) {
+        assertThat(thread.poolName).isEqualTo("spinners");
+      }
+    }
+    assertThat(threadNames).contains("spinner-1");
+    assertThat(sample.poolCpuNanos.get("spinners")).isGreaterThan(MILLISECONDS.toNanos(100));
+  }
+
+  @Test
+  void shouldGroupThreadsIntoPools() {
+    Map<String, Pattern> threadPools = new LinkedHashMap<>();
+    threadPools.put("tomcat", Pattern.compile("http-nio-.*-exec-.*"));
+    threadPools.put("all", Pattern.compile(".*"));
+
+    assertThat(HotThreadSampler.getPoolName("http-nio-8080-exec-12", threadPools))
+        .isEqualTo("tomcat");
+    assertThat(HotThreadSampler.getPoolName("main", threadPools)).isEqualTo("all");
+    assertThat(HotThreadSampler.getPoolName("pool-3-thread-17", Collections.emptyMap()))
+        .isEqualTo("pool-#-thread-#");
+  }
+
+  @Test
+  void shouldBackOffWhenOverSelfCostBudget() {
+    // every sample takes 5 ms, with a budget of 1 ms
+    HotThreadSampler sampler =
+        new HotThreadSampler(
+            threadBean,
+            Collections.emptyMap(),
+            5,
+            1000,
+            MILLISECONDS.toNanos(1),
+            () -> nanoTime[0] += MILLISECONDS.toNanos(5));
+
+    assertThat(sampler.sample()).isNull();
+    assertThat(sampler.getSamplesToSkip()).isEqualTo(5);
+    for (int i = 0; i < 5; i++) {
+      assertThat(sampler.sample()).isNull();
+    }
+    HotThreadSampler.Sample sample = sampler.sample();
+    assertThat(sample).isNotNull();
+    assertThat(sample.durationNanos).isEqualTo(MILLISECONDS.toNanos(5));
+  }
+
+  private void spin() {
+    long value = 0;
+    while (!stop) {
+      value += System.nanoTime() % 7;
+    }
+    sink = value;
+  }
+
+  private Thread startThread(String name, Runnable runnable) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    thread.start();
+    threads.add(thread);
+    return thread;
+  }
+}
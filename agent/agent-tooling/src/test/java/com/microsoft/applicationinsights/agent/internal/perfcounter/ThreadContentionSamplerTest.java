@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ThreadContentionSamplerTest {
+
+  private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private final Object lock = new Object();
+  private final List<Thread> threads = new ArrayList<>();
+
+  private long[] nanoTime;
+
+  @BeforeEach
+  void setUp() {
+    threadBean.setThreadContentionMonitoringEnabled(true);
+    nanoTime = new long[] {0L};
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    for (Thread thread : threads) {
+      thread.interrupt();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @Test
+  void shouldDetectConvoyAndLongHeldMonitor() throws Exception {
+    ThreadContentionSampler sampler =
+        new ThreadContentionSampler(threadBean, 3, SECONDS.toNanos(10), 5, 1000, () -> nanoTime[0]);
+
+    CountDownLatch ownerReleased = new CountDownLatch(1);
+    CountDownLatch ownerLocked = new CountDownLatch(1);
+    Thread owner =
+        startThread(
+            "owner",
+            () -> {
+              synchronized (lock) {
+                ownerLocked.countDown();
+                awaitQuietly(ownerReleased);
+              }
+            });
+    ownerLocked.await();
+    for (int i = 0; i < 3; i++) {
+      startThread(
+          "waiter-" + i,
+          () -> {
+            synchronized (lock) {
+              // only contending
+            }
+          });
+    }
+    await().until(() -> countBlocked(sampler) >= 3);
+
+    try {
+      nanoTime[0] += SECONDS.toNanos(11);
+      ThreadContentionSampler.Sample sample = sampler.sample();
+
+      assertThat(sample).isNotNull();
+      assertThat(sample.blockedThreadCount).isGreaterThanOrEqualTo(3);
+      assertThat(sample.topLocks).isNotEmpty();
+      ThreadContentionSampler.ContendedLock top = sample.topLocks.get(0);
+      assertThat(top.ownerId).isEqualTo(owner.getId());
+      assertThat(top.blockedThreadCount).isEqualTo(3);
+      assertThat(top.convoy).isTrue();
+      assertThat(top.longHeld).isTrue();
+      assertThat(sample.hasSuspiciousLocks()).isTrue();
+    } finally {
+      ownerReleased.countDown();
+    }
+  }
+
+  @Test
+  void shouldBackOffWithManyThreads() throws Exception {
+    int threadCount = 2000;
+    CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < threadCount; i++) {
+      startThread("harness-" + i, () -> awaitQuietly(release));
+    }
+
+    try {
+      ThreadContentionSampler sampler =
+          new ThreadContentionSampler(threadBean, 5, SECONDS.toNanos(10), 5, 500, System::nanoTime);
+
+      ThreadContentionSampler.Sample sample = sampler.sample();
+
+      assertThat(sample).isNotNull();
+      assertThat(sample.threadCount).isGreaterThan(threadCount);
+      // sampling without stack traces stays cheap even for a large number of threads
+      assertThat(sample.durationNanos).isLessThan(SECONDS.toNanos(1));
+
+      int samplesToSkip = sampler.getSamplesToSkip();
+      assertThat(samplesToSkip).isGreaterThanOrEqualTo(threadCount / 500);
+      for (int i = 0; i < samplesToSkip; i++) {
+        assertThat(sampler.sample()).isNull();
+      }
+      assertThat(sampler.sample()).isNotNull();
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private int countBlocked(ThreadContentionSampler sampler) {
+    ThreadContentionSampler.Sample sample = sampler.sample();
+    if (sample == null || sample.topLocks.isEmpty()) {
+      return 0;
+    }
+    return sample.topLocks.get(0).blockedThreadCount;
+  }
+
+  private Thread startThread(String name, Runnable runnable) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    thread.start();
+    threads.add(thread);
+    return thread;
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
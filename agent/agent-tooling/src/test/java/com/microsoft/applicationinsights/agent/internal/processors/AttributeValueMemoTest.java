@@ -0,0 +1,82 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+
+class AttributeValueMemoTest {
+
+  private final AtomicInteger computations = new AtomicInteger();
+
+  @Test
+  void shouldRememberResults() {
+    AttributeValueMemo memo = new AttributeValueMemo(1024 * 1024);
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(memo.hash("user@example.com", counting(DigestUtils::sha256Hex)))
+          .isEqualTo(DigestUtils.sha256Hex("user@example.com"));
+    }
+
+    assertThat(computations.get()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotShareResultsBetweenActions() {
+    AttributeValueMemo memo = new AttributeValueMemo(1024 * 1024);
+    Object mask1 = new Object();
+    Object mask2 = new Object();
+
+    assertThat(memo.get(mask1, "value", v -> "1")).isEqualTo("1");
+    assertThat(memo.get(mask2, "value", v -> "2")).isEqualTo("2");
+    assertThat(memo.hash("value", v -> "hash")).isEqualTo("hash");
+    assertThat(memo.get(mask1, "value", v -> "other")).isEqualTo("1");
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedWhenFull() {
+    // room for about 100 entries
+    AttributeValueMemo memo = new AttributeValueMemo(16 * 1024);
+
+    memo.hash("hot", counting(v -> v + "!"));
+    for (int i = 0; i < 300; i++) {
+      memo.hash("cold" + i, counting(v -> v + "!"));
+      // keeps "hot" recently used
+      memo.hash("hot", counting(v -> v + "!"));
+    }
+
+    assertThat(computations.get()).isEqualTo(301);
+    assertThat(memo.getBytes()).isLessThanOrEqualTo(16 * 1024);
+
+    // the oldest cold values have been evicted
+    memo.hash("cold0", counting(v -> v + "!"));
+    assertThat(computations.get()).isEqualTo(302);
+  }
+
+  @Test
+  void shouldNotRememberLargeValues() {
+    AttributeValueMemo memo = new AttributeValueMemo(16 * 1024);
+    StringBuilder large = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      large.append("select * from t where id = ?;");
+    }
+
+    memo.hash(large.toString(), counting(DigestUtils::sha256Hex));
+    memo.hash(large.toString(), counting(DigestUtils::sha256Hex));
+
+    assertThat(computations.get()).isEqualTo(2);
+    assertThat(memo.getBytes()).isZero();
+  }
+
+  private Function<String, String> counting(Function<String, String> function) {
+    return value -> {
+      computations.incrementAndGet();
+      return function.apply(value);
+    };
+  }
+}
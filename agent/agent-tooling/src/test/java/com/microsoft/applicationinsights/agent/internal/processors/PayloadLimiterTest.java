@@ -0,0 +1,192 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.AiSemanticAttributes;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.AttributeLengthLimit;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.PayloadBudget;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SpanEventRule;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SpanEventRuleAction;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.testing.logs.TestLogRecordData;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PayloadLimiterTest {
+
+  private static final AttributeKey<String> DB_STATEMENT = AttributeKey.stringKey("db.statement");
+  private static final AttributeKey<String> DB_NAME = AttributeKey.stringKey("db.name");
+
+  private final OpenTelemetrySdk sdk = OpenTelemetrySdk.builder().build();
+
+  @Test
+  void shouldTruncateMatchingAttributes() {
+    PayloadBudget budget = new PayloadBudget();
+    budget.attributeLengthLimits.add(lengthLimit("db\\..*", 50));
+    PayloadLimiter limiter = new PayloadLimiter(budget, new SpanEventFilter(emptyRules()));
+
+    Attributes attributes =
+        Attributes.of(DB_STATEMENT, repeat('a', 100), DB_NAME, "orders", stringKey("x"), "y");
+    Attributes limited = limiter.limit(attributes);
+
+    String statement = limited.get(DB_STATEMENT);
+    assertThat(statement).hasSize(50).endsWith(PayloadLimiter.TRUNCATION_MARKER);
+    // deterministic
+    assertThat(limiter.limit(attributes)).isEqualTo(limited);
+    assertThat(limited.get(DB_NAME)).isEqualTo("orders");
+    assertThat(limited.get(stringKey("x"))).isEqualTo("y");
+  }
+
+  @Test
+  void shouldTruncateLongestValuesToFitTotalBudget() {
+    PayloadBudget budget = new PayloadBudget();
+    budget.maxTotalAttributeLength = 1000;
+    PayloadLimiter limiter = new PayloadLimiter(budget, new SpanEventFilter(emptyRules()));
+
+    Attributes attributes =
+        Attributes.builder()
+            .put(DB_STATEMENT, repeat('a', 2000))
+            .put("url.full", repeat('b', 600))
+            .put(DB_NAME, "orders")
+            .put("count", 12L)
+            .build();
+    Attributes limited = limiter.limit(attributes);
+
+    assertThat(limited.get(DB_STATEMENT)).endsWith(PayloadLimiter.TRUNCATION_MARKER);
+    assertThat(limited.get(stringKey("url.full"))).endsWith(PayloadLimiter.TRUNCATION_MARKER);
+    assertThat(limited.get(DB_NAME)).isEqualTo("orders");
+    assertThat(limited.get(AttributeKey.longKey("count"))).isEqualTo(12L);
+    int total = 0;
+    for (AttributeKey<?> key : limited.asMap().keySet()) {
+      total += key.getKey().length() + String.valueOf(limited.get(key)).length();
+    }
+    assertThat(total).isLessThanOrEqualTo(1000);
+  }
+
+  @Test
+  void shouldNotTruncateExceptionAttributes() {
+    PayloadBudget budget = new PayloadBudget();
+    budget.attributeLengthLimits.add(lengthLimit(".*", 100));
+    budget.maxTotalAttributeLength = 1000;
+    PayloadLimiter limiter = new PayloadLimiter(budget, new SpanEventFilter(emptyRules()));
+
+    StringBuilder stackTrace = new StringBuilder("java.lang.IllegalStateException: oops");
+    for (int i = 0; i < 200; i++) {
+      stackTrace.append("\n\tat com.example.Service.method").append(i).append("(Service.java:42)");
+    }
+    LogRecordData log =
+        TestLogRecordData.builder()
+            .setBody("oops")
+            .setAttributes(
+                Attributes.builder()
+                    .put("exception.type", "java.lang.IllegalStateException")
+                    .put("exception.message", "oops")
+                    .put("exception.stacktrace", stackTrace.toString())
+                    .build())
+            .build();
+
+    assertThat(limiter.apply(log)).isSameAs(log);
+
+    Attributes spanAttributes =
+        Attributes.builder()
+            .put(AiSemanticAttributes.LOGGED_EXCEPTION, stackTrace.toString())
+            .put(DB_STATEMENT, repeat('a', 2000))
+            .build();
+    Attributes limited = limiter.limit(spanAttributes);
+
+    assertThat(limited.get(AiSemanticAttributes.LOGGED_EXCEPTION))
+        .isEqualTo(stackTrace.toString());
+    assertThat(limited.get(DB_STATEMENT)).hasSize(100);
+  }
+
+  @Test
+  void shouldReturnSameInstanceWhenWithinBudget() {
+    PayloadLimiter limiter =
+        new PayloadLimiter(new PayloadBudget(), new SpanEventFilter(emptyRules()));
+
+    SpanData span = toSpanData(sdk.getTracer("test").spanBuilder("test").startSpan());
+
+    assertThat(limiter.apply(span)).isSameAs(span);
+  }
+
+  @Test
+  void shouldLimitSpanEvents() {
+    PayloadBudget budget = new PayloadBudget();
+    budget.maxEventsPerSpan = 2;
+    PayloadLimiter limiter = new PayloadLimiter(budget, new SpanEventFilter(emptyRules()));
+
+    Span span = sdk.getTracer("io.opentelemetry.grpc-1.6").spanBuilder("test").startSpan();
+    span.addEvent("message");
+    span.addEvent("one");
+    span.addEvent("two");
+    span.recordException(new IllegalStateException());
+    span.addEvent("three");
+    SpanData limited = limiter.apply(toSpanData(span));
+
+    List<String> eventNames = new ArrayList<>();
+    for (EventData event : limited.getEvents()) {
+      eventNames.add(event.getName());
+    }
+    // the grpc "message" event is suppressed by default, exceptions are always kept
+    assertThat(eventNames).containsExactly("one", "two", "exception");
+  }
+
+  @Test
+  void shouldApplyConfiguredEventRulesFirst() {
+    SpanEventRule allowGrpcMessages = new SpanEventRule();
+    allowGrpcMessages.instrumentationScope = "io.opentelemetry.grpc-1.6";
+    allowGrpcMessages.eventName = "message";
+    allowGrpcMessages.action = SpanEventRuleAction.ALLOW;
+    SpanEventRule denyCacheEvents = new SpanEventRule();
+    denyCacheEvents.eventName = "cache\\..*";
+    List<SpanEventRule> rules = new ArrayList<>();
+    rules.add(allowGrpcMessages);
+    rules.add(denyCacheEvents);
+    SpanEventFilter filter = new SpanEventFilter(rules);
+
+    assertThat(filter.isSuppressed("io.opentelemetry.grpc-1.6", "message")).isFalse();
+    assertThat(filter.isSuppressed("any", "cache.miss")).isTrue();
+    assertThat(filter.isSuppressed("io.opentelemetry.lettuce-5.1", "redis.encode.start")).isTrue();
+    assertThat(filter.isSuppressed("io.opentelemetry.lettuce-5.1", "redis.connect")).isFalse();
+  }
+
+  private static SpanData toSpanData(Span span) {
+    span.end();
+    return ((ReadableSpan) span).toSpanData();
+  }
+
+  private static AttributeLengthLimit lengthLimit(String keyPattern, int maxLength) {
+    AttributeLengthLimit lengthLimit = new AttributeLengthLimit();
+    lengthLimit.keyPattern = keyPattern;
+    lengthLimit.maxLength = maxLength;
+    return lengthLimit;
+  }
+
+  private static List<SpanEventRule> emptyRules() {
+    return Collections.emptyList();
+  }
+
+  private static AttributeKey<String> stringKey(String key) {
+    return AttributeKey.stringKey(key);
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuilder sb = new StringBuilder(count);
+    for (int i = 0; i < count; i++) {
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+}
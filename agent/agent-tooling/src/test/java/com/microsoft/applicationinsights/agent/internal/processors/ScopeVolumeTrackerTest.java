@@ -0,0 +1,138 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ScopeQuota;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ScopeVolume;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.testing.logs.TestLogRecordData;
+import io.opentelemetry.sdk.testing.trace.TestSpanData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.StatusData;
+import org.junit.jupiter.api.Test;
+
+class ScopeVolumeTrackerTest {
+
+  private static final String LETTUCE = "io.opentelemetry.lettuce-5.1";
+  private static final String TOMCAT = "io.opentelemetry.tomcat-10.0";
+  private static final String LOGBACK = "io.opentelemetry.logback-appender-1.0";
+
+  private final long[] nanoTime = {0};
+
+  @Test
+  void shouldAccountPerScopeAndTelemetryType() {
+    ScopeVolumeTracker tracker = new ScopeVolumeTracker(new ScopeVolume(), () -> nanoTime[0]);
+
+    assertThat(tracker.record(span(TOMCAT, SpanKind.SERVER))).isTrue();
+    assertThat(tracker.record(span(LETTUCE, SpanKind.CLIENT))).isTrue();
+    assertThat(tracker.record(span(LETTUCE, SpanKind.CLIENT))).isTrue();
+    assertThat(tracker.record(log(LOGBACK, Attributes.empty()))).isTrue();
+    assertThat(
+            tracker.record(
+                log(LOGBACK, Attributes.builder().put("exception.type", "Oops").build())))
+        .isTrue();
+
+    assertThat(tracker.getItemCounts())
+        .containsEntry("Request " + TOMCAT, 1L)
+        .containsEntry("RemoteDependency " + LETTUCE, 2L)
+        .containsEntry("Message " + LOGBACK, 1L)
+        .containsEntry("Exception " + LOGBACK, 1L)
+        .hasSize(4);
+    assertThat(tracker.getEstimatedBytes().get("RemoteDependency " + LETTUCE))
+        .isEqualTo(2 * ScopeVolumeTracker.estimateBytes(span(LETTUCE, SpanKind.CLIENT)));
+    assertThat(tracker.getDroppedItemCounts()).containsEntry("Request " + TOMCAT, 0L);
+  }
+
+  @Test
+  void shouldDropItemsOverQuota() {
+    ScopeVolume scopeVolume = new ScopeVolume();
+    ScopeQuota quota = new ScopeQuota();
+    quota.instrumentationScope = LETTUCE;
+    quota.maxItemsPerSecond = 10;
+    scopeVolume.quotas.add(quota);
+    ScopeVolumeTracker tracker = new ScopeVolumeTracker(scopeVolume, () -> nanoTime[0]);
+
+    int accepted = 0;
+    for (int i = 0; i < 100; i++) {
+      if (tracker.record(span(LETTUCE, SpanKind.CLIENT))) {
+        accepted++;
+      }
+      // other scopes are not limited
+      assertThat(tracker.record(span(TOMCAT, SpanKind.SERVER))).isTrue();
+    }
+    // the initial burst
+    assertThat(accepted).isEqualTo(10);
+
+    nanoTime[0] += MILLISECONDS.toNanos(500);
+    accepted = 0;
+    for (int i = 0; i < 100; i++) {
+      if (tracker.record(span(LETTUCE, SpanKind.CLIENT))) {
+        accepted++;
+      }
+    }
+    assertThat(accepted).isEqualTo(5);
+
+    assertThat(tracker.getItemCounts()).containsEntry("RemoteDependency " + LETTUCE, 15L);
+    assertThat(tracker.getDroppedItemCounts())
+        .containsEntry("RemoteDependency " + LETTUCE, 185L)
+        .containsEntry("Request " + TOMCAT, 0L);
+  }
+
+  @Test
+  void shouldSummarizeBusiestScopesOnInterval() {
+    ScopeVolume scopeVolume = new ScopeVolume();
+    scopeVolume.summaryIntervalSeconds = 60;
+    scopeVolume.summaryTopCount = 1;
+    ScopeVolumeTracker tracker = new ScopeVolumeTracker(scopeVolume, () -> nanoTime[0]);
+
+    for (int i = 0; i < 3; i++) {
+      tracker.record(span(LETTUCE, SpanKind.CLIENT));
+    }
+    tracker.record(span(TOMCAT, SpanKind.SERVER));
+
+    assertThat(tracker.getSummaryIfDue()).isNull();
+
+    nanoTime[0] += SECONDS.toNanos(60);
+    String summary = tracker.getSummaryIfDue();
+    assertThat(summary)
+        .contains("over the last 60 seconds")
+        .contains("RemoteDependency " + LETTUCE + ": 3 items")
+        .contains("(1 more)")
+        .doesNotContain(TOMCAT);
+
+    // nothing was recorded since the last summary
+    nanoTime[0] += SECONDS.toNanos(60);
+    assertThat(tracker.getSummaryIfDue()).isNull();
+  }
+
+  private static SpanData span(String scope, SpanKind kind) {
+    return TestSpanData.builder()
+        .setName("GET")
+        .setKind(kind)
+        .setInstrumentationScopeInfo(InstrumentationScopeInfo.create(scope))
+        .setAttributes(Attributes.builder().put("db.system", "redis").build())
+        .setStatus(StatusData.unset())
+        .setStartEpochNanos(0)
+        .setEndEpochNanos(1)
+        .setHasEnded(true)
+        .setTotalRecordedEvents(0)
+        .setTotalRecordedLinks(0)
+        .build();
+  }
+
+  private static LogRecordData log(String scope, Attributes attributes) {
+    return TestLogRecordData.builder()
+        .setBody("message")
+        .setInstrumentationScopeInfo(InstrumentationScopeInfo.create(scope))
+        .setAttributes(attributes)
+        .build();
+  }
+}
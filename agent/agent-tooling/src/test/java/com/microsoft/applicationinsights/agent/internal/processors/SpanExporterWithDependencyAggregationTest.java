@@ -0,0 +1,204 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.sdk.testing.trace.TestSpanData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.StatusData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SpanExporterWithDependencyAggregationTest {
+
+  private static final String TRACE_ID = "0123456789abcdef0123456789abcdef";
+
+  private final MockSpanExporter mockSpanExporter = new MockSpanExporter();
+  private final long[] nanoTime = {0};
+  private final SpanExporterWithDependencyAggregation exporter =
+      new SpanExporterWithDependencyAggregation(
+          2, SECONDS.toNanos(60), 100, () -> nanoTime[0], mockSpanExporter);
+
+  private int nextSpanId = 1;
+
+  @Test
+  void shouldCollapseRepetitiveDependenciesBeforeTheirParent() {
+    SpanContext request = newSpanContext();
+    List<SpanData> spans = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      spans.add(
+          dependency(
+              request,
+              "SELECT * FROM orders WHERE id = " + i,
+              MILLISECONDS.toNanos(i + 1),
+              i == 7 ? StatusCode.ERROR : StatusCode.UNSET));
+    }
+    // a different statement under the same parent
+    spans.add(dependency(request, "SELECT * FROM users", 1, StatusCode.UNSET));
+    exporter.export(spans);
+
+    // the collapsed dependencies are held back until their parent is exported
+    assertThat(mockSpanExporter.getSpans()).hasSize(3);
+
+    exporter.export(Collections.singletonList(server(request)));
+
+    List<SpanData> exported = mockSpanExporter.getSpans();
+    assertThat(exported).hasSize(5);
+    SpanData aggregated = exported.get(3);
+    assertThat(exported.get(4).getSpanContext()).isEqualTo(request);
+    assertThat(aggregated.getParentSpanContext()).isEqualTo(request);
+    Attributes attributes = aggregated.getAttributes();
+    assertThat(attributes.get(longKey(SpanExporterWithDependencyAggregation.COUNT_ATTRIBUTE)))
+        .isEqualTo(8);
+    // 3 + 4 + ... + 10 ms
+    assertThat(
+            attributes.get(
+                longKey(SpanExporterWithDependencyAggregation.TOTAL_DURATION_ATTRIBUTE)))
+        .isEqualTo(52);
+    assertThat(
+            attributes.get(longKey(SpanExporterWithDependencyAggregation.MAX_DURATION_ATTRIBUTE)))
+        .isEqualTo(10);
+    assertThat(
+            attributes.get(longKey(SpanExporterWithDependencyAggregation.FAILURE_COUNT_ATTRIBUTE)))
+        .isEqualTo(1);
+    assertThat(aggregated.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+    assertThat(aggregated.getEndEpochNanos() - aggregated.getStartEpochNanos())
+        .isEqualTo(MILLISECONDS.toNanos(52));
+  }
+
+  @Test
+  void shouldNotCollapseAcrossParents() {
+    SpanContext first = newSpanContext();
+    SpanContext second = newSpanContext();
+    List<SpanData> spans = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      spans.add(dependency(first, "SELECT 1", 1, StatusCode.UNSET));
+      spans.add(dependency(second, "SELECT 1", 1, StatusCode.UNSET));
+    }
+    spans.add(server(first));
+    spans.add(server(second));
+    exporter.export(spans);
+
+    assertThat(mockSpanExporter.getSpans()).hasSize(6);
+  }
+
+  @Test
+  void shouldExportPendingAggregatesWhenParentIsNotExported() {
+    SpanContext remoteParent = newSpanContext();
+    List<SpanData> spans = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      spans.add(dependency(remoteParent, "GET user:" + i, 1, StatusCode.UNSET));
+    }
+    exporter.export(spans);
+    assertThat(mockSpanExporter.getSpans()).hasSize(2);
+
+    nanoTime[0] += SECONDS.toNanos(61);
+    exporter.export(Collections.emptyList());
+
+    assertThat(mockSpanExporter.getSpans()).hasSize(3);
+    SpanData aggregated = mockSpanExporter.getSpans().get(2);
+    assertThat(
+            aggregated
+                .getAttributes()
+                .get(longKey(SpanExporterWithDependencyAggregation.COUNT_ATTRIBUTE)))
+        .isEqualTo(3);
+  }
+
+  @Test
+  void shouldExportExpiredAggregatesWhileIdle() {
+    SpanContext remoteParent = newSpanContext();
+    List<SpanData> spans = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      spans.add(dependency(remoteParent, "GET user:" + i, 1, StatusCode.UNSET));
+    }
+    exporter.export(spans);
+    assertThat(mockSpanExporter.getSpans()).hasSize(2);
+
+    exporter.exportExpired();
+    assertThat(mockSpanExporter.getSpans()).hasSize(2);
+
+    // nothing else is exported in the meantime
+    nanoTime[0] += SECONDS.toNanos(61);
+    exporter.exportExpired();
+
+    assertThat(mockSpanExporter.getSpans()).hasSize(3);
+    assertThat(
+            mockSpanExporter
+                .getSpans()
+                .get(2)
+                .getAttributes()
+                .get(longKey(SpanExporterWithDependencyAggregation.COUNT_ATTRIBUTE)))
+        .isEqualTo(3);
+  }
+
+  @Test
+  void shouldNormalizeStatements() {
+    assertThat(
+            SpanExporterWithDependencyAggregation.normalize(
+                "SELECT *  FROM t WHERE a = 'x' AND b IN (?, ?,?) AND c = 12"))
+        .isEqualTo("SELECT * FROM t WHERE a = ? AND b IN (?) AND c = ?");
+  }
+
+  private SpanData dependency(
+      SpanContext parent, String statement, long durationNanos, StatusCode statusCode) {
+    long start = SECONDS.toNanos(nextSpanId);
+    return TestSpanData.builder()
+        .setName("SELECT")
+        .setKind(SpanKind.CLIENT)
+        .setSpanContext(newSpanContext())
+        .setParentSpanContext(parent)
+        .setAttributes(
+            Attributes.builder()
+                .put("db.system", "postgresql")
+                .put("db.name", "shop")
+                .put("server.address", "db")
+                .put("db.statement", statement)
+                .build())
+        .setStatus(StatusData.create(statusCode, null))
+        .setStartEpochNanos(start)
+        .setEndEpochNanos(start + durationNanos)
+        .setHasEnded(true)
+        .setTotalRecordedEvents(0)
+        .setTotalRecordedLinks(0)
+        .build();
+  }
+
+  private static SpanData server(SpanContext spanContext) {
+    return TestSpanData.builder()
+        .setName("GET /orders")
+        .setKind(SpanKind.SERVER)
+        .setSpanContext(spanContext)
+        .setStatus(StatusData.unset())
+        .setStartEpochNanos(0)
+        .setEndEpochNanos(SECONDS.toNanos(100))
+        .setHasEnded(true)
+        .setTotalRecordedEvents(0)
+        .setTotalRecordedLinks(0)
+        .build();
+  }
+
+  private SpanContext newSpanContext() {
+    return SpanContext.create(
+        TRACE_ID,
+        String.format("%016x", nextSpanId++),
+        TraceFlags.getSampled(),
+        TraceState.getDefault());
+  }
+
+  private static AttributeKey<Long> longKey(String key) {
+    return AttributeKey.longKey(key);
+  }
+}
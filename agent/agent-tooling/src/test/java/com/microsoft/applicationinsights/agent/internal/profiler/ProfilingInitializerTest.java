@@ -23,6 +23,7 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 import org.mockito.Mockito;
 
@@ -211,6 +212,19 @@ public class ProfilingInitializerTest {
                 + triggersEnabled);
   }
 
+  @Test
+  void canStartWithoutConnectionStringInOfflineMode() {
+    TelemetryClient client = TelemetryClient.createForTest();
+    Configuration.ProfilerConfiguration configuration = new Configuration.ProfilerConfiguration();
+    configuration.enabled = true;
+
+    Assertions.assertNull(client.getConnectionString());
+    Assertions.assertFalse(ProfilingInitializer.canStart(configuration, client));
+
+    configuration.offline.enabled = true;
+    Assertions.assertTrue(ProfilingInitializer.canStart(configuration, client));
+  }
+
   @SuppressWarnings(
       "DirectInvocationOnMock") // direct mock invocation is intentional for test setup
   private static ProfilingInitializer createProfilingInitializer() {
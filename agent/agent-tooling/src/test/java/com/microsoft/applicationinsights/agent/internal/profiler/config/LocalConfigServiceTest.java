@@ -0,0 +1,86 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.agent.internal.profiler.triggers.AlertConfigParser;
+import com.microsoft.applicationinsights.alerting.config.AlertingConfiguration;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalConfigServiceTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void shouldUseLocalConfigurationOnlyOnce() throws IOException {
+    Configuration.OfflineProfilerConfiguration offline =
+        new Configuration.OfflineProfilerConfiguration();
+    offline.cpuThreshold = 50;
+    offline.memoryTriggerEnabled = false;
+    offline.profileDurationSeconds = 30;
+    LocalConfigService configService = new LocalConfigService(offline);
+
+    ProfilerConfiguration config = configService.pullSettings();
+
+    assertThat(config).isNotNull();
+    assertThat(config.isEnabled()).isTrue();
+    assertThat(config.hasBeenConfigured()).isTrue();
+    AlertingConfiguration alertingConfig = AlertConfigParser.toAlertingConfig(config);
+    assertThat(alertingConfig.getCpuAlert().isEnabled()).isTrue();
+    assertThat(alertingConfig.getCpuAlert().getThreshold()).isEqualTo(50);
+    assertThat(alertingConfig.getCpuAlert().getProfileDurationSeconds()).isEqualTo(30);
+    assertThat(alertingConfig.getCpuAlert().getCooldownSeconds()).isEqualTo(14400);
+    assertThat(alertingConfig.getMemoryAlert().isEnabled()).isFalse();
+
+    assertThat(configService.pullSettings()).isNull();
+  }
+
+  @Test
+  void shouldPreferSettingsFileAndReloadItWhenChanged() throws IOException {
+    Path settingsFile = tempDir.resolve("profiler-settings.json");
+    Configuration.OfflineProfilerConfiguration offline =
+        new Configuration.OfflineProfilerConfiguration();
+    offline.settingsFile = settingsFile.toString();
+    LocalConfigService configService = new LocalConfigService(offline);
+
+    writeSettings(settingsFile, "--cpu-threshold 60 --cpu-trigger-enabled true");
+    settingsFile.toFile().setLastModified(1_000_000);
+    ProfilerConfiguration config = configService.pullSettings();
+    assertThat(config).isNotNull();
+    assertThat(AlertConfigParser.toAlertingConfig(config).getCpuAlert().getThreshold())
+        .isEqualTo(60);
+    assertThat(configService.pullSettings()).isNull();
+
+    writeSettings(settingsFile, "--cpu-threshold 70 --cpu-trigger-enabled true");
+    settingsFile.toFile().setLastModified(2_000_000);
+    config = configService.pullSettings();
+    assertThat(config).isNotNull();
+    assertThat(AlertConfigParser.toAlertingConfig(config).getCpuAlert().getThreshold())
+        .isEqualTo(70);
+
+    // falls back to the local configuration once the settings file is removed
+    Files.delete(settingsFile);
+    config = configService.pullSettings();
+    assertThat(config).isNotNull();
+    assertThat(AlertConfigParser.toAlertingConfig(config).getCpuAlert().getThreshold())
+        .isEqualTo(80);
+  }
+
+  private static void writeSettings(Path settingsFile, String cpuTriggerConfiguration)
+      throws IOException {
+    String json =
+        "{\"enabled\":true,\"lastModified\":\"2024-01-01T00:00:00+00:00\","
+            + "\"cpuTriggerConfiguration\":\""
+            + cpuTriggerConfiguration
+            + "\"}";
+    Files.write(settingsFile, json.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,111 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.summary;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import io.opentelemetry.contrib.jfr.connection.FlightRecorderConnection;
+import io.opentelemetry.contrib.jfr.connection.Recording;
+import io.opentelemetry.contrib.jfr.connection.RecordingConfiguration;
+import io.opentelemetry.contrib.jfr.connection.RecordingOptions;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RecordingSummarizerTest {
+
+  @TempDir Path tempDir;
+
+  // written to by the busy work, so that it is not optimized away
+  private static volatile long sink;
+
+  @Test
+  void shouldSummarizeRecording() throws Exception {
+    assumeTrue(RecordingSummarizer.isSupported());
+
+    Path file = tempDir.resolve("recording.jfr");
+    Recording recording =
+        FlightRecorderConnection.connect(ManagementFactory.getPlatformMBeanServer())
+            .newRecording(
+                new RecordingOptions.Builder().build(),
+                RecordingConfiguration.PROFILE_CONFIGURATION);
+    recording.start();
+    try {
+      doBusyWork();
+      System.gc();
+      recording.dump(file.toString());
+    } finally {
+      recording.close();
+    }
+
+    RecordingSummary summary = new RecordingSummarizer(3).summarize(file.toFile());
+
+    assertThat(summary.getCpuSampleCount()).isPositive();
+    assertThat(summary.getHotMethods()).isNotEmpty().hasSizeLessThanOrEqualTo(3);
+    assertThat(summary.getAllocatedBytes()).isPositive();
+    assertThat(summary.getAllocationSites()).isNotEmpty().hasSizeLessThanOrEqualTo(3);
+    assertThat(summary.getGcCount()).isPositive();
+    assertThat(summary.getProperties())
+        .containsKeys("HotMethods", "AllocationSites", "LockContentionSites");
+    assertThat(summary.getMetrics()).containsEntry("GcCount", (double) summary.getGcCount());
+  }
+
+  @Test
+  void shouldOnlyTrackLimitedNumberOfSites() {
+    SiteCounter counter = new SiteCounter(2);
+    counter.add("a", 1);
+    counter.add("b", 5);
+    counter.add("c", 100);
+    counter.add("a", 10);
+
+    assertThat(counter.getTotal()).isEqualTo(116);
+    assertThat(counter.top(5))
+        .extracting(RecordingSummary.Site::getName)
+        .containsExactly("a", "b");
+
+    List<RecordingSummary.Site> top = counter.top(1);
+    assertThat(top).hasSize(1);
+    assertThat(top.get(0).getValue()).isEqualTo(11);
+    assertThat(top.get(0).getCount()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldFormatSites() {
+    List<RecordingSummary.Site> hotMethods = new ArrayList<>();
+    hotMethods.add(new RecordingSummary.Site("com.example.Foo.bar", 30, 30));
+    hotMethods.add(new RecordingSummary.Site("java.util.HashMap.get", 10, 10));
+    List<RecordingSummary.Site> contentionSites = new ArrayList<>();
+    contentionSites.add(new RecordingSummary.Site("com.example.Foo.lock", 2_500_000, 4));
+
+    RecordingSummary summary =
+        new RecordingSummary(
+            200, hotMethods, 0, new ArrayList<>(), 2_500_000, contentionSites, 0, 0, 0);
+
+    assertThat(summary.getProperties())
+        .containsEntry("HotMethods", "com.example.Foo.bar (15.0%)\njava.util.HashMap.get (5.0%)")
+        .containsEntry("AllocationSites", "")
+        .containsEntry("LockContentionSites", "com.example.Foo.lock (2.5 ms in 4 events)");
+    assertThat(summary.getMetrics()).containsEntry("LockContentionMs", 2.5);
+  }
+
+  private static void doBusyWork() {
+    long deadline = System.nanoTime() + 1_000_000_000L;
+    List<long[]> retained = new ArrayList<>();
+    while (System.nanoTime() < deadline) {
+      long[] array = new long[1024];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = i * 31L + sink;
+      }
+      retained.add(array);
+      if (retained.size() > 1000) {
+        retained.clear();
+      }
+      sink += array[array.length - 1];
+    }
+  }
+}
@@ -0,0 +1,106 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.alerting.alert.AlertBreach;
+import com.microsoft.applicationinsights.alerting.config.AlertConfiguration;
+import com.microsoft.applicationinsights.alerting.config.AlertMetricType;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalProfileStoreTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void shouldMoveRecordingAndIndexIt() throws IOException {
+    Path directory = tempDir.resolve("profiles");
+    LocalProfileStore store =
+        new LocalProfileStore(
+            directory.toFile(), 1024 * 1024, TimeUnit.HOURS.toMillis(1), "a-machine", "123");
+    File recording = createRecording("recording.jfr", 100);
+
+    File stored = store.store(breach(AlertMetricType.CPU), 1_700_000_000_000L, recording);
+
+    assertThat(recording).doesNotExist();
+    assertThat(stored).exists().hasParent(directory.toFile());
+    assertThat(stored.getName()).startsWith("20231114T221320Z_CPU_").endsWith(".jfr");
+
+    List<String> index = readIndex(directory);
+    assertThat(index).hasSize(1);
+    assertThat(index.get(0))
+        .contains("\"file\":\"" + stored.getName() + "\"")
+        .contains("\"triggeredBy\":\"JFR-CPU\"")
+        .contains("\"timestamp\":\"2023-11-14T22:13:20Z\"")
+        .contains("\"sizeBytes\":100")
+        .contains("\"machineName\":\"a-machine\"");
+  }
+
+  @Test
+  void shouldDeleteOldestRecordingsOverSizeLimit() throws IOException {
+    Path directory = tempDir.resolve("profiles");
+    LocalProfileStore store =
+        new LocalProfileStore(directory.toFile(), 250, TimeUnit.HOURS.toMillis(1), "m", "1");
+
+    File first = store.store(breach(AlertMetricType.CPU), 1000, createRecording("a.jfr", 100));
+    first.setLastModified(System.currentTimeMillis() - 3000);
+    File second = store.store(breach(AlertMetricType.MEMORY), 2000, createRecording("b.jfr", 100));
+    second.setLastModified(System.currentTimeMillis() - 2000);
+    File third = store.store(breach(AlertMetricType.CPU), 3000, createRecording("c.jfr", 100));
+
+    assertThat(first).doesNotExist();
+    assertThat(second).exists();
+    assertThat(third).exists();
+
+    List<String> index = readIndex(directory);
+    assertThat(index).hasSize(2);
+    assertThat(index.get(0)).contains(second.getName());
+    assertThat(index.get(1)).contains(third.getName());
+  }
+
+  @Test
+  void shouldDeleteExpiredRecordingsButKeepLatest() throws IOException {
+    Path directory = tempDir.resolve("profiles");
+    LocalProfileStore store =
+        new LocalProfileStore(
+            directory.toFile(), 1024 * 1024, TimeUnit.HOURS.toMillis(1), "m", "1");
+
+    File old = store.store(breach(AlertMetricType.CPU), 1000, createRecording("a.jfr", 100));
+    old.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+    File large = createRecording("b.jfr", 2 * 1024 * 1024);
+    File latest = store.store(breach(AlertMetricType.CPU), 2000, large);
+
+    assertThat(old).doesNotExist();
+    assertThat(latest).exists();
+    assertThat(readIndex(directory)).hasSize(1);
+  }
+
+  private File createRecording(String name, int size) throws IOException {
+    Path file = tempDir.resolve(name);
+    Files.write(file, new byte[size]);
+    return file.toFile();
+  }
+
+  private static List<String> readIndex(Path directory) throws IOException {
+    return Files.readAllLines(
+        directory.resolve(LocalProfileStore.INDEX_FILE_NAME), StandardCharsets.UTF_8);
+  }
+
+  private static AlertBreach breach(AlertMetricType type) {
+    return AlertBreach.builder()
+        .setType(type)
+        .setAlertValue(90)
+        .setAlertConfiguration(AlertConfiguration.builder().setType(type).build())
+        .build();
+  }
+}
@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ExceptionStormSuppressorTest {
+
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(60);
+  // only the frame of the helper method which creates the exception, so that the fingerprint
+  // doesn't depend on where in the test the helper is called from
+  private static final int STACK_FRAMES = 1;
+
+  private final AtomicLong nanoTime = new AtomicLong();
+  private final List<String> suppressed = new ArrayList<>();
+
+  private final ExceptionStormSuppressor suppressor =
+      new ExceptionStormSuppressor(
+          10,
+          WINDOW_NANOS,
+          STACK_FRAMES,
+          nanoTime::get,
+          (fingerprint, typeName, message, count) ->
+              suppressed.add(fingerprint + " " + typeName + " " + message + " " + count));
+
+  @Test
+  void shouldSuppressBurstOfSameException() {
+    List<String> fingerprints = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      String fingerprint = suppressor.track(connectionRefused("attempt " + i));
+      if (fingerprint != null) {
+        fingerprints.add(fingerprint);
+      }
+    }
+
+    assertThat(fingerprints).hasSize(10);
+    assertThat(fingerprints).containsOnly(fingerprints.get(0));
+    assertThat(suppressed).isEmpty();
+
+    nanoTime.addAndGet(WINDOW_NANOS);
+    suppressor.flushExpired();
+
+    assertThat(suppressed)
+        .containsExactly(fingerprints.get(0) + " java.lang.IllegalStateException attempt 10 990");
+
+    // next window starts over
+    assertThat(suppressor.track(connectionRefused("again"))).isEqualTo(fingerprints.get(0));
+  }
+
+  @Test
+  void shouldReportPreviousWindowOnNextOccurrence() {
+    for (int i = 0; i < 15; i++) {
+      suppressor.track(connectionRefused("attempt " + i));
+    }
+    nanoTime.addAndGet(WINDOW_NANOS);
+
+    assertThat(suppressor.track(connectionRefused("later"))).isNotNull();
+    assertThat(suppressed).hasSize(1);
+    assertThat(suppressed.get(0)).endsWith(" 5");
+  }
+
+  @Test
+  void shouldTrackDifferentThrowSitesSeparately() {
+    for (int i = 0; i < 10; i++) {
+      assertThat(suppressor.track(connectionRefused("a"))).isNotNull();
+      assertThat(suppressor.track(timeout("b"))).isNotNull();
+    }
+    assertThat(suppressor.track(connectionRefused("a"))).isNull();
+    assertThat(suppressor.track(timeout("b"))).isNull();
+  }
+
+  @Test
+  void shouldIgnoreMessageInFingerprint() {
+    assertThat(ExceptionStormSuppressor.fingerprint(connectionRefused("x"), STACK_FRAMES))
+        .isEqualTo(ExceptionStormSuppressor.fingerprint(connectionRefused("y"), STACK_FRAMES));
+    assertThat(ExceptionStormSuppressor.fingerprint(connectionRefused("x"), STACK_FRAMES))
+        .isNotEqualTo(ExceptionStormSuppressor.fingerprint(timeout("x"), STACK_FRAMES));
+  }
+
+  @Test
+  void shouldFingerprintPrintedStackTraces() {
+    String first = print(connectionRefused("first"));
+    String second = print(connectionRefused("second"));
+    String other = print(timeout("first"));
+
+    assertThat(ExceptionStormSuppressor.fingerprint(first, STACK_FRAMES))
+        .isEqualTo(ExceptionStormSuppressor.fingerprint(second, STACK_FRAMES));
+    assertThat(ExceptionStormSuppressor.fingerprint(first, STACK_FRAMES))
+        .isNotEqualTo(ExceptionStormSuppressor.fingerprint(other, STACK_FRAMES));
+
+    for (int i = 0; i < 100; i++) {
+      suppressor.track(print(connectionRefused("attempt " + i)));
+    }
+    nanoTime.addAndGet(WINDOW_NANOS);
+    suppressor.flushExpired();
+
+    assertThat(suppressed).hasSize(1);
+    assertThat(suppressed.get(0)).contains(" java.lang.IllegalStateException attempt 10 90");
+  }
+
+  @Test
+  void shouldFingerprintThrowableAndPrintedStackTraceTheSame() {
+    Throwable throwable = connectionRefused("x");
+    throwable.addSuppressed(timeout("suppressed"));
+    Throwable cycle = new IllegalStateException("cycle");
+    Throwable circular = new IllegalArgumentException("circular", cycle);
+    cycle.initCause(circular);
+
+    // all frames, which include the test framework, reflection and (module prefixed) jdk frames
+    for (int stackFrames : new int[] {STACK_FRAMES, 1000}) {
+      for (Throwable t : new Throwable[] {throwable, circular, new IllegalStateException()}) {
+        assertThat(ExceptionStormSuppressor.fingerprint(print(t), stackFrames))
+            .isEqualTo(ExceptionStormSuppressor.fingerprint(t, stackFrames));
+      }
+    }
+  }
+
+  private static Throwable connectionRefused(String message) {
+    return new IllegalStateException(message, new java.net.ConnectException("refused"));
+  }
+
+  private static Throwable timeout(String message) {
+    return new IllegalStateException(message, new java.net.SocketTimeoutException("timed out"));
+  }
+
+  private static String print(Throwable throwable) {
+    StringWriter sw = new StringWriter();
+    throwable.printStackTrace(new PrintWriter(sw));
+    return sw.toString();
+  }
+}
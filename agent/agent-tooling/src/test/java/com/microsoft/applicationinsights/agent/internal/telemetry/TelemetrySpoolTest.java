@@ -0,0 +1,220 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.configuration.ConnectionString;
+import com.azure.monitor.opentelemetry.autoconfigure.implementation.models.TelemetryItem;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SpoolFsyncPolicy;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TelemetrySpoolTest {
+
+  private static final int SEGMENT_SIZE = 4096;
+
+  @TempDir File tempFolder;
+
+  @Test
+  void shouldDeleteSegmentsOnceAcknowledged() throws Exception {
+    TelemetrySpool spool = open(tempFolder);
+
+    for (int i = 0; i < 1000; i++) {
+      assertThat(spool.append(("item-" + i).getBytes(UTF_8))).isTrue();
+    }
+    assertThat(readAll(segmentFiles())).hasSize(1000);
+
+    // out of order acknowledgement
+    spool.acknowledge(500, 1000);
+    assertThat(readAll(segmentFiles())).hasSize(1000);
+    spool.acknowledge(0, 500);
+
+    assertThat(readAll(segmentFiles())).isEmpty();
+  }
+
+  @Test
+  void shouldStopSpoolingWhenFull() throws Exception {
+    TelemetrySpool spool =
+        TelemetrySpool.open(
+            tempFolder, "test", 2 * SEGMENT_SIZE, SEGMENT_SIZE, SpoolFsyncPolicy.NONE, 0);
+
+    int spooled = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (spool.append(("item-" + i).getBytes(UTF_8))) {
+        spooled++;
+      }
+    }
+    assertThat(spooled).isLessThan(1000);
+    assertThat(segmentFiles()).hasSize(2);
+
+    // once acknowledged, items are spooled again
+    spool.acknowledge(0, 1000);
+    assertThat(spool.append("next".getBytes(UTF_8))).isTrue();
+  }
+
+  @Test
+  void shouldRecoverUnacknowledgedItemsAfterKill() throws Exception {
+    String javaPath = System.getProperty("java.home") + File.separator + "bin" + File.separator;
+    Process process =
+        new ProcessBuilder(
+                javaPath + "java",
+                "-cp",
+                System.getProperty("java.class.path"),
+                ChildProcess.class.getName(),
+                tempFolder.getAbsolutePath())
+            .redirectErrorStream(true)
+            .start();
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null && !line.equals("ready")) {
+        // wait until the child process has spooled everything
+      }
+      assertThat(line).isEqualTo("ready");
+      // SIGKILL on linux, so no shutdown hooks and no chance to flush anything
+      process.destroyForcibly();
+      assertThat(process.waitFor(30, TimeUnit.SECONDS)).isTrue();
+    }
+
+    TelemetrySpool spool = open(tempFolder);
+    List<String> recovered = new ArrayList<>();
+    for (byte[] record : readAll(spool.getRecoveredSegments())) {
+      recovered.add(new String(record, UTF_8));
+    }
+
+    // fully acknowledged segments are gone, but acknowledged items can still be replayed if they
+    // share a segment with unacknowledged items (at-least-once)
+    assertThat(recovered).hasSizeLessThan(ChildProcess.ITEMS);
+    for (int i = ChildProcess.ACKNOWLEDGED; i < ChildProcess.ITEMS; i++) {
+      assertThat(recovered).contains("item-" + i);
+    }
+
+    for (File file : spool.getRecoveredSegments()) {
+      spool.deleteRecovered(file);
+    }
+    assertThat(segmentFiles()).isEmpty();
+  }
+
+  @Test
+  void shouldKeepConnectionStringWithEachRecord() throws Exception {
+    TelemetrySpool spool = open(tempFolder);
+    spool.append(
+        TelemetrySpool.toRecord(
+            "00000000-0000-0000-0000-000000000000",
+            "https://one.in.applicationinsights.azure.com/",
+            "{\"name\":\"a\"}".getBytes(UTF_8)));
+    spool.append(
+        TelemetrySpool.toRecord(
+            "11111111-1111-1111-1111-111111111111",
+            "https://two.in.applicationinsights.azure.com/",
+            "{\"name\":\"b\"}".getBytes(UTF_8)));
+
+    List<byte[]> records = readAll(segmentFiles());
+    assertThat(records).hasSize(2);
+    TelemetrySpool.Record record = TelemetrySpool.parseRecord(records.get(1));
+    assertThat(record).isNotNull();
+    assertThat(record.instrumentationKey).isEqualTo("11111111-1111-1111-1111-111111111111");
+    assertThat(record.ingestionEndpoint).isEqualTo("https://two.in.applicationinsights.azure.com/");
+    assertThat(new String(record.item, UTF_8)).isEqualTo("{\"name\":\"b\"}");
+
+    // e.g. written without the connection string
+    assertThat(TelemetrySpool.parseRecord("{\"name\":\"c\"}".getBytes(UTF_8))).isNull();
+  }
+
+  @Test
+  void shouldNotReplayAgainAfterFailedSend() throws Exception {
+    TelemetrySpool spool = open(tempFolder);
+    String instrumentationKey = "00000000-0000-0000-0000-000000000000";
+    String ingestionEndpoint = "https://one.in.applicationinsights.azure.com/";
+    for (int i = 0; i < 3; i++) {
+      spool.append(
+          TelemetrySpool.toRecord(
+              instrumentationKey,
+              ingestionEndpoint,
+              ("{\"name\":\"item-" + i + "\",\"time\":\"2024-01-01T00:00:00Z\"}")
+                  .getBytes(UTF_8)));
+    }
+    List<File> segments = segmentFiles();
+    assertThat(segments).hasSize(1);
+
+    // the sender writes failed batches to disk, which are sent from there once connectivity
+    // recovers
+    List<String> sent = new ArrayList<>();
+    BatchItemProcessor.replaySegment(
+        spool,
+        segments.get(0),
+        ConnectionString.parse(
+            "InstrumentationKey=" + instrumentationKey + ";IngestionEndpoint=" + ingestionEndpoint),
+        new HashMap<>(),
+        2,
+        items -> {
+          for (TelemetryItem item : items) {
+            sent.add(item.getName());
+          }
+          return CompletableResultCode.ofFailure();
+        });
+
+    assertThat(sent).containsExactly("item-0", "item-1", "item-2");
+    // so the segment is not kept for the next start as well, which would send them twice
+    assertThat(segmentFiles()).isEmpty();
+  }
+
+  private static TelemetrySpool open(File directory) throws IOException {
+    return TelemetrySpool.open(
+        directory, "test", 1024 * 1024, SEGMENT_SIZE, SpoolFsyncPolicy.NONE, 0);
+  }
+
+  private List<File> segmentFiles() {
+    List<File> files = new ArrayList<>();
+    File[] directories = tempFolder.listFiles(File::isDirectory);
+    if (directories != null) {
+      for (File directory : directories) {
+        File[] segments = directory.listFiles((dir, name) -> name.endsWith(".spool"));
+        if (segments != null) {
+          for (File segment : segments) {
+            files.add(segment);
+          }
+        }
+      }
+    }
+    return files;
+  }
+
+  private static List<byte[]> readAll(List<File> files) throws IOException {
+    List<byte[]> records = new ArrayList<>();
+    for (File file : files) {
+      records.addAll(TelemetrySpool.readSegment(file));
+    }
+    return records;
+  }
+
+  public static class ChildProcess {
+
+    static final int ITEMS = 5000;
+    static final int ACKNOWLEDGED = 3000;
+
+    @SuppressWarnings("SystemOut")
+    public static void main(String[] args) throws Exception {
+      TelemetrySpool spool = open(new File(args[0]));
+      for (int i = 0; i < ITEMS; i++) {
+        spool.append(("item-" + i).getBytes(UTF_8));
+      }
+      spool.acknowledge(0, ACKNOWLEDGED);
+      System.out.println("ready");
+      System.out.flush();
+      Thread.sleep(TimeUnit.MINUTES.toMillis(5));
+    }
+  }
+}
@@ -0,0 +1,591 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Steady-state overhead harness.
+ *
+ * <p>Runs the petclinic app without and with the agent under the same fixed request rate, with the
+ * agent pointed at the fake ingestion from smoke-tests/framework (optionally with injected latency
+ * and errors), and reports request latency percentiles, CPU, allocation rate, items produced vs.
+ * received, and the number of export queue overflow warnings in the agent log. It also reports how
+ * long the app takes to start serving requests, and with the agent, how long each agent startup
+ * phase took.
+ *
+ * <p>The agent rate-limits the export queue overflow warnings, so the "qfull log" column only
+ * shows whether (and roughly how often) the queue overflowed, not how many items were dropped. The
+ * items that were lost are the difference between produced and received.
+ *
+ * <p>The "agent-direct" mode runs the agent with preview.directExport, and the report includes the
+ * end-to-end latency (from the end of each request until its telemetry is received by the fake
+ * ingestion) and the export throughput, so that it can be compared with the "agent" mode.
+ *
+ * <p>Run with (everything is local, so this works offline once dependencies are cached):
+ *
+ * <pre>
+ * ./gradlew :agent:agent:assemble :smoke-tests:framework:fakeIngestionDistribution
+ * cd perf-tests
+ * ./gradlew overheadTest -Poverhead.rate=500 -Poverhead.ingestionDelayMillis=200
+ * ./gradlew overheadTest -Poverhead.modes=baseline,agent,agent-direct
+ * </pre>
+ *
+ * <p>The load is open-loop: requests are issued on a fixed schedule regardless of how long earlier
+ * requests take, and latency is measured from the scheduled start time, so that a stalled app
+ * doesn't hide its own latency (coordinated omission).
+ */
+public class OverheadHarness {
+
+  private static final String INSTRUMENTATION_KEY = "00000000-0000-0000-0000-0000000000ff";
+
+  private static final Pattern ACTUATOR_VALUE = Pattern.compile("\"value\"\\s*:\\s*([0-9.eE+-]+)");
+  private static final Pattern STATS_VALUE = Pattern.compile("\"(\\w+)\"\\s*:\\s*(\\d+)");
+  private static final Pattern STARTUP_PHASE =
+      Pattern.compile("^  (.+): (\\d+) ms( \\(background\\))?$");
+
+  private final Settings settings;
+  private final HttpClient client;
+
+  private OverheadHarness(Settings settings) {
+    this.settings = settings;
+    this.client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newFixedThreadPool(settings.clientThreads))
+            .build();
+  }
+
+  @SuppressWarnings("SystemOut")
+  public static void main(String[] args) throws Exception {
+    Settings settings = Settings.fromSystemProperties();
+    System.out.println("Overhead harness settings: " + settings);
+
+    OverheadHarness harness = new OverheadHarness(settings);
+    Process ingestion = harness.startIngestion();
+    List<Result> results = new ArrayList<>();
+    try {
+      harness.waitUntilUp(harness.ingestionUrl("/"), Duration.ofSeconds(60));
+      for (String mode : settings.modes) {
+        results.add(harness.run(mode));
+      }
+    } finally {
+      ingestion.destroy();
+      ingestion.waitFor(30, TimeUnit.SECONDS);
+    }
+
+    String report = report(results);
+    System.out.println(report);
+    Files.writeString(Path.of("build", "overhead-results.txt"), report);
+    System.exit(0);
+  }
+
+  private Process startIngestion() throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(javaExecutable());
+    command.add("-DfakeIngestion.port=" + settings.ingestionPort);
+    command.add("-DfakeIngestion.responseDelayMillis=" + settings.ingestionDelayMillis);
+    command.add("-DfakeIngestion.errorRate=" + settings.ingestionErrorRate);
+    command.add("-DfakeIngestion.storeItems=false");
+    command.add("-cp");
+    command.add("build" + File.separator + "fake-ingestion" + File.separator + "*");
+    command.add(
+        "com.microsoft.applicationinsights.smoketest.fakeingestion."
+            + "MockedAppInsightsIngestionServer");
+    return new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(new File("build", "fake-ingestion.log"))
+        .start();
+  }
+
+  @SuppressWarnings("SystemOut")
+  private Result run(String mode) throws Exception {
+    System.out.println("Running " + mode + "...");
+    boolean withAgent = mode.startsWith("agent");
+    File workDir = new File("build", "overhead-" + mode);
+    workDir.mkdirs();
+    File agentLog = new File(workDir, "applicationinsights.log");
+    Files.deleteIfExists(agentLog.toPath());
+
+    // reset the counters from the previous run
+    client.send(
+        HttpRequest.newBuilder(URI.create(ingestionUrl("/stats"))).DELETE().build(),
+        HttpResponse.BodyHandlers.discarding());
+
+    List<String> command = new ArrayList<>();
+    command.add(javaExecutable());
+    command.addAll(settings.jvmArgs);
+    if (withAgent) {
+      command.add("-javaagent:" + new File("build", "applicationinsights-agent.jar").getPath());
+      command.add("-Dapplicationinsights.testing.statsbeat.endpoint=" + ingestionUrl("/"));
+      command.add("-Dapplicationinsights.debug.startup.phases.enabled=true");
+    }
+    command.add("-jar");
+    command.add(settings.appJar);
+    command.add("--server.port=" + settings.appPort);
+    command.add("--management.endpoints.web.exposure.include=health,metrics");
+
+    ProcessBuilder processBuilder =
+        new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(new File(workDir, "app.log"));
+    if (withAgent) {
+      File config = new File(workDir, "applicationinsights.json");
+      Files.writeString(
+          config.toPath(),
+          agentConfig(agentLog, mode.equals("agent-direct")),
+          StandardCharsets.UTF_8);
+      processBuilder.environment().put("APPLICATIONINSIGHTS_CONFIGURATION_FILE", config.getPath());
+    }
+    long processStartNanos = System.nanoTime();
+    Process app = processBuilder.start();
+    try {
+      waitUntilUp(appUrl("/"), Duration.ofMinutes(2));
+      long startupNanos = System.nanoTime() - processStartNanos;
+
+      long loadStartNanos = System.nanoTime();
+      Load warmup = generateLoad(settings.warmupSeconds);
+      double allocatedBefore = actuatorValue("jvm.gc.memory.allocated");
+      Duration cpuBefore = cpu(app);
+      long startNanos = System.nanoTime();
+
+      Load load = generateLoad(settings.durationSeconds);
+
+      long wallNanos = System.nanoTime() - startNanos;
+      Duration cpuAfter = cpu(app);
+      double allocatedAfter = actuatorValue("jvm.gc.memory.allocated");
+
+      Result result = new Result(mode);
+      result.startupMillis = startupNanos / 1e6;
+      result.p50Millis = load.percentileMillis(50);
+      result.p99Millis = load.percentileMillis(99);
+      result.maxMillis = load.percentileMillis(100);
+      result.errors = load.errors.get() + warmup.errors.get();
+      result.cpuCores = (cpuAfter.toNanos() - cpuBefore.toNanos()) / (double) wallNanos;
+      // approximate, micrometer only updates this at each gc
+      result.allocationMbPerSecond =
+          (allocatedAfter - allocatedBefore) / (1024 * 1024) / (wallNanos / 1e9);
+      result.produced = load.succeeded.get() + warmup.succeeded.get();
+      if (withAgent) {
+        long drainStartNanos = System.nanoTime();
+        waitForExport(result.produced);
+        long exportDoneNanos = System.nanoTime();
+        long[] stats = ingestionStats();
+        result.receivedItems = stats[0];
+        result.receivedRequests = stats[1];
+        result.rejectedBatches = stats[2];
+        result.e2eMeanMillis = stats[1] == 0 ? 0 : stats[3] / (double) stats[1];
+        result.e2eMaxMillis = stats[4];
+        result.drainMillis = (exportDoneNanos - drainStartNanos) / 1e6;
+        result.itemsPerSecond = stats[0] / ((exportDoneNanos - loadStartNanos) / 1e9);
+        // rate-limited log lines, not dropped items
+        result.queueFullLogLines = countLines(agentLog, "export queue capacity of");
+        // logged once the background phases are done, which is long before the load is over
+        result.startupPhases = startupPhases(agentLog);
+      }
+      return result;
+    } finally {
+      app.destroy();
+      if (!app.waitFor(60, TimeUnit.SECONDS)) {
+        app.destroyForcibly();
+      }
+    }
+  }
+
+  private String agentConfig(File agentLog, boolean directExport) {
+    String endpoint = ingestionUrl("/");
+    return "{\n"
+        + "  \"connectionString\": \"InstrumentationKey="
+        + INSTRUMENTATION_KEY
+        + ";IngestionEndpoint="
+        + endpoint
+        + ";LiveEndpoint="
+        + endpoint
+        + "\",\n"
+        + "  \"selfDiagnostics\": {\n"
+        + "    \"destination\": \"file\",\n"
+        + "    \"file\": { \"path\": \""
+        + agentLog.getAbsolutePath().replace("\\", "\\\\")
+        + "\" }\n"
+        + "  },\n"
+        + "  \"preview\": { \"directExport\": "
+        + directExport
+        + " }\n"
+        + "}\n";
+  }
+
+  private Load generateLoad(int seconds) throws InterruptedException {
+    int total = settings.rate * seconds;
+    Load load = new Load(total);
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+    HttpRequest request =
+        HttpRequest.newBuilder(URI.create(appUrl(settings.path)))
+            .timeout(Duration.ofSeconds(30))
+            .build();
+    CountDownLatch done = new CountDownLatch(total);
+    long start = System.nanoTime();
+    for (int i = 0; i < total; i++) {
+      long intended = start + i * intervalNanos;
+      long wait;
+      while ((wait = intended - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      int index = i;
+      client
+          .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+          .whenComplete(
+              (response, t) -> {
+                load.latencies[index] = System.nanoTime() - intended;
+                if (t == null && response.statusCode() < 400) {
+                  load.succeeded.incrementAndGet();
+                } else {
+                  load.errors.incrementAndGet();
+                }
+                done.countDown();
+              });
+    }
+    done.await(60, TimeUnit.SECONDS);
+    return load;
+  }
+
+  // waits for all request telemetry to arrive, or for the count to stop changing
+  private void waitForExport(long produced) throws Exception {
+    long previous = -1;
+    long stableSince = System.nanoTime();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.exportWaitSeconds);
+    while (System.nanoTime() < deadline) {
+      long received = ingestionStats()[1];
+      if (received >= produced) {
+        return;
+      }
+      if (received != previous) {
+        previous = received;
+        stableSince = System.nanoTime();
+      } else if (System.nanoTime() - stableSince > TimeUnit.SECONDS.toNanos(20)) {
+        // longer than the default export interval, nothing more is coming
+        return;
+      }
+      Thread.sleep(500);
+    }
+  }
+
+  private long[] ingestionStats() throws Exception {
+    String body =
+        client
+            .send(
+                HttpRequest.newBuilder(URI.create(ingestionUrl("/stats"))).build(),
+                HttpResponse.BodyHandlers.ofString())
+            .body();
+    long[] stats = new long[5];
+    Matcher matcher = STATS_VALUE.matcher(body);
+    while (matcher.find()) {
+      long value = Long.parseLong(matcher.group(2));
+      switch (matcher.group(1)) {
+        case "items" -> stats[0] = value;
+        case "requests" -> stats[1] = value;
+        case "rejectedBatches" -> stats[2] = value;
+        case "requestLatencySumMillis" -> stats[3] = value;
+        case "requestLatencyMaxMillis" -> stats[4] = value;
+        default -> {}
+      }
+    }
+    return stats;
+  }
+
+  private double actuatorValue(String metric) throws Exception {
+    String body =
+        client
+            .send(
+                HttpRequest.newBuilder(URI.create(appUrl("/actuator/metrics/" + metric))).build(),
+                HttpResponse.BodyHandlers.ofString())
+            .body();
+    Matcher matcher = ACTUATOR_VALUE.matcher(body);
+    return matcher.find() ? Double.parseDouble(matcher.group(1)) : Double.NaN;
+  }
+
+  private void waitUntilUp(String url, Duration timeout) throws InterruptedException {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    HttpRequest request = HttpRequest.newBuilder(URI.create(url)).build();
+    while (System.nanoTime() < deadline) {
+      try {
+        if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 500) {
+          return;
+        }
+      } catch (IOException e) {
+        // not up yet
+      }
+      Thread.sleep(250);
+    }
+    throw new IllegalStateException("Timed out waiting for " + url);
+  }
+
+  private static List<String> startupPhases(File agentLog) throws IOException {
+    List<String> phases = new ArrayList<>();
+    if (!agentLog.exists()) {
+      return phases;
+    }
+    try (var lines = Files.lines(agentLog.toPath())) {
+      lines.forEach(
+          line -> {
+            if (STARTUP_PHASE.matcher(line).matches()) {
+              phases.add(line.trim());
+            }
+          });
+    }
+    return phases;
+  }
+
+  private static Duration cpu(Process process) {
+    return process.toHandle().info().totalCpuDuration().orElse(Duration.ZERO);
+  }
+
+  private static long countLines(File file, String text) throws IOException {
+    if (!file.exists()) {
+      return 0;
+    }
+    try (var lines = Files.lines(file.toPath())) {
+      return lines.filter(line -> line.contains(text)).count();
+    }
+  }
+
+  private String appUrl(String path) {
+    return "http://localhost:" + settings.appPort + path;
+  }
+
+  private String ingestionUrl(String path) {
+    return "http://localhost:" + settings.ingestionPort + path;
+  }
+
+  private static String javaExecutable() {
+    return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+  }
+
+  private static String report(List<Result> results) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(
+        String.format(
+            Locale.ROOT,
+            "%-12s %10s %9s %9s %9s %7s %7s %9s %9s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+            "mode",
+            "startup ms",
+            "p50 ms",
+            "p99 ms",
+            "max ms",
+            "errors",
+            "cpu",
+            "alloc MB/s",
+            "produced",
+            "received",
+            "items",
+            "rejected",
+            "qfull log",
+            "e2e ms",
+            "e2e max",
+            "drain ms",
+            "items/s"));
+    for (Result result : results) {
+      sb.append(
+          String.format(
+              Locale.ROOT,
+              "%-12s %10.0f %9.2f %9.2f %9.2f %7d %7.2f %9.1f %9d %9d %9d %8d %9d %9.1f %9d %9.0f"
+                  + " %9.1f%n",
+              result.mode,
+              result.startupMillis,
+              result.p50Millis,
+              result.p99Millis,
+              result.maxMillis,
+              result.errors,
+              result.cpuCores,
+              result.allocationMbPerSecond,
+              result.produced,
+              result.receivedRequests,
+              result.receivedItems,
+              result.rejectedBatches,
+              result.queueFullLogLines,
+              result.e2eMeanMillis,
+              result.e2eMaxMillis,
+              result.drainMillis,
+              result.itemsPerSecond));
+    }
+    Result baseline = find(results, "baseline");
+    Result agent = find(results, "agent");
+    if (baseline != null && agent != null) {
+      sb.append(
+          String.format(
+              Locale.ROOT,
+              "%nagent overhead: startup %+.0f ms, p50 %+.2f ms, p99 %+.2f ms, cpu %+.2f cores,"
+                  + " allocation %+.1f MB/s, request telemetry lost %d%n",
+              agent.startupMillis - baseline.startupMillis,
+              agent.p50Millis - baseline.p50Millis,
+              agent.p99Millis - baseline.p99Millis,
+              agent.cpuCores - baseline.cpuCores,
+              agent.allocationMbPerSecond - baseline.allocationMbPerSecond,
+              Math.max(0, agent.produced - agent.receivedRequests)));
+    }
+    Result direct = find(results, "agent-direct");
+    if (agent != null && direct != null) {
+      sb.append(
+          String.format(
+              Locale.ROOT,
+              "%ndirect export vs. batch processors: p99 %+.2f ms, cpu %+.2f cores,"
+                  + " allocation %+.1f MB/s, e2e latency %+.1f ms (max %+d ms),"
+                  + " throughput %+.1f items/s%n",
+              direct.p99Millis - agent.p99Millis,
+              direct.cpuCores - agent.cpuCores,
+              direct.allocationMbPerSecond - agent.allocationMbPerSecond,
+              direct.e2eMeanMillis - agent.e2eMeanMillis,
+              direct.e2eMaxMillis - agent.e2eMaxMillis,
+              direct.itemsPerSecond - agent.itemsPerSecond));
+    }
+    if (agent != null && !agent.startupPhases.isEmpty()) {
+      sb.append(String.format(Locale.ROOT, "%nagent startup phases:%n"));
+      for (String phase : agent.startupPhases) {
+        sb.append("  ").append(phase).append(System.lineSeparator());
+      }
+    }
+    return sb.toString();
+  }
+
+  private static Result find(List<Result> results, String mode) {
+    for (Result result : results) {
+      if (result.mode.equals(mode)) {
+        return result;
+      }
+    }
+    return null;
+  }
+
+  private static class Load {
+
+    private final long[] latencies;
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    private Load(int total) {
+      latencies = new long[total];
+      // requests which didn't complete are counted as taking forever
+      Arrays.fill(latencies, Long.MAX_VALUE);
+    }
+
+    private double percentileMillis(double percentile) {
+      long[] sorted = latencies.clone();
+      Arrays.sort(sorted);
+      if (sorted.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+      long value = sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+      return value == Long.MAX_VALUE ? Double.POSITIVE_INFINITY : value / 1e6;
+    }
+  }
+
+  private static class Result {
+
+    private final String mode;
+    private double startupMillis;
+    private double p50Millis;
+    private double p99Millis;
+    private double maxMillis;
+    private long errors;
+    private double cpuCores;
+    private double allocationMbPerSecond;
+    private long produced;
+    private long receivedRequests;
+    private long receivedItems;
+    private long rejectedBatches;
+    private long queueFullLogLines;
+    private double e2eMeanMillis;
+    private long e2eMaxMillis;
+    private double drainMillis;
+    private double itemsPerSecond;
+    private List<String> startupPhases = new ArrayList<>();
+
+    private Result(String mode) {
+      this.mode = mode;
+    }
+  }
+
+  private static class Settings {
+
+    private String appJar;
+    private List<String> modes;
+    private List<String> jvmArgs;
+    private String path;
+    private int rate;
+    private int warmupSeconds;
+    private int durationSeconds;
+    private int exportWaitSeconds;
+    private int clientThreads;
+    private int appPort;
+    private int ingestionPort;
+    private long ingestionDelayMillis;
+    private double ingestionErrorRate;
+
+    private static Settings fromSystemProperties() {
+      Settings settings = new Settings();
+      settings.appJar = System.getProperty("overhead.appJar");
+      if (settings.appJar == null) {
+        throw new IllegalStateException("overhead.appJar system property is required");
+      }
+      settings.modes = split(System.getProperty("overhead.modes", "baseline,agent"), ",");
+      settings.jvmArgs = split(System.getProperty("overhead.jvmArgs", "-Xmx512m"), " ");
+      settings.path = System.getProperty("overhead.path", "/owners?lastName=");
+      settings.rate = Integer.getInteger("overhead.rate", 200);
+      settings.warmupSeconds = Integer.getInteger("overhead.warmupSeconds", 30);
+      settings.durationSeconds = Integer.getInteger("overhead.durationSeconds", 60);
+      settings.exportWaitSeconds = Integer.getInteger("overhead.exportWaitSeconds", 120);
+      settings.clientThreads = Integer.getInteger("overhead.clientThreads", 8);
+      settings.appPort = Integer.getInteger("overhead.appPort", 8080);
+      settings.ingestionPort = Integer.getInteger("overhead.ingestionPort", 6060);
+      settings.ingestionDelayMillis = Long.getLong("overhead.ingestionDelayMillis", 0);
+      settings.ingestionErrorRate =
+          Double.parseDouble(System.getProperty("overhead.ingestionErrorRate", "0"));
+      return settings;
+    }
+
+    private static List<String> split(String value, String separator) {
+      List<String> list = new ArrayList<>();
+      for (String part : value.split(separator)) {
+        if (!part.isBlank()) {
+          list.add(part.trim());
+        }
+      }
+      return list;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          Locale.ROOT,
+          "modes=%s, path=%s, rate=%d/s, warmup=%ds, duration=%ds,"
+              + " ingestionDelay=%dms, ingestionErrorRate=%.2f",
+          modes,
+          path,
+          rate,
+          warmupSeconds,
+          durationSeconds,
+          ingestionDelayMillis,
+          ingestionErrorRate);
+    }
+  }
+}
@@ -6,6 +6,13 @@ tasks {
   named("spotbugsMain") {
     enabled = false
   }
+
+  // standalone fake ingestion (jar + runtime classpath), used by the overhead harness in perf-tests
+  register<Sync>("fakeIngestionDistribution") {
+    from(jar)
+    from(configurations.runtimeClasspath)
+    into(layout.buildDirectory.dir("fake-ingestion"))
+  }
 }
 
 dependencies {
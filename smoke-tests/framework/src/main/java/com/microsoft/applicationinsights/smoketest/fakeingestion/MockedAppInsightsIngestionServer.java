@@ -28,7 +28,11 @@ public class MockedAppInsightsIngestionServer {
   private final Server server;
 
   public MockedAppInsightsIngestionServer(boolean usingOld3xAgent) {
-    server = new Server(DEFAULT_PORT);
+    this(usingOld3xAgent, DEFAULT_PORT);
+  }
+
+  public MockedAppInsightsIngestionServer(boolean usingOld3xAgent, int port) {
+    server = new Server(port);
     ServletHandler handler = new ServletHandler();
     server.setHandler(handler);
 
@@ -297,10 +301,30 @@ public class MockedAppInsightsIngestionServer {
     return quickPulseServlet.getVerifier();
   }
 
+  /**
+   * Starts a standalone fake ingestion endpoint.
+   *
+   * <p>The following system properties are supported (used by the overhead harness in perf-tests):
+   *
+   * <ul>
+   *   <li>{@code fakeIngestion.port} - port to listen on (default 6060)
+   *   <li>{@code fakeIngestion.responseDelayMillis} - delay before responding to each batch
+   *   <li>{@code fakeIngestion.errorRate} - fraction of batches rejected with 503
+   *   <li>{@code fakeIngestion.storeItems} - set to false to only count received items
+   * </ul>
+   *
+   * <p>Received item counts are available via {@code GET /stats}, and are reset via {@code DELETE
+   * /stats}.
+   */
   @SuppressWarnings("SystemOut") // legitimate use of System.out for logging/output
   public static void main(String[] args) throws Exception {
-    MockedAppInsightsIngestionServer i = new MockedAppInsightsIngestionServer(false);
-    System.out.println("Starting mocked ingestion on port " + DEFAULT_PORT);
+    int port = Integer.getInteger("fakeIngestion.port", DEFAULT_PORT);
+    MockedAppInsightsIngestionServer i = new MockedAppInsightsIngestionServer(false, port);
+    i.servlet.setResponseDelayMillis(Long.getLong("fakeIngestion.responseDelayMillis", 0));
+    i.servlet.setErrorRate(Double.parseDouble(System.getProperty("fakeIngestion.errorRate", "0")));
+    i.servlet.setStoreItems(
+        Boolean.parseBoolean(System.getProperty("fakeIngestion.storeItems", "true")));
+    System.out.println("Starting mocked ingestion on port " + port);
     Runtime.getRuntime()
         .addShutdownHook(
             new Thread(
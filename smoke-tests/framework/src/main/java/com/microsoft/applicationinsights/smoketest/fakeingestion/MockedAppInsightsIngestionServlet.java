@@ -9,16 +9,23 @@ import com.google.common.base.Stopwatch;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.io.CharStreams;
+import com.microsoft.applicationinsights.smoketest.schemav2.Base;
+import com.microsoft.applicationinsights.smoketest.schemav2.Data;
 import com.microsoft.applicationinsights.smoketest.schemav2.Envelope;
+import com.microsoft.applicationinsights.smoketest.schemav2.RequestData;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.zip.GZIPInputStream;
 import javax.servlet.http.HttpServlet;
@@ -34,6 +41,19 @@ class MockedAppInsightsIngestionServlet extends HttpServlet {
 
   private volatile boolean loggingEnabled;
 
+  // fault injection, used by the overhead harness in perf-tests
+  private volatile long responseDelayMillis;
+  private volatile double errorRate;
+  // when false, received envelopes are only counted, so that memory doesn't grow under load
+  private volatile boolean storeItems = true;
+
+  private final AtomicLong receivedItemCount = new AtomicLong();
+  private final AtomicLong receivedRequestDataCount = new AtomicLong();
+  private final AtomicLong rejectedBatchCount = new AtomicLong();
+  // time from the end of each request until its telemetry is received
+  private final AtomicLong requestLatencySumMillis = new AtomicLong();
+  private final AtomicLong requestLatencyMaxMillis = new AtomicLong();
+
   MockedAppInsightsIngestionServlet() {
     type2envelope = MultimapBuilder.treeKeys().arrayListValues().build();
   }
@@ -49,6 +69,11 @@ class MockedAppInsightsIngestionServlet extends HttpServlet {
     synchronized (multimapLock) {
       type2envelope.clear();
     }
+    receivedItemCount.set(0);
+    receivedRequestDataCount.set(0);
+    rejectedBatchCount.set(0);
+    requestLatencySumMillis.set(0);
+    requestLatencyMaxMillis.set(0);
   }
 
   boolean hasData() {
@@ -107,6 +132,20 @@ class MockedAppInsightsIngestionServlet extends HttpServlet {
 
   @Override
   protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    if (responseDelayMillis > 0) {
+      try {
+        Thread.sleep(responseDelayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+      rejectedBatchCount.incrementAndGet();
+      // retriable, so the agent will persist the batch to disk
+      resp.sendError(503, "Injected error");
+      return;
+    }
+
     String contentEncoding = req.getHeader("content-encoding");
     Readable reader;
     if ("gzip".equals(contentEncoding)) {
@@ -125,10 +164,39 @@ class MockedAppInsightsIngestionServlet extends HttpServlet {
     for (String line : lines) {
       Envelope envelope = JsonHelper.GSON.fromJson(line.trim(), Envelope.class);
       String baseType = envelope.getData().getBaseType();
-      synchronized (multimapLock) {
-        type2envelope.put(baseType, envelope);
+      receivedItemCount.incrementAndGet();
+      if ("RequestData".equals(baseType)) {
+        receivedRequestDataCount.incrementAndGet();
+        recordRequestLatency(envelope);
       }
+      if (storeItems) {
+        synchronized (multimapLock) {
+          type2envelope.put(baseType, envelope);
+        }
+      }
+    }
+  }
+
+  private void recordRequestLatency(Envelope envelope) {
+    Base data = envelope.getData();
+    if (envelope.getTime() == null || !(data instanceof Data)) {
+      return;
+    }
+    Object baseData = ((Data<?>) data).getBaseData();
+    if (!(baseData instanceof RequestData)) {
+      return;
     }
+    long endMillis;
+    try {
+      endMillis =
+          OffsetDateTime.parse(envelope.getTime()).toInstant().toEpochMilli()
+              + ((RequestData) baseData).getDuration().getTotalMilliseconds();
+    } catch (DateTimeParseException e) {
+      return;
+    }
+    long latencyMillis = Math.max(0, System.currentTimeMillis() - endMillis);
+    requestLatencySumMillis.addAndGet(latencyMillis);
+    requestLatencyMaxMillis.accumulateAndGet(latencyMillis, Math::max);
   }
 
   @Override
@@ -145,6 +213,23 @@ class MockedAppInsightsIngestionServlet extends HttpServlet {
       return;
     }
 
+    if ("/stats".equals(req.getPathInfo())) {
+      resp.setContentType("application/json");
+      resp.getWriter()
+          .append("{\"items\":")
+          .append(String.valueOf(receivedItemCount.get()))
+          .append(",\"requests\":")
+          .append(String.valueOf(receivedRequestDataCount.get()))
+          .append(",\"rejectedBatches\":")
+          .append(String.valueOf(rejectedBatchCount.get()))
+          .append(",\"requestLatencySumMillis\":")
+          .append(String.valueOf(requestLatencySumMillis.get()))
+          .append(",\"requestLatencyMaxMillis\":")
+          .append(String.valueOf(requestLatencyMaxMillis.get()))
+          .append("}");
+      return;
+    }
+
     if ("/".equals(req.getPathInfo())) {
       // just to help with debugging when hitting the endpoint manually
       resp.getWriter().append("Fake AI Endpoint Online");
@@ -153,7 +238,28 @@ class MockedAppInsightsIngestionServlet extends HttpServlet {
     }
   }
 
+  @Override
+  protected void doDelete(HttpServletRequest req, HttpServletResponse resp) {
+    if ("/stats".equals(req.getPathInfo())) {
+      resetData();
+    } else {
+      resp.setStatus(404);
+    }
+  }
+
   public void setRequestLoggingEnabled(boolean enabled) {
     loggingEnabled = enabled;
   }
+
+  void setResponseDelayMillis(long responseDelayMillis) {
+    this.responseDelayMillis = responseDelayMillis;
+  }
+
+  void setErrorRate(double errorRate) {
+    this.errorRate = errorRate;
+  }
+
+  void setStoreItems(boolean storeItems) {
+    this.storeItems = storeItems;
+  }
 }